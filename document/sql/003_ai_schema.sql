@@ -178,19 +178,34 @@ CREATE TABLE ai_conversation (
   KEY idx_conv_pinned (estab_id, user_id, pinned, gmt_modified)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='AI对话';
 
--- Spring AI 聊天记忆（JDBC 持久化）
--- 设计理由：这是 Spring AI 1.1.2 JdbcChatMemoryRepository 要求的标准表结构。
--- Spring AI 框架会自动读写此表，我们不做任何字段修改以保持兼容性。
--- conversation_id 与 ai_conversation.conversation_id 逻辑关联（非外键，因为此表由框架管理）。
--- 注意：此表无 BaseEntity 字段，完全遵循 Spring AI 官方 schema。
+-- Spring AI 聊天记忆（完整历史）
+-- 设计理由：在 Spring AI 1.1.2 JdbcChatMemoryRepository 标准表结构上增加自增主键，由 AppendOnlyChatMemoryRepository 读写。
+-- 只插入不删除窗口外的消息，保存会话完整历史；活跃窗口在 Redis 中，按 id 倒序读取最近 N 条回填。
+-- conversation_id 与 ai_conversation.conversation_id 逻辑关联（非外键）。
+-- 注意：此表无 BaseEntity 字段，其余字段与 Spring AI 官方 schema 一致。
 DROP TABLE IF EXISTS SPRING_AI_CHAT_MEMORY;
 CREATE TABLE IF NOT EXISTS SPRING_AI_CHAT_MEMORY (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
   `conversation_id` VARCHAR(36) NOT NULL,
   `content` TEXT NOT NULL,
   `type` ENUM('USER', 'ASSISTANT', 'SYSTEM', 'TOOL') NOT NULL,
   `timestamp` TIMESTAMP NOT NULL,
-  INDEX `SPRING_AI_CHAT_MEMORY_CONVERSATION_ID_TIMESTAMP_IDX` (`conversation_id`, `timestamp`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='Spring AI聊天记忆(框架标准表)';
+  PRIMARY KEY (`id`),
+  INDEX `SPRING_AI_CHAT_MEMORY_CONVERSATION_ID_IDX` (`conversation_id`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='Spring AI聊天记忆(只追加完整历史)';
+
+-- Spring AI 聊天记忆摘要
+-- 设计理由：历史消息超出模型 token 预算时，较早的消息被压缩为一条摘要，作为系统消息固定在记忆窗口首位。
+-- covered_until_id 为摘要覆盖的最后一条 SPRING_AI_CHAT_MEMORY.id，从 MySQL 重建窗口时只读取其后的消息；
+-- 被覆盖的消息仍保留在 SPRING_AI_CHAT_MEMORY 中，对话详情展示完整历史。
+DROP TABLE IF EXISTS SPRING_AI_CHAT_MEMORY_SUMMARY;
+CREATE TABLE IF NOT EXISTS SPRING_AI_CHAT_MEMORY_SUMMARY (
+  `conversation_id` VARCHAR(36) NOT NULL,
+  `content` TEXT NOT NULL,
+  `covered_until_id` BIGINT NOT NULL DEFAULT 0,
+  `timestamp` TIMESTAMP NOT NULL,
+  PRIMARY KEY (`conversation_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='Spring AI聊天记忆摘要';
 
 -- ============================
 -- Tool / MCP / Skill 管理
@@ -450,6 +465,8 @@ CREATE TABLE kb_document (
 -- embedding_id 关联向量数据库中的向量记录（向量本身存储在 VectorStore 中，如 Milvus/PGVector，
 -- 而非 MySQL，因为 MySQL 不适合高维向量检索）。
 -- 此表是 MySQL 侧的元数据索引，与向量数据库形成互补。
+-- ftx_chunk_content 为 ngram 全文索引（InnoDB 全文检索按 BM25/TF-IDF 计算相关度），作为混合检索的词法召回通道，
+-- 弥补向量检索对编号、代码、专有名词等精确字面匹配的不足；ngram 分词同时覆盖中文与英文。
 DROP TABLE IF EXISTS kb_document_chunk;
 CREATE TABLE kb_document_chunk (
   id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
@@ -460,6 +477,7 @@ CREATE TABLE kb_document_chunk (
   token_count INT NOT NULL DEFAULT 0 COMMENT '切片token数',
   start_offset INT DEFAULT NULL COMMENT '在原文中的起始字符偏移',
   end_offset INT DEFAULT NULL COMMENT '在原文中的结束字符偏移',
+  content_hash CHAR(64) DEFAULT NULL COMMENT '切片内容哈希(SHA-256)，增量向量化时识别未变化的切片',
   embedding_id VARCHAR(64) DEFAULT NULL COMMENT '向量数据库中的向量ID(UUID)',
   metadata JSON DEFAULT NULL COMMENT '切片元数据(如标题层级、页码等)',
   create_by BIGINT DEFAULT NULL COMMENT '创建人用户ID',
@@ -471,9 +489,48 @@ CREATE TABLE kb_document_chunk (
   gmt_modified DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '修改时间',
   UNIQUE KEY uk_doc_chunk (document_id, chunk_index),
   KEY idx_chunk_kb (knowledge_base_id, document_id),
-  KEY idx_chunk_embedding (embedding_id)
+  KEY idx_chunk_embedding (embedding_id),
+  FULLTEXT KEY ftx_chunk_content (content) WITH PARSER ngram
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='文档切片';
 
+-- 向量化任务
+-- 设计理由：向量化由"提交即在本实例内存中执行"改为持久化任务队列，一个文档一个任务：
+-- 1) 多实例共同消费，领取 / 心跳 / 回收均为带前置状态条件的单条 UPDATE，以影响行数判定归属；
+-- 2) 调度按组织公平（estab_id 维度执行中任务数优先级 + 上限），单个组织大批量提交不会饿死其他组织；
+-- 3) 实例宕机后心跳超时（heartbeat_at）的任务放回队列，按 checkpoint_chunks 从已写入向量库的切片之后续跑，
+--    content_hash 校验文档内容未变才复用检查点；
+-- 4) round_id 将同一次提交的任务归为一轮，用于统计知识库向量化进度与吞吐（替代单实例内存统计）。
+DROP TABLE IF EXISTS kb_vectorize_job;
+CREATE TABLE kb_vectorize_job (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+  estab_id BIGINT NOT NULL COMMENT '组织ID',
+  knowledge_base_id BIGINT NOT NULL COMMENT '知识库ID',
+  document_id BIGINT NOT NULL COMMENT '文档ID',
+  round_id BIGINT NOT NULL COMMENT '轮次ID(同一轮提交的任务共享)',
+  status TINYINT NOT NULL DEFAULT 0 COMMENT '状态 0排队 1执行中 2完成 3失败 4取消',
+  attempts INT NOT NULL DEFAULT 0 COMMENT '已执行次数',
+  content_hash CHAR(64) DEFAULT NULL COMMENT '检查点对应的文档内容哈希(SHA-256)',
+  total_chunks INT NOT NULL DEFAULT 0 COMMENT '切片总数',
+  pending_chunks INT NOT NULL DEFAULT 0 COMMENT '需嵌入写入的切片数',
+  checkpoint_chunks INT NOT NULL DEFAULT 0 COMMENT '已写入向量库的切片数(检查点)',
+  worker_id VARCHAR(64) DEFAULT NULL COMMENT '执行实例标识',
+  heartbeat_at DATETIME(3) DEFAULT NULL COMMENT '最近心跳时间',
+  started_at DATETIME(3) DEFAULT NULL COMMENT '首次开始时间',
+  finished_at DATETIME(3) DEFAULT NULL COMMENT '结束时间',
+  error_message VARCHAR(512) DEFAULT NULL COMMENT '失败原因',
+  create_by BIGINT DEFAULT NULL COMMENT '创建人用户ID',
+  update_by BIGINT DEFAULT NULL COMMENT '更新人用户ID',
+  delete_by BIGINT DEFAULT NULL COMMENT '删除人用户ID',
+  deleted TINYINT NOT NULL DEFAULT 0 COMMENT '逻辑删除 0未删 1已删',
+  lock_version INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
+  gmt_create DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间',
+  gmt_modified DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '修改时间',
+  KEY idx_job_status_estab (status, estab_id, id),
+  KEY idx_job_kb_round (knowledge_base_id, round_id),
+  KEY idx_job_doc (document_id, status),
+  KEY idx_job_heartbeat (status, heartbeat_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='向量化任务';
+
 -- ============================
 -- AI 用量统计
 -- ============================
@@ -502,6 +559,8 @@ CREATE TABLE ai_usage_log (
   finish_reason VARCHAR(32) DEFAULT NULL COMMENT '结束原因(stop/length/tool_calls/error)',
   success TINYINT NOT NULL DEFAULT 1 COMMENT '是否成功 1成功 0失败',
   error_message VARCHAR(512) DEFAULT NULL COMMENT '错误信息',
+  cache_hit TINYINT NOT NULL DEFAULT 0 COMMENT '是否命中语义回答缓存 1是 0否',
+  saved_tokens INT NOT NULL DEFAULT 0 COMMENT '命中缓存节省的token数',
   ext_json JSON DEFAULT NULL COMMENT '扩展信息',
   create_by BIGINT DEFAULT NULL COMMENT '创建人用户ID',
   update_by BIGINT DEFAULT NULL COMMENT '更新人用户ID',
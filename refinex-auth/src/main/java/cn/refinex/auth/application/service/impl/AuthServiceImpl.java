@@ -33,6 +33,7 @@ import cn.refinex.auth.infrastructure.mapper.ScrRoleUserMapper;
 import cn.refinex.auth.infrastructure.security.AuthSecurityService;
 import cn.refinex.auth.application.service.AuthService;
 import cn.refinex.auth.infrastructure.persistence.service.LoginLogService;
+import cn.refinex.auth.infrastructure.session.LoginUserChangePublisher;
 import cn.refinex.auth.infrastructure.verification.VerificationCodeService;
 import cn.refinex.base.exception.BizException;
 import cn.refinex.satoken.helper.LoginUserHelper;
@@ -70,6 +71,7 @@ public class AuthServiceImpl implements AuthService {
     private final ScrRoleMapper scrRoleMapper;
     private final ScrRoleUserMapper scrRoleUserMapper;
     private final AuthRbacMapper authRbacMapper;
+    private final LoginUserChangePublisher loginUserChangePublisher;
 
     /**
      * 发送验证码
@@ -442,6 +444,7 @@ public class AuthServiceImpl implements AuthService {
         }
 
         LoginUserHelper.setLoginUser(loginUser);
+        loginUserChangePublisher.publish(subject.getUserId());
 
         TokenInfo tokenInfo = new TokenInfo();
         tokenInfo.setTokenName(StpUtil.getTokenName());
@@ -4,12 +4,18 @@ import cn.refinex.auth.config.AuthProperties;
 import cn.refinex.auth.domain.error.AuthErrorCode;
 import cn.refinex.auth.domain.model.LoginContext;
 import cn.refinex.base.exception.BizException;
+import cn.refinex.limiter.api.LimitRule;
 import cn.refinex.limiter.api.RateLimiter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 认证安全防护
+ * <p>
+ * 同一请求的 IP / 标识 / 设备维度规则通过 {@link RateLimiter#tryAcquireAll(List)} 一次原子校验，任一维度超限时不消耗其他维度的次数。
  *
  * @author refinex
  */
@@ -28,14 +34,17 @@ public class AuthSecurityService {
      */
     public void checkSmsSend(String phone, LoginContext context) {
         String ip = normalize(context == null ? null : context.getIp());
-        if (!rateLimiter.tryAcquire("auth:sms:ip:" + ip, authProperties.getSmsIpLimit(), authProperties.getSmsWindowSeconds())) {
-            throw new BizException(AuthErrorCode.CODE_SEND_TOO_FREQUENT);
-        }
-        if (phone != null && !rateLimiter.tryAcquire("auth:sms:phone:" + phone, authProperties.getSmsPhoneLimit(), authProperties.getSmsWindowSeconds())) {
-            throw new BizException(AuthErrorCode.CODE_SEND_TOO_FREQUENT);
-        }
         String deviceId = normalize(context == null ? null : context.getDeviceId());
-        if (!rateLimiter.tryAcquire("auth:sms:device:" + deviceId, authProperties.getSmsDeviceLimit(), authProperties.getSmsWindowSeconds())) {
+        int window = authProperties.getSmsWindowSeconds();
+
+        List<LimitRule> rules = new ArrayList<>(3);
+        rules.add(LimitRule.of("auth:sms:ip:" + ip, authProperties.getSmsIpLimit(), window));
+        if (phone != null) {
+            rules.add(LimitRule.of("auth:sms:phone:" + phone, authProperties.getSmsPhoneLimit(), window));
+        }
+        rules.add(LimitRule.of("auth:sms:device:" + deviceId, authProperties.getSmsDeviceLimit(), window));
+
+        if (rateLimiter.tryAcquireAll(rules) != RateLimiter.ACQUIRED) {
             throw new BizException(AuthErrorCode.CODE_SEND_TOO_FREQUENT);
         }
     }
@@ -49,14 +58,17 @@ public class AuthSecurityService {
     public void checkEmailSend(String email, LoginContext context) {
         String normalizedEmail = normalize(email).toLowerCase();
         String ip = normalize(context == null ? null : context.getIp());
-        if (!rateLimiter.tryAcquire("auth:email:ip:" + ip, authProperties.getEmailIpLimit(), authProperties.getEmailWindowSeconds())) {
-            throw new BizException(AuthErrorCode.CODE_SEND_TOO_FREQUENT);
-        }
-        if (email != null && !rateLimiter.tryAcquire("auth:email:addr:" + normalizedEmail, authProperties.getEmailAddressLimit(), authProperties.getEmailWindowSeconds())) {
-            throw new BizException(AuthErrorCode.CODE_SEND_TOO_FREQUENT);
-        }
         String deviceId = normalize(context == null ? null : context.getDeviceId());
-        if (!rateLimiter.tryAcquire("auth:email:device:" + deviceId, authProperties.getEmailDeviceLimit(), authProperties.getEmailWindowSeconds())) {
+        int window = authProperties.getEmailWindowSeconds();
+
+        List<LimitRule> rules = new ArrayList<>(3);
+        rules.add(LimitRule.of("auth:email:ip:" + ip, authProperties.getEmailIpLimit(), window));
+        if (email != null) {
+            rules.add(LimitRule.of("auth:email:addr:" + normalizedEmail, authProperties.getEmailAddressLimit(), window));
+        }
+        rules.add(LimitRule.of("auth:email:device:" + deviceId, authProperties.getEmailDeviceLimit(), window));
+
+        if (rateLimiter.tryAcquireAll(rules) != RateLimiter.ACQUIRED) {
             throw new BizException(AuthErrorCode.CODE_SEND_TOO_FREQUENT);
         }
     }
@@ -69,10 +81,15 @@ public class AuthSecurityService {
      */
     public void checkRegister(String identifier, LoginContext context) {
         String ip = normalize(context == null ? null : context.getIp());
-        if (!rateLimiter.tryAcquire("auth:reg:ip:" + ip, authProperties.getRegisterIpLimit(), authProperties.getRegisterWindowSeconds())) {
-            throw new BizException(AuthErrorCode.REGISTER_TOO_FREQUENT);
+        int window = authProperties.getRegisterWindowSeconds();
+
+        List<LimitRule> rules = new ArrayList<>(2);
+        rules.add(LimitRule.of("auth:reg:ip:" + ip, authProperties.getRegisterIpLimit(), window));
+        if (identifier != null) {
+            rules.add(LimitRule.of("auth:reg:id:" + identifier, authProperties.getRegisterIdentifierLimit(), window));
         }
-        if (identifier != null && !rateLimiter.tryAcquire("auth:reg:id:" + identifier, authProperties.getRegisterIdentifierLimit(), authProperties.getRegisterWindowSeconds())) {
+
+        if (rateLimiter.tryAcquireAll(rules) != RateLimiter.ACQUIRED) {
             throw new BizException(AuthErrorCode.REGISTER_TOO_FREQUENT);
         }
     }
@@ -85,10 +102,15 @@ public class AuthSecurityService {
      */
     public void checkLogin(String identifier, LoginContext context) {
         String ip = normalize(context == null ? null : context.getIp());
-        if (!rateLimiter.tryAcquire("auth:login:ip:" + ip, authProperties.getLoginIpLimit(), authProperties.getLoginWindowSeconds())) {
-            throw new BizException(AuthErrorCode.LOGIN_TOO_FREQUENT);
+        int window = authProperties.getLoginWindowSeconds();
+
+        List<LimitRule> rules = new ArrayList<>(2);
+        rules.add(LimitRule.of("auth:login:ip:" + ip, authProperties.getLoginIpLimit(), window));
+        if (identifier != null) {
+            rules.add(LimitRule.of("auth:login:id:" + identifier, authProperties.getLoginIdentifierLimit(), window));
         }
-        if (identifier != null && !rateLimiter.tryAcquire("auth:login:id:" + identifier, authProperties.getLoginIdentifierLimit(), authProperties.getLoginWindowSeconds())) {
+
+        if (rateLimiter.tryAcquireAll(rules) != RateLimiter.ACQUIRED) {
             throw new BizException(AuthErrorCode.LOGIN_TOO_FREQUENT);
         }
     }
@@ -0,0 +1,41 @@
+package cn.refinex.auth.infrastructure.session;
+
+import cn.refinex.api.user.model.context.LoginUser;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+/**
+ * 登录用户 Session 变更广播
+ * <p>
+ * Session 中的 LoginUser 被改写（登录、登出、切换企业、权限变更）后发布 loginId，
+ * 通知网关等持有本地 LoginUser 缓存的节点失效。广播失败不影响主流程，由订阅方缓存过期兜底。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoginUserChangePublisher {
+
+    private final RedissonClient redissonClient;
+
+    /**
+     * 发布 Session 变更
+     *
+     * @param loginId 登录id
+     */
+    public void publish(Object loginId) {
+        if (loginId == null) {
+            return;
+        }
+        try {
+            redissonClient.getTopic(LoginUser.SESSION_CHANGED_CHANNEL, StringCodec.INSTANCE)
+                    .publish(String.valueOf(loginId));
+        } catch (Exception e) {
+            log.warn("Failed to publish LoginUser session change, loginId: {}", loginId, e);
+        }
+    }
+}
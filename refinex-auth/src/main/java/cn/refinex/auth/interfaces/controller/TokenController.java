@@ -8,6 +8,7 @@ import cn.refinex.auth.api.vo.TokenInfo;
 import cn.refinex.auth.domain.error.AuthErrorCode;
 import cn.refinex.auth.infrastructure.client.user.UserRemoteGateway;
 import cn.refinex.auth.infrastructure.mapper.AuthRbacMapper;
+import cn.refinex.auth.infrastructure.session.LoginUserChangePublisher;
 import cn.refinex.base.exception.BizException;
 import cn.refinex.web.vo.Result;
 import jakarta.validation.Valid;
@@ -34,6 +35,7 @@ public class TokenController {
 
     private final UserRemoteGateway userRemoteGateway;
     private final AuthRbacMapper authRbacMapper;
+    private final LoginUserChangePublisher loginUserChangePublisher;
 
     /**
      * 获取当前登录的token信息
@@ -110,6 +112,7 @@ public class TokenController {
         loginUser.setPermissionCodes(permissionCodes == null ? Collections.emptyList() : permissionCodes);
 
         LoginUserHelper.setLoginUser(loginUser);
+        loginUserChangePublisher.publish(loginUser.getUserId());
         return Result.success(loginUser);
     }
 }
@@ -5,6 +5,7 @@ import cn.dev33.satoken.stp.parameter.SaLoginParameter;
 import cn.refinex.auth.domain.model.LoginLogContextHolder;
 import cn.refinex.auth.domain.model.LoginLogEvent;
 import cn.refinex.auth.infrastructure.persistence.service.LoginLogService;
+import cn.refinex.auth.infrastructure.session.LoginUserChangePublisher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -20,6 +21,7 @@ import org.springframework.stereotype.Component;
 public class AuthSaTokenListener extends SaTokenListenerForSimple {
 
     private final LoginLogService loginLogService;
+    private final LoginUserChangePublisher loginUserChangePublisher;
 
     /**
      * 登录时触发
@@ -40,4 +42,40 @@ public class AuthSaTokenListener extends SaTokenListenerForSimple {
             log.warn("Sa-Token login listener error", ex);
         }
     }
+
+    /**
+     * 注销时触发
+     *
+     * @param loginType  账号类别
+     * @param loginId    账号id
+     * @param tokenValue token 值
+     */
+    @Override
+    public void doLogout(String loginType, Object loginId, String tokenValue) {
+        loginUserChangePublisher.publish(loginId);
+    }
+
+    /**
+     * 被踢下线时触发
+     *
+     * @param loginType  账号类别
+     * @param loginId    账号id
+     * @param tokenValue token 值
+     */
+    @Override
+    public void doKickout(String loginType, Object loginId, String tokenValue) {
+        loginUserChangePublisher.publish(loginId);
+    }
+
+    /**
+     * 被顶下线时触发
+     *
+     * @param loginType  账号类别
+     * @param loginId    账号id
+     * @param tokenValue token 值
+     */
+    @Override
+    public void doReplaced(String loginType, Object loginId, String tokenValue) {
+        loginUserChangePublisher.publish(loginId);
+    }
 }
@@ -4,11 +4,16 @@ import cn.refinex.ai.application.dto.DocumentChunkDTO;
 import cn.refinex.ai.application.dto.DocumentDTO;
 import cn.refinex.ai.application.dto.FolderDTO;
 import cn.refinex.ai.application.dto.KnowledgeBaseDTO;
+import cn.refinex.ai.application.dto.VectorizationProgressDTO;
+import cn.refinex.ai.application.dto.VectorizeJobDTO;
 import cn.refinex.ai.domain.model.entity.DocumentChunkEntity;
 import cn.refinex.ai.domain.model.entity.DocumentEntity;
 import cn.refinex.ai.domain.model.entity.FolderEntity;
 import cn.refinex.ai.domain.model.entity.KnowledgeBaseEntity;
+import cn.refinex.ai.domain.model.entity.VectorizeJobEntity;
+import cn.refinex.ai.domain.model.entity.VectorizeRoundEntity;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 /**
  * KB 领域层组装器（Entity → DTO）
@@ -49,4 +54,24 @@ public interface KbDomainAssembler {
      * @return 文档切片 DTO
      */
     DocumentChunkDTO toDocumentChunkDto(DocumentChunkEntity entity);
+
+    /**
+     * 将向量化轮次统计转换为进度 DTO（运行状态、耗时与吞吐由调用方计算）
+     *
+     * @param round 轮次统计
+     * @return 进度 DTO
+     */
+    @Mapping(target = "running", ignore = true)
+    @Mapping(target = "elapsedMillis", ignore = true)
+    @Mapping(target = "documentsPerSecond", ignore = true)
+    @Mapping(target = "chunksPerSecond", ignore = true)
+    VectorizationProgressDTO toVectorizationProgressDto(VectorizeRoundEntity round);
+
+    /**
+     * 将向量化任务实体转换为任务 DTO
+     *
+     * @param entity 任务实体
+     * @return 任务 DTO
+     */
+    VectorizeJobDTO toVectorizeJobDto(VectorizeJobEntity entity);
 }
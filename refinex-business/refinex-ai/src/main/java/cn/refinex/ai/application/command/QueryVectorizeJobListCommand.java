@@ -0,0 +1,37 @@
+package cn.refinex.ai.application.command;
+
+import lombok.Data;
+
+/**
+ * 查询向量化任务列表命令
+ *
+ * @author refinex
+ */
+@Data
+public class QueryVectorizeJobListCommand {
+
+    /**
+     * 知识库ID
+     */
+    private Long knowledgeBaseId;
+
+    /**
+     * 文档ID
+     */
+    private Long documentId;
+
+    /**
+     * 状态 0排队 1执行中 2完成 3失败 4取消
+     */
+    private Integer status;
+
+    /**
+     * 当前页码
+     */
+    private Integer currentPage;
+
+    /**
+     * 每页数量
+     */
+    private Integer pageSize;
+}
@@ -25,6 +25,21 @@ public class UpdateDocumentCommand {
      */
     private Long folderId;
 
+    /**
+     * 原始文件存储地址（变更时重新提取内容）
+     */
+    private String fileUrl;
+
+    /**
+     * 文件大小(字节)
+     */
+    private Long fileSize;
+
+    /**
+     * 编辑后的文档纯文本内容（未变更文件地址时生效）
+     */
+    private String content;
+
     /**
      * 状态 1正常 0禁用
      */
@@ -7,7 +7,7 @@ import cn.refinex.ai.domain.error.AiErrorCode;
 import cn.refinex.ai.domain.model.entity.*;
 import cn.refinex.ai.domain.model.enums.ProviderProtocol;
 import cn.refinex.ai.domain.repository.AiRepository;
-import cn.refinex.ai.infrastructure.ai.ChatModelRegistry;
+import cn.refinex.ai.infrastructure.ai.ProvisionSnapshotCache;
 import cn.refinex.base.config.RefinexCryptoProperties;
 import cn.refinex.base.exception.BizException;
 import cn.refinex.base.response.PageResponse;
@@ -42,7 +42,7 @@ public class AiApplicationService {
     private final AiRepository aiRepository;
     private final AiDomainAssembler aiDomainAssembler;
     private final RefinexCryptoProperties cryptoProperties;
-    private final ChatModelRegistry chatModelRegistry;
+    private final ProvisionSnapshotCache provisionSnapshotCache;
 
     // ══════════════════════════════════════
     // Provider（供应商）
@@ -154,7 +154,7 @@ public class AiApplicationService {
         existing.setExtJson(trimToNull(command.getExtJson()));
 
         aiRepository.updateProvider(existing);
-        chatModelRegistry.evictAll();
+        provisionSnapshotCache.publishChangeAll();
         return aiDomainAssembler.toProviderDto(requireProvider(existing.getId()));
     }
 
@@ -171,7 +171,7 @@ public class AiApplicationService {
             throw new BizException("该供应商下仍有关联模型，请先删除模型", AiErrorCode.INVALID_PARAM);
         }
         aiRepository.deleteProviderById(providerId);
-        chatModelRegistry.evictAll();
+        provisionSnapshotCache.publishChangeAll();
     }
 
     // ══════════════════════════════════════
@@ -304,7 +304,7 @@ public class AiApplicationService {
         existing.setExtJson(trimToNull(command.getExtJson()));
 
         aiRepository.updateModel(existing);
-        chatModelRegistry.evictAll();
+        provisionSnapshotCache.publishChangeAll();
         return aiDomainAssembler.toModelDto(requireModel(existing.getId()));
     }
 
@@ -317,7 +317,7 @@ public class AiApplicationService {
     public void deleteModel(Long modelId) {
         requireModel(modelId);
         aiRepository.deleteModelById(modelId);
-        chatModelRegistry.evictAll();
+        provisionSnapshotCache.publishChangeAll();
     }
 
     // ══════════════════════════════════════
@@ -547,6 +547,7 @@ public class AiApplicationService {
         entity.setExtJson(trimToNull(command.getExtJson()));
 
         ModelProvisionEntity created = aiRepository.insertModelProvision(entity);
+        provisionSnapshotCache.publishChange(estabId);
         ModelProvisionDTO dto = aiDomainAssembler.toModelProvisionDto(created);
         enrichModelProvisionDtos(List.of(dto));
         return dto;
@@ -579,7 +580,7 @@ public class AiApplicationService {
         existing.setExtJson(trimToNull(command.getExtJson()));
 
         aiRepository.updateModelProvision(existing);
-        chatModelRegistry.evict(existing.getId());
+        provisionSnapshotCache.publishChange(existing.getEstabId());
         ModelProvisionDTO dto = aiDomainAssembler.toModelProvisionDto(requireModelProvision(existing.getId()));
         enrichModelProvisionDtos(List.of(dto));
         return dto;
@@ -592,9 +593,9 @@ public class AiApplicationService {
      */
     @Transactional(rollbackFor = Exception.class)
     public void deleteModelProvision(Long provisionId) {
-        requireModelProvision(provisionId);
+        ModelProvisionEntity existing = requireModelProvision(provisionId);
         aiRepository.deleteModelProvisionById(provisionId);
-        chatModelRegistry.evict(provisionId);
+        provisionSnapshotCache.publishChange(existing.getEstabId());
     }
 
     // ══════════════════════════════════════
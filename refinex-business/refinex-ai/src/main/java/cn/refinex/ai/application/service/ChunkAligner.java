@@ -0,0 +1,204 @@
+package cn.refinex.ai.application.service;
+
+import cn.refinex.ai.domain.model.entity.DocumentChunkEntity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文档切片对齐器
+ * <p>
+ * 文档内容编辑后，将重新切分得到的新切片与已有切片行对齐，使向量库与切片表只做最小变更：
+ * <ol>
+ *     <li>内容哈希相同的切片按出现顺序一一配对（IDENTICAL），原向量与切片行直接复用</li>
+ *     <li>剩余新切片在相邻已配对切片之间的位置窗口内，按字符 3-gram Jaccard 相似度匹配旧切片（MODIFIED），
+ *     复用切片行，内容与向量替换为新的</li>
+ *     <li>仍未配对的新切片为新增（ADDED），未被配对的旧切片为删除</li>
+ * </ol>
+ *
+ * @author refinex
+ */
+final class ChunkAligner {
+
+    /**
+     * 判定为同一切片修改的最低相似度
+     */
+    static final double SIMILARITY_THRESHOLD = 0.5;
+
+    /**
+     * 单个新切片最多比较的候选旧切片数，避免大段重排时退化为 O(n²)
+     */
+    private static final int MAX_CANDIDATES = 16;
+
+    private static final int SHINGLE_SIZE = 3;
+
+    private ChunkAligner() {
+    }
+
+    /**
+     * 对齐新旧切片
+     *
+     * @param newTexts  新切片文本（按位置）
+     * @param newHashes 新切片内容哈希（按位置）
+     * @param existing  已有切片（按 chunkIndex 升序，须已带内容哈希）
+     * @return 对齐结果
+     */
+    static Alignment align(List<String> newTexts, List<String> newHashes, List<DocumentChunkEntity> existing) {
+        int newSize = newHashes.size();
+        int oldSize = existing.size();
+        int[] oldPositions = new int[newSize];
+        MatchType[] types = new MatchType[newSize];
+        Arrays.fill(oldPositions, -1);
+        boolean[] used = new boolean[oldSize];
+
+        // 1. 内容哈希完全一致
+        Map<String, Deque<Integer>> oldByHash = new HashMap<>();
+        for (int j = 0; j < oldSize; j++) {
+            oldByHash.computeIfAbsent(existing.get(j).getContentHash(), k -> new ArrayDeque<>()).add(j);
+        }
+        for (int i = 0; i < newSize; i++) {
+            Deque<Integer> candidates = oldByHash.get(newHashes.get(i));
+            Integer j = candidates != null ? candidates.poll() : null;
+            if (j != null) {
+                oldPositions[i] = j;
+                types[i] = MatchType.IDENTICAL;
+                used[j] = true;
+            }
+        }
+
+        // 2. 位置窗口内按相似度匹配：窗口为左右最近已配对切片对应的旧位置之间
+        int[] nextAnchor = new int[newSize];
+        int anchor = oldSize;
+        for (int i = newSize - 1; i >= 0; i--) {
+            nextAnchor[i] = anchor;
+            if (oldPositions[i] >= 0) {
+                anchor = oldPositions[i];
+            }
+        }
+
+        Map<Integer, Set<Integer>> oldShingles = new HashMap<>();
+        int prevAnchor = -1;
+        for (int i = 0; i < newSize; i++) {
+            if (oldPositions[i] >= 0) {
+                prevAnchor = Math.max(prevAnchor, oldPositions[i]);
+                continue;
+            }
+
+            int upper = Math.max(nextAnchor[i], prevAnchor + 1);
+            Set<Integer> newShingles = null;
+            int best = -1;
+            double bestScore = SIMILARITY_THRESHOLD;
+            int compared = 0;
+            for (int j = prevAnchor + 1; j < Math.min(upper, oldSize) && compared < MAX_CANDIDATES; j++) {
+                if (used[j]) {
+                    continue;
+                }
+                if (newShingles == null) {
+                    newShingles = shingles(newTexts.get(i));
+                }
+                final int oldPos = j;
+                double score = jaccard(newShingles, oldShingles.computeIfAbsent(j, k -> shingles(existing.get(oldPos).getContent())));
+                if (score >= bestScore) {
+                    bestScore = score;
+                    best = j;
+                }
+                compared++;
+            }
+
+            if (best >= 0) {
+                oldPositions[i] = best;
+                types[i] = MatchType.MODIFIED;
+                used[best] = true;
+                prevAnchor = best;
+            } else {
+                types[i] = MatchType.ADDED;
+            }
+        }
+
+        List<DocumentChunkEntity> matched = new ArrayList<>(newSize);
+        for (int i = 0; i < newSize; i++) {
+            matched.add(oldPositions[i] >= 0 ? existing.get(oldPositions[i]) : null);
+        }
+        List<DocumentChunkEntity> removed = new ArrayList<>();
+        for (int j = 0; j < oldSize; j++) {
+            if (!used[j]) {
+                removed.add(existing.get(j));
+            }
+        }
+        return new Alignment(matched, List.of(types), removed);
+    }
+
+    /**
+     * 字符 n-gram 指纹集合
+     *
+     * @param text 文本
+     * @return n-gram 哈希集合
+     */
+    private static Set<Integer> shingles(String text) {
+        Set<Integer> result = new HashSet<>();
+        if (text == null || text.isEmpty()) {
+            return result;
+        }
+        if (text.length() <= SHINGLE_SIZE) {
+            result.add(text.hashCode());
+            return result;
+        }
+        for (int i = 0; i + SHINGLE_SIZE <= text.length(); i++) {
+            result.add(text.substring(i, i + SHINGLE_SIZE).hashCode());
+        }
+        return result;
+    }
+
+    private static double jaccard(Set<Integer> a, Set<Integer> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        Set<Integer> smaller = a.size() <= b.size() ? a : b;
+        Set<Integer> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (Integer shingle : smaller) {
+            if (larger.contains(shingle)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    /**
+     * 新切片的对齐类型
+     */
+    enum MatchType {
+
+        /**
+         * 内容未变，复用旧切片
+         */
+        IDENTICAL,
+
+        /**
+         * 内容修改，复用旧切片行
+         */
+        MODIFIED,
+
+        /**
+         * 新增切片
+         */
+        ADDED
+    }
+
+    /**
+     * 对齐结果
+     *
+     * @param matched 每个新切片配对的旧切片（ADDED 为 null）
+     * @param types   每个新切片的对齐类型
+     * @param removed 未被配对、需删除的旧切片
+     */
+    record Alignment(List<DocumentChunkEntity> matched, List<MatchType> types, List<DocumentChunkEntity> removed) {
+    }
+}
@@ -11,6 +11,7 @@ import cn.refinex.ai.domain.model.enums.ModelType;
 import cn.refinex.ai.domain.model.enums.RequestType;
 import cn.refinex.ai.domain.repository.AiRepository;
 import cn.refinex.ai.infrastructure.ai.*;
+import cn.refinex.ai.infrastructure.persistence.repository.AppendOnlyChatMemoryRepository;
 import cn.refinex.ai.interfaces.vo.ChatMessageVO;
 import cn.refinex.ai.interfaces.vo.ConversationDetailVO;
 import cn.refinex.base.exception.BizException;
@@ -26,9 +27,7 @@ import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.client.advisor.api.Advisor;
-import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
@@ -48,10 +47,9 @@ import org.springframework.ai.moderation.ModerationModel;
 import org.springframework.ai.moderation.ModerationPrompt;
 import org.springframework.ai.moderation.ModerationResponse;
 import org.springframework.ai.moderation.ModerationResult;
+import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
+import org.springframework.ai.rag.generation.augmentation.ContextualQueryAugmenter;
 import org.springframework.ai.template.st.StTemplateRenderer;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
@@ -85,9 +83,11 @@ public class ConversationApplicationService {
     private final ImageModelRouter imageModelRouter;
     private final TranscriptionModelRouter transcriptionModelRouter;
     private final ModerationModelRouter moderationModelRouter;
-    private final VectorStoreRouter vectorStoreRouter;
+    private final RetrievalCoordinator retrievalCoordinator;
+    private final AnswerCache answerCache;
     private final ChatMemory chatMemory;
-    private final JdbcChatMemoryRepository jdbcChatMemoryRepository;
+    private final AppendOnlyChatMemoryRepository chatMemoryRepository;
+    private final ChatMemoryCompactor chatMemoryCompactor;
     private final FileService fileService;
     private final tools.jackson.databind.ObjectMapper jsonMapper;
 
@@ -120,6 +120,7 @@ public class ConversationApplicationService {
      * 5. 图片生成
      * 6. 提示模版
      * 7. 音频处理
+     * 8. 语义回答缓存（新建对话首轮提问命中时直接回放历史回答）
      *
      * @param command 流式对话命令
      * @return SSE 流
@@ -134,6 +135,9 @@ public class ConversationApplicationService {
                     if (isPrefixContinueEligible(command, ctx)) {
                         return buildPrefixContinuePipeline(command, ctx);
                     }
+                    if (ctx.answerLookup() != null && ctx.answerLookup().hit() != null) {
+                        return buildCachedAnswerPipeline(command, ctx);
+                    }
                     return buildStreamPipeline(command, ctx);
                 });
     }
@@ -179,9 +183,9 @@ public class ConversationApplicationService {
         vo.setSystemPrompt(dto.getSystemPrompt());
         vo.setExtJson(dto.getExtJson());
 
-        // 从 JdbcChatMemoryRepository 加载消息历史
+        // 加载完整消息历史（ChatMemory 只返回最近的窗口）
         List<ChatMessageVO> messages = new ArrayList<>();
-        for (var msg : jdbcChatMemoryRepository.findByConversationId(conversationId)) {
+        for (var msg : chatMemoryRepository.findHistory(conversationId)) {
             ChatMessageVO msgVo = new ChatMessageVO();
             msgVo.setType(msg.getMessageType().name());
             msgVo.setContent(msg.getText());
@@ -250,7 +254,10 @@ public class ConversationApplicationService {
         AtomicReference<Usage> usageRef = new AtomicReference<>();
         AtomicReference<String> finishReasonRef = new AtomicReference<>();
         AtomicReference<List<Document>> retrievedDocsRef = new AtomicReference<>();
+        AtomicReference<String> referencesRef = new AtomicReference<>();
         AtomicLong startTime = new AtomicLong(System.currentTimeMillis());
+        StringBuilder reasoningCollector = new StringBuilder();
+        StringBuilder contentCollector = new StringBuilder();
 
         ChatClient chatClient = buildChatClient(ctx.chatModel(), ctx.systemPrompt(), ctx);
 
@@ -270,19 +277,29 @@ public class ConversationApplicationService {
                 .doOnNext(chatResponse -> {
                     captureMetadata(chatResponse, usageRef, finishReasonRef);
                     captureRetrievedDocuments(chatResponse, retrievedDocsRef);
+                    if (ctx.answerLookup() != null) {
+                        collectReasoning(chatResponse, ctx.capReasoning(), reasoningCollector);
+                        collectText(chatResponse, contentCollector);
+                    }
                 })
                 .flatMapIterable(chatResponse -> extractSseEvents(chatResponse, ctx.capReasoning()))
                 .concatWith(Flux.defer(() -> {
                     List<ServerSentEvent<String>> tail = new ArrayList<>();
                     if (retrievedDocsRef.get() != null && !retrievedDocsRef.get().isEmpty()) {
-                        tail.add(buildReferencesEvent(retrievedDocsRef.get()));
+                        ServerSentEvent<String> references = buildReferencesEvent(retrievedDocsRef.get());
+                        referencesRef.set(references.data());
+                        tail.add(references);
                     }
                     tail.add(ServerSentEvent.<String>builder().event("done").data(DONE_EVENT_DATA).build());
                     return Flux.fromIterable(tail);
                 }))
                 .doOnComplete(() ->
-                        Mono.fromRunnable(() -> onStreamComplete(command, ctx, usageRef.get(), finishReasonRef.get(),
-                                        (int) (System.currentTimeMillis() - startTime.get())))
+                        Mono.fromRunnable(() -> {
+                                    onStreamComplete(command, ctx, usageRef.get(), finishReasonRef.get(),
+                                            (int) (System.currentTimeMillis() - startTime.get()));
+                                    cacheAnswer(ctx, usageRef.get(), finishReasonRef.get(),
+                                            reasoningCollector, contentCollector, referencesRef.get());
+                                })
                                 .subscribeOn(Schedulers.boundedElastic()).subscribe()
                 )
                 .doOnError(error -> {
@@ -459,7 +476,117 @@ public class ConversationApplicationService {
     }
 
     /**
-     * 前缀续写完成后的回调：持久化消息到 ChatMemory + 记录用量日志
+     * 从流式响应帧中收集推理内容到 StringBuilder（仅 DeepSeek 推理模型）
+     *
+     * @param chatResponse       流式响应帧
+     * @param capReasoning       是否支持深度推理
+     * @param reasoningCollector 推理内容收集器
+     */
+    private void collectReasoning(ChatResponse chatResponse, boolean capReasoning, StringBuilder reasoningCollector) {
+        if (capReasoning && chatResponse.getResult().getOutput() instanceof DeepSeekAssistantMessage deepSeekMsg) {
+            String reasoning = deepSeekMsg.getReasoningContent();
+            if (reasoning != null && !reasoning.isEmpty()) {
+                reasoningCollector.append(reasoning);
+            }
+        }
+    }
+
+    /**
+     * 将正常结束的回答写入语义回答缓存（被截断或异常结束的回答不缓存）
+     *
+     * @param ctx                对话上下文
+     * @param usage              Token 用量
+     * @param finishReason       结束原因
+     * @param reasoningCollector 推理内容
+     * @param contentCollector   回答内容
+     * @param references         references 事件数据（可为 null）
+     */
+    private void cacheAnswer(ChatContext ctx, Usage usage, String finishReason, StringBuilder reasoningCollector,
+                             StringBuilder contentCollector, String references) {
+        if (ctx.answerLookup() == null || !"stop".equalsIgnoreCase(finishReason)) {
+            return;
+        }
+        int totalTokens = usage != null && usage.getTotalTokens() != null ? usage.getTotalTokens() : 0;
+        String reasoning = reasoningCollector.isEmpty() ? null : reasoningCollector.toString();
+        answerCache.put(ctx.answerLookup(),
+                new AnswerCache.CachedAnswer(reasoning, contentCollector.toString(), references, totalTokens));
+    }
+
+    /**
+     * 构建缓存回答回放管道
+     * <p>
+     * 按正常生成时的事件顺序回放：reasoning → answer（按固定字符数分段）→ references → done。
+     * 回放后写入 ChatMemory，保证后续多轮对话有完整历史；会话保留截取的临时标题，不再调用模型生成标题。
+     *
+     * @param command 流式对话命令
+     * @param ctx     对话上下文
+     * @return SSE 流
+     */
+    private Flux<ServerSentEvent<String>> buildCachedAnswerPipeline(StreamChatCommand command, ChatContext ctx) {
+        long startTime = System.currentTimeMillis();
+        AnswerCache.CachedAnswer cached = ctx.answerLookup().hit();
+
+        List<ServerSentEvent<String>> events = new ArrayList<>();
+        if (cached.reasoning() != null && !cached.reasoning().isEmpty()) {
+            events.add(ServerSentEvent.<String>builder().event("reasoning").data(cached.reasoning()).build());
+        }
+        String answer = cached.answer();
+        int chunkSize = Math.max(1, answerCache.replayChunkSize());
+        for (int i = 0; i < answer.length(); i += chunkSize) {
+            events.add(ServerSentEvent.<String>builder().event("answer")
+                    .data(answer.substring(i, Math.min(answer.length(), i + chunkSize))).build());
+        }
+        if (cached.references() != null) {
+            events.add(ServerSentEvent.<String>builder().event("references").data(cached.references()).build());
+        }
+        events.add(ServerSentEvent.<String>builder().event("done").data(DONE_EVENT_DATA).build());
+
+        return Flux.fromIterable(events)
+                .doOnComplete(() ->
+                        Mono.fromRunnable(() -> onCachedAnswerComplete(command, ctx, cached,
+                                        (int) (System.currentTimeMillis() - startTime)))
+                                .subscribeOn(Schedulers.boundedElastic()).subscribe()
+                );
+    }
+
+    /**
+     * 缓存回答回放完成后的回调：持久化消息到 ChatMemory + 记录命中的用量日志
+     *
+     * @param command    流式对话命令
+     * @param ctx        对话上下文
+     * @param cached     回放的回答
+     * @param durationMs 耗时（毫秒）
+     */
+    private void onCachedAnswerComplete(StreamChatCommand command, ChatContext ctx, AnswerCache.CachedAnswer cached, int durationMs) {
+        try {
+            chatMemory.add(ctx.conversationId(), List.of(
+                    new UserMessage(command.getMessage()),
+                    new AssistantMessage(cached.answer())
+            ));
+        } catch (Exception e) {
+            log.error("缓存回答消息持久化失败, conversationId={}", ctx.conversationId(), e);
+        }
+
+        try {
+            UsageLogEntity usageLog = new UsageLogEntity();
+            usageLog.setEstabId(command.getEstabId());
+            usageLog.setUserId(command.getUserId());
+            usageLog.setConversationId(ctx.conversationId());
+            usageLog.setModelId(ctx.modelId());
+            usageLog.setRequestType(RequestType.CHAT.getCode());
+            usageLog.setDurationMs(durationMs);
+            usageLog.setFinishReason("stop");
+            usageLog.setSuccess(1);
+            usageLog.setCacheHit(1);
+            usageLog.setSavedTokens(cached.totalTokens());
+            aiRepository.insertUsageLog(usageLog);
+        } catch (Exception e) {
+            log.error("记录缓存命中调用日志失败, conversationId={}", ctx.conversationId(), e);
+        }
+    }
+
+    /**
+     * 前缀续写完成后的回调：持久化消息到 ChatMemory + 记录用量日志 + 异步压缩超出预算的记忆
      *
      * @param command          流式对话命令
      * @param ctx              对话上下文
@@ -481,10 +608,11 @@ public class ConversationApplicationService {
         }
 
         recordUsageLog(command, ctx, usageRef.get(), finishReasonRef.get(), (int) (System.currentTimeMillis() - startTime.get()), true, null);
+        chatMemoryCompactor.compactAsync(command.getEstabId(), ctx.modelId(), ctx.conversationId());
     }
 
     /**
-     * 流式对话完成后的回调：记录用量日志 + 异步生成标题
+     * 流式对话完成后的回调：记录用量日志 + 异步生成标题 + 异步压缩超出预算的记忆
      *
      * @param command      流式对话命令
      * @param ctx          对话上下文
@@ -499,6 +627,8 @@ public class ConversationApplicationService {
         if (ctx.isNewConversation()) {
             generateTitleAsync(ctx.conversationId(), ctx.chatModel(), command.getMessage());
         }
+
+        chatMemoryCompactor.compactAsync(command.getEstabId(), ctx.modelId(), ctx.conversationId());
     }
 
     /**
@@ -525,13 +655,20 @@ public class ConversationApplicationService {
                 ? resolveChatModel(resolution.modelId(), command.getEstabId())
                 : null;
 
-        RagResolution rag = resolveRag(command);
+        List<KnowledgeBaseEntity> ragKnowledgeBases = resolveRag(command);
+
+        // ── 语义回答缓存（仅新建对话的首轮纯文本提问）──
+        AnswerCache.Lookup answerLookup = null;
+        if (answerCache.isEnabled() && resolution.isNewConversation() && chatModel != null && !hasImages(command)) {
+            answerLookup = answerCache.lookup(command.getEstabId(), resolution.modelId(), ragKnowledgeBases,
+                    resolution.systemPrompt(), command.getRagTopK(), command.getRagSimilarityThreshold(), command.getMessage());
+        }
 
         return new ChatContext(
                 resolution.conversationId(), resolution.modelId(), resolution.systemPrompt(),
                 chatModel, resolution.isNewConversation(),
                 metadata.capReasoning(), metadata.providerCode(), metadata.modelType(),
-                rag.knowledgeBaseIds(), rag.vectorStore(), command.getRagTopK(), command.getRagSimilarityThreshold()
+                ragKnowledgeBases, command.getRagTopK(), command.getRagSimilarityThreshold(), answerLookup
         );
     }
 
@@ -586,31 +723,25 @@ public class ConversationApplicationService {
     }
 
     /**
-     * 解析知识库列表并获取 VectorStore 实例
+     * 解析有效的已向量化知识库（检索时按嵌入模型分组，各自使用对应的 VectorStore）
      *
      * @param command 流式对话命令
-     * @return RAG 解析结果
+     * @return 已向量化的知识库，无有效知识库时返回 null
      */
-    private RagResolution resolveRag(StreamChatCommand command) {
+    private List<KnowledgeBaseEntity> resolveRag(StreamChatCommand command) {
         if (command.getKnowledgeBaseIds() == null || command.getKnowledgeBaseIds().isEmpty()) {
-            return new RagResolution(null, null);
+            return null;
         }
 
-        List<Long> validKbIds = new ArrayList<>();
-        VectorStore vectorStore = null;
-
+        List<KnowledgeBaseEntity> validKbs = new ArrayList<>();
         for (Long kbId : command.getKnowledgeBaseIds()) {
             KnowledgeBaseEntity kb = aiRepository.findKnowledgeBaseById(kbId);
-            if (!isVectorizedKnowledgeBase(kb)) {
-                continue;
-            }
-            if (vectorStore == null) {
-                vectorStore = tryResolveVectorStore(kb, kbId);
+            if (isVectorizedKnowledgeBase(kb)) {
+                validKbs.add(kb);
             }
-            validKbIds.add(kbId);
         }
 
-        return new RagResolution(validKbIds.isEmpty() ? null : validKbIds, vectorStore);
+        return validKbs.isEmpty() ? null : validKbs;
     }
 
     /**
@@ -624,34 +755,6 @@ public class ConversationApplicationService {
                 && kb.getVectorized() != null && kb.getVectorized() == 1;
     }
 
-    /**
-     * 尝试为知识库解析 VectorStore，失败时返回 null
-     *
-     * @param kb   知识库实体
-     * @param kbId 知识库ID（用于日志）
-     * @return VectorStore 实例，失败返回 null
-     */
-    private VectorStore tryResolveVectorStore(KnowledgeBaseEntity kb, Long kbId) {
-        try {
-            return vectorStoreRouter.resolve(kb);
-        } catch (Exception e) {
-            log.warn("解析知识库 VectorStore 失败, kbId={}", kbId, e);
-            return null;
-        }
-    }
-
-    /**
-     * RAG 解析结果（内部传递用）
-     *
-     * @param knowledgeBaseIds 有效的知识库ID列表
-     * @param vectorStore      VectorStore 实例
-     */
-    private record RagResolution(
-            List<Long> knowledgeBaseIds,
-            VectorStore vectorStore
-    ) {
-    }
-
     /**
      * 解析或创建会话，返回会话基本信息
      *
@@ -927,22 +1030,14 @@ public class ConversationApplicationService {
         List<Advisor> advisors = new ArrayList<>();
         advisors.add(MessageChatMemoryAdvisor.builder(chatMemory).build());
 
-        // 条件挂载 RAG Advisor
-        if (ctx.vectorStore() != null && ctx.knowledgeBaseIds() != null && !ctx.knowledgeBaseIds().isEmpty()) {
-            FilterExpressionBuilder b = new FilterExpressionBuilder();
-            Object[] kbIdStrings = ctx.knowledgeBaseIds().stream().map(String::valueOf).toArray(Object[]::new);
-
+        // 条件挂载 RAG Advisor（按嵌入模型分组并行混合检索）
+        if (ctx.knowledgeBases() != null && !ctx.knowledgeBases().isEmpty()) {
             int topK = ctx.ragTopK() != null ? ctx.ragTopK() : 5;
             double threshold = ctx.ragSimilarityThreshold() != null ? ctx.ragSimilarityThreshold() : 0.0;
 
-            SearchRequest searchRequest = SearchRequest.builder()
-                    .topK(topK)
-                    .similarityThreshold(threshold)
-                    .filterExpression(b.in("knowledge_base_id", kbIdStrings).build())
-                    .build();
-
-            advisors.add(QuestionAnswerAdvisor.builder(ctx.vectorStore())
-                    .searchRequest(searchRequest)
+            advisors.add(RetrievalAugmentationAdvisor.builder()
+                    .documentRetriever(retrievalCoordinator.documentRetriever(ctx.knowledgeBases(), topK, threshold))
+                    .queryAugmenter(ContextualQueryAugmenter.builder().allowEmptyContext(true).build())
                     .build());
         }
 
@@ -970,7 +1065,7 @@ public class ConversationApplicationService {
             return;
         }
 
-        Object docs = chatResponse.getMetadata().get(QuestionAnswerAdvisor.RETRIEVED_DOCUMENTS);
+        Object docs = chatResponse.getMetadata().get(RetrievalAugmentationAdvisor.DOCUMENT_CONTEXT);
         if (docs instanceof List<?> docList && !docList.isEmpty()) {
             ref.set((List<Document>) docs);
         }
@@ -1294,10 +1389,10 @@ public class ConversationApplicationService {
      * @param capReasoning           是否支持深度推理
      * @param providerCode           供应商编码
      * @param modelType              模型类型 1聊天 2嵌入 3图像生成 4语音转文字 5文字转语音 6重排序
-     * @param knowledgeBaseIds       知识库ID列表（RAG）
-     * @param vectorStore            VectorStore 实例（RAG）
+     * @param knowledgeBases         已向量化的知识库（RAG）
      * @param ragTopK                RAG检索返回文档数
      * @param ragSimilarityThreshold RAG相似度阈值
+     * @param answerLookup           语义回答缓存查询结果（未启用或不适用时为 null）
      */
     private record ChatContext(
             String conversationId,
@@ -1308,10 +1403,10 @@ public class ConversationApplicationService {
             boolean capReasoning,
             String providerCode,
             Integer modelType,
-            List<Long> knowledgeBaseIds,
-            VectorStore vectorStore,
+            List<KnowledgeBaseEntity> knowledgeBases,
             Integer ragTopK,
-            Double ragSimilarityThreshold
+            Double ragSimilarityThreshold,
+            AnswerCache.Lookup answerLookup
     ) {
     }
 }
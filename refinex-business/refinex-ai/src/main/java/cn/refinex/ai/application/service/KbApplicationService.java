@@ -10,7 +10,11 @@ import cn.refinex.ai.domain.model.entity.DocumentChunkEntity;
 import cn.refinex.ai.domain.model.entity.DocumentEntity;
 import cn.refinex.ai.domain.model.entity.FolderEntity;
 import cn.refinex.ai.domain.model.entity.KnowledgeBaseEntity;
+import cn.refinex.ai.domain.model.enums.VectorStatus;
 import cn.refinex.ai.domain.repository.AiRepository;
+import cn.refinex.ai.infrastructure.ai.DocumentContentExtractor;
+import cn.refinex.ai.infrastructure.ai.TokenCounter;
+import cn.refinex.ai.infrastructure.ai.VectorStoreRegistry;
 import cn.refinex.ai.infrastructure.ai.VectorStoreRouter;
 import cn.refinex.base.exception.BizException;
 import cn.refinex.base.response.PageResponse;
@@ -18,17 +22,14 @@ import cn.refinex.base.utils.PageUtils;
 import cn.refinex.ai.infrastructure.config.ReactiveLoginUserHolder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 import static org.apache.commons.lang3.ObjectUtils.getIfNull;
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -48,6 +49,8 @@ public class KbApplicationService {
     private final KbDomainAssembler kbDomainAssembler;
     private final VectorStoreRouter vectorStoreRouter;
     private final VectorizationService vectorizationService;
+    private final DocumentContentExtractor documentContentExtractor;
+    private final TokenCounter tokenCounter;
 
     // ══════════════════════════════════════
     // KnowledgeBase（知识库）
@@ -428,10 +431,62 @@ public class KbApplicationService {
         existing.setRemark(trimToNull(command.getRemark()));
         existing.setExtJson(trimToNull(command.getExtJson()));
 
+        // 内容变更：替换文件时重新提取，否则采用直接编辑的文本
+        String previousContent = existing.getContent();
+        String fileUrl = trimToNull(command.getFileUrl());
+        if (fileUrl != null && !fileUrl.equals(existing.getFileUrl())) {
+            existing.setFileUrl(fileUrl);
+            existing.setFileSize(command.getFileSize());
+            extractDocumentContent(existing);
+        } else if (command.getContent() != null) {
+            existing.setContent(command.getContent());
+            existing.setCharCount(command.getContent().length());
+            existing.setTokenCount(tokenCounter.count(command.getContent()));
+        }
+
         aiRepository.updateDocument(existing);
+
+        if (!Objects.equals(previousContent, existing.getContent())) {
+            revectorizeAfterCommit(existing);
+        }
         return kbDomainAssembler.toDocumentDto(requireDocument(existing.getId()));
     }
 
+    /**
+     * 已向量化文档内容变更后，事务提交后触发增量重新向量化
+     * <p>
+     * 增量模式仅对新增/修改的切片重新嵌入，旧向量在新切片落库前保持可检索。
+     *
+     * @param doc 文档实体
+     */
+    private void revectorizeAfterCommit(DocumentEntity doc) {
+        if (doc.getVectorStatus() == null || doc.getVectorStatus() == VectorStatus.NOT_VECTORIZED.getCode()) {
+            return;
+        }
+        KnowledgeBaseEntity kb = aiRepository.findKnowledgeBaseById(doc.getKnowledgeBaseId());
+        if (kb == null || kb.getVectorized() == null || kb.getVectorized() != 1) {
+            return;
+        }
+
+        Runnable trigger = () -> {
+            try {
+                vectorizationService.vectorizeDocument(kb.getId(), doc.getId());
+            } catch (Exception e) {
+                log.warn("文档内容变更后增量向量化触发失败: kbId={}, docId={}", kb.getId(), doc.getId(), e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    trigger.run();
+                }
+            });
+        } else {
+            trigger.run();
+        }
+    }
+
     /**
      * 删除文档（级联删除切片，更新 docCount）
      *
@@ -451,9 +506,8 @@ public class KbApplicationService {
                     .toList();
 
             if (!embeddingIds.isEmpty()) {
-                try {
-                    VectorStore vectorStore = vectorStoreRouter.resolve(kb);
-                    vectorStore.delete(embeddingIds);
+                try (VectorStoreRegistry.Lease lease = vectorStoreRouter.acquire(kb)) {
+                    lease.store().delete(embeddingIds);
                 } catch (Exception e) {
                     log.warn("删除文档时清理向量库失败: docId={}, error={}", id, e.getMessage());
                 }
@@ -566,9 +620,9 @@ public class KbApplicationService {
     }
 
     /**
-     * 通过 Tika 提取文档内容，写入 content/charCount/tokenCount
+     * 通过 Tika 流式提取文档内容，写入 content/charCount/tokenCount
      *
-     * <p>流程：fileUrl → UrlResource → TikaDocumentReader → 拼接纯文本 → 计算字符数和估算 token 数</p>
+     * <p>流程：fileUrl → 独立解析线程池 → Tika 文本事件 → 增量文本缓冲 → BPE 计数 token 数</p>
      *
      * @param entity 待填充内容的文档实体（需已设置 fileUrl）
      */
@@ -578,49 +632,9 @@ public class KbApplicationService {
             return;
         }
 
-        try {
-            UrlResource resource = new UrlResource(URI.create(fileUrl));
-            TikaDocumentReader reader = new TikaDocumentReader(resource);
-            List<Document> documents = reader.read();
-
-            String content = documents.stream()
-                    .map(Document::getText)
-                    .filter(text -> text != null && !text.isBlank())
-                    .collect(Collectors.joining("\n\n"));
-
-            entity.setContent(content);
-            entity.setCharCount(content.length());
-            entity.setTokenCount(estimateTokenCount(content));
-        } catch (Exception e) {
-            log.error("文档内容提取失败, fileUrl={}", fileUrl, e);
-            throw new BizException(AiErrorCode.KB_DOCUMENT_PARSE_FAILED);
-        }
-    }
-
-    /**
-     * 估算文本的 token 数量
-     *
-     * <p>简单估算策略：中文按 1 字符 ≈ 1 token，英文/数字按 4 字符 ≈ 1 token</p>
-     *
-     * @param text 纯文本内容
-     * @return 估算的 token 数
-     */
-    private int estimateTokenCount(String text) {
-        if (isBlank(text)) {
-            return 0;
-        }
-        int cjkCount = 0;
-        int otherCount = 0;
-        for (char c : text.toCharArray()) {
-            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN
-                    || Character.UnicodeScript.of(c) == Character.UnicodeScript.HIRAGANA
-                    || Character.UnicodeScript.of(c) == Character.UnicodeScript.KATAKANA
-                    || Character.UnicodeScript.of(c) == Character.UnicodeScript.HANGUL) {
-                cjkCount++;
-            } else {
-                otherCount++;
-            }
-        }
-        return cjkCount + (otherCount / 4);
+        DocumentContentExtractor.ExtractedContent extracted = documentContentExtractor.extract(fileUrl);
+        entity.setContent(extracted.content());
+        entity.setCharCount(extracted.charCount());
+        entity.setTokenCount(extracted.tokenCount());
     }
 }
@@ -0,0 +1,281 @@
+package cn.refinex.ai.application.service;
+
+import cn.refinex.ai.domain.model.entity.VectorizeJobEntity;
+import cn.refinex.ai.domain.repository.AiRepository;
+import cn.refinex.ai.infrastructure.config.VectorizationProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 向量化任务调度器
+ * <p>
+ * 单线程调度循环负责领取、心跳与回收，任务本身在 {@link VectorizationService#executeJob} 的响应式流水线中执行：
+ * <ul>
+ *     <li>有界并发：本实例同时执行的任务数不超过 {@code job.concurrency}，所有组织共享</li>
+ *     <li>组织公平：每次从全集群执行中任务最少的组织领取一个任务（轮转），且单个组织执行中任务不超过
+ *     {@code job.maxRunningPerEstab}，大批量提交只会排队而不会占满工作线程</li>
+ *     <li>宕机恢复：启动时及周期性地将心跳超时的任务放回队列从检查点续跑，超过最大执行次数则标记失败；
+ *     启动时为遗留的"向量化中"文档补建任务</li>
+ *     <li>优雅停机：停止本实例的流水线，并将执行中任务立即放回队列，由其他实例接手</li>
+ * </ul>
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "refinex.vectorization.job", name = "worker-enabled", havingValue = "true", matchIfMissing = true)
+public class VectorizationJobScheduler implements SmartLifecycle {
+
+    /**
+     * 单次调度最多考察的排队组织数
+     */
+    private static final int MAX_PENDING_ESTABS = 64;
+
+    /**
+     * 单次回收最多处理的超时任务数
+     */
+    private static final int STALE_SCAN_LIMIT = 200;
+
+    /**
+     * 启动时单次最多补建任务的遗留文档数
+     */
+    private static final int ORPHAN_SCAN_LIMIT = 1000;
+
+    private final AiRepository aiRepository;
+    private final VectorizationService vectorizationService;
+    private final VectorizationProperties.JobProperties properties;
+    private final String workerId;
+    private final Map<Long, Disposable.Swap> running = new ConcurrentHashMap<>();
+
+    private volatile ScheduledExecutorService executor;
+    private volatile boolean active;
+
+    public VectorizationJobScheduler(AiRepository aiRepository, VectorizationService vectorizationService,
+                                     VectorizationProperties vectorizationProperties) {
+        this.aiRepository = aiRepository;
+        this.vectorizationService = vectorizationService;
+        this.properties = vectorizationProperties.getJob();
+        String instance = ManagementFactory.getRuntimeMXBean().getName();
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        this.workerId = (instance.length() > 55 ? instance.substring(0, 55) : instance) + ":" + suffix;
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "vectorize-job-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        active = true;
+
+        long poll = Math.max(100, properties.getPollInterval().toMillis());
+        long heartbeat = Math.max(1000, properties.getHeartbeatInterval().toMillis());
+        long stale = Math.max(heartbeat, properties.getStaleTimeout().toMillis());
+
+        executor.execute(() -> guarded("启动恢复", this::recoverOnStartup));
+        executor.scheduleWithFixedDelay(() -> guarded("任务调度", this::dispatch), poll, poll, TimeUnit.MILLISECONDS);
+        executor.scheduleAtFixedRate(() -> guarded("任务心跳", this::heartbeat), heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(() -> guarded("超时回收", this::recoverStaleJobs), stale, stale, TimeUnit.MILLISECONDS);
+        log.info("向量化任务调度器已启动: workerId={}, concurrency={}, maxRunningPerEstab={}",
+                workerId, properties.getConcurrency(), properties.getMaxRunningPerEstab());
+    }
+
+    @Override
+    public void stop() {
+        active = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        running.values().forEach(Disposable::dispose);
+        running.clear();
+        try {
+            int requeued = aiRepository.requeueVectorizeJobsByWorker(workerId);
+            log.info("向量化任务调度器已停止: workerId={}, requeued={}", workerId, requeued);
+        } catch (Exception e) {
+            log.warn("停机时放回执行中任务失败，将由心跳超时回收: workerId={}, error={}", workerId, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return active;
+    }
+
+    /**
+     * 唤醒调度（有新任务入队或任务结束时调用），不等待下一个轮询周期
+     */
+    public void wakeUp() {
+        ScheduledExecutorService current = executor;
+        if (!active || current == null) {
+            return;
+        }
+        try {
+            current.execute(() -> guarded("任务调度", this::dispatch));
+        } catch (RejectedExecutionException ignored) {
+            // 已停机
+        }
+    }
+
+    /**
+     * 按组织公平领取排队任务，直至占满本实例空闲槽位
+     */
+    private void dispatch() {
+        int free = Math.max(1, properties.getConcurrency()) - running.size();
+        if (!active || free <= 0) {
+            return;
+        }
+
+        int cap = Math.max(1, properties.getMaxRunningPerEstab());
+        Map<Long, Integer> estabs = aiRepository.listPendingVectorizeEstabs(MAX_PENDING_ESTABS);
+        PriorityQueue<EstabQueue> queues = new PriorityQueue<>();
+        int order = 0;
+        for (Map.Entry<Long, Integer> entry : estabs.entrySet()) {
+            if (entry.getValue() < cap) {
+                queues.add(new EstabQueue(entry.getKey(), entry.getValue(), order++));
+            }
+        }
+
+        // 每次从执行中任务最少的组织领取一个，领取后该组织重新参与排序，实现组织间轮转
+        while (free > 0 && !queues.isEmpty()) {
+            EstabQueue queue = queues.poll();
+            if (queue.candidates == null) {
+                queue.candidates = new ArrayDeque<>(aiRepository.listClaimableVectorizeJobs(queue.estabId, Math.min(free, cap - queue.running)));
+            }
+            VectorizeJobEntity job = queue.candidates.poll();
+            if (job == null) {
+                continue;
+            }
+            if (aiRepository.claimVectorizeJob(job.getId(), workerId)) {
+                job.setAttempts((job.getAttempts() == null ? 0 : job.getAttempts()) + 1);
+                launch(job);
+                free--;
+                queue.running++;
+            }
+            if (queue.running < cap && !queue.candidates.isEmpty()) {
+                queues.add(queue);
+            }
+        }
+    }
+
+    /**
+     * 启动任务流水线，结束后释放槽位并立即触发下一轮调度
+     *
+     * @param job 已领取的任务
+     */
+    private void launch(VectorizeJobEntity job) {
+        Disposable.Swap slot = Disposables.swap();
+        running.put(job.getId(), slot);
+        log.info("领取向量化任务: jobId={}, estabId={}, kbId={}, docId={}, attempt={}",
+                job.getId(), job.getEstabId(), job.getKnowledgeBaseId(), job.getDocumentId(), job.getAttempts());
+        slot.update(vectorizationService.executeJob(job, workerId)
+                .doFinally(signal -> {
+                    running.remove(job.getId());
+                    wakeUp();
+                })
+                .subscribe(
+                        unused -> {},
+                        error -> log.error("向量化任务异常结束: jobId={}", job.getId(), error)
+                ));
+    }
+
+    /**
+     * 刷新本实例执行中任务的心跳
+     */
+    private void heartbeat() {
+        if (!running.isEmpty()) {
+            aiRepository.heartbeatVectorizeJobs(workerId);
+        }
+    }
+
+    /**
+     * 启动恢复：回收心跳超时任务，并为遗留的"向量化中"文档补建任务
+     */
+    private void recoverOnStartup() {
+        recoverStaleJobs();
+        int recovered = vectorizationService.recoverOrphanDocuments(ORPHAN_SCAN_LIMIT);
+        if (recovered > 0) {
+            log.info("为遗留的向量化中文档补建任务: documents={}", recovered);
+        }
+        dispatch();
+    }
+
+    /**
+     * 回收心跳超时的执行中任务：未达最大执行次数的放回队列从检查点续跑，否则标记失败
+     */
+    private void recoverStaleJobs() {
+        List<VectorizeJobEntity> staleJobs = aiRepository.listStaleVectorizeJobs(properties.getStaleTimeout(), STALE_SCAN_LIMIT);
+        int maxAttempts = Math.max(1, properties.getMaxAttempts());
+        for (VectorizeJobEntity job : staleJobs) {
+            if (running.containsKey(job.getId())) {
+                continue;
+            }
+            int attempts = job.getAttempts() == null ? 0 : job.getAttempts();
+            if (attempts >= maxAttempts) {
+                log.warn("向量化任务心跳超时且已达最大执行次数，标记失败: jobId={}, workerId={}, attempts={}",
+                        job.getId(), job.getWorkerId(), attempts);
+                vectorizationService.abandonJob(job, "执行实例心跳丢失，已重试 " + attempts + " 次");
+            } else if (aiRepository.requeueStaleVectorizeJob(job.getId(), properties.getStaleTimeout())) {
+                log.warn("向量化任务心跳超时，放回队列续跑: jobId={}, workerId={}, attempts={}, checkpoint={}/{}",
+                        job.getId(), job.getWorkerId(), attempts, job.getCheckpointChunks(), job.getPendingChunks());
+            }
+        }
+        if (!staleJobs.isEmpty()) {
+            dispatch();
+        }
+    }
+
+    /**
+     * 调度任务异常不中断周期执行
+     *
+     * @param name 任务名称
+     * @param task 调度任务
+     */
+    private void guarded(String name, Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("向量化任务调度异常: {}", name, e);
+        }
+    }
+
+    /**
+     * 调度中组织的排队状态
+     */
+    private static final class EstabQueue implements Comparable<EstabQueue> {
+
+        private final Long estabId;
+        private final int order;
+        private int running;
+        private Deque<VectorizeJobEntity> candidates;
+
+        private EstabQueue(Long estabId, int running, int order) {
+            this.estabId = estabId;
+            this.running = running;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(EstabQueue other) {
+            int byRunning = Integer.compare(running, other.running);
+            return byRunning != 0 ? byRunning : Integer.compare(order, other.order);
+        }
+    }
+}
@@ -2,37 +2,67 @@ package cn.refinex.ai.application.service;
 
 import cn.refinex.ai.application.assembler.KbDomainAssembler;
 import cn.refinex.ai.application.dto.DocumentChunkDTO;
+import cn.refinex.ai.application.command.QueryVectorizeJobListCommand;
 import cn.refinex.ai.application.dto.SearchResultDTO;
+import cn.refinex.ai.application.dto.VectorizationProgressDTO;
+import cn.refinex.ai.application.dto.VectorizeJobDTO;
 import cn.refinex.ai.domain.error.AiErrorCode;
 import cn.refinex.ai.domain.model.entity.DocumentChunkEntity;
 import cn.refinex.ai.domain.model.entity.DocumentEntity;
 import cn.refinex.ai.domain.model.entity.KnowledgeBaseEntity;
+import cn.refinex.ai.domain.model.entity.VectorizeJobEntity;
+import cn.refinex.ai.domain.model.entity.VectorizeRoundEntity;
 import cn.refinex.ai.domain.model.enums.VectorStatus;
+import cn.refinex.ai.domain.model.enums.VectorizeJobStatus;
 import cn.refinex.ai.domain.repository.AiRepository;
+import cn.refinex.ai.infrastructure.ai.AnswerCache;
+import cn.refinex.ai.infrastructure.ai.EmbeddingBatchExecutor;
+import cn.refinex.ai.infrastructure.ai.EmbeddingCache;
+import cn.refinex.ai.infrastructure.ai.EmbeddingModelRouter;
+import cn.refinex.ai.infrastructure.ai.HybridRetriever;
+import cn.refinex.ai.infrastructure.ai.PrecomputedEmbeddings;
+import cn.refinex.ai.infrastructure.ai.TokenCounter;
+import cn.refinex.ai.infrastructure.ai.VectorStoreRegistry;
 import cn.refinex.ai.infrastructure.ai.VectorStoreRouter;
+import cn.refinex.ai.infrastructure.config.VectorizationProperties;
 import cn.refinex.base.exception.BizException;
+import cn.refinex.base.response.PageResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * 向量化应用服务
  * <p>
  * 负责文档切片、嵌入向量化、向量存储、相似度检索等 RAG 核心能力。
+ * <p>
+ * 向量化请求只写入持久化任务（kb_vectorize_job），由 {@link VectorizationJobScheduler} 按组织公平领取后调用
+ * {@link #executeJob}：单个任务按 切片 → 嵌入 → 存储 → 切片落库 分阶段执行，嵌入按供应商策略做 token 感知分批，
+ * 并在命中限流时退避重试（{@link EmbeddingBatchExecutor}）；每写完一个批次推进检查点，实例宕机后从检查点续跑。
+ * 重新向量化为增量模式：按位置与内容相似度对齐已有切片（{@link ChunkAligner}），仅新增/修改的切片调用嵌入模型
+ * （先查 {@link EmbeddingCache}），向量库与切片表只做最小增删改。
  *
  * @author refinex
  */
@@ -43,12 +73,22 @@ public class VectorizationService {
 
     private final AiRepository aiRepository;
     private final VectorStoreRouter vectorStoreRouter;
+    private final EmbeddingModelRouter embeddingModelRouter;
+    private final EmbeddingBatchExecutor embeddingBatchExecutor;
+    private final PrecomputedEmbeddings precomputedEmbeddings;
+    private final EmbeddingCache embeddingCache;
+    private final HybridRetriever hybridRetriever;
+    private final TokenCounter tokenCounter;
+    private final AnswerCache answerCache;
+    private final VectorizationProperties vectorizationProperties;
     private final KbDomainAssembler kbDomainAssembler;
+    private final ObjectProvider<VectorizationJobScheduler> jobScheduler;
 
     /**
-     * 单文档异步向量化
+     * 单文档向量化入队
      * <p>
-     * 立即将文档状态设为 VECTORIZING 并返回，实际向量化在 boundedElastic 线程池异步执行。
+     * 立即将文档状态设为 VECTORIZING 并写入排队任务。文档已有排队任务时不重复入队（执行时读取最新内容）；
+     * 已有执行中任务时追加一个排队任务，待当前任务结束后再执行，保证内容编辑不丢失。
      *
      * @param kbId       知识库ID
      * @param documentId 文档ID
@@ -56,59 +96,65 @@ public class VectorizationService {
     public void vectorizeDocument(Long kbId, Long documentId) {
         KnowledgeBaseEntity kb = requireVectorizedKb(kbId);
         DocumentEntity doc = requireDocument(documentId);
-
-        if (doc.getVectorStatus() != null && doc.getVectorStatus() == VectorStatus.VECTORIZING.getCode()) {
-            throw new BizException(AiErrorCode.VECTORIZATION_IN_PROGRESS);
-        }
-
-        // 立即标记为向量化中
-        doc.setVectorStatus(VectorStatus.VECTORIZING.getCode());
-        doc.setVectorError(null);
-        aiRepository.updateDocument(doc);
-
-        // 异步执行向量化
-        Mono.fromRunnable(() -> doVectorize(kb, doc))
-                .subscribeOn(Schedulers.boundedElastic())
-                .subscribe(
-                        unused -> {},
-                        error -> log.error("文档向量化异步执行异常: kbId={}, docId={}", kbId, documentId, error)
-                );
+        enqueue(kb, List.of(doc));
     }
 
     /**
-     * 批量异步向量化知识库下所有待向量化文档
+     * 知识库下所有待向量化文档入队
      *
      * @param kbId 知识库ID
      */
     public void vectorizeKnowledgeBase(Long kbId) {
         KnowledgeBaseEntity kb = requireVectorizedKb(kbId);
-        List<DocumentEntity> docs = aiRepository.listDocumentsForVectorization(kbId);
+        enqueue(kb, aiRepository.listDocumentsForVectorization(kbId));
+    }
 
-        if (docs.isEmpty()) {
-            return;
+    /**
+     * 查询知识库最近一轮向量化进度
+     *
+     * @param kbId 知识库ID
+     * @return 进度 DTO，从未向量化时返回 null
+     */
+    public VectorizationProgressDTO getProgress(Long kbId) {
+        requireVectorizedKb(kbId);
+        VectorizeRoundEntity round = aiRepository.statLatestVectorizeRound(kbId);
+        if (round == null) {
+            return null;
         }
 
-        // 批量标记为向量化中
-        for (DocumentEntity doc : docs) {
-            doc.setVectorStatus(VectorStatus.VECTORIZING.getCode());
-            doc.setVectorError(null);
-            aiRepository.updateDocument(doc);
-        }
+        VectorizationProgressDTO progress = kbDomainAssembler.toVectorizationProgressDto(round);
+        boolean running = round.getActiveDocuments() != null && round.getActiveDocuments() > 0;
+        LocalDateTime finishedAt = running ? null : round.getFinishedAt();
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        long elapsedMillis = round.getStartedAt() != null ? Math.max(0, Duration.between(round.getStartedAt(), end).toMillis()) : 0;
+        double seconds = Math.max(elapsedMillis, 1) / 1000.0;
+
+        progress.setRunning(running);
+        progress.setFinishedAt(finishedAt);
+        progress.setElapsedMillis(elapsedMillis);
+        progress.setDocumentsPerSecond(round.getCompletedDocuments() / seconds);
+        progress.setChunksPerSecond(round.getChunks() / seconds);
+        return progress;
+    }
 
-        // 异步逐个向量化
-        Mono.fromRunnable(() -> {
-            for (DocumentEntity doc : docs) {
-                try {
-                    doVectorize(kb, doc);
-                } catch (Exception e) {
-                    log.error("批量向量化中单文档失败: kbId={}, docId={}", kbId, doc.getId(), e);
-                }
-            }
-        }).subscribeOn(Schedulers.boundedElastic())
-                .subscribe(
-                        unused -> {},
-                        error -> log.error("批量向量化异步执行异常: kbId={}", kbId, error)
-                );
+    /**
+     * 查询知识库向量化任务分页列表
+     *
+     * @param command 查询命令
+     * @return 任务分页列表（按提交倒序）
+     */
+    public PageResponse<VectorizeJobDTO> listJobs(QueryVectorizeJobListCommand command) {
+        requireVectorizedKb(command.getKnowledgeBaseId());
+        int currentPage = command.getCurrentPage() == null ? 1 : command.getCurrentPage();
+        int pageSize = command.getPageSize() == null ? 10 : command.getPageSize();
+
+        PageResponse<VectorizeJobEntity> jobs = aiRepository.listVectorizeJobs(
+                command.getKnowledgeBaseId(), command.getDocumentId(), command.getStatus(), currentPage, pageSize);
+        List<VectorizeJobDTO> result = new ArrayList<>();
+        for (VectorizeJobEntity job : jobs.getData()) {
+            result.add(kbDomainAssembler.toVectorizeJobDto(job));
+        }
+        return PageResponse.of(result, jobs.getTotal(), jobs.getPageSize(), jobs.getCurrentPage());
     }
 
     /**
@@ -121,6 +167,8 @@ public class VectorizationService {
         KnowledgeBaseEntity kb = requireVectorizedKb(kbId);
         DocumentEntity doc = requireDocument(documentId);
 
+        // 先取消未结束的任务，执行中的任务在下一个检查点发现后停止并清理本轮新写入的向量
+        aiRepository.cancelActiveVectorizeJobs(documentId);
         cleanExistingVectors(kb, documentId);
 
         doc.setVectorStatus(VectorStatus.NOT_VECTORIZED.getCode());
@@ -128,6 +176,7 @@ public class VectorizationService {
         doc.setChunkCount(0);
         doc.setLastVectorizedAt(null);
         aiRepository.updateDocument(doc);
+        answerCache.invalidateKnowledgeBase(kbId);
     }
 
     /**
@@ -152,30 +201,24 @@ public class VectorizationService {
     }
 
     /**
-     * 测试 RAG 检索
+     * 测试 RAG 检索（向量 + 全文混合检索，RRF 融合）
      *
      * @param kbId               知识库ID
      * @param query              查询文本
      * @param topK               返回结果数量
-     * @param similarityThreshold 相似度阈值
+     * @param similarityThreshold 向量通道相似度阈值
      * @return 检索结果列表
      */
     public List<SearchResultDTO> search(Long kbId, String query, Integer topK, Double similarityThreshold) {
         KnowledgeBaseEntity kb = requireVectorizedKb(kbId);
-        VectorStore vectorStore = vectorStoreRouter.resolve(kb);
 
         int k = (topK != null && topK > 0) ? topK : 5;
         double threshold = (similarityThreshold != null) ? similarityThreshold : 0.0;
 
-        FilterExpressionBuilder b = new FilterExpressionBuilder();
-        SearchRequest searchRequest = SearchRequest.builder()
-                .query(query)
-                .topK(k)
-                .similarityThreshold(threshold)
-                .filterExpression(b.eq("knowledge_base_id", String.valueOf(kbId)).build())
-                .build();
-
-        List<Document> results = vectorStore.similaritySearch(searchRequest);
+        List<Document> results;
+        try (VectorStoreRegistry.Lease lease = vectorStoreRouter.acquire(kb)) {
+            results = hybridRetriever.retrieve(lease.store(), List.of(kbId), query, k, threshold);
+        }
 
         List<SearchResultDTO> dtos = new ArrayList<>();
         for (Document doc : results) {
@@ -189,106 +232,552 @@ public class VectorizationService {
     }
 
     // ══════════════════════════════════════
-    // 内部方法
+    // 任务执行（由 VectorizationJobScheduler 调用）
     // ══════════════════════════════════════
 
     /**
-     * 执行单文档向量化核心流程
+     * 执行已领取的向量化任务
+     * <p>
+     * 切片后按供应商策略将待写切片分批，跳过检查点之前已写入向量库的切片；批次并发嵌入、并发写入，
+     * 每当连续完成的批次前缀推进时更新检查点。任务被取消或被其他实例回收时（检查点更新失败）立即停止。
+     * 返回的 Mono 不会以错误结束，失败已记录到任务与文档。
      *
-     * @param kb  知识库实体
-     * @param doc 文档实体
+     * @param job      已领取的任务
+     * @param workerId 执行实例标识
+     * @return 任务结束信号
      */
-    private void doVectorize(KnowledgeBaseEntity kb, DocumentEntity doc) {
-        try {
-            // 1. 清理已有向量和切片
-            cleanExistingVectors(kb, doc.getId());
+    public Mono<Void> executeJob(VectorizeJobEntity job, String workerId) {
+        return Mono.fromCallable(() -> prepareJob(job, workerId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(run -> embedAndStore(run)
+                        .then(Mono.<Void>fromRunnable(() -> completeJob(run)).subscribeOn(Schedulers.boundedElastic()))
+                        .onErrorResume(e -> Mono.<Void>fromRunnable(() -> failJob(job, workerId, run, e))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                        .doFinally(signal -> run.context().lease().close()))
+                .onErrorResume(e -> Mono.<Void>fromRunnable(() -> failJob(job, workerId, null, e))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
 
-            // 2. 文本切片
-            String content = doc.getContent();
-            if (content == null || content.isBlank()) {
-                doc.setVectorStatus(VectorStatus.FAILED.getCode());
-                doc.setVectorError("文档内容为空");
-                aiRepository.updateDocument(doc);
-                return;
-            }
+    /**
+     * 放弃心跳超时且已达最大执行次数的任务，标记任务与文档失败
+     *
+     * @param job     超时任务
+     * @param message 失败原因
+     */
+    public void abandonJob(VectorizeJobEntity job, String message) {
+        if (!aiRepository.finishVectorizeJob(job.getId(), job.getWorkerId(), VectorizeJobStatus.FAILED.getCode(), message)) {
+            return;
+        }
+        DocumentEntity doc = aiRepository.findDocumentById(job.getDocumentId());
+        if (doc != null) {
+            markFailed(job.getKnowledgeBaseId(), doc, new IllegalStateException(message));
+        }
+    }
 
-            int chunkSize = (kb.getChunkSize() != null && kb.getChunkSize() > 0) ? kb.getChunkSize() : 512;
-            int chunkOverlap = (kb.getChunkOverlap() != null && kb.getChunkOverlap() > 0) ? kb.getChunkOverlap() : 64;
-
-            TokenTextSplitter splitter = new TokenTextSplitter(
-                    chunkSize,                              // defaultChunkSize
-                    Math.max(chunkOverlap, 50),             // minChunkSizeChars
-                    5,                                      // minChunkLengthToEmbed
-                    10000,                                  // maxNumChunks
-                    true                                    // keepSeparator
-            );
-
-            // 构建 Spring AI Document 用于切片
-            Document sourceDoc = new Document(content);
-            List<Document> splitDocs = splitter.split(sourceDoc);
-
-            if (splitDocs.isEmpty()) {
-                doc.setVectorStatus(VectorStatus.FAILED.getCode());
-                doc.setVectorError("文档切片结果为空");
-                aiRepository.updateDocument(doc);
-                return;
+    /**
+     * 为处于向量化中、但没有未结束任务的文档补建任务（引入任务队列前遗留的"卡死"文档）
+     *
+     * @param limit 单次最多处理的文档数
+     * @return 补建任务的文档数
+     */
+    public int recoverOrphanDocuments(int limit) {
+        Map<Long, List<DocumentEntity>> docsByKb = new LinkedHashMap<>();
+        for (Long documentId : aiRepository.listOrphanVectorizingDocumentIds(limit)) {
+            DocumentEntity doc = aiRepository.findDocumentById(documentId);
+            if (doc != null) {
+                docsByKb.computeIfAbsent(doc.getKnowledgeBaseId(), k -> new ArrayList<>()).add(doc);
             }
+        }
 
-            // 3. 为每个切片注入 metadata
-            List<DocumentChunkEntity> chunkEntities = new ArrayList<>();
-            for (int i = 0; i < splitDocs.size(); i++) {
-                Document splitDoc = splitDocs.get(i);
-                Map<String, Object> metadata = new HashMap<>();
-                metadata.put("knowledge_base_id", String.valueOf(kb.getId()));
-                metadata.put("document_id", String.valueOf(doc.getId()));
-                metadata.put("estab_id", String.valueOf(kb.getEstabId()));
-                metadata.put("chunk_index", i);
-                metadata.put("doc_name", doc.getDocName());
-                splitDoc.getMetadata().putAll(metadata);
-
-                // 构建切片实体
-                DocumentChunkEntity chunk = new DocumentChunkEntity();
-                chunk.setDocumentId(doc.getId());
-                chunk.setKnowledgeBaseId(kb.getId());
-                chunk.setChunkIndex(i);
-                chunk.setContent(splitDoc.getText());
-                chunk.setTokenCount(estimateTokenCount(splitDoc.getText()));
-                chunk.setEmbeddingId(splitDoc.getId());
-                chunk.setMetadata(null);
-                chunkEntities.add(chunk);
+        int recovered = 0;
+        for (Map.Entry<Long, List<DocumentEntity>> entry : docsByKb.entrySet()) {
+            KnowledgeBaseEntity kb = aiRepository.findKnowledgeBaseById(entry.getKey());
+            boolean vectorized = kb != null && (kb.getDeleted() == null || kb.getDeleted() == 0)
+                    && kb.getVectorized() != null && kb.getVectorized() == 1;
+            if (!vectorized) {
+                for (DocumentEntity doc : entry.getValue()) {
+                    markFailed(entry.getKey(), doc, new BizException(AiErrorCode.KB_NOT_VECTORIZED));
+                }
+                continue;
             }
+            enqueue(kb, entry.getValue());
+            recovered += entry.getValue().size();
+        }
+        return recovered;
+    }
+
+    // ══════════════════════════════════════
+    // 内部方法
+    // ══════════════════════════════════════
 
-            // 4. VectorStore.add() — 内部自动调用 EmbeddingModel.embed() 并存储
-            VectorStore vectorStore = vectorStoreRouter.resolve(kb);
-            vectorStore.add(splitDocs);
+    /**
+     * 文档入队：跳过已有排队任务的文档，其余写入排队任务并标记为 VECTORIZING，随后唤醒本实例调度器
+     * <p>
+     * 知识库存在未结束任务时新任务并入当前轮次，否则开启新一轮（轮次用于统计知识库进度）。
+     *
+     * @param kb   知识库实体
+     * @param docs 待向量化文档
+     */
+    private void enqueue(KnowledgeBaseEntity kb, List<DocumentEntity> docs) {
+        if (docs.isEmpty()) {
+            return;
+        }
 
-            // 5. 回写 embeddingId（Spring AI Document.id 即向量 ID）
-            for (int i = 0; i < splitDocs.size(); i++) {
-                chunkEntities.get(i).setEmbeddingId(splitDocs.get(i).getId());
+        List<Long> documentIds = docs.stream().map(DocumentEntity::getId).toList();
+        Set<Long> queued = aiRepository.listActiveVectorizeJobsByDocumentIds(documentIds).stream()
+                .filter(job -> job.getStatus() != null && job.getStatus() == VectorizeJobStatus.PENDING.getCode())
+                .map(VectorizeJobEntity::getDocumentId)
+                .collect(Collectors.toSet());
+
+        Long roundId = aiRepository.findActiveVectorizeRoundId(kb.getId());
+        if (roundId == null) {
+            roundId = System.currentTimeMillis();
+        }
+
+        List<VectorizeJobEntity> jobs = new ArrayList<>();
+        for (DocumentEntity doc : docs) {
+            if (queued.contains(doc.getId())) {
+                continue;
             }
+            VectorizeJobEntity job = new VectorizeJobEntity();
+            job.setEstabId(kb.getEstabId() != null ? kb.getEstabId() : 0L);
+            job.setKnowledgeBaseId(kb.getId());
+            job.setDocumentId(doc.getId());
+            job.setRoundId(roundId);
+            job.setStatus(VectorizeJobStatus.PENDING.getCode());
+            job.setAttempts(0);
+            job.setTotalChunks(0);
+            job.setPendingChunks(0);
+            job.setCheckpointChunks(0);
+            jobs.add(job);
+        }
+        if (jobs.isEmpty()) {
+            return;
+        }
 
-            // 6. 持久化切片到 MySQL
-            aiRepository.batchInsertChunks(chunkEntities);
+        aiRepository.batchInsertVectorizeJobs(jobs);
+        aiRepository.updateDocumentsVectorStatus(jobs.stream().map(VectorizeJobEntity::getDocumentId).toList(),
+                VectorStatus.VECTORIZING.getCode());
+        log.info("向量化任务入队: kbId={}, roundId={}, jobs={}, skipped={}", kb.getId(), roundId, jobs.size(), queued.size());
 
-            // 7. 更新文档状态
-            doc.setVectorStatus(VectorStatus.COMPLETED.getCode());
+        jobScheduler.ifAvailable(VectorizationJobScheduler::wakeUp);
+    }
+
+    /**
+     * 任务准备：校验知识库与文档、解析嵌入模型并租用向量库（任务结束时归还），随后切片对齐
+     *
+     * @param job      已领取的任务
+     * @param workerId 执行实例标识
+     * @return 任务执行上下文
+     */
+    private JobRun prepareJob(VectorizeJobEntity job, String workerId) {
+        KnowledgeBaseEntity kb = requireVectorizedKb(job.getKnowledgeBaseId());
+        DocumentEntity doc = requireDocument(job.getDocumentId());
+        if (doc.getVectorStatus() == null || doc.getVectorStatus() != VectorStatus.VECTORIZING.getCode()) {
+            doc.setVectorStatus(VectorStatus.VECTORIZING.getCode());
             doc.setVectorError(null);
-            doc.setChunkCount(chunkEntities.size());
-            doc.setLastVectorizedAt(LocalDateTime.now());
             aiRepository.updateDocument(doc);
+        }
 
-            log.info("文档向量化完成: kbId={}, docId={}, chunks={}", kb.getId(), doc.getId(), chunkEntities.size());
+        Long provisionId = embeddingModelRouter.resolveProvisionIdForKnowledgeBase(kb);
+        VectorStoreRegistry.Lease lease = vectorStoreRouter.acquire(provisionId);
+        try {
+            PipelineContext context = new PipelineContext(provisionId, lease, embeddingBatchExecutor.policy(provisionId));
+            return prepareRun(job, workerId, kb, doc, context);
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
 
+    /**
+     * 切片对齐，并按检查点确定续跑位置
+     * <p>
+     * 文档内容哈希与待写切片数均与检查点记录一致时，跳过已写入的前 checkpointChunks 个待写切片；
+     * 否则检查点失效，从头写入（新向量 ID 由任务ID与内容哈希确定，重复写入为覆盖而非新增）。
+     *
+     * @param job      已领取的任务
+     * @param workerId 执行实例标识
+     * @param kb       知识库实体
+     * @param doc      文档实体
+     * @param context  流水线上下文
+     * @return 任务执行上下文
+     */
+    private JobRun prepareRun(VectorizeJobEntity job, String workerId, KnowledgeBaseEntity kb, DocumentEntity doc,
+                              PipelineContext context) {
+        Long provisionId = context.provisionId();
+        PreparedDocument prepared = split(kb, doc, job.getId(), provisionId);
+
+        int pendingSize = prepared.pending().size();
+        boolean resumable = prepared.contentHash().equals(job.getContentHash())
+                && job.getPendingChunks() != null && job.getPendingChunks() == pendingSize
+                && job.getCheckpointChunks() != null;
+        int resumeFrom = resumable ? Math.min(job.getCheckpointChunks(), pendingSize) : 0;
+
+        job.setContentHash(prepared.contentHash());
+        job.setTotalChunks(prepared.chunks().size());
+        job.setPendingChunks(pendingSize);
+        job.setCheckpointChunks(resumeFrom);
+        if (!aiRepository.updateVectorizeJobProgress(job, workerId)) {
+            throw new JobLostException(job.getId());
+        }
+        if (resumeFrom > 0) {
+            log.info("向量化任务从检查点续跑: jobId={}, docId={}, attempt={}, skipped={}/{}",
+                    job.getId(), doc.getId(), job.getAttempts(), resumeFrom, pendingSize);
+        }
+
+        List<List<Document>> batches = embeddingBatchExecutor.batch(prepared.pending().subList(resumeFrom, pendingSize),
+                d -> tokenCounter.count(provisionId, d.getText()), context.policy());
+        return new JobRun(job, workerId, kb, context, prepared, batches, new Checkpoint(job, workerId, resumeFrom, batches));
+    }
+
+    /**
+     * 任务完成：确认任务仍归属本实例后切片落库，并标记任务完成
+     *
+     * @param run 任务执行上下文
+     */
+    private void completeJob(JobRun run) {
+        VectorizeJobEntity job = run.job();
+        job.setCheckpointChunks(run.prepared().pending().size());
+        // 落库前确认任务未被取消或回收，避免覆盖其他实例的结果
+        if (!aiRepository.updateVectorizeJobProgress(job, run.workerId())) {
+            throw new JobLostException(job.getId());
+        }
+        persist(run.context(), run.kb(), run.prepared());
+        aiRepository.finishVectorizeJob(job.getId(), run.workerId(), VectorizeJobStatus.COMPLETED.getCode(), null);
+        // 知识库内容已变化，基于旧内容的缓存回答失效
+        answerCache.invalidateKnowledgeBase(run.kb().getId());
+        log.info("向量化任务完成: jobId={}, docId={}, attempt={}, embedded={}, cached={}",
+                job.getId(), job.getDocumentId(), job.getAttempts(), run.embedded().get(), run.cached().get());
+    }
+
+    /**
+     * 任务失败：清理本轮新写入的向量，标记文档与任务失败
+     * <p>
+     * 任务已被取消时仅清理向量；已被其他实例回收时不做任何清理（新向量 ID 确定，由接手的实例继续覆盖写入）。
+     *
+     * @param job      任务
+     * @param workerId 执行实例标识
+     * @param run      任务执行上下文，准备阶段失败时为 null
+     * @param error    失败原因
+     */
+    private void failJob(VectorizeJobEntity job, String workerId, JobRun run, Throwable error) {
+        try {
+            if (error instanceof JobLostException) {
+                VectorizeJobEntity latest = aiRepository.findVectorizeJobById(job.getId());
+                boolean cancelled = latest != null && latest.getStatus() != null
+                        && latest.getStatus() == VectorizeJobStatus.CANCELLED.getCode();
+                if (cancelled && run != null) {
+                    discardStoredVectors(run.context(), run.prepared());
+                }
+                log.info("向量化任务已{}，停止执行: jobId={}, docId={}", cancelled ? "取消" : "被其他实例回收", job.getId(), job.getDocumentId());
+                return;
+            }
+
+            if (run != null) {
+                discardStoredVectors(run.context(), run.prepared());
+            }
+            DocumentEntity doc = run != null ? run.prepared().doc() : aiRepository.findDocumentById(job.getDocumentId());
+            if (doc != null) {
+                markFailed(job.getKnowledgeBaseId(), doc, error);
+            }
+            aiRepository.finishVectorizeJob(job.getId(), workerId, VectorizeJobStatus.FAILED.getCode(), truncateError(error));
         } catch (Exception e) {
-            log.error("文档向量化失败: kbId={}, docId={}", kb.getId(), doc.getId(), e);
-            doc.setVectorStatus(VectorStatus.FAILED.getCode());
-            doc.setVectorError(e.getMessage() != null ? e.getMessage().substring(0, Math.min(e.getMessage().length(), 500)) : "未知错误");
+            log.error("记录向量化任务失败状态异常: jobId={}", job.getId(), e);
+        }
+    }
+
+    /**
+     * 切片阶段：切分文本、计算切片内容哈希，并与已有切片行对齐（{@link ChunkAligner}）
+     * <p>
+     * 内容与位置均未变的切片复用原向量，不再写向量库；其余需要写向量库的切片（位置变化、内容修改、新增）一律写入新向量 ID，
+     * 位置变化的以缓存向量写入，修改与位置变化的切片复用原切片行。被替换的旧向量与未配对的旧切片在新切片落库后才删除，
+     * 任务失败时只需删除本轮新写入的向量，向量库即与切片表保持一致；全程旧向量保持可检索，文档不会出现切片数归零的窗口期。
+     * <p>
+     * 新向量 ID 由 (任务ID, 文档内容哈希, 切片序号) 确定，任务续跑时重新切片得到相同 ID，已写入的向量不会成为孤儿。
+     *
+     * @param kb          知识库实体
+     * @param doc         文档实体
+     * @param jobId       任务ID
+     * @param provisionId 嵌入模型 provisionId（切片 token 数按其编码计数）
+     * @return 切片结果
+     */
+    private PreparedDocument split(KnowledgeBaseEntity kb, DocumentEntity doc, Long jobId, Long provisionId) {
+        // 1. 文本切片
+        String content = doc.getContent();
+        if (content == null || content.isBlank()) {
+            cleanExistingVectors(kb, doc.getId());
+            throw new IllegalStateException("文档内容为空");
+        }
+
+        int chunkSize = (kb.getChunkSize() != null && kb.getChunkSize() > 0) ? kb.getChunkSize() : 512;
+        int chunkOverlap = (kb.getChunkOverlap() != null && kb.getChunkOverlap() > 0) ? kb.getChunkOverlap() : 64;
+
+        TokenTextSplitter splitter = new TokenTextSplitter(
+                chunkSize,                              // defaultChunkSize
+                Math.max(chunkOverlap, 50),             // minChunkSizeChars
+                5,                                      // minChunkLengthToEmbed
+                10000,                                  // maxNumChunks
+                true                                    // keepSeparator
+        );
+
+        // 构建 Spring AI Document 用于切片
+        List<Document> splitDocs = splitter.split(new Document(content));
+
+        if (splitDocs.isEmpty()) {
+            cleanExistingVectors(kb, doc.getId());
+            throw new IllegalStateException("文档切片结果为空");
+        }
+
+        // 2. 已有切片与新切片对齐（无向量 ID 的残缺切片行直接删除）
+        List<DocumentChunkEntity> alignable = new ArrayList<>();
+        List<DocumentChunkEntity> removed = new ArrayList<>();
+        Set<Long> unhashedRowIds = new HashSet<>();
+        for (DocumentChunkEntity existing : aiRepository.listChunksByDocumentId(doc.getId())) {
+            if (existing.getEmbeddingId() == null || existing.getEmbeddingId().isBlank()) {
+                removed.add(existing);
+                continue;
+            }
+            if (existing.getContentHash() == null) {
+                existing.setContentHash(EmbeddingCache.contentHash(existing.getContent()));
+                unhashedRowIds.add(existing.getId());
+            }
+            alignable.add(existing);
+        }
+
+        String contentHash = EmbeddingCache.contentHash(content);
+        List<String> texts = splitDocs.stream().map(Document::getText).toList();
+        List<String> newHashes = texts.stream().map(EmbeddingCache::contentHash).toList();
+        ChunkAligner.Alignment alignment = ChunkAligner.align(texts, newHashes, alignable);
+        removed.addAll(alignment.removed());
+
+        // 3. 为每个切片注入 metadata，按对齐结果复用向量 ID 与切片行
+        List<Document> documents = new ArrayList<>();
+        List<Document> pending = new ArrayList<>();
+        List<String> freshIds = new ArrayList<>();
+        List<String> replacedIds = new ArrayList<>();
+        Map<String, String> hashes = new HashMap<>();
+        List<DocumentChunkEntity> chunkEntities = new ArrayList<>();
+        List<DocumentChunkEntity> updatedRows = new ArrayList<>();
+        List<DocumentChunkEntity> insertedRows = new ArrayList<>();
+        for (int i = 0; i < splitDocs.size(); i++) {
+            String text = texts.get(i);
+            String hash = newHashes.get(i);
+            DocumentChunkEntity reused = alignment.matched().get(i);
+            ChunkAligner.MatchType type = alignment.types().get(i);
+
+            Map<String, Object> metadata = new HashMap<>(splitDocs.get(i).getMetadata());
+            metadata.put("knowledge_base_id", String.valueOf(kb.getId()));
+            metadata.put("document_id", String.valueOf(doc.getId()));
+            metadata.put("estab_id", String.valueOf(kb.getEstabId()));
+            metadata.put("chunk_index", i);
+            metadata.put("doc_name", doc.getDocName());
+
+            boolean moved = reused != null && (reused.getChunkIndex() == null || reused.getChunkIndex() != i);
+            boolean unchanged = type == ChunkAligner.MatchType.IDENTICAL && !moved;
+            String embeddingId = unchanged ? reused.getEmbeddingId() : freshEmbeddingId(jobId, contentHash, i);
+            Document document = new Document(embeddingId, text, metadata);
+            documents.add(document);
+            hashes.put(embeddingId, hash);
+
+            DocumentChunkEntity chunk = new DocumentChunkEntity();
+            chunk.setId(reused != null ? reused.getId() : null);
+            chunk.setDocumentId(doc.getId());
+            chunk.setKnowledgeBaseId(kb.getId());
+            chunk.setChunkIndex(i);
+            chunk.setContent(text);
+            chunk.setContentHash(hash);
+            chunk.setTokenCount(tokenCounter.count(provisionId, text));
+            chunk.setEmbeddingId(embeddingId);
+            chunk.setMetadata(null);
+            chunkEntities.add(chunk);
+
+            if (unchanged) {
+                // 内容与位置均未变：历史切片行补齐内容哈希
+                if (unhashedRowIds.contains(reused.getId())) {
+                    updatedRows.add(chunk);
+                }
+                continue;
+            }
+            // 位置变化（以缓存向量写入）、内容修改、新增：写入新向量 ID
+            pending.add(document);
+            freshIds.add(embeddingId);
+            if (reused != null) {
+                updatedRows.add(chunk);
+                if (!reused.getEmbeddingId().equals(embeddingId)) {
+                    replacedIds.add(reused.getEmbeddingId());
+                }
+            } else {
+                insertedRows.add(chunk);
+            }
+        }
+
+        // 4. 被替换的旧向量与未配对的旧切片：向量与切片行在新切片落库后删除
+        List<String> staleEmbeddingIds = new ArrayList<>(replacedIds);
+        removed.stream()
+                .map(DocumentChunkEntity::getEmbeddingId)
+                .filter(id -> id != null && !id.isBlank())
+                .forEach(staleEmbeddingIds::add);
+        List<Long> removedRowIds = removed.stream().map(DocumentChunkEntity::getId).toList();
+
+        return new PreparedDocument(doc, contentHash, documents, chunkEntities, pending, freshIds, hashes,
+                updatedRows, insertedRows, removedRowIds, staleEmbeddingIds);
+    }
+
+    /**
+     * 嵌入 + 存储阶段：逐批先查嵌入缓存，仅未命中的切片调用嵌入模型，嵌入完成的批次立即写入向量库并推进检查点
+     *
+     * @param run 任务执行上下文
+     * @return 全部批次写入完成信号
+     */
+    private Mono<Void> embedAndStore(JobRun run) {
+        List<List<Document>> batches = run.batches();
+        return Flux.range(0, batches.size())
+                .flatMap(index -> embedBatch(run, index, batches.get(index)),
+                        Math.max(1, run.context().policy().getConcurrency()))
+                .flatMap(embedded -> Mono.fromRunnable(() -> {
+                                    store(run.context().vectorStore(), embedded);
+                                    run.checkpoint().batchStored(embedded.index());
+                                })
+                                .subscribeOn(Schedulers.boundedElastic()),
+                        Math.max(1, vectorizationProperties.getStoreConcurrency()))
+                .then();
+    }
+
+    /**
+     * 嵌入单个批次：缓存命中的切片直接复用向量，未命中的切片合并为一次嵌入请求，结果回填缓存
+     *
+     * @param run   任务执行上下文
+     * @param index 批次序号
+     * @param batch 批次文档
+     * @return 已嵌入批次
+     */
+    private Mono<EmbeddedBatch> embedBatch(JobRun run, int index, List<Document> batch) {
+        Long provisionId = run.context().provisionId();
+        Map<String, String> hashes = run.prepared().hashes();
+        return Mono.fromCallable(() -> embeddingCache.getAll(provisionId, batch.stream().map(d -> hashes.get(d.getId())).toList()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(cached -> {
+                    List<Document> misses = batch.stream().filter(d -> !cached.containsKey(hashes.get(d.getId()))).toList();
+                    run.cached().addAndGet(batch.size() - misses.size());
+                    if (misses.isEmpty()) {
+                        return Mono.just(cached);
+                    }
+                    return embeddingBatchExecutor.embed(provisionId, misses, run.context().policy())
+                            .map(embeddings -> {
+                                Map<String, float[]> toCache = new HashMap<>();
+                                for (int i = 0; i < misses.size(); i++) {
+                                    toCache.put(hashes.get(misses.get(i).getId()), embeddings.get(i));
+                                }
+                                embeddingCache.putAll(provisionId, toCache);
+                                run.embedded().addAndGet(misses.size());
+
+                                Map<String, float[]> merged = new HashMap<>(cached);
+                                merged.putAll(toCache);
+                                return merged;
+                            });
+                })
+                .map(byHash -> new EmbeddedBatch(index, batch,
+                        batch.stream().map(d -> byHash.get(hashes.get(d.getId()))).toList()));
+    }
+
+    /**
+     * 存储阶段：暂存预计算向量后写入向量库，VectorStore 不再重复调用嵌入模型
+     *
+     * @param vectorStore 向量库
+     * @param embedded    已嵌入批次
+     */
+    private void store(VectorStore vectorStore, EmbeddedBatch embedded) {
+        precomputedEmbeddings.supply(embedded.documents(), embedded.embeddings(), () -> vectorStore.add(embedded.documents()));
+    }
+
+    /**
+     * 落库阶段：按对齐结果最小化变更切片行（删除 / 更新 / 新增），标记文档完成，最后删除未配对的旧向量
+     *
+     * @param context  流水线上下文
+     * @param kb       知识库实体
+     * @param prepared 切片结果
+     */
+    private void persist(PipelineContext context, KnowledgeBaseEntity kb, PreparedDocument prepared) {
+        DocumentEntity doc = prepared.doc();
+        aiRepository.applyChunkChanges(prepared.removedRowIds(), prepared.updatedRows(), prepared.insertedRows());
+
+        doc.setVectorStatus(VectorStatus.COMPLETED.getCode());
+        doc.setVectorError(null);
+        doc.setChunkCount(prepared.chunks().size());
+        doc.setLastVectorizedAt(LocalDateTime.now());
+        aiRepository.updateDocument(doc);
+
+        if (!prepared.staleEmbeddingIds().isEmpty()) {
             try {
-                aiRepository.updateDocument(doc);
-            } catch (Exception updateEx) {
-                log.error("更新文档向量化失败状态异常: docId={}", doc.getId(), updateEx);
+                context.vectorStore().delete(prepared.staleEmbeddingIds());
+            } catch (Exception e) {
+                log.warn("删除过期向量失败: docId={}, count={}, error={}", doc.getId(), prepared.staleEmbeddingIds().size(), e.getMessage());
             }
         }
+
+        log.info("文档向量化完成: kbId={}, docId={}, chunks={}, vectorsWritten={}, rowsInserted={}, rowsUpdated={}, rowsRemoved={}",
+                kb.getId(), doc.getId(), prepared.chunks().size(), prepared.pending().size(),
+                prepared.insertedRows().size(), prepared.updatedRows().size(), prepared.removedRowIds().size());
+    }
+
+    /**
+     * 失败时尽力删除本轮新写入的向量，避免残留孤儿向量（旧向量在落库前从未被覆盖，保持与切片表一致）
+     *
+     * @param context  流水线上下文
+     * @param prepared 切片结果
+     */
+    private void discardStoredVectors(PipelineContext context, PreparedDocument prepared) {
+        if (prepared.freshIds().isEmpty()) {
+            return;
+        }
+        try {
+            context.vectorStore().delete(prepared.freshIds());
+        } catch (Exception e) {
+            log.warn("清理失败文档的已写入向量异常: docId={}, error={}", prepared.doc().getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 标记文档向量化失败
+     *
+     * @param kbId  知识库ID
+     * @param doc   文档实体
+     * @param error 失败原因
+     */
+    private void markFailed(Long kbId, DocumentEntity doc, Throwable error) {
+        log.error("文档向量化失败: kbId={}, docId={}", kbId, doc.getId(), error);
+        doc.setVectorStatus(VectorStatus.FAILED.getCode());
+        doc.setVectorError(truncateError(error));
+        try {
+            aiRepository.updateDocument(doc);
+        } catch (Exception updateEx) {
+            log.error("更新文档向量化失败状态异常: docId={}", doc.getId(), updateEx);
+        }
+    }
+
+    /**
+     * 截断失败原因，适配 vector_error / error_message 字段长度
+     *
+     * @param error 失败原因
+     * @return 截断后的失败信息
+     */
+    private String truncateError(Throwable error) {
+        String message = error.getMessage();
+        return message != null ? message.substring(0, Math.min(message.length(), 500)) : "未知错误";
+    }
+
+    /**
+     * 新增切片的确定性向量 ID（UUID v3，兼容要求 UUID 格式的向量库）
+     *
+     * @param jobId       任务ID
+     * @param contentHash 文档内容哈希
+     * @param chunkIndex  切片序号
+     * @return 向量 ID
+     */
+    private String freshEmbeddingId(Long jobId, String contentHash, int chunkIndex) {
+        String seed = "vectorize-job:" + jobId + ":" + contentHash + ":" + chunkIndex;
+        return UUID.nameUUIDFromBytes(seed.getBytes(StandardCharsets.UTF_8)).toString();
     }
 
     /**
@@ -307,9 +796,8 @@ public class VectorizationService {
                     .collect(Collectors.toList());
 
             if (!embeddingIds.isEmpty()) {
-                try {
-                    VectorStore vectorStore = vectorStoreRouter.resolve(kb);
-                    vectorStore.delete(embeddingIds);
+                try (VectorStoreRegistry.Lease lease = vectorStoreRouter.acquire(kb)) {
+                    lease.store().delete(embeddingIds);
                 } catch (Exception e) {
                     log.warn("清理向量库失败（可能向量库未初始化）: docId={}, error={}", documentId, e.getMessage());
                 }
@@ -358,27 +846,132 @@ public class VectorizationService {
     }
 
     /**
-     * 估算文本的 token 数量
+     * 流水线上下文（单个任务内共享）
      *
-     * @param text 纯文本内容
-     * @return 估算的 token 数
-     */
-    private int estimateTokenCount(String text) {
-        if (text == null || text.isBlank()) {
-            return 0;
-        }
-        int cjkCount = 0;
-        int otherCount = 0;
-        for (char c : text.toCharArray()) {
-            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN
-                    || Character.UnicodeScript.of(c) == Character.UnicodeScript.HIRAGANA
-                    || Character.UnicodeScript.of(c) == Character.UnicodeScript.KATAKANA
-                    || Character.UnicodeScript.of(c) == Character.UnicodeScript.HANGUL) {
-                cjkCount++;
-            } else {
-                otherCount++;
+     * @param provisionId 嵌入模型开通ID
+     * @param lease       向量库租约，任务结束时归还
+     * @param policy      嵌入批次策略
+     */
+    private record PipelineContext(Long provisionId, VectorStoreRegistry.Lease lease,
+                                   VectorizationProperties.EmbeddingProperties policy) {
+
+        /**
+         * 向量库
+         *
+         * @return VectorStore 实例
+         */
+        VectorStore vectorStore() {
+            return lease.store();
+        }
+    }
+
+    /**
+     * 任务执行上下文
+     *
+     * @param job        任务
+     * @param workerId   执行实例标识
+     * @param kb         知识库实体
+     * @param context    流水线上下文
+     * @param prepared   切片结果
+     * @param batches    检查点之后待写入的批次
+     * @param checkpoint 检查点
+     * @param embedded   调用嵌入模型的切片数
+     * @param cached     命中嵌入缓存的切片数
+     */
+    private record JobRun(VectorizeJobEntity job, String workerId, KnowledgeBaseEntity kb, PipelineContext context,
+                          PreparedDocument prepared, List<List<Document>> batches, Checkpoint checkpoint,
+                          AtomicInteger embedded, AtomicInteger cached) {
+
+        private JobRun(VectorizeJobEntity job, String workerId, KnowledgeBaseEntity kb, PipelineContext context,
+                       PreparedDocument prepared, List<List<Document>> batches, Checkpoint checkpoint) {
+            this(job, workerId, kb, context, prepared, batches, checkpoint, new AtomicInteger(), new AtomicInteger());
+        }
+    }
+
+    /**
+     * 批次粒度检查点
+     * <p>
+     * 批次并发完成、顺序不定，仅当从头连续完成的批次前缀推进时才更新任务的 checkpointChunks，
+     * 保证检查点之前的待写切片全部已写入向量库。
+     */
+    private final class Checkpoint {
+
+        private final VectorizeJobEntity job;
+        private final String workerId;
+        private final int resumeFrom;
+        private final int[] batchEnds;
+        private final BitSet stored = new BitSet();
+        private int watermark;
+
+        private Checkpoint(VectorizeJobEntity job, String workerId, int resumeFrom, List<List<Document>> batches) {
+            this.job = job;
+            this.workerId = workerId;
+            this.resumeFrom = resumeFrom;
+            this.batchEnds = new int[batches.size()];
+            int end = 0;
+            for (int i = 0; i < batches.size(); i++) {
+                end += batches.get(i).size();
+                batchEnds[i] = end;
             }
         }
-        return cjkCount + (otherCount / 4);
+
+        /**
+         * 记录批次已写入向量库，连续前缀推进时持久化检查点
+         *
+         * @param index 批次序号
+         */
+        private synchronized void batchStored(int index) {
+            stored.set(index);
+            int next = stored.nextClearBit(watermark);
+            if (next == watermark) {
+                return;
+            }
+            watermark = next;
+            job.setCheckpointChunks(resumeFrom + batchEnds[watermark - 1]);
+            if (!aiRepository.updateVectorizeJobProgress(job, workerId)) {
+                throw new JobLostException(job.getId());
+            }
+        }
+    }
+
+    /**
+     * 任务已被取消或被其他实例回收
+     */
+    private static final class JobLostException extends RuntimeException {
+
+        private JobLostException(Long jobId) {
+            super("向量化任务已被取消或被其他实例回收: jobId=" + jobId);
+        }
+    }
+
+    /**
+     * 切片阶段产物
+     *
+     * @param doc               文档实体
+     * @param contentHash       文档内容哈希
+     * @param splitDocs         切片文档（与切片实体一一对应，ID 即向量 ID）
+     * @param chunks            切片实体
+     * @param pending           需写入向量库的切片（新增、修改或位置移动）
+     * @param freshIds          本轮新写入的向量 ID（任务失败时删除）
+     * @param hashes            向量 ID → 切片内容哈希
+     * @param updatedRows       需更新的已有切片行
+     * @param insertedRows      需新增的切片行
+     * @param removedRowIds     需删除的切片行ID
+     * @param staleEmbeddingIds 被替换或未配对、落库后删除的旧向量 ID
+     */
+    private record PreparedDocument(DocumentEntity doc, String contentHash, List<Document> splitDocs,
+                                    List<DocumentChunkEntity> chunks, List<Document> pending, List<String> freshIds,
+                                    Map<String, String> hashes, List<DocumentChunkEntity> updatedRows, List<DocumentChunkEntity> insertedRows,
+                                    List<Long> removedRowIds, List<String> staleEmbeddingIds) {
+    }
+
+    /**
+     * 嵌入阶段产物
+     *
+     * @param index      批次序号
+     * @param documents  批次文档
+     * @param embeddings 与批次文档一一对应的向量
+     */
+    private record EmbeddedBatch(int index, List<Document> documents, List<float[]> embeddings) {
     }
 }
@@ -68,6 +68,8 @@ public enum AiErrorCode implements ErrorCode {
     KB_HAS_DOCUMENTS("AI_409_KB_HAS_DOCS", "知识库下存在文档，无法删除"),
     KB_FOLDER_HAS_CHILDREN("AI_409_KB_FOLDER_HAS_CHILDREN", "目录下存在子目录或文档，无法删除"),
     KB_DOCUMENT_PARSE_FAILED("AI_500_KB_DOC_PARSE", "文档内容解析失败"),
+    KB_DOCUMENT_PARSE_BUSY("AI_429_KB_DOC_PARSE", "文档解析繁忙，请稍后重试"),
+    KB_DOCUMENT_TOO_LARGE("AI_413_KB_DOC_SIZE", "文档内容超出长度上限"),
 
     DEFAULT_EMBEDDING_MODEL_NOT_CONFIGURED("AI_404_DEFAULT_EMBEDDING", "该租户未配置默认嵌入模型"),
     VECTORIZATION_FAILED("AI_500_VECTORIZE", "文档向量化失败"),
@@ -50,6 +50,11 @@ public class DocumentChunkEntity {
      */
     private Integer endOffset;
 
+    /**
+     * 切片内容哈希(SHA-256)，用于增量向量化时识别未变化的切片
+     */
+    private String contentHash;
+
     /**
      * 向量数据库中的向量ID(UUID)
      */
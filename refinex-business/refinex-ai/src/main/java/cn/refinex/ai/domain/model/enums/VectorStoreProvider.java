@@ -16,6 +16,7 @@ public enum VectorStoreProvider {
     ELASTICSEARCH("elasticsearch", "Elasticsearch"),
     PGVECTOR("pgvector", "PGvector"),
     QDRANT("qdrant", "Qdrant"),
+    HNSW("hnsw", "HNSW(进程内图索引/内存映射文件)"),
     SIMPLE("simple", "SimpleVectorStore(内存/文件)");
 
     /**
@@ -0,0 +1,23 @@
+package cn.refinex.ai.domain.model.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 向量化任务状态枚举
+ *
+ * @author refinex
+ */
+@Getter
+@AllArgsConstructor
+public enum VectorizeJobStatus {
+
+    PENDING(0, "排队中"),
+    RUNNING(1, "执行中"),
+    COMPLETED(2, "已完成"),
+    FAILED(3, "失败"),
+    CANCELLED(4, "已取消");
+
+    private final int code;
+    private final String description;
+}
@@ -3,8 +3,10 @@ package cn.refinex.ai.domain.repository;
 import cn.refinex.ai.domain.model.entity.*;
 import cn.refinex.base.response.PageResponse;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * AI 模块仓储接口
@@ -287,6 +289,14 @@ public interface AiRepository {
      */
     void deleteModelProvisionById(Long provisionId);
 
+    /**
+     * 查询租户全部活跃模型开通（status=1, deleted=0），按 ID 升序
+     *
+     * @param estabId 组织ID
+     * @return 租户模型开通列表
+     */
+    List<ModelProvisionEntity> listActiveModelProvisions(Long estabId);
+
     /**
      * 查询租户的活跃模型开通（estabId + modelId, status=1, deleted=0）
      *
@@ -536,7 +546,7 @@ public interface AiRepository {
      * 全量替换技能工具关联
      *
      * @param skillId    技能ID
-     * @param skillTools 技能工具关联列表
+     * @param skillTools 技能工具关联列表，插入后回填自增ID
      */
     void replaceSkillTools(Long skillId, List<SkillToolEntity> skillTools);
 
@@ -800,6 +810,14 @@ public interface AiRepository {
      */
     void updateDocumentSort(Long id, Integer sort);
 
+    /**
+     * 批量更新文档向量化状态（同时清空失败原因）
+     *
+     * @param documentIds  文档ID列表
+     * @param vectorStatus 向量化状态
+     */
+    void updateDocumentsVectorStatus(Collection<Long> documentIds, int vectorStatus);
+
     // ── DocumentChunk ──
 
     /**
@@ -820,10 +838,29 @@ public interface AiRepository {
     /**
      * 批量插入切片
      *
-     * @param chunks 切片列表
+     * @param chunks 切片列表，插入后回填自增ID
      */
     void batchInsertChunks(List<DocumentChunkEntity> chunks);
 
+    /**
+     * 按增量对齐结果变更文档切片（单事务：删除 → 更新 → 新增）
+     *
+     * @param removedIds 需删除的切片ID
+     * @param updated    需更新的切片（含ID，序号可能变化）
+     * @param inserted   需新增的切片
+     */
+    void applyChunkChanges(List<Long> removedIds, List<DocumentChunkEntity> updated, List<DocumentChunkEntity> inserted);
+
+    /**
+     * 切片全文检索（混合检索的词法召回通道）
+     *
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param query            检索文本
+     * @param limit            最多返回的切片数
+     * @return 按相关度降序的检索命中
+     */
+    List<ChunkSearchHitEntity> searchChunksFullText(Collection<Long> knowledgeBaseIds, String query, int limit);
+
     /**
      * 查询知识库下所有需要向量化的文档（vectorStatus != VECTORIZING，content 非空）
      *
@@ -852,7 +889,7 @@ public interface AiRepository {
     /**
      * 批量插入技能知识库关联
      *
-     * @param list 技能知识库关联列表
+     * @param list 技能知识库关联列表，插入后回填自增ID
      */
     void batchInsertSkillKnowledges(List<SkillKnowledgeEntity> list);
 
@@ -865,4 +902,153 @@ public interface AiRepository {
      * @return 插入的调用日志实体
      */
     UsageLogEntity insertUsageLog(UsageLogEntity usageLog);
+
+    // ── VectorizeJob ──
+
+    /**
+     * 批量插入向量化任务
+     *
+     * @param jobs 任务列表，插入后回填自增ID
+     */
+    void batchInsertVectorizeJobs(List<VectorizeJobEntity> jobs);
+
+    /**
+     * 查询向量化任务
+     *
+     * @param id 任务ID
+     * @return 任务实体
+     */
+    VectorizeJobEntity findVectorizeJobById(Long id);
+
+    /**
+     * 查询文档未结束（排队或执行中）的向量化任务
+     *
+     * @param documentIds 文档ID列表
+     * @return 任务列表
+     */
+    List<VectorizeJobEntity> listActiveVectorizeJobsByDocumentIds(Collection<Long> documentIds);
+
+    /**
+     * 查询知识库进行中的向量化轮次
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @return 轮次ID，无未结束任务时返回 null
+     */
+    Long findActiveVectorizeRoundId(Long knowledgeBaseId);
+
+    /**
+     * 查询向量化任务分页列表
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @param documentId      文档ID
+     * @param status          任务状态
+     * @param currentPage     当前页码
+     * @param pageSize        每页数量
+     * @return 任务分页列表（按ID倒序）
+     */
+    PageResponse<VectorizeJobEntity> listVectorizeJobs(Long knowledgeBaseId, Long documentId, Integer status, int currentPage, int pageSize);
+
+    /**
+     * 查询有排队任务的组织及其执行中任务数
+     *
+     * @param limit 最多返回的组织数
+     * @return 组织ID → 全集群执行中任务数，按执行中任务数升序
+     */
+    Map<Long, Integer> listPendingVectorizeEstabs(int limit);
+
+    /**
+     * 查询组织下可领取的排队任务
+     *
+     * @param estabId 组织ID
+     * @param limit   最多返回的任务数
+     * @return 排队任务（按提交顺序）
+     */
+    List<VectorizeJobEntity> listClaimableVectorizeJobs(Long estabId, int limit);
+
+    /**
+     * 领取排队任务
+     *
+     * @param id       任务ID
+     * @param workerId 执行实例标识
+     * @return 是否领取成功
+     */
+    boolean claimVectorizeJob(Long id, String workerId);
+
+    /**
+     * 刷新执行实例全部执行中任务的心跳
+     *
+     * @param workerId 执行实例标识
+     * @return 刷新的任务数
+     */
+    int heartbeatVectorizeJobs(String workerId);
+
+    /**
+     * 查询心跳超时的执行中任务
+     *
+     * @param staleTimeout 心跳超时时间
+     * @param limit        最多返回的任务数
+     * @return 超时任务
+     */
+    List<VectorizeJobEntity> listStaleVectorizeJobs(Duration staleTimeout, int limit);
+
+    /**
+     * 将心跳超时的执行中任务放回队列（保留检查点）
+     *
+     * @param id           任务ID
+     * @param staleTimeout 心跳超时时间
+     * @return 是否放回成功
+     */
+    boolean requeueStaleVectorizeJob(Long id, Duration staleTimeout);
+
+    /**
+     * 将执行实例的全部执行中任务放回队列（保留检查点）
+     *
+     * @param workerId 执行实例标识
+     * @return 放回的任务数
+     */
+    int requeueVectorizeJobsByWorker(String workerId);
+
+    /**
+     * 更新任务切片统计与检查点
+     *
+     * @param job      任务实体
+     * @param workerId 执行实例标识
+     * @return 是否更新成功，false 表示任务已被取消或被其他实例回收
+     */
+    boolean updateVectorizeJobProgress(VectorizeJobEntity job, String workerId);
+
+    /**
+     * 结束执行中任务
+     *
+     * @param id           任务ID
+     * @param workerId     执行实例标识
+     * @param status       结束状态
+     * @param errorMessage 失败原因
+     * @return 是否更新成功
+     */
+    boolean finishVectorizeJob(Long id, String workerId, int status, String errorMessage);
+
+    /**
+     * 取消文档未结束的向量化任务
+     *
+     * @param documentId 文档ID
+     * @return 取消的任务数
+     */
+    int cancelActiveVectorizeJobs(Long documentId);
+
+    /**
+     * 统计知识库最近一轮向量化
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @return 轮次统计，从未向量化时返回 null
+     */
+    VectorizeRoundEntity statLatestVectorizeRound(Long knowledgeBaseId);
+
+    /**
+     * 查询处于向量化中、但没有未结束任务的文档ID
+     *
+     * @param limit 最多返回的文档数
+     * @return 文档ID列表
+     */
+    List<Long> listOrphanVectorizingDocumentIds(int limit);
 }
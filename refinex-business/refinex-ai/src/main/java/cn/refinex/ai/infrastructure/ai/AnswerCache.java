@@ -0,0 +1,328 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.model.entity.KnowledgeBaseEntity;
+import cn.refinex.ai.infrastructure.config.AnswerCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RList;
+import org.redisson.api.RListAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 语义回答缓存
+ * <p>
+ * 客服类场景中大量提问语义相同，命中缓存时直接回放历史回答，省去检索与模型生成：
+ * <ul>
+ *     <li>作用域：(组织, 对话模型, 知识库集合及各自的向量化版本, 系统提示词哈希, RAG 参数)，作用域内按问题向量余弦相似度匹配</li>
+ *     <li>问题向量：使用首个知识库的嵌入模型（无知识库时使用组织默认嵌入模型），嵌入模型 provisionId 也计入作用域</li>
+ *     <li>存储：Redis 列表保存作用域内最近的回答（多实例共享），本地 Caffeine 缓存作用域并定期从 Redis 重新加载</li>
+ *     <li>失效：知识库重新向量化或移除文档向量时递增 Redis 中的知识库版本号，旧作用域不再可达，由 TTL 清理</li>
+ *     <li>指标：命中 / 未命中计数 refinex.ai.answer-cache.lookups，节省 token 数 refinex.ai.answer-cache.saved-tokens</li>
+ * </ul>
+ * 查询与写入失败时均降级为不使用缓存，不影响对话；无法读取知识库版本号时不查询缓存，避免回放过期回答。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class AnswerCache {
+
+    /**
+     * 作用域回答列表 key 前缀，完整 key 为 prefix + 作用域哈希
+     */
+    private static final String SCOPE_KEY_PREFIX = "refinex:ai:answer-cache:scope:";
+
+    /**
+     * 知识库版本号 key 前缀，完整 key 为 prefix + 知识库ID
+     */
+    private static final String KB_VERSION_KEY_PREFIX = "refinex:ai:answer-cache:kb-version:";
+
+    private static final String METRIC_NAME = "refinex.ai.answer-cache";
+
+    private final AnswerCacheProperties properties;
+    private final EmbeddingModelRouter embeddingModelRouter;
+    private final QueryEmbeddingBatcher queryEmbeddingBatcher;
+    private final RedissonClient redissonClient;
+    private final ObjectMapper jsonMapper;
+    private final Cache<String, List<Entry>> local;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter savedTokens;
+
+    /**
+     * 构造函数
+     *
+     * @param properties            语义回答缓存配置
+     * @param embeddingModelRouter  嵌入模型路由
+     * @param queryEmbeddingBatcher 查询向量化合并器
+     * @param redissonClient        Redisson 客户端
+     * @param jsonMapper            JSON 序列化
+     * @param meterRegistryProvider 指标注册表
+     */
+    public AnswerCache(AnswerCacheProperties properties,
+                       EmbeddingModelRouter embeddingModelRouter,
+                       QueryEmbeddingBatcher queryEmbeddingBatcher,
+                       RedissonClient redissonClient,
+                       ObjectMapper jsonMapper,
+                       ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.properties = properties;
+        this.embeddingModelRouter = embeddingModelRouter;
+        this.queryEmbeddingBatcher = queryEmbeddingBatcher;
+        this.redissonClient = redissonClient;
+        this.jsonMapper = jsonMapper;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaximumScopes())
+                .expireAfterWrite(properties.getLocalRefreshInterval())
+                .build();
+
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.savedTokens = Counter.builder(METRIC_NAME + ".saved-tokens")
+                .description("Tokens saved by replaying cached answers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 是否启用
+     *
+     * @return true 表示启用
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 回放时单个 answer 事件的字符数
+     *
+     * @return 字符数
+     */
+    public int replayChunkSize() {
+        return properties.getReplayChunkSize();
+    }
+
+    /**
+     * 查询语义相近的缓存回答
+     *
+     * @param estabId        组织ID
+     * @param modelId        对话模型ID
+     * @param knowledgeBases 已向量化的知识库（可为 null）
+     * @param systemPrompt   系统提示词（可为 null）
+     * @param ragTopK        RAG检索返回文档数（可为 null）
+     * @param ragThreshold   RAG相似度阈值（可为 null）
+     * @param question       用户问题
+     * @return 查询结果（未命中时 hit 为 null，回答生成后可写入）；未启用或查询失败时返回 null
+     */
+    public Lookup lookup(Long estabId, Long modelId, List<KnowledgeBaseEntity> knowledgeBases,
+                         String systemPrompt, Integer ragTopK, Double ragThreshold, String question) {
+        if (!properties.isEnabled() || question == null || question.isBlank()) {
+            return null;
+        }
+        try {
+            List<KnowledgeBaseEntity> kbs = knowledgeBases == null ? List.of()
+                    : knowledgeBases.stream().sorted(Comparator.comparing(KnowledgeBaseEntity::getId)).toList();
+            Long provisionId = kbs.isEmpty()
+                    ? embeddingModelRouter.resolveDefaultProvisionId(estabId)
+                    : embeddingModelRouter.resolveProvisionIdForKnowledgeBase(kbs.getFirst());
+
+            StringBuilder scope = new StringBuilder()
+                    .append(estabId).append('|').append(modelId).append('|').append(provisionId)
+                    .append('|').append(ragTopK).append('|').append(ragThreshold)
+                    .append('|').append(systemPrompt == null ? "" : EmbeddingCache.contentHash(systemPrompt));
+            Map<String, String> versions = readKnowledgeBaseVersions(kbs);
+            for (KnowledgeBaseEntity kb : kbs) {
+                scope.append('|').append(kb.getId()).append(':')
+                        .append(versions.getOrDefault(KB_VERSION_KEY_PREFIX + kb.getId(), "0"));
+            }
+            String scopeHash = EmbeddingCache.contentHash(scope.toString());
+
+            // 经合并器向量化，未命中时随后的 RAG 检索直接复用缓存的查询向量
+            EmbeddingModel embeddingModel = embeddingModelRouter.resolve(provisionId);
+            float[] embedding = normalize(queryEmbeddingBatcher.embed(provisionId, embeddingModel, question));
+
+            CachedAnswer hit = match(scopeHash, embedding);
+            if (hit != null) {
+                hits.increment();
+                savedTokens.increment(hit.totalTokens());
+            } else {
+                misses.increment();
+            }
+            return new Lookup(scopeHash, embedding, hit);
+        } catch (Exception e) {
+            log.warn("查询语义回答缓存失败，跳过缓存: estabId={}, modelId={}, error={}", estabId, modelId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入回答（仅对未命中的查询结果写入）
+     *
+     * @param lookup 查询结果
+     * @param answer 生成的回答
+     */
+    public void put(Lookup lookup, CachedAnswer answer) {
+        if (lookup == null || lookup.hit() != null || answer.answer() == null || answer.answer().isBlank()) {
+            return;
+        }
+        Entry entry = new Entry(lookup.embedding(), answer.reasoning(), answer.answer(), answer.references(),
+                answer.totalTokens(), System.currentTimeMillis());
+        List<Entry> entries = local.getIfPresent(lookup.scope());
+        if (entries != null) {
+            entries.add(entry);
+            while (entries.size() > properties.getMaxEntriesPerScope()) {
+                entries.removeFirst();
+            }
+        }
+
+        try {
+            RBatch batch = redissonClient.createBatch();
+            RListAsync<String> list = batch.getList(SCOPE_KEY_PREFIX + lookup.scope(), StringCodec.INSTANCE);
+            list.addAsync(jsonMapper.writeValueAsString(entry));
+            list.trimAsync(-properties.getMaxEntriesPerScope(), -1);
+            list.expireAsync(properties.getTtl());
+            batch.execute();
+        } catch (Exception e) {
+            log.warn("写入语义回答缓存失败: scope={}, error={}", lookup.scope(), e.getMessage());
+        }
+    }
+
+    /**
+     * 知识库内容变化（重新向量化、移除文档向量）后使其相关的缓存回答失效
+     *
+     * @param knowledgeBaseId 知识库ID
+     */
+    public void invalidateKnowledgeBase(Long knowledgeBaseId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            redissonClient.getAtomicLong(KB_VERSION_KEY_PREFIX + knowledgeBaseId).incrementAndGet();
+        } catch (Exception e) {
+            log.warn("递增知识库回答缓存版本失败: kbId={}, error={}", knowledgeBaseId, e.getMessage());
+        }
+    }
+
+    /**
+     * 在作用域内查找相似度最高且未过期的回答
+     */
+    private CachedAnswer match(String scopeHash, float[] embedding) {
+        long notBefore = System.currentTimeMillis() - properties.getTtl().toMillis();
+        Entry best = null;
+        double bestSimilarity = properties.getSimilarityThreshold();
+        for (Entry entry : local.get(scopeHash, this::load)) {
+            if (entry.createdAt() < notBefore || entry.embedding().length != embedding.length) {
+                continue;
+            }
+            double similarity = dot(entry.embedding(), embedding);
+            if (similarity >= bestSimilarity) {
+                best = entry;
+                bestSimilarity = similarity;
+            }
+        }
+        return best == null ? null : new CachedAnswer(best.reasoning(), best.answer(), best.references(), best.totalTokens());
+    }
+
+    /**
+     * 从 Redis 加载作用域内的回答，失败时返回空列表（本地刷新间隔后重试）
+     */
+    private List<Entry> load(String scopeHash) {
+        List<Entry> entries = new CopyOnWriteArrayList<>();
+        try {
+            RList<String> list = redissonClient.getList(SCOPE_KEY_PREFIX + scopeHash, StringCodec.INSTANCE);
+            List<Entry> parsed = new ArrayList<>();
+            for (String json : list.readAll()) {
+                parsed.add(jsonMapper.readValue(json, Entry.class));
+            }
+            entries.addAll(parsed);
+        } catch (Exception e) {
+            log.warn("读取语义回答缓存失败: scope={}, error={}", scopeHash, e.getMessage());
+        }
+        return entries;
+    }
+
+    /**
+     * 批量读取知识库版本号，读取失败时抛出异常（由调用方跳过缓存）
+     */
+    private Map<String, String> readKnowledgeBaseVersions(List<KnowledgeBaseEntity> kbs) {
+        if (kbs.isEmpty()) {
+            return Map.of();
+        }
+        String[] keys = kbs.stream().map(kb -> KB_VERSION_KEY_PREFIX + kb.getId()).toArray(String[]::new);
+        return redissonClient.getBuckets(StringCodec.INSTANCE).get(keys);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC_NAME + ".lookups")
+                .description("Semantic answer cache lookups by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 缓存查询结果
+     *
+     * @param scope     作用域哈希
+     * @param embedding 归一化的问题向量
+     * @param hit       命中的回答，未命中时为 null
+     */
+    public record Lookup(String scope, float[] embedding, CachedAnswer hit) {
+    }
+
+    /**
+     * 可回放的回答
+     *
+     * @param reasoning   推理内容（可为 null）
+     * @param answer      回答内容
+     * @param references  references 事件数据（可为 null）
+     * @param totalTokens 生成该回答消耗的总 token 数（命中时记为节省的 token 数）
+     */
+    public record CachedAnswer(String reasoning, String answer, String references, int totalTokens) {
+    }
+
+    /**
+     * Redis 中保存的回答
+     */
+    private record Entry(float[] embedding, String reasoning, String answer, String references,
+                         int totalTokens, long createdAt) {
+    }
+}
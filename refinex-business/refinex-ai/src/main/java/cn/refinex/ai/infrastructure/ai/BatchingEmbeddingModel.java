@@ -0,0 +1,105 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+
+/**
+ * 合并单条查询的 EmbeddingModel 装饰器
+ * <p>
+ * VectorStore 检索时只调用 {@link #embed(String)}，该调用交给 {@link QueryEmbeddingBatcher} 与其他并发查询合并为批量请求；
+ * 写入文档等多条输入的调用本身已是批量请求，直接委托。
+ *
+ * @author refinex
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final Long provisionId;
+    private final QueryEmbeddingBatcher batcher;
+
+    /**
+     * 构造函数
+     *
+     * @param delegate    实际嵌入模型
+     * @param provisionId 嵌入模型开通ID（合并与缓存的分组键）
+     * @param batcher     查询向量化合并器
+     */
+    public BatchingEmbeddingModel(EmbeddingModel delegate, Long provisionId, QueryEmbeddingBatcher batcher) {
+        this.delegate = delegate;
+        this.provisionId = provisionId;
+        this.batcher = batcher;
+    }
+
+    /**
+     * 直接委托嵌入请求
+     *
+     * @param request 嵌入请求
+     * @return 嵌入响应
+     */
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    /**
+     * 单文本嵌入（检索查询），与并发查询合并请求
+     *
+     * @param text 文本
+     * @return 向量
+     */
+    @Override
+    public float[] embed(String text) {
+        return batcher.embed(provisionId, delegate, text);
+    }
+
+    /**
+     * 多文本嵌入，直接委托
+     *
+     * @param texts 文本列表
+     * @return 与文本一一对应的向量
+     */
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        return delegate.embed(texts);
+    }
+
+    /**
+     * 单文档嵌入，直接委托
+     *
+     * @param document 文档
+     * @return 向量
+     */
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    /**
+     * 批量文档嵌入，直接委托
+     *
+     * @param documents        文档列表
+     * @param options          嵌入选项
+     * @param batchingStrategy 批次策略
+     * @return 与文档一一对应的向量
+     */
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        return delegate.embed(documents, options, batchingStrategy);
+    }
+
+    /**
+     * 向量维度
+     *
+     * @return 委托模型的向量维度
+     */
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
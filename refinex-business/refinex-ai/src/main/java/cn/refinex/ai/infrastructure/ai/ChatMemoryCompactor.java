@@ -0,0 +1,342 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.model.entity.ModelEntity;
+import cn.refinex.ai.domain.model.entity.ModelProvisionEntity;
+import cn.refinex.ai.domain.model.entity.ProviderEntity;
+import cn.refinex.ai.domain.model.enums.ModelType;
+import cn.refinex.ai.infrastructure.config.ChatMemoryProperties;
+import cn.refinex.ai.infrastructure.persistence.repository.AppendOnlyChatMemoryRepository;
+import com.knuddels.jtokkit.api.Encoding;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 聊天记忆压缩器
+ * <p>
+ * 滑动窗口只限制消息条数，长回答与 RAG 上下文会让每轮的输入 token 持续膨胀。每轮对话结束后异步检查记忆窗口：
+ * <ul>
+ *     <li>预算：(模型最大上下文窗口 - 最大输出 token 数) × budgetRatio，不超过 maxHistoryTokens；模型未配置上下文窗口时取默认预算；
+ *     token 数按对话模型的编码计数（{@link TokenCounter}）</li>
+ *     <li>超出预算时从最新的消息向前保留约 retainRatio × 预算的近期消息（从用户消息开始，保持问答成对），
+ *     更早的消息与原摘要由低价模型合并为新摘要，作为系统消息固定在窗口首位</li>
+ *     <li>摘要模型：配置的 summaryModelCode，否则为组织已开通对话模型中输入 + 输出单价最低者，均不可用时使用对话模型</li>
+ *     <li>指标：压缩结果计数 refinex.ai.chat-memory.compactions（result=compacted / conflict / failed），
+ *     移出窗口的 token 数 refinex.ai.chat-memory.compacted-tokens</li>
+ * </ul>
+ * 同一会话同时只运行一次压缩；压缩期间窗口首部被并发修改时放弃本次结果，下一轮对话结束后重新检查。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class ChatMemoryCompactor {
+
+    private static final String METRIC_NAME = "refinex.ai.chat-memory";
+
+    /**
+     * 每条消息的角色与分隔符开销（OpenAI 对话格式为 3~4 个 token）
+     */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    /**
+     * 摘要系统消息前缀，合并摘要时去除
+     */
+    private static final String SUMMARY_PREFIX = "以下是此前对话的摘要：\n";
+
+    /**
+     * 内建的摘要提示词模板（Spring AI PromptTemplate 默认占位符语法 {variableName}）
+     */
+    private static final String SUMMARY_PROMPT = """
+            请将下面的已有摘要与较早的对话合并为一份新的摘要，供后续对话作为上下文使用。
+            要求：保留用户的目标、偏好与约束，已确认的事实与结论，尚未解决的问题，以及回答中的关键数据、名称与代码标识；
+            省略寒暄与重复内容；使用对话所用的语言；不超过 {maxTokens} 个 token；直接输出摘要正文。
+
+            已有摘要：
+            {summary}
+
+            较早的对话：
+            {transcript}
+            """;
+
+    private final ChatMemoryProperties.CompactionProperties properties;
+    private final AppendOnlyChatMemoryRepository chatMemoryRepository;
+    private final ProvisionSnapshotCache provisionSnapshotCache;
+    private final ChatModelRouter chatModelRouter;
+    private final TokenCounter tokenCounter;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final Counter compacted;
+    private final Counter conflicts;
+    private final Counter failures;
+    private final Counter compactedTokens;
+
+    /**
+     * 构造函数
+     *
+     * @param chatMemoryProperties   聊天记忆配置
+     * @param chatMemoryRepository   只追加的聊天记忆仓储
+     * @param provisionSnapshotCache 租户模型开通快照缓存
+     * @param chatModelRouter        ChatModel 路由器
+     * @param tokenCounter           token 计数器
+     * @param meterRegistryProvider  指标注册表
+     */
+    public ChatMemoryCompactor(ChatMemoryProperties chatMemoryProperties,
+                               AppendOnlyChatMemoryRepository chatMemoryRepository,
+                               ProvisionSnapshotCache provisionSnapshotCache,
+                               ChatModelRouter chatModelRouter,
+                               TokenCounter tokenCounter,
+                               ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.properties = chatMemoryProperties.getCompaction();
+        this.chatMemoryRepository = chatMemoryRepository;
+        this.provisionSnapshotCache = provisionSnapshotCache;
+        this.chatModelRouter = chatModelRouter;
+        this.tokenCounter = tokenCounter;
+
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+        this.compacted = resultCounter(meterRegistry, "compacted");
+        this.conflicts = resultCounter(meterRegistry, "conflict");
+        this.failures = resultCounter(meterRegistry, "failed");
+        this.compactedTokens = Counter.builder(METRIC_NAME + ".compacted-tokens")
+                .description("Tokens moved out of chat memory windows by compaction")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 异步检查并压缩会话记忆（对话结束后调用）
+     *
+     * @param estabId        组织ID
+     * @param modelId        对话模型ID（为 null 时使用组织默认模型）
+     * @param conversationId 会话ID
+     */
+    public void compactAsync(Long estabId, Long modelId, String conversationId) {
+        if (!properties.isEnabled() || conversationId == null || !running.add(conversationId)) {
+            return;
+        }
+        Mono.fromRunnable(() -> {
+            try {
+                compact(estabId, modelId, conversationId);
+            } catch (Exception e) {
+                failures.increment();
+                log.warn("聊天记忆压缩失败, conversationId={}, error={}", conversationId, e.getMessage());
+            } finally {
+                running.remove(conversationId);
+            }
+        }).subscribeOn(Schedulers.boundedElastic()).subscribe();
+    }
+
+    /**
+     * 超出预算时压缩较早的消息
+     *
+     * @param estabId        组织ID
+     * @param modelId        对话模型ID
+     * @param conversationId 会话ID
+     */
+    private void compact(Long estabId, Long modelId, String conversationId) {
+        ProvisionSnapshot snapshot = provisionSnapshotCache.snapshot(estabId);
+        ModelEntity conversationModel = conversationModel(snapshot, modelId);
+        int budget = historyBudget(conversationModel);
+        Encoding encoding = encoding(snapshot, conversationModel);
+
+        List<Message> window = chatMemoryRepository.findByConversationId(conversationId);
+        String previousSummary = null;
+        List<Message> body = window;
+        if (!window.isEmpty() && window.getFirst() instanceof SystemMessage summaryMessage) {
+            previousSummary = stripPrefix(summaryMessage.getText());
+            body = window.subList(1, window.size());
+        }
+
+        int total = countTokens(encoding, previousSummary);
+        for (Message message : body) {
+            total += countTokens(encoding, message);
+        }
+        if (total <= budget) {
+            return;
+        }
+
+        // 从最新的消息向前保留近期消息，至少保留 minRetainMessages 条
+        int retainBudget = (int) (budget * properties.getRetainRatio());
+        int cut = body.size();
+        int retained = 0;
+        while (cut > 0) {
+            int tokens = countTokens(encoding, body.get(cut - 1));
+            if (body.size() - cut >= properties.getMinRetainMessages() && retained + tokens > retainBudget) {
+                break;
+            }
+            retained += tokens;
+            cut--;
+        }
+        // 保留部分从用户消息开始，问答不被拆开
+        while (cut > 0 && cut < body.size() - 1 && body.get(cut).getMessageType() != MessageType.USER) {
+            cut++;
+        }
+        if (cut == 0) {
+            return;
+        }
+
+        List<Message> summarized = List.copyOf(body.subList(0, cut));
+        int summaryMaxTokens = Math.max(200, (budget - retainBudget) / 2);
+        String summary = summarize(resolveSummaryModel(snapshot, estabId, modelId), previousSummary, summarized, summaryMaxTokens);
+        if (summary == null || summary.isBlank()) {
+            failures.increment();
+            log.warn("聊天记忆压缩模型返回空摘要, conversationId={}", conversationId);
+            return;
+        }
+
+        if (chatMemoryRepository.compact(conversationId, summarized, SUMMARY_PREFIX + summary.trim())) {
+            compacted.increment();
+            int removed = countTokens(encoding, previousSummary);
+            for (Message message : summarized) {
+                removed += countTokens(encoding, message);
+            }
+            compactedTokens.increment(removed);
+            log.debug("聊天记忆已压缩, conversationId={}, messages={}, tokens={}, budget={}",
+                    conversationId, summarized.size(), total, budget);
+        } else {
+            conflicts.increment();
+            log.debug("聊天记忆窗口已变化，放弃本次压缩, conversationId={}", conversationId);
+        }
+    }
+
+    /**
+     * 调用摘要模型合并原摘要与较早的对话
+     */
+    private String summarize(ChatModel chatModel, String previousSummary, List<Message> messages, int maxTokens) {
+        StringBuilder transcript = new StringBuilder();
+        for (Message message : messages) {
+            String role = switch (message.getMessageType()) {
+                case USER -> "用户";
+                case ASSISTANT -> "助手";
+                case SYSTEM -> "系统";
+                case TOOL -> "工具";
+            };
+            transcript.append(role).append('：').append(message.getText()).append("\n\n");
+        }
+
+        String renderedPrompt = PromptTemplate.builder()
+                .template(SUMMARY_PROMPT)
+                .build()
+                .render(Map.of(
+                        "maxTokens", maxTokens,
+                        "summary", previousSummary == null ? "无" : previousSummary,
+                        "transcript", transcript.toString().trim()));
+
+        return ChatClient.builder(chatModel)
+                .build()
+                .prompt()
+                .user(renderedPrompt)
+                .call()
+                .content();
+    }
+
+    /**
+     * 历史 token 预算
+     *
+     * @param model 对话模型（可为 null）
+     * @return 预算（token 数）
+     */
+    private int historyBudget(ModelEntity model) {
+        int budget = properties.getDefaultHistoryTokens();
+        if (model != null && model.getMaxContextWindow() != null && model.getMaxContextWindow() > 0) {
+            int available = model.getMaxContextWindow()
+                    - (model.getMaxOutputTokens() != null ? model.getMaxOutputTokens() : 0);
+            if (available > 0) {
+                budget = (int) (available * properties.getBudgetRatio());
+            }
+        }
+        if (properties.getMaxHistoryTokens() > 0) {
+            budget = Math.min(budget, properties.getMaxHistoryTokens());
+        }
+        return budget;
+    }
+
+    /**
+     * 对话模型：指定模型或组织默认模型（与对话时的 ChatModel 解析一致）
+     */
+    private ModelEntity conversationModel(ProvisionSnapshot snapshot, Long modelId) {
+        if (modelId != null) {
+            return snapshot.models().get(modelId);
+        }
+        ModelProvisionEntity provision = snapshot.defaultProvisionId() != null
+                ? snapshot.provisions().get(snapshot.defaultProvisionId())
+                : null;
+        return provision != null ? snapshot.models().get(provision.getModelId()) : null;
+    }
+
+    /**
+     * 摘要模型：配置的模型编码优先，其次为单价最低的已开通对话模型，均不可用时使用对话模型
+     */
+    private ChatModel resolveSummaryModel(ProvisionSnapshot snapshot, Long estabId, Long modelId) {
+        Long provisionId = null;
+        BigDecimal lowestPrice = null;
+        for (ModelProvisionEntity provision : snapshot.provisions().values()) {
+            ModelEntity model = snapshot.models().get(provision.getModelId());
+            if (model == null || model.getModelType() == null || model.getModelType() != ModelType.CHAT.getCode()
+                    || model.getStatus() == null || model.getStatus() != 1) {
+                continue;
+            }
+            if (properties.getSummaryModelCode() != null && properties.getSummaryModelCode().equals(model.getModelCode())) {
+                provisionId = provision.getId();
+                break;
+            }
+            if (model.getInputPrice() != null && model.getOutputPrice() != null) {
+                BigDecimal price = model.getInputPrice().add(model.getOutputPrice());
+                if (lowestPrice == null || price.compareTo(lowestPrice) < 0) {
+                    lowestPrice = price;
+                    provisionId = provision.getId();
+                }
+            }
+        }
+
+        if (provisionId != null) {
+            return chatModelRouter.resolve(provisionId);
+        }
+        return modelId != null ? chatModelRouter.resolve(estabId, modelId) : chatModelRouter.resolveDefault(estabId);
+    }
+
+    /**
+     * 对话模型的分词编码，模型未知时为默认编码
+     */
+    private Encoding encoding(ProvisionSnapshot snapshot, ModelEntity model) {
+        if (model == null) {
+            return tokenCounter.encodingFor(null, null);
+        }
+        ProviderEntity provider = snapshot.providers().get(model.getProviderId());
+        return tokenCounter.encodingFor(provider != null ? provider.getProviderCode() : null, model.getModelCode());
+    }
+
+    private int countTokens(Encoding encoding, Message message) {
+        return MESSAGE_OVERHEAD_TOKENS + countTokens(encoding, message.getText());
+    }
+
+    private int countTokens(Encoding encoding, String text) {
+        return tokenCounter.count(encoding, text);
+    }
+
+    private static String stripPrefix(String summary) {
+        return summary != null && summary.startsWith(SUMMARY_PREFIX) ? summary.substring(SUMMARY_PREFIX.length()) : summary;
+    }
+
+    private static Counter resultCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC_NAME + ".compactions")
+                .description("Chat memory compaction outcomes")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -1,58 +1,29 @@
 package cn.refinex.ai.infrastructure.ai;
 
+import cn.refinex.ai.infrastructure.config.ModelRegistryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * ChatModel 缓存注册表
  * <p>
- * 以 provisionId 为 key 缓存已创建的 ChatModel 实例。
+ * 以 provisionId 为 key 缓存已创建的 ChatModel 实例，容量、空闲过期与资源释放见 {@link ModelClientRegistry}。
  * ChatModel 实例是线程安全的，并发读同一缓存条目无问题。
  *
  * @author refinex
  */
 @Component
-public class ChatModelRegistry {
-
-    private final ConcurrentHashMap<Long, ChatModel> cache = new ConcurrentHashMap<>();
-
-    /**
-     * 从缓存获取 ChatModel
-     *
-     * @param provisionId 租户模型开通ID
-     * @return ChatModel 实例，未命中返回 null
-     */
-    public ChatModel get(Long provisionId) {
-        return cache.get(provisionId);
-    }
-
-    /**
-     * 写入缓存
-     *
-     * @param provisionId 租户模型开通ID
-     * @param model       ChatModel 实例
-     * @return 写入的 ChatModel 实例
-     */
-    public ChatModel put(Long provisionId, ChatModel model) {
-        cache.put(provisionId, model);
-        return model;
-    }
+public class ChatModelRegistry extends ModelClientRegistry<ChatModel> {
 
     /**
-     * 驱逐单条缓存
+     * 构造函数
      *
-     * @param provisionId 租户模型开通ID
-     */
-    public void evict(Long provisionId) {
-        cache.remove(provisionId);
-    }
-
-    /**
-     * 清空全部缓存
+     * @param properties            注册表配置
+     * @param meterRegistryProvider 指标注册表
      */
-    public void evictAll() {
-        cache.clear();
+    public ChatModelRegistry(ModelRegistryProperties properties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        super("chat", properties, meterRegistryProvider);
     }
 }
@@ -0,0 +1,245 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.error.AiErrorCode;
+import cn.refinex.ai.infrastructure.config.DocumentExtractionProperties;
+import cn.refinex.base.exception.BizException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.pdf.PDFParserConfig;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.UrlResource;
+import org.springframework.stereotype.Component;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 流式文档内容提取器
+ * <p>
+ * 远程文件以流的方式交给 Tika 解析（需要随机访问的格式由 {@link TikaInputStream} 落临时文件），
+ * 解析产生的 SAX 文本事件直接写入 {@link TextSink} 并边写入边规整空白，不再先物化分页 Document 列表再拼接；
+ * token 数由 {@link TokenCounter} 按默认编码分段计数。
+ * <p>
+ * 解析在独立的有界调度器中执行，同时解析的文档数与排队数均有上限，单篇文档文本超过字符上限时立即中止解析，
+ * 因此解析占用的堆内存不随文件大小无界增长。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class DocumentContentExtractor implements DisposableBean {
+
+    /**
+     * 结束时换行的块级元素
+     */
+    private static final Set<String> BLOCK_ELEMENTS = Set.of(
+            "p", "div", "li", "tr", "br", "h1", "h2", "h3", "h4", "h5", "h6", "pre", "blockquote", "table", "ul", "ol"
+    );
+
+    private final DocumentExtractionProperties properties;
+    private final Parser parser = new AutoDetectParser();
+    private final TokenCounter tokenCounter;
+    private final Scheduler scheduler;
+
+    public DocumentContentExtractor(DocumentExtractionProperties properties, TokenCounter tokenCounter) {
+        this.properties = properties;
+        this.tokenCounter = tokenCounter;
+        this.scheduler = Schedulers.newBoundedElastic(
+                Math.max(1, properties.getConcurrency()),
+                Math.max(0, properties.getQueueCapacity()),
+                "kb-document-extract"
+        );
+    }
+
+    /**
+     * 提取远程文件的纯文本内容（阻塞调用，解析在独立调度器中执行）
+     *
+     * @param fileUrl 文件地址
+     * @return 提取结果
+     * @throws BizException 解析繁忙、内容超长或解析失败
+     */
+    public ExtractedContent extract(String fileUrl) {
+        try {
+            return Mono.fromCallable(() -> parse(fileUrl))
+                    .subscribeOn(scheduler)
+                    .timeout(properties.getTimeout())
+                    .block();
+        } catch (BizException e) {
+            throw e;
+        } catch (Exception e) {
+            Throwable cause = Exceptions.unwrap(e);
+            if (cause instanceof RejectedExecutionException) {
+                log.warn("文档解析排队已满，拒绝解析: fileUrl={}", fileUrl);
+                throw new BizException(AiErrorCode.KB_DOCUMENT_PARSE_BUSY);
+            }
+            if (cause instanceof TimeoutException) {
+                log.error("文档内容提取超时: fileUrl={}, timeout={}", fileUrl, properties.getTimeout());
+            } else {
+                log.error("文档内容提取失败, fileUrl={}", fileUrl, cause);
+            }
+            throw new BizException(AiErrorCode.KB_DOCUMENT_PARSE_FAILED);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    /**
+     * 流式解析文件
+     *
+     * @param fileUrl 文件地址
+     * @return 提取结果
+     */
+    private ExtractedContent parse(String fileUrl) throws Exception {
+        TextSink sink = new TextSink(properties.getMaxChars());
+        ParseContext context = new ParseContext();
+        PDFParserConfig pdfConfig = new PDFParserConfig();
+        pdfConfig.setMaxMainMemoryBytes(properties.getPdfMaxMainMemory().toBytes());
+        context.set(PDFParserConfig.class, pdfConfig);
+        context.set(Parser.class, parser);
+
+        UrlResource resource = new UrlResource(URI.create(fileUrl));
+        try (InputStream in = resource.getInputStream(); TikaInputStream stream = TikaInputStream.get(in)) {
+            parser.parse(stream, new BodyContentHandler(sink), new Metadata(), context);
+        } catch (Exception e) {
+            if (isLimitReached(e)) {
+                log.warn("文档内容超出字符上限，中止解析: fileUrl={}, maxChars={}", fileUrl, properties.getMaxChars());
+                throw new BizException(AiErrorCode.KB_DOCUMENT_TOO_LARGE);
+            }
+            throw e;
+        }
+        String content = sink.toString();
+        return new ExtractedContent(content, content.length(), tokenCounter.count(content));
+    }
+
+    private static boolean isLimitReached(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof LimitReachedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 提取结果
+     *
+     * @param content    纯文本内容（段落间以空行分隔）
+     * @param charCount  字符数
+     * @param tokenCount token 数（默认编码）
+     */
+    public record ExtractedContent(String content, int charCount, int tokenCount) {
+    }
+
+    /**
+     * 增量文本缓冲区
+     * <p>
+     * 接收 Tika 的 XHTML 文本事件：去除行尾空白、连续空行最多保留一个，块级元素结束时换行，
+     * 超出字符上限时立即中止解析。
+     */
+    private static final class TextSink extends DefaultHandler {
+
+        private final int maxChars;
+        private final StringBuilder buffer = new StringBuilder();
+        private int pendingNewlines;
+        private int pendingSpaces;
+
+        private TextSink(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            for (int i = start; i < start + length; i++) {
+                char c = ch[i];
+                if (c == '\n') {
+                    newline(1);
+                } else if (c == '\r') {
+                    // 统一为 \n
+                } else if (c == ' ' || c == '\t' || c == '\u00A0') {
+                    pendingSpaces++;
+                } else {
+                    append(c);
+                }
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            characters(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (BLOCK_ELEMENTS.contains(localName)) {
+                newline("p".equals(localName) || "div".equals(localName) ? 2 : 1);
+            }
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) {
+            if ("td".equals(localName) || "th".equals(localName)) {
+                pendingSpaces++;
+            }
+        }
+
+        private void newline(int count) {
+            pendingSpaces = 0;
+            pendingNewlines = Math.min(2, pendingNewlines + count);
+        }
+
+        private void append(char c) throws SAXException {
+            if (!buffer.isEmpty()) {
+                if (pendingNewlines > 0) {
+                    write('\n', pendingNewlines);
+                } else if (pendingSpaces > 0) {
+                    write(' ', 1);
+                }
+            }
+            pendingNewlines = 0;
+            pendingSpaces = 0;
+            write(c, 1);
+        }
+
+        private void write(char c, int count) throws SAXException {
+            if (buffer.length() + count > maxChars) {
+                throw new LimitReachedException();
+            }
+            for (int i = 0; i < count; i++) {
+                buffer.append(c);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
+
+    /**
+     * 提取文本超出字符上限
+     */
+    private static final class LimitReachedException extends SAXException {
+
+        private LimitReachedException() {
+            super("document content exceeds the configured character limit");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.VectorizationProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.ToIntFunction;
+
+/**
+ * 供应商感知的嵌入批次执行器
+ * <p>
+ * 按供应商策略（{@link VectorizationProperties.EmbeddingProperties}）将切片划分为受 token 预算与条数上限约束的批次，
+ * 并以嵌入模型 provisionId 为粒度做全局并发限制：同一开通下所有知识库的嵌入请求共享一组许可，
+ * 命中供应商限流时按指数退避 + 抖动重试，退避期间不占用许可，形成对供应商限流的背压。
+ * 并发数配置变更后下一个请求即换用新的许可组，进行中的请求在原许可组上归还，切换期间总并发短暂不超过新旧之和。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmbeddingBatchExecutor {
+
+    private final VectorizationProperties properties;
+    private final ProvisionSnapshotCache provisionSnapshotCache;
+    private final EmbeddingModelRouter embeddingModelRouter;
+
+    /**
+     * 嵌入模型 provisionId → 并发许可
+     */
+    private final Map<Long, Permits> permits = new ConcurrentHashMap<>();
+
+    /**
+     * 解析嵌入模型开通对应的供应商批次策略
+     *
+     * @param provisionId 嵌入模型开通ID
+     * @return 批次策略
+     */
+    public VectorizationProperties.EmbeddingProperties policy(Long provisionId) {
+        ProvisionSnapshotCache.ResolvedProvision resolved = provisionSnapshotCache.requireActive(provisionId);
+        return properties.resolveEmbedding(resolved.provider().getProviderCode());
+    }
+
+    /**
+     * 按 token 预算与条数上限划分批次
+     * <p>
+     * 单个切片超出 token 预算时独占一个批次，由供应商自行截断或报错。
+     *
+     * @param documents    切片文档
+     * @param tokenCounter 切片 token 计数
+     * @param policy       批次策略
+     * @return 批次列表，保持原有顺序
+     */
+    public List<List<Document>> batch(List<Document> documents, ToIntFunction<Document> tokenCounter,
+                                      VectorizationProperties.EmbeddingProperties policy) {
+        int maxSize = Math.max(1, policy.getMaxBatchSize());
+        int maxTokens = Math.max(1, policy.getMaxBatchTokens());
+
+        List<List<Document>> batches = new ArrayList<>();
+        List<Document> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (Document document : documents) {
+            int tokens = tokenCounter.applyAsInt(document);
+            if (!current.isEmpty() && (current.size() >= maxSize || currentTokens + tokens > maxTokens)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(document);
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * 计算一个批次的向量
+     *
+     * @param provisionId 嵌入模型开通ID
+     * @param batch       批次文档
+     * @param policy      批次策略
+     * @return 与批次文档一一对应的向量
+     */
+    public Mono<List<float[]>> embed(Long provisionId, List<Document> batch, VectorizationProperties.EmbeddingProperties policy) {
+        Semaphore semaphore = permits(provisionId, Math.max(1, policy.getConcurrency()));
+        List<String> texts = batch.stream().map(Document::getText).toList();
+
+        return Mono.fromCallable(() -> {
+                    semaphore.acquire();
+                    try {
+                        EmbeddingModel embeddingModel = embeddingModelRouter.resolve(provisionId);
+                        return embeddingModel.embed(texts);
+                    } finally {
+                        semaphore.release();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .retryWhen(Retry.backoff(policy.getMaxRetries(), policy.getMinBackoff())
+                        .maxBackoff(policy.getMaxBackoff())
+                        .jitter(0.5)
+                        .filter(EmbeddingBatchExecutor::isRateLimited)
+                        .doBeforeRetry(signal -> log.warn("嵌入请求被限流，退避重试: provisionId={}, batchSize={}, attempt={}",
+                                provisionId, batch.size(), signal.totalRetries() + 1))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    /**
+     * 获取开通的并发许可，并发数与配置不一致时重建
+     *
+     * @param provisionId 嵌入模型开通ID
+     * @param concurrency 配置的并发数
+     * @return 并发许可
+     */
+    private Semaphore permits(Long provisionId, int concurrency) {
+        Permits current = permits.get(provisionId);
+        if (current != null && current.concurrency() == concurrency) {
+            return current.semaphore();
+        }
+        return permits.compute(provisionId, (id, existing) -> existing != null && existing.concurrency() == concurrency
+                ? existing : new Permits(concurrency, new Semaphore(concurrency))).semaphore();
+    }
+
+    /**
+     * 判断异常是否为供应商限流或临时性故障
+     *
+     * @param error 异常
+     * @return 是否可重试
+     */
+    private static boolean isRateLimited(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof TransientAiException) {
+                return true;
+            }
+            String message = t.getMessage();
+            if (message != null) {
+                String lower = message.toLowerCase(Locale.ROOT);
+                if (lower.contains("429") || lower.contains("rate limit") || lower.contains("too many requests")) {
+                    return true;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 并发许可及其创建时的并发数
+     *
+     * @param concurrency 并发数
+     * @param semaphore   许可
+     */
+    private record Permits(int concurrency, Semaphore semaphore) {
+    }
+}
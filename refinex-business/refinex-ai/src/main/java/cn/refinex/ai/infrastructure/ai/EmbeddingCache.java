@@ -0,0 +1,196 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.VectorizationProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 嵌入向量缓存
+ * <p>
+ * 以 (嵌入模型 provisionId, 切片内容 SHA-256) 为 key 缓存向量，内容未变的切片重新向量化时不再调用嵌入模型：
+ * <ul>
+ *     <li>一级：本地 Caffeine，按向量字节数计权 + 空闲过期</li>
+ *     <li>二级：Redis（小端 float32 字节数组），多实例共享、重启不丢，批量 MGET / pipeline 写入</li>
+ *     <li>指标：本地缓存命中率（CaffeineCacheMetrics），各层命中计数 refinex.ai.embedding-cache.lookups</li>
+ * </ul>
+ * Redis 异常时降级为仅本地缓存，不影响向量化。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class EmbeddingCache {
+
+    /**
+     * Redis key 前缀，完整 key 为 prefix + provisionId + ":" + contentHash
+     */
+    private static final String KEY_PREFIX = "refinex:ai:embedding:";
+
+    private static final String METRIC_NAME = "refinex.ai.embedding-cache";
+
+    private final VectorizationProperties.CacheProperties properties;
+    private final RedissonClient redissonClient;
+    private final Cache<String, float[]> local;
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    /**
+     * 构造函数
+     *
+     * @param vectorizationProperties 向量化配置
+     * @param redissonClient          Redisson 客户端
+     * @param meterRegistryProvider   指标注册表
+     */
+    public EmbeddingCache(VectorizationProperties vectorizationProperties,
+                          RedissonClient redissonClient,
+                          ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.properties = vectorizationProperties.getCache();
+        this.redissonClient = redissonClient;
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(properties.getLocalMaximumSize().toBytes())
+                .weigher((String key, float[] embedding) -> key.length() + embedding.length * Float.BYTES)
+                .expireAfterAccess(properties.getLocalExpireAfterAccess())
+                .recordStats()
+                .build();
+
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, local, METRIC_NAME);
+        this.localHits = lookupCounter(meterRegistry, "local");
+        this.redisHits = lookupCounter(meterRegistry, "redis");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    /**
+     * 计算切片内容哈希
+     *
+     * @param content 切片文本
+     * @return SHA-256 十六进制串（64 位）
+     */
+    public static String contentHash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 批量查询缓存向量（本地 → Redis，Redis 命中回填本地）
+     *
+     * @param provisionId   嵌入模型开通ID
+     * @param contentHashes 切片内容哈希
+     * @return 命中的 contentHash → 向量
+     */
+    public Map<String, float[]> getAll(Long provisionId, Collection<String> contentHashes) {
+        Map<String, float[]> found = new HashMap<>();
+        if (!properties.isEnabled() || contentHashes.isEmpty()) {
+            return found;
+        }
+
+        Set<String> remoteKeys = new LinkedHashSet<>();
+        for (String hash : contentHashes) {
+            String key = key(provisionId, hash);
+            float[] embedding = local.getIfPresent(key);
+            if (embedding != null) {
+                found.put(hash, embedding);
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+        localHits.increment(found.size());
+
+        if (!remoteKeys.isEmpty() && properties.isRedisEnabled()) {
+            try {
+                Map<String, byte[]> remote = redissonClient.getBuckets(ByteArrayCodec.INSTANCE)
+                        .get(remoteKeys.toArray(String[]::new));
+                for (Map.Entry<String, byte[]> entry : remote.entrySet()) {
+                    float[] embedding = decode(entry.getValue());
+                    local.put(entry.getKey(), embedding);
+                    found.put(entry.getKey().substring(entry.getKey().lastIndexOf(':') + 1), embedding);
+                }
+                redisHits.increment(remote.size());
+                remoteKeys.removeAll(remote.keySet());
+            } catch (Exception e) {
+                log.warn("读取 Redis 嵌入缓存失败，降级为本地缓存: provisionId={}, error={}", provisionId, e.getMessage());
+            }
+        }
+        misses.increment(remoteKeys.size());
+        return found;
+    }
+
+    /**
+     * 批量写入缓存向量
+     *
+     * @param provisionId 嵌入模型开通ID
+     * @param embeddings  contentHash → 向量
+     */
+    public void putAll(Long provisionId, Map<String, float[]> embeddings) {
+        if (!properties.isEnabled() || embeddings.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, float[]> entry : embeddings.entrySet()) {
+            local.put(key(provisionId, entry.getKey()), entry.getValue());
+        }
+
+        if (!properties.isRedisEnabled()) {
+            return;
+        }
+        try {
+            RBatch batch = redissonClient.createBatch();
+            for (Map.Entry<String, float[]> entry : embeddings.entrySet()) {
+                batch.<byte[]>getBucket(key(provisionId, entry.getKey()), ByteArrayCodec.INSTANCE)
+                        .setAsync(encode(entry.getValue()), properties.getRedisTtl());
+            }
+            batch.execute();
+        } catch (Exception e) {
+            log.warn("写入 Redis 嵌入缓存失败: provisionId={}, size={}, error={}", provisionId, embeddings.size(), e.getMessage());
+        }
+    }
+
+    private static String key(Long provisionId, String contentHash) {
+        return KEY_PREFIX + provisionId + ":" + contentHash;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String tier) {
+        return Counter.builder(METRIC_NAME + ".lookups")
+                .description("Embedding cache lookups by resolving tier")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    private static byte[] encode(float[] embedding) {
+        ByteBuffer buffer = ByteBuffer.allocate(embedding.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(embedding);
+        return buffer.array();
+    }
+
+    private static float[] decode(byte[] bytes) {
+        float[] embedding = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(embedding);
+        return embedding;
+    }
+}
@@ -1,58 +1,28 @@
 package cn.refinex.ai.infrastructure.ai;
 
+import cn.refinex.ai.infrastructure.config.ModelRegistryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * EmbeddingModel 缓存注册表
  * <p>
- * 以 provisionId 为 key 缓存已创建的 EmbeddingModel 实例。
- * EmbeddingModel 实例是线程安全的，并发读同一缓存条目无问题。
+ * 以 provisionId 为 key 缓存已创建的 EmbeddingModel 实例，容量、空闲过期与资源释放见 {@link ModelClientRegistry}。
  *
  * @author refinex
  */
 @Component
-public class EmbeddingModelRegistry {
-
-    private final ConcurrentHashMap<Long, EmbeddingModel> cache = new ConcurrentHashMap<>();
-
-    /**
-     * 从缓存获取 EmbeddingModel
-     *
-     * @param provisionId 租户模型开通ID
-     * @return EmbeddingModel 实例，未命中返回 null
-     */
-    public EmbeddingModel get(Long provisionId) {
-        return cache.get(provisionId);
-    }
-
-    /**
-     * 写入缓存
-     *
-     * @param provisionId 租户模型开通ID
-     * @param model       EmbeddingModel 实例
-     * @return 写入的 Embeddin
-     */
-    public EmbeddingModel put(Long provisionId, EmbeddingModel model) {
-        cache.put(provisionId, model);
-        return model;
-    }
+public class EmbeddingModelRegistry extends ModelClientRegistry<EmbeddingModel> {
 
     /**
-     * 驱逐单条缓存
+     * 构造函数
      *
-     * @param provisionId 租户模型开通ID
-     */
-    public void evict(Long provisionId) {
-        cache.remove(provisionId);
-    }
-
-    /**
-     * 清空全部缓存
+     * @param properties            注册表配置
+     * @param meterRegistryProvider 指标注册表
      */
-    public void evictAll() {
-        cache.clear();
+    public EmbeddingModelRegistry(ModelRegistryProperties properties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        super("embedding", properties, meterRegistryProvider);
     }
 }
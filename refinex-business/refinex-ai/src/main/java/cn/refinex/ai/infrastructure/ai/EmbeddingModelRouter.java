@@ -2,11 +2,7 @@ package cn.refinex.ai.infrastructure.ai;
 
 import cn.refinex.ai.domain.error.AiErrorCode;
 import cn.refinex.ai.domain.model.entity.KnowledgeBaseEntity;
-import cn.refinex.ai.domain.model.entity.ModelEntity;
-import cn.refinex.ai.domain.model.entity.ModelProvisionEntity;
-import cn.refinex.ai.domain.model.entity.ProviderEntity;
 import cn.refinex.ai.domain.model.enums.ModelType;
-import cn.refinex.ai.domain.repository.AiRepository;
 import cn.refinex.base.config.RefinexCryptoProperties;
 import cn.refinex.base.exception.BizException;
 import cn.refinex.base.utils.AesUtils;
@@ -17,7 +13,8 @@ import org.springframework.stereotype.Component;
 /**
  * EmbeddingModel 路由器
  * <p>
- * 对外统一入口，编排 DB 查询 → 缓存 → 工厂，按 provisionId 或 estabId+modelId 解析 EmbeddingModel。
+ * 对外统一入口，编排 开通快照 → 缓存 → 工厂，按 provisionId 或 estabId+modelId 解析 EmbeddingModel。
+ * provision / model / provider 均从 {@link ProvisionSnapshotCache} 读取，快照预热后解析过程不访问 DB。
  *
  * @author refinex
  */
@@ -25,7 +22,7 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class EmbeddingModelRouter {
 
-    private final AiRepository aiRepository;
+    private final ProvisionSnapshotCache provisionSnapshotCache;
     private final EmbeddingModelFactory embeddingModelFactory;
     private final EmbeddingModelRegistry embeddingModelRegistry;
     private final RefinexCryptoProperties cryptoProperties;
@@ -37,17 +34,8 @@ public class EmbeddingModelRouter {
      * @return EmbeddingModel 实例
      */
     public EmbeddingModel resolve(Long provisionId) {
-        EmbeddingModel cached = embeddingModelRegistry.get(provisionId);
-        if (cached != null) {
-            ModelProvisionEntity provision = aiRepository.findModelProvisionById(provisionId);
-            if (provision == null || !isActive(provision)) {
-                embeddingModelRegistry.evict(provisionId);
-                throw new BizException(AiErrorCode.MODEL_PROVISION_DISABLED);
-            }
-            return cached;
-        }
-
-        return buildAndCache(provisionId);
+        ProvisionSnapshotCache.ResolvedProvision resolved = provisionSnapshotCache.requireActive(provisionId);
+        return embeddingModelRegistry.getOrBuild(provisionId, id -> build(resolved));
     }
 
     /**
@@ -58,11 +46,11 @@ public class EmbeddingModelRouter {
      * @return EmbeddingModel 实例
      */
     public EmbeddingModel resolve(Long estabId, Long modelId) {
-        ModelProvisionEntity provision = aiRepository.findActiveProvision(estabId, modelId);
-        if (provision == null) {
+        Long provisionId = provisionSnapshotCache.findActiveProvisionId(estabId, modelId);
+        if (provisionId == null) {
             throw new BizException(AiErrorCode.MODEL_PROVISION_NOT_FOUND);
         }
-        return resolve(provision.getId());
+        return resolve(provisionId);
     }
 
     /**
@@ -72,11 +60,21 @@ public class EmbeddingModelRouter {
      * @return EmbeddingModel 实例
      */
     public EmbeddingModel resolveDefault(Long estabId) {
-        ModelProvisionEntity provision = aiRepository.findDefaultProvisionByType(estabId, ModelType.EMBEDDING.getCode());
-        if (provision == null) {
+        return resolve(resolveDefaultProvisionId(estabId));
+    }
+
+    /**
+     * 获取租户默认嵌入模型的 provisionId
+     *
+     * @param estabId 组织ID
+     * @return 嵌入模型的 provisionId
+     */
+    public Long resolveDefaultProvisionId(Long estabId) {
+        Long provisionId = provisionSnapshotCache.findDefaultProvisionIdByType(estabId, ModelType.EMBEDDING.getCode());
+        if (provisionId == null) {
             throw new BizException(AiErrorCode.DEFAULT_EMBEDDING_MODEL_NOT_CONFIGURED);
         }
-        return resolve(provision.getId());
+        return provisionId;
     }
 
     /**
@@ -86,10 +84,7 @@ public class EmbeddingModelRouter {
      * @return EmbeddingModel 实例
      */
     public EmbeddingModel resolveForKnowledgeBase(KnowledgeBaseEntity kb) {
-        if (kb.getEmbeddingModelId() != null) {
-            return resolve(kb.getEstabId(), kb.getEmbeddingModelId());
-        }
-        return resolveDefault(kb.getEstabId());
+        return resolve(resolveProvisionIdForKnowledgeBase(kb));
     }
 
     /**
@@ -100,71 +95,32 @@ public class EmbeddingModelRouter {
      */
     public Long resolveProvisionIdForKnowledgeBase(KnowledgeBaseEntity kb) {
         if (kb.getEmbeddingModelId() != null) {
-            ModelProvisionEntity provision = aiRepository.findActiveProvision(kb.getEstabId(), kb.getEmbeddingModelId());
-            if (provision == null) {
+            Long provisionId = provisionSnapshotCache.findActiveProvisionId(kb.getEstabId(), kb.getEmbeddingModelId());
+            if (provisionId == null) {
                 throw new BizException(AiErrorCode.MODEL_PROVISION_NOT_FOUND);
             }
-            return provision.getId();
+            return provisionId;
         }
 
-        ModelProvisionEntity provision = aiRepository.findDefaultProvisionByType(kb.getEstabId(), ModelType.EMBEDDING.getCode());
-        if (provision == null) {
+        Long provisionId = provisionSnapshotCache.findDefaultProvisionIdByType(kb.getEstabId(), ModelType.EMBEDDING.getCode());
+        if (provisionId == null) {
             throw new BizException(AiErrorCode.DEFAULT_EMBEDDING_MODEL_NOT_CONFIGURED);
         }
-        return provision.getId();
+        return provisionId;
     }
 
     /**
-     * 从 DB 加载三层数据，创建 EmbeddingModel 并写入缓存
+     * 解密 API Key，创建 EmbeddingModel
      *
-     * @param provisionId 租户模型开通ID
+     * @param resolved 快照中的 provision / model / provider
      * @return EmbeddingModel 实例
      */
-    private EmbeddingModel buildAndCache(Long provisionId) {
-        ModelProvisionEntity provision = aiRepository.findModelProvisionById(provisionId);
-        if (provision == null || !isActive(provision)) {
-            throw new BizException(AiErrorCode.MODEL_PROVISION_DISABLED);
-        }
-
-        ModelEntity model = aiRepository.findModelById(provision.getModelId());
-        if (model == null || !isEnabled(model.getStatus(), model.getDeleted())) {
-            embeddingModelRegistry.evict(provisionId);
-            throw new BizException(AiErrorCode.MODEL_DISABLED);
-        }
-
-        ProviderEntity provider = aiRepository.findProviderById(model.getProviderId());
-        if (provider == null || !isEnabled(provider.getStatus(), provider.getDeleted())) {
-            embeddingModelRegistry.evict(provisionId);
-            throw new BizException(AiErrorCode.PROVIDER_DISABLED);
-        }
-
-        String apiKey = AesUtils.decrypt(provision.getApiKeyCipher(), cryptoProperties.getAesKey());
+    private EmbeddingModel build(ProvisionSnapshotCache.ResolvedProvision resolved) {
+        String apiKey = AesUtils.decrypt(resolved.provision().getApiKeyCipher(), cryptoProperties.getAesKey());
         if (apiKey == null || apiKey.isBlank()) {
             throw new BizException(AiErrorCode.API_KEY_MISSING);
         }
 
-        EmbeddingModel embeddingModel = embeddingModelFactory.createEmbeddingModel(provider, model, provision, apiKey);
-        return embeddingModelRegistry.put(provisionId, embeddingModel);
-    }
-
-    /**
-     * 判断 provision 是否活跃（status=1, deleted=0）
-     *
-     * @param provision 租户模型开通实体
-     * @return 是否活跃
-     */
-    private boolean isActive(ModelProvisionEntity provision) {
-        return isEnabled(provision.getStatus(), provision.getDeleted());
-    }
-
-    /**
-     * 判断实体是否启用（status=1, deleted=0）
-     *
-     * @param status  状态
-     * @param deleted 删除标记
-     * @return 是否启用
-     */
-    private boolean isEnabled(Integer status, Integer deleted) {
-        return (status != null && status == 1) && (deleted == null || deleted == 0);
+        return embeddingModelFactory.createEmbeddingModel(resolved.provider(), resolved.model(), resolved.provision(), apiKey);
     }
 }
@@ -0,0 +1,1510 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.VectorStoreProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 进程内 HNSW 向量索引
+ * <p>
+ * 一个索引目录对应一个嵌入模型（向量维度固定），由三个文件组成：
+ * <ul>
+ *     <li>{@code vectors.dat}：按槽位定长存放归一化后的向量（小端序），分段内存映射，向量不占用堆内存</li>
+ *     <li>{@code documents.log}：追加写的文档日志（新增 / 删除记录，带长度与 CRC 校验），切片文本与 metadata
+ *     只在命中时按偏移量读取</li>
+ *     <li>{@code graph.snapshot}：图结构快照，每插入 {@code snapshotInterval} 个节点及关闭时写入（临时文件 + 原子替换）</li>
+ * </ul>
+ * 启动时回放文档日志（截断末尾的不完整记录），加载快照，快照之后新增的节点重新插入图中，因此每次写入只追加数据，
+ * 不重写整个索引。
+ * <p>
+ * 写入（新增 / 删除 / 快照）串行执行；检索不与写入互斥：邻接表为不可变数组，更新时整体替换，读线程始终看到某个完整版本，
+ * 因此写入期间可并发检索。删除为逻辑删除，被删节点仍参与图导航但不出现在结果中；已删除节点占比超过
+ * {@code compactRatio} 时（启动时或删除后）重建索引回收空间：重建期间写入等待、检索照常进行，
+ * 重建完成后在读写锁保护下切换到新文件，检索与读取只持有读锁，切换瞬间不会看到新旧混合的状态。
+ * <p>
+ * 相似度为余弦相似度（向量写入前归一化，检索时计算点积）。节点在堆内保留 knowledge_base_id / estab_id / document_id
+ * 用于 metadata 过滤：带过滤条件的检索在图上扩展时只收集满足条件的节点，结果不足时回退为对满足条件节点的精确扫描。
+ * <p>
+ * 可选量化（{@code quantization = int8 / pq}）：编码存放在 {@code codes.dat}，编码器存放在 {@code quantizer.dat}。
+ * 检索时图遍历只读取编码，检索宽度不小于 topK × {@code rerankMultiplier}，最后对整个候选集读取全精度向量重排。
+ * 量化不替代 {@code vectors.dat}：全精度向量仍按 float32 完整落盘并映射（重排与图构建都需要），编码是额外的文件，
+ * 磁盘与映射总量增加约 1/4（int8）或 1/16（pq，子空间维度 4）。节省的是检索热路径的读取量：图遍历每次打分读取的字节数
+ * 降为约 1/4 或 1/16，只读检索时常驻页缓存的主要是编码与少量重排候选的向量页；持续写入时图构建仍会访问全精度向量页。
+ * 向量与编码都不占用堆内存。pq 需要先积累 {@code pqTrainingSize} 条向量训练码本，此前按全精度检索。
+ *
+ * @author refinex
+ */
+@Slf4j
+public final class HnswIndex implements Closeable {
+
+    /**
+     * 可用于过滤的 metadata 字段
+     */
+    public static final String KNOWLEDGE_BASE_ID = "knowledge_base_id";
+    public static final String ESTAB_ID = "estab_id";
+    public static final String DOCUMENT_ID = "document_id";
+
+    private static final String VECTORS_FILE = "vectors.dat";
+    private static final String LOG_FILE = "documents.log";
+    private static final String SNAPSHOT_FILE = "graph.snapshot";
+    private static final String CODES_FILE = "codes.dat";
+    private static final String QUANTIZER_FILE = "quantizer.dat";
+
+    private static final String QUANTIZATION_NONE = "none";
+    private static final String QUANTIZATION_INT8 = "int8";
+    private static final String QUANTIZATION_PQ = "pq";
+
+    private static final byte RECORD_META = 0;
+    private static final byte RECORD_ADD = 1;
+    private static final byte RECORD_DELETE = 2;
+
+    private static final int SNAPSHOT_MAGIC = 0x484E5357;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * 单个内存映射分段的大小
+     */
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * 节点层数上限
+     */
+    private static final int MAX_LEVEL = 16;
+
+    /**
+     * 触发压缩的最小节点数，节点较少时不值得重建
+     */
+    private static final int MIN_COMPACT_NODES = 1000;
+
+    private final Path directory;
+    private final VectorStoreProperties.HnswProperties config;
+    private final int m;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private final int snapshotInterval;
+    private final double levelMultiplier;
+    private final String quantization;
+    private final int pqSubvectorDimensions;
+    private final int pqTrainingSize;
+    private final int rerankMultiplier;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantReadWriteLock generationLock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> liveIds = new ConcurrentHashMap<>();
+
+    private volatile DocumentLog documentLog;
+    private volatile VectorFile vectors;
+    private volatile Quantized quantized;
+    private volatile Node[] nodes = new Node[1024];
+    private volatile int size;
+    private volatile EntryPoint entryPoint;
+    private volatile boolean closed;
+    private int deletedCount;
+    private int insertsSinceSnapshot;
+
+    private HnswIndex(Path directory, VectorStoreProperties.HnswProperties cfg) throws IOException {
+        this.directory = directory;
+        this.config = cfg;
+        this.m = Math.max(4, cfg.getM());
+        this.maxLinksLevel0 = m * 2;
+        this.efConstruction = Math.max(m, cfg.getEfConstruction());
+        this.snapshotInterval = Math.max(1, cfg.getSnapshotInterval());
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.quantization = cfg.getQuantization() == null ? QUANTIZATION_NONE : cfg.getQuantization().toLowerCase();
+        if (!List.of(QUANTIZATION_NONE, QUANTIZATION_INT8, QUANTIZATION_PQ).contains(quantization)) {
+            throw new IllegalArgumentException("不支持的 HNSW 量化模式: " + cfg.getQuantization());
+        }
+        this.pqSubvectorDimensions = Math.max(1, cfg.getPqSubvectorDimensions());
+        this.pqTrainingSize = Math.max(256, cfg.getPqTrainingSize());
+        this.rerankMultiplier = Math.max(1, cfg.getRerankMultiplier());
+        Files.createDirectories(directory);
+        this.documentLog = new DocumentLog(directory.resolve(LOG_FILE));
+    }
+
+    /**
+     * 打开（或创建）索引目录，已删除节点占比过高时先重建
+     *
+     * @param directory 索引目录
+     * @param cfg       HNSW 配置
+     * @return 索引
+     */
+    public static HnswIndex open(Path directory, VectorStoreProperties.HnswProperties cfg) {
+        try {
+            HnswIndex index = new HnswIndex(directory, cfg);
+            index.recover();
+            index.compactIfNeeded();
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开 HNSW 索引失败: " + directory, e);
+        }
+    }
+
+    /**
+     * 向量维度，空索引返回 0
+     *
+     * @return 维度
+     */
+    public int dimensions() {
+        VectorFile current = vectors;
+        return current == null ? 0 : current.dimensions;
+    }
+
+    /**
+     * 有效（未删除）节点数
+     *
+     * @return 节点数
+     */
+    public int liveCount() {
+        return liveIds.size();
+    }
+
+    /**
+     * 批量写入，id 已存在时替换旧节点
+     *
+     * @param entries 待写入的条目（向量维度须一致）
+     */
+    public void add(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            ensureOpen();
+            int dimensions = entries.getFirst().vector().length;
+            if (vectors == null) {
+                documentLog.append(encodeMeta(dimensions));
+                vectors = new VectorFile(directory.resolve(VECTORS_FILE), dimensions);
+                if (QUANTIZATION_INT8.equals(quantization)) {
+                    quantized = buildQuantized(VectorQuantizer.int8(dimensions));
+                }
+            } else if (vectors.dimensions != dimensions) {
+                throw new IllegalArgumentException("向量维度与索引不一致: expected=" + vectors.dimensions + ", actual=" + dimensions);
+            }
+
+            // 先写向量（及编码）并落盘，再追加日志：日志中的每个槽位都有完整向量
+            int first = size;
+            Quantized qz = quantized;
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (entry.vector().length != dimensions) {
+                    throw new IllegalArgumentException("向量维度与索引不一致: expected=" + dimensions + ", actual=" + entry.vector().length);
+                }
+                float[] normalized = normalize(entry.vector());
+                vectors.write(first + i, normalized);
+                if (qz != null) {
+                    qz.encode(first + i, normalized);
+                }
+            }
+            vectors.force();
+            if (qz != null) {
+                qz.codes.force();
+            }
+
+            List<Node> added = new ArrayList<>(entries.size());
+            List<Integer> replaced = new ArrayList<>();
+            Map<String, Integer> batchIds = new HashMap<>();
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                Integer previous = batchIds.containsKey(entry.id()) ? batchIds.get(entry.id()) : liveIds.get(entry.id());
+                batchIds.put(entry.id(), first + i);
+                if (previous != null) {
+                    documentLog.append(encodeDelete(previous));
+                    replaced.add(previous);
+                }
+                long offset = documentLog.append(encodeAdd(first + i, entry.id(), entry.text(), entry.metadata()));
+                added.add(new Node(first + i, entry.id(), entry.metadata(), offset, randomLevel()));
+            }
+            documentLog.force();
+
+            for (Node node : added) {
+                insert(node);
+                liveIds.put(node.id, node.slot);
+            }
+            for (Integer slot : replaced) {
+                markDeleted(slot);
+            }
+            trainProductQuantizerIfReady();
+            insertsSinceSnapshot += added.size();
+            if (insertsSinceSnapshot >= snapshotInterval) {
+                writeSnapshot();
+            }
+            compactIfNeeded();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入 HNSW 索引失败: " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 按 id 删除
+     *
+     * @param ids 节点 id
+     * @return 删除的节点数
+     */
+    public int delete(Collection<String> ids) {
+        writeLock.lock();
+        try {
+            ensureOpen();
+            List<Integer> slots = new ArrayList<>();
+            for (String id : ids) {
+                Integer slot = liveIds.get(id);
+                if (slot != null) {
+                    documentLog.append(encodeDelete(slot));
+                    slots.add(slot);
+                }
+            }
+            if (slots.isEmpty()) {
+                return 0;
+            }
+            documentLog.force();
+            slots.forEach(this::markDeleted);
+            compactIfNeeded();
+            return slots.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除 HNSW 索引节点失败: " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 删除满足条件的节点
+     *
+     * @param filter 过滤条件
+     * @return 删除的节点数
+     */
+    public int delete(Predicate<Node> filter) {
+        List<String> ids = new ArrayList<>();
+        Node[] current = nodes;
+        int count = size;
+        for (int slot = 0; slot < count; slot++) {
+            Node node = current[slot];
+            if (node != null && !node.deleted && filter.test(node)) {
+                ids.add(node.id);
+            }
+        }
+        return delete(ids);
+    }
+
+    /**
+     * 近似最近邻检索
+     *
+     * @param query  查询向量
+     * @param k      返回数量
+     * @param ef     检索宽度（候选集大小）
+     * @param filter 过滤条件，null 表示不过滤
+     * @return 按相似度降序的命中
+     */
+    public List<Hit> search(float[] query, int k, int ef, Predicate<Node> filter) {
+        generationLock.readLock().lock();
+        try {
+            return searchCurrent(query, k, ef, filter);
+        } finally {
+            generationLock.readLock().unlock();
+        }
+    }
+
+    private List<Hit> searchCurrent(float[] query, int k, int ef, Predicate<Node> filter) {
+        EntryPoint entry = entryPoint;
+        VectorFile current = vectors;
+        if (entry == null || current == null || k <= 0) {
+            return List.of();
+        }
+        if (query.length != current.dimensions) {
+            throw new IllegalArgumentException("查询向量维度与索引不一致: expected=" + current.dimensions + ", actual=" + query.length);
+        }
+        float[] q = normalize(query);
+        Node[] snapshot = nodes;
+        Predicate<Node> accept = filter == null ? node -> !node.deleted : node -> !node.deleted && filter.test(node);
+        Quantized qz = quantized;
+        Scorer exact = slot -> current.dot(slot, q);
+        Scorer scorer = qz == null ? exact : qz.scorer(q);
+
+        Candidate ep = new Candidate(entry.slot, scorer.score(entry.slot));
+        for (int level = entry.level; level > 0; level--) {
+            ep = greedySearch(scorer, snapshot, ep, level);
+        }
+        int width = Math.max(ef, qz == null ? k : k * rerankMultiplier);
+        List<Candidate> found = searchLayer(scorer, snapshot, List.of(ep), width, 0, accept, width * 32 + 1024);
+        if (found.size() < k && filter != null) {
+            found = exactScan(scorer, snapshot, width, accept);
+        }
+        if (qz != null) {
+            found = rerank(found, exact);
+        }
+        return found.stream().limit(k).map(c -> new Hit(snapshot[c.slot], c.similarity)).toList();
+    }
+
+    /**
+     * 读取节点的文本与 metadata
+     * <p>
+     * 检索之后索引被压缩时，节点按 id 对应到压缩后的节点读取。
+     *
+     * @param node 节点
+     * @return 存储的条目（不含向量），节点已在压缩中被回收时返回 null
+     */
+    public Entry load(Node node) {
+        generationLock.readLock().lock();
+        try {
+            Node current = resolve(node);
+            if (current == null) {
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(documentLog.read(current.offset)));
+            in.readByte();
+            in.readInt();
+            String id = in.readUTF();
+            String text = readString(in);
+            return new Entry(id, null, text, readMetadata(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取 HNSW 文档日志失败: " + directory, e);
+        } finally {
+            generationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 将节点对应到当前文件中的节点（调用方持有读锁）
+     */
+    private Node resolve(Node node) {
+        Node current = nodeAt(nodes, node.slot);
+        if (current == node) {
+            return node;
+        }
+        Integer slot = liveIds.get(node.id);
+        return slot == null ? null : nodes[slot];
+    }
+
+    /**
+     * 写快照并关闭文件
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (insertsSinceSnapshot > 0) {
+                writeSnapshot();
+            }
+            closed = true;
+            closeFiles();
+        } catch (IOException e) {
+            log.warn("关闭 HNSW 索引失败: directory={}, error={}", directory, e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- 图操作
+
+    /**
+     * 将已写入向量与日志的节点插入图中（调用方持有写锁）
+     *
+     * @param node 新节点
+     */
+    private void insert(Node node) {
+        Node[] current = nodes;
+        if (node.slot >= current.length) {
+            current = Arrays.copyOf(current, Math.max(node.slot + 1, current.length * 2));
+            nodes = current;
+        }
+        current[node.slot] = node;
+        size = node.slot + 1;
+
+        EntryPoint entry = entryPoint;
+        if (entry == null) {
+            entryPoint = new EntryPoint(node.slot, node.level);
+            return;
+        }
+
+        float[] q = vectors.read(node.slot);
+        VectorFile file = vectors;
+        Scorer exact = slot -> file.dot(slot, q);
+        Candidate ep = new Candidate(entry.slot, exact.score(entry.slot));
+        for (int level = entry.level; level > node.level; level--) {
+            ep = greedySearch(exact, current, ep, level);
+        }
+        List<Candidate> eps = List.of(ep);
+        for (int level = Math.min(node.level, entry.level); level >= 0; level--) {
+            List<Candidate> found = searchLayer(exact, current, eps, efConstruction, level, n -> true, Integer.MAX_VALUE);
+            int maxLinks = level == 0 ? maxLinksLevel0 : m;
+            List<Candidate> neighbors = selectNeighbors(found, m);
+            node.setLinks(level, neighbors);
+            for (Candidate neighbor : neighbors) {
+                connect(current[neighbor.slot], node.slot, neighbor.similarity, level, maxLinks);
+            }
+            eps = found;
+        }
+        if (node.level > entry.level) {
+            entryPoint = new EntryPoint(node.slot, node.level);
+        }
+    }
+
+    /**
+     * 为邻居追加反向连接，已满时替换其中相似度最低的连接（整体替换邻接数组，读线程不受影响）
+     */
+    private void connect(Node neighbor, int slot, float similarity, int level, int maxLinks) {
+        int[] links = neighbor.links.get(level);
+        float[] similarities = neighbor.similarities[level];
+        if (links.length < maxLinks) {
+            int[] extendedLinks = Arrays.copyOf(links, links.length + 1);
+            float[] extendedSimilarities = Arrays.copyOf(similarities, similarities.length + 1);
+            extendedLinks[links.length] = slot;
+            extendedSimilarities[links.length] = similarity;
+            neighbor.similarities[level] = extendedSimilarities;
+            neighbor.links.set(level, extendedLinks);
+            return;
+        }
+        int weakest = 0;
+        for (int i = 1; i < similarities.length; i++) {
+            if (similarities[i] < similarities[weakest]) {
+                weakest = i;
+            }
+        }
+        if (similarity > similarities[weakest]) {
+            int[] replacedLinks = links.clone();
+            float[] replacedSimilarities = similarities.clone();
+            replacedLinks[weakest] = slot;
+            replacedSimilarities[weakest] = similarity;
+            neighbor.similarities[level] = replacedSimilarities;
+            neighbor.links.set(level, replacedLinks);
+        }
+    }
+
+    /**
+     * 启发式选择邻居：候选与已选邻居的相似度高于与基准点的相似度时跳过，保留方向多样的连接，不足时用跳过的候选补齐
+     *
+     * @param candidates 按相似度降序的候选
+     * @param max        邻居上限
+     * @return 选中的邻居
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> candidates, int max) {
+        if (candidates.size() <= max) {
+            return candidates;
+        }
+        List<Candidate> selected = new ArrayList<>(max);
+        List<float[]> selectedVectors = new ArrayList<>(max);
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            boolean diverse = true;
+            for (float[] chosen : selectedVectors) {
+                if (vectors.dot(candidate.slot, chosen) > candidate.similarity) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+                selectedVectors.add(vectors.read(candidate.slot));
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < max; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected;
+    }
+
+    private static Candidate greedySearch(Scorer scorer, Node[] nodes, Candidate start, int level) {
+        Candidate best = start;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodeAt(nodes, best.slot);
+            if (node == null || level >= node.links.length()) {
+                break;
+            }
+            for (int link : node.links.get(level)) {
+                if (nodeAt(nodes, link) == null) {
+                    continue;
+                }
+                float similarity = scorer.score(link);
+                if (similarity > best.similarity) {
+                    best = new Candidate(link, similarity);
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 单层束搜索：所有节点参与扩展，只有满足条件的节点进入结果集
+     *
+     * @return 按相似度降序的结果
+     */
+    private static List<Candidate> searchLayer(Scorer scorer, Node[] nodes, List<Candidate> entryPoints,
+                                               int ef, int level, Predicate<Node> accept, int maxVisits) {
+        BitSet visited = new BitSet(nodes.length);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Candidate.DESCENDING);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Candidate.ASCENDING);
+        for (Candidate ep : entryPoints) {
+            visited.set(ep.slot);
+            candidates.add(ep);
+            Node node = nodeAt(nodes, ep.slot);
+            if (node != null && accept.test(node)) {
+                results.add(ep);
+            }
+        }
+        int visits = entryPoints.size();
+        while (!candidates.isEmpty() && visits < maxVisits) {
+            Candidate current = candidates.poll();
+            if (results.size() >= ef && current.similarity < results.peek().similarity) {
+                break;
+            }
+            Node node = nodeAt(nodes, current.slot);
+            if (node == null || level >= node.links.length()) {
+                continue;
+            }
+            for (int link : node.links.get(level)) {
+                if (visited.get(link)) {
+                    continue;
+                }
+                visited.set(link);
+                Node neighbor = nodeAt(nodes, link);
+                if (neighbor == null) {
+                    continue;
+                }
+                visits++;
+                float similarity = scorer.score(link);
+                if (results.size() < ef || similarity > results.peek().similarity) {
+                    Candidate candidate = new Candidate(link, similarity);
+                    candidates.add(candidate);
+                    if (accept.test(neighbor)) {
+                        results.add(candidate);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Candidate.DESCENDING);
+        return sorted;
+    }
+
+    /**
+     * 对满足条件的节点逐一打分（过滤条件过于严格、图检索结果不足时使用）
+     *
+     * @return 按相似度降序的结果
+     */
+    private static List<Candidate> exactScan(Scorer scorer, Node[] nodes, int k, Predicate<Node> accept) {
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Candidate.ASCENDING);
+        for (Node node : nodes) {
+            if (node == null || !accept.test(node)) {
+                continue;
+            }
+            float similarity = scorer.score(node.slot);
+            if (results.size() < k || similarity > results.peek().similarity) {
+                results.add(new Candidate(node.slot, similarity));
+                if (results.size() > k) {
+                    results.poll();
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Candidate.DESCENDING);
+        return sorted;
+    }
+
+    /**
+     * 用全精度向量重排量化检索的候选集（近似分数的误差可能大于近邻间的相似度差距，只重排头部会漏掉真实近邻）
+     *
+     * @return 按全精度相似度降序的结果
+     */
+    private static List<Candidate> rerank(List<Candidate> candidates, Scorer exact) {
+        List<Candidate> reranked = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            reranked.add(new Candidate(candidate.slot, exact.score(candidate.slot)));
+        }
+        reranked.sort(Candidate.DESCENDING);
+        return reranked;
+    }
+
+    private static Node nodeAt(Node[] nodes, int slot) {
+        return slot < nodes.length ? nodes[slot] : null;
+    }
+
+    private void markDeleted(int slot) {
+        Node node = nodes[slot];
+        if (node != null && !node.deleted) {
+            node.deleted = true;
+            liveIds.remove(node.id, slot);
+            deletedCount++;
+        }
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return Math.min(MAX_LEVEL, (int) (-Math.log(r) * levelMultiplier));
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return vector.clone();
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("HNSW 索引已关闭: " + directory);
+        }
+    }
+
+    // ---------------------------------------------------------------- 恢复与快照
+
+    /**
+     * 回放文档日志并加载快照，快照之后的节点重新插入图中
+     */
+    private void recover() throws IOException {
+        List<Node> replayed = new ArrayList<>();
+        int[] dimensions = {0};
+        documentLog.replay((offset, payload) -> {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            switch (type) {
+                case RECORD_META -> dimensions[0] = in.readInt();
+                case RECORD_ADD -> {
+                    int slot = in.readInt();
+                    String id = in.readUTF();
+                    skipString(in);
+                    Node node = new Node(slot, id, readMetadata(in), offset, 0);
+                    while (replayed.size() <= slot) {
+                        replayed.add(null);
+                    }
+                    replayed.set(slot, node);
+                }
+                case RECORD_DELETE -> {
+                    int slot = in.readInt();
+                    if (slot < replayed.size() && replayed.get(slot) != null) {
+                        replayed.get(slot).deleted = true;
+                    }
+                }
+                default -> throw new IOException("未知的日志记录类型: " + type);
+            }
+        });
+        if (dimensions[0] == 0) {
+            initQuantization();
+            return;
+        }
+        vectors = new VectorFile(directory.resolve(VECTORS_FILE), dimensions[0]);
+
+        for (int slot = 0; slot < replayed.size(); slot++) {
+            if (replayed.get(slot) == null) {
+                Node placeholder = new Node(slot, "", Map.of(), -1, 0);
+                placeholder.deleted = true;
+                replayed.set(slot, placeholder);
+            }
+        }
+        Snapshot snapshot = readSnapshot(replayed.size());
+        int restored = snapshot == null ? 0 : snapshot.count;
+        Node[] current = new Node[Math.max(1024, replayed.size())];
+        for (int slot = 0; slot < restored; slot++) {
+            Node source = replayed.get(slot);
+            Node node = new Node(slot, source.id, source.knowledgeBaseId, source.estabId, source.documentId,
+                    source.offset, snapshot.links[slot].length - 1);
+            for (int level = 0; level < snapshot.links[slot].length; level++) {
+                node.similarities[level] = snapshot.similarities[slot][level];
+                node.links.set(level, snapshot.links[slot][level]);
+            }
+            node.deleted = source.deleted;
+            current[slot] = node;
+        }
+        nodes = current;
+        size = restored;
+        entryPoint = snapshot == null ? null : snapshot.entryPoint;
+
+        for (int slot = restored; slot < replayed.size(); slot++) {
+            Node source = replayed.get(slot);
+            Node node = new Node(slot, source.id, source.knowledgeBaseId, source.estabId, source.documentId,
+                    source.offset, randomLevel());
+            node.deleted = source.deleted;
+            insert(node);
+        }
+        for (int slot = 0; slot < size; slot++) {
+            Node node = nodes[slot];
+            if (node.deleted) {
+                deletedCount++;
+            } else {
+                liveIds.put(node.id, slot);
+            }
+        }
+        insertsSinceSnapshot = size - restored;
+        if (insertsSinceSnapshot > 0) {
+            writeSnapshot();
+        }
+        initQuantization();
+        log.info("HNSW 索引已加载: directory={}, nodes={}, live={}, restoredFromSnapshot={}, quantization={}",
+                directory, size, liveIds.size(), restored, quantized == null ? QUANTIZATION_NONE : quantized.quantizer.mode());
+    }
+
+    /**
+     * 读取快照，快照损坏或超出日志范围（日志末尾被截断）时返回 null，由调用方全部重建
+     *
+     * @param logSlots 日志中的槽位数
+     * @return 快照
+     */
+    private Snapshot readSnapshot(int logSlots) {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("快照格式不匹配");
+            }
+            int count = in.readInt();
+            if (count > logSlots) {
+                throw new IOException("快照节点数超出日志范围: snapshot=" + count + ", log=" + logSlots);
+            }
+            EntryPoint entry = count == 0 ? null : new EntryPoint(in.readInt(), in.readInt());
+            int[][][] links = new int[count][][];
+            float[][][] similarities = new float[count][][];
+            for (int slot = 0; slot < count; slot++) {
+                int levels = in.readInt();
+                links[slot] = new int[levels][];
+                similarities[slot] = new float[levels][];
+                for (int level = 0; level < levels; level++) {
+                    int n = in.readInt();
+                    links[slot][level] = new int[n];
+                    similarities[slot][level] = new float[n];
+                    for (int i = 0; i < n; i++) {
+                        links[slot][level][i] = in.readInt();
+                        similarities[slot][level][i] = in.readFloat();
+                    }
+                }
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("快照校验失败");
+            }
+            return new Snapshot(count, entry, links, similarities);
+        } catch (IOException e) {
+            log.warn("HNSW 图快照不可用，将从向量重建: directory={}, error={}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写快照（调用方持有写锁）：快照只覆盖已落盘的日志槽位
+     */
+    private void writeSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        int count = size;
+        EntryPoint entry = entryPoint;
+        try (CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)), new CRC32());
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(count);
+            if (count > 0) {
+                out.writeInt(entry.slot);
+                out.writeInt(entry.level);
+            }
+            for (int slot = 0; slot < count; slot++) {
+                Node node = nodes[slot];
+                out.writeInt(node.links.length());
+                for (int level = 0; level < node.links.length(); level++) {
+                    int[] neighbors = node.links.get(level);
+                    float[] similarities = node.similarities[level];
+                    out.writeInt(neighbors.length);
+                    for (int i = 0; i < neighbors.length; i++) {
+                        out.writeInt(neighbors[i]);
+                        out.writeFloat(similarities[i]);
+                    }
+                }
+            }
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        insertsSinceSnapshot = 0;
+    }
+
+    /**
+     * 加载已有编码；配置的量化模式与已有编码不一致（或新开启量化）时重新编码全部向量，关闭量化时删除编码文件
+     */
+    private void initQuantization() throws IOException {
+        Path quantizerFile = directory.resolve(QUANTIZER_FILE);
+        if (QUANTIZATION_NONE.equals(quantization) || vectors == null) {
+            if (QUANTIZATION_NONE.equals(quantization)) {
+                Files.deleteIfExists(quantizerFile);
+                Files.deleteIfExists(directory.resolve(CODES_FILE));
+            }
+            return;
+        }
+        VectorQuantizer stored = readQuantizer(quantizerFile);
+        if (stored != null && stored.mode().equals(quantization) && stored.dimensions() == vectors.dimensions) {
+            quantized = new Quantized(stored, new SlotFile(directory.resolve(CODES_FILE), stored.codeBytes()));
+            return;
+        }
+        Files.deleteIfExists(quantizerFile);
+        Files.deleteIfExists(directory.resolve(CODES_FILE));
+        if (QUANTIZATION_INT8.equals(quantization)) {
+            quantized = buildQuantized(VectorQuantizer.int8(vectors.dimensions));
+        } else {
+            trainProductQuantizerIfReady();
+        }
+    }
+
+    /**
+     * pq 模式下有效向量数达到训练规模时训练码本并编码全部向量（调用方持有写锁）
+     */
+    private void trainProductQuantizerIfReady() throws IOException {
+        if (!QUANTIZATION_PQ.equals(quantization) || quantized != null || vectors == null || liveIds.size() < pqTrainingSize) {
+            return;
+        }
+        long start = System.nanoTime();
+        int stride = Math.max(1, liveIds.size() / pqTrainingSize);
+        List<float[]> samples = new ArrayList<>(pqTrainingSize);
+        int live = 0;
+        for (int slot = 0; slot < size && samples.size() < pqTrainingSize; slot++) {
+            if (!nodes[slot].deleted && live++ % stride == 0) {
+                samples.add(vectors.read(slot));
+            }
+        }
+        quantized = buildQuantized(VectorQuantizer.product(vectors.dimensions, pqSubvectorDimensions, samples));
+        log.info("HNSW 乘积量化码本训练完成: directory={}, samples={}, codeBytes={}, costMs={}",
+                directory, samples.size(), quantized.quantizer.codeBytes(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 编码全部已有向量，落盘后再写编码器文件（编码器文件存在即表示编码完整）
+     *
+     * @param quantizer 编码器
+     * @return 量化数据
+     */
+    private Quantized buildQuantized(VectorQuantizer quantizer) throws IOException {
+        Quantized result = new Quantized(quantizer, new SlotFile(directory.resolve(CODES_FILE), quantizer.codeBytes()));
+        for (int slot = 0; slot < size; slot++) {
+            result.encode(slot, vectors.read(slot));
+        }
+        result.codes.force();
+
+        Path file = directory.resolve(QUANTIZER_FILE);
+        Path tmp = directory.resolve(QUANTIZER_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            quantizer.write(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return result;
+    }
+
+    private VectorQuantizer readQuantizer(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return VectorQuantizer.read(in);
+        } catch (IOException e) {
+            log.warn("HNSW 量化编码器不可用，将重新编码: directory={}, error={}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 已删除节点占比超过 {@code compactRatio} 时重建索引（调用方持有写锁或尚未发布索引）
+     */
+    private void compactIfNeeded() throws IOException {
+        if (size >= MIN_COMPACT_NODES && deletedCount > size * config.getCompactRatio()) {
+            compact();
+        }
+    }
+
+    /**
+     * 重建索引：仅保留未删除节点写入新目录，完成后替换原目录并切换到新文件
+     * <p>
+     * 重建期间持有写锁、不持有读锁，检索继续使用原文件；重建失败时保留原索引，下次删除时重试。
+     */
+    private void compact() throws IOException {
+        log.info("HNSW 索引已删除节点占比过高，开始重建: directory={}, nodes={}, deleted={}", directory, size, deletedCount);
+        long start = System.nanoTime();
+        Path target = directory.resolveSibling(directory.getFileName() + ".compact");
+        try {
+            deleteDirectory(target);
+            HnswIndex compacted = new HnswIndex(target, config);
+            List<Entry> batch = new ArrayList<>();
+            for (int slot = 0; slot < size; slot++) {
+                Node node = nodes[slot];
+                if (node.deleted) {
+                    continue;
+                }
+                Entry stored = load(node);
+                batch.add(new Entry(stored.id(), vectors.read(slot), stored.text(), stored.metadata()));
+                if (batch.size() >= 1000) {
+                    compacted.add(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            compacted.add(batch);
+            compacted.close();
+        } catch (IOException | RuntimeException e) {
+            log.warn("HNSW 索引重建失败，继续使用原索引: directory={}, error={}", directory, e.getMessage());
+            deleteDirectory(target);
+            return;
+        }
+
+        generationLock.writeLock().lock();
+        try {
+            closeFiles();
+            Path backup = directory.resolveSibling(directory.getFileName() + ".old");
+            deleteDirectory(backup);
+            Files.move(directory, backup, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(target, directory, StandardCopyOption.ATOMIC_MOVE);
+            deleteDirectory(backup);
+
+            HnswIndex reopened = new HnswIndex(directory, config);
+            reopened.recover();
+            documentLog = reopened.documentLog;
+            vectors = reopened.vectors;
+            quantized = reopened.quantized;
+            nodes = reopened.nodes;
+            size = reopened.size;
+            entryPoint = reopened.entryPoint;
+            liveIds.clear();
+            liveIds.putAll(reopened.liveIds);
+            deletedCount = reopened.deletedCount;
+            insertsSinceSnapshot = reopened.insertsSinceSnapshot;
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+        log.info("HNSW 索引重建完成: directory={}, nodes={}, costMs={}", directory, size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 关闭当前文件（调用方持有写锁）
+     */
+    private void closeFiles() throws IOException {
+        if (vectors != null) {
+            vectors.close();
+        }
+        if (quantized != null) {
+            quantized.codes.close();
+        }
+        documentLog.close();
+    }
+
+    private static void deleteDirectory(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (var walk = Files.walk(path)) {
+            for (Path p : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- 日志编码
+
+    private static byte[] encodeMeta(int dimensions) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_META);
+        out.writeInt(dimensions);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDelete(int slot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_DELETE);
+        out.writeInt(slot);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeAdd(int slot, String id, String text, Map<String, Object> metadata) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + (text == null ? 0 : text.length() * 3));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_ADD);
+        out.writeInt(slot);
+        out.writeUTF(id);
+        writeString(out, text);
+        Map<String, Object> values = metadata == null ? Map.of() : metadata;
+        out.writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            out.writeUTF(entry.getKey());
+            Object value = entry.getValue();
+            switch (value) {
+                case Integer v -> {
+                    out.writeByte('I');
+                    out.writeInt(v);
+                }
+                case Long v -> {
+                    out.writeByte('L');
+                    out.writeLong(v);
+                }
+                case Double v -> {
+                    out.writeByte('D');
+                    out.writeDouble(v);
+                }
+                case Float v -> {
+                    out.writeByte('D');
+                    out.writeDouble(v);
+                }
+                case Boolean v -> {
+                    out.writeByte('B');
+                    out.writeBoolean(v);
+                }
+                case null -> out.writeByte('N');
+                default -> {
+                    out.writeByte('S');
+                    writeString(out, value.toString());
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, Object> readMetadata(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, Object> metadata = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            byte tag = in.readByte();
+            Object value = switch (tag) {
+                case 'I' -> in.readInt();
+                case 'L' -> in.readLong();
+                case 'D' -> in.readDouble();
+                case 'B' -> in.readBoolean();
+                case 'N' -> null;
+                case 'S' -> readString(in);
+                default -> throw new IOException("未知的 metadata 类型: " + tag);
+            };
+            if (value != null) {
+                metadata.put(key, value);
+            }
+        }
+        return metadata;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(DataInputStream in) throws IOException {
+        in.skipNBytes(in.readInt());
+    }
+
+    // ---------------------------------------------------------------- 数据类型
+
+    /**
+     * 写入 / 读取的条目
+     *
+     * @param id       节点 id（与 Document.id 一致）
+     * @param vector   向量（读取时为 null）
+     * @param text     切片文本
+     * @param metadata metadata
+     */
+    public record Entry(String id, float[] vector, String text, Map<String, Object> metadata) {
+    }
+
+    /**
+     * 检索命中
+     *
+     * @param node       节点
+     * @param similarity 余弦相似度
+     */
+    public record Hit(Node node, float similarity) {
+    }
+
+    /**
+     * 图节点：邻接表按层存放，每层为不可变数组，更新时整体替换；邻居相似度只由写线程读写
+     */
+    public static final class Node {
+
+        private final int slot;
+        private final String id;
+        private final long knowledgeBaseId;
+        private final long estabId;
+        private final long documentId;
+        private final long offset;
+        private final int level;
+        private final AtomicReferenceArray<int[]> links;
+        private final float[][] similarities;
+        private volatile boolean deleted;
+
+        private Node(int slot, String id, Map<String, Object> metadata, long offset, int level) {
+            this(slot, id, attribute(metadata, KNOWLEDGE_BASE_ID), attribute(metadata, ESTAB_ID),
+                    attribute(metadata, DOCUMENT_ID), offset, level);
+        }
+
+        private Node(int slot, String id, long knowledgeBaseId, long estabId, long documentId, long offset, int level) {
+            this.slot = slot;
+            this.id = id;
+            this.knowledgeBaseId = knowledgeBaseId;
+            this.estabId = estabId;
+            this.documentId = documentId;
+            this.offset = offset;
+            this.level = level;
+            this.links = new AtomicReferenceArray<>(level + 1);
+            this.similarities = new float[level + 1][];
+            for (int i = 0; i <= level; i++) {
+                links.set(i, new int[0]);
+                similarities[i] = new float[0];
+            }
+        }
+
+        /**
+         * 设置某一层的邻居（仅写线程调用，邻居相似度供后续裁剪使用）
+         */
+        private void setLinks(int level, List<Candidate> neighbors) {
+            int[] slots = new int[neighbors.size()];
+            float[] scores = new float[neighbors.size()];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = neighbors.get(i).slot;
+                scores[i] = neighbors.get(i).similarity;
+            }
+            similarities[level] = scores;
+            links.set(level, slots);
+        }
+
+        public String id() {
+            return id;
+        }
+
+        /**
+         * 读取可过滤字段
+         *
+         * @param key metadata 字段名
+         * @return 字段值，缺失时返回 null
+         * @throws IllegalArgumentException 字段不支持过滤
+         */
+        public Long attribute(String key) {
+            long value = switch (key) {
+                case KNOWLEDGE_BASE_ID -> knowledgeBaseId;
+                case ESTAB_ID -> estabId;
+                case DOCUMENT_ID -> documentId;
+                default -> throw new IllegalArgumentException("HNSW 向量库不支持按该 metadata 字段过滤: " + key);
+            };
+            return value == Long.MIN_VALUE ? null : value;
+        }
+
+        private static long attribute(Map<String, Object> metadata, String key) {
+            Object value = metadata == null ? null : metadata.get(key);
+            if (value instanceof Number number) {
+                return number.longValue();
+            }
+            if (value != null) {
+                try {
+                    return Long.parseLong(value.toString());
+                } catch (NumberFormatException ignored) {
+                    // 非数值视为缺失
+                }
+            }
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private record Candidate(int slot, float similarity) {
+
+        private static final Comparator<Candidate> ASCENDING = Comparator.comparingDouble(Candidate::similarity);
+        private static final Comparator<Candidate> DESCENDING = ASCENDING.reversed();
+    }
+
+    private record EntryPoint(int slot, int level) {
+    }
+
+    /**
+     * 槽位打分（全精度点积或量化近似点积）
+     */
+    @FunctionalInterface
+    private interface Scorer {
+
+        float score(int slot);
+    }
+
+    /**
+     * 量化编码器及其编码文件
+     */
+    private record Quantized(VectorQuantizer quantizer, SlotFile codes) {
+
+        private void encode(int slot, float[] vector) throws IOException {
+            codes.ensure(slot);
+            quantizer.encode(vector, codes.buffer(slot), codes.offset(slot));
+        }
+
+        private Scorer scorer(float[] query) {
+            float[] table = quantizer.prepare(query);
+            return slot -> quantizer.score(table, codes.buffer(slot), codes.offset(slot));
+        }
+    }
+
+    private record Snapshot(int count, EntryPoint entryPoint, int[][][] links, float[][][] similarities) {
+    }
+
+    // ---------------------------------------------------------------- 文件
+
+    /**
+     * 分段内存映射的定长记录文件（小端序）
+     */
+    private static class SlotFile implements Closeable {
+
+        private final FileChannel channel;
+        private final int recordBytes;
+        private final int perSegment;
+        private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+        private volatile ByteBuffer[] buffers = new ByteBuffer[0];
+
+        private SlotFile(Path file, int recordBytes) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.recordBytes = recordBytes;
+            this.perSegment = Math.max(1, SEGMENT_BYTES / recordBytes);
+            long segmentBytes = (long) perSegment * recordBytes;
+            int needed = (int) ((channel.size() + segmentBytes - 1) / segmentBytes);
+            for (int i = 0; i < needed; i++) {
+                mapSegment(i);
+            }
+        }
+
+        /**
+         * 确保槽位所在分段已映射（仅写线程调用）
+         */
+        protected void ensure(int slot) throws IOException {
+            int segment = slot / perSegment;
+            while (buffers.length <= segment) {
+                mapSegment(buffers.length);
+            }
+        }
+
+        ByteBuffer buffer(int slot) {
+            return buffers[slot / perSegment];
+        }
+
+        int offset(int slot) {
+            return (slot % perSegment) * recordBytes;
+        }
+
+        int perSegment() {
+            return perSegment;
+        }
+
+        protected void mapSegment(int index) throws IOException {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * perSegment * recordBytes,
+                    (long) perSegment * recordBytes);
+            MappedByteBuffer[] extendedSegments = Arrays.copyOf(segments, index + 1);
+            ByteBuffer[] extendedBuffers = Arrays.copyOf(buffers, index + 1);
+            extendedSegments[index] = segment;
+            extendedBuffers[index] = segment.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            segments = extendedSegments;
+            buffers = extendedBuffers;
+        }
+
+        void force() {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            force();
+            channel.close();
+        }
+    }
+
+    /**
+     * 全精度向量文件，按 float 视图访问
+     */
+    private static final class VectorFile extends SlotFile {
+
+        private final int dimensions;
+        private volatile FloatBuffer[] views;
+
+        private VectorFile(Path file, int dimensions) throws IOException {
+            super(file, dimensions * Float.BYTES);
+            this.dimensions = dimensions;
+        }
+
+        private void write(int slot, float[] vector) throws IOException {
+            ensure(slot);
+            views[slot / perSegment()].put((slot % perSegment()) * dimensions, vector);
+        }
+
+        private float[] read(int slot) {
+            float[] vector = new float[dimensions];
+            views[slot / perSegment()].get((slot % perSegment()) * dimensions, vector);
+            return vector;
+        }
+
+        private float dot(int slot, float[] q) {
+            FloatBuffer view = views[slot / perSegment()];
+            int base = (slot % perSegment()) * dimensions;
+            float sum = 0;
+            for (int i = 0; i < dimensions; i++) {
+                sum += view.get(base + i) * q[i];
+            }
+            return sum;
+        }
+
+        @Override
+        protected void mapSegment(int index) throws IOException {
+            super.mapSegment(index);
+            FloatBuffer[] current = views == null ? new FloatBuffer[0] : views;
+            FloatBuffer[] extended = Arrays.copyOf(current, index + 1);
+            extended[index] = buffer(index * perSegment()).asFloatBuffer();
+            views = extended;
+        }
+    }
+
+    /**
+     * 追加写文档日志：每条记录为 [长度][CRC32][内容]
+     */
+    private static final class DocumentLog implements Closeable {
+
+        private final FileChannel channel;
+        private long position;
+
+        private DocumentLog(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.position = channel.size();
+        }
+
+        private long append(byte[] payload) throws IOException {
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+            buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+            long offset = position;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            return offset;
+        }
+
+        private byte[] read(long offset) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            readFully(header, offset);
+            byte[] payload = new byte[header.flip().getInt()];
+            readFully(ByteBuffer.wrap(payload), offset + 8);
+            return payload;
+        }
+
+        private void readFully(ByteBuffer buffer, long offset) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, offset + buffer.position());
+                if (read < 0) {
+                    throw new EOFException();
+                }
+            }
+        }
+
+        /**
+         * 顺序回放日志，遇到不完整或校验失败的记录时截断（进程在追加过程中退出）
+         */
+        private void replay(RecordConsumer consumer) throws IOException {
+            long offset = 0;
+            InputStream raw = new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16);
+            DataInputStream in = new DataInputStream(raw);
+            while (offset < position) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 0 || offset + 8 + length > position) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                consumer.accept(offset, payload);
+                offset += 8 + payload.length;
+            }
+            if (offset < position) {
+                log.warn("HNSW 文档日志末尾存在不完整记录，已截断: size={}, valid={}", position, offset);
+                channel.truncate(offset);
+                position = offset;
+            }
+        }
+
+        private void force() throws IOException {
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+
+        void accept(long offset, byte[] payload) throws IOException;
+    }
+}
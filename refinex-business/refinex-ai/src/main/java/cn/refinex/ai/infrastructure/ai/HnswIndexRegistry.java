@@ -0,0 +1,52 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.VectorStoreProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HNSW 索引注册表
+ * <p>
+ * 每个嵌入模型 provisionId 对应 {@code directory/{provisionId}} 下的一个索引，首次使用时打开，应用关闭时统一写快照并关闭。
+ * 索引与 VectorStore 缓存的生命周期解耦：VectorStore 被淘汰后重建时复用同一索引，同一目录不会被重复打开。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HnswIndexRegistry implements DisposableBean {
+
+    private final VectorStoreProperties properties;
+    private final Map<Long, HnswIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 获取嵌入模型对应的索引，未打开时打开
+     *
+     * @param embeddingProvisionId 嵌入模型开通ID
+     * @return HNSW 索引
+     */
+    public HnswIndex open(Long embeddingProvisionId) {
+        return indexes.computeIfAbsent(embeddingProvisionId, key -> {
+            VectorStoreProperties.HnswProperties cfg = properties.getHnsw();
+            Path directory = Path.of(cfg.getDirectory(), String.valueOf(key));
+            log.info("打开 HNSW 索引: provisionId={}, directory={}", key, directory);
+            return HnswIndex.open(directory, cfg);
+        });
+    }
+
+    /**
+     * 关闭应用时写快照并关闭全部索引
+     */
+    @Override
+    public void destroy() {
+        indexes.values().forEach(HnswIndex::close);
+        indexes.clear();
+    }
+}
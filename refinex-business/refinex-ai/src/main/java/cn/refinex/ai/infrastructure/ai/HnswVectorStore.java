@@ -0,0 +1,175 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * 基于进程内 {@link HnswIndex} 的 VectorStore
+ * <p>
+ * 单机部署无需 Redis Stack / PGvector / Qdrant 即可使用知识库检索。索引由 {@link HnswIndexRegistry} 按嵌入模型持有，
+ * 本类只是绑定嵌入模型的轻量包装，VectorStore 缓存淘汰时不关闭索引。
+ * <p>
+ * metadata 过滤支持 knowledge_base_id / estab_id / document_id 上的 EQ、NE、IN、NIN 及 AND / OR / NOT 组合。
+ *
+ * @author refinex
+ */
+public class HnswVectorStore implements VectorStore {
+
+    private final HnswIndex index;
+    private final EmbeddingModel embeddingModel;
+    private final int efSearch;
+
+    /**
+     * 构造函数
+     *
+     * @param index          HNSW 索引
+     * @param embeddingModel 嵌入模型
+     * @param efSearch       检索宽度
+     */
+    public HnswVectorStore(HnswIndex index, EmbeddingModel embeddingModel, int efSearch) {
+        this.index = index;
+        this.embeddingModel = embeddingModel;
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * 写入文档（向量化流水线已预计算向量，此处经 {@link PrecomputedEmbeddingModel} 直接取用）
+     *
+     * @param documents 文档列表
+     */
+    @Override
+    public void add(List<Document> documents) {
+        if (documents == null || documents.isEmpty()) {
+            return;
+        }
+        List<HnswIndex.Entry> entries = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            entries.add(new HnswIndex.Entry(document.getId(), embeddingModel.embed(document),
+                    document.getText(), document.getMetadata()));
+        }
+        index.add(entries);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        if (idList != null && !idList.isEmpty()) {
+            index.delete(idList);
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        index.delete(toPredicate(filterExpression));
+    }
+
+    /**
+     * 相似度检索
+     *
+     * @param request 检索请求
+     * @return 按相似度降序的文档（score 为余弦相似度，metadata 附带 distance）
+     */
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (index.dimensions() == 0) {
+            return List.of();
+        }
+        float[] query = embeddingModel.embed(request.getQuery());
+        Predicate<HnswIndex.Node> filter = request.getFilterExpression() == null ? null : toPredicate(request.getFilterExpression());
+        List<HnswIndex.Hit> hits = index.search(query, request.getTopK(), efSearch, filter);
+
+        List<Document> documents = new ArrayList<>(hits.size());
+        for (HnswIndex.Hit hit : hits) {
+            if (hit.similarity() < request.getSimilarityThreshold()) {
+                break;
+            }
+            HnswIndex.Entry stored = index.load(hit.node());
+            if (stored == null) {
+                // 检索之后该节点被删除且索引已压缩
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>(stored.metadata());
+            metadata.put("distance", 1.0 - hit.similarity());
+            documents.add(Document.builder()
+                    .id(stored.id())
+                    .text(stored.text())
+                    .metadata(metadata)
+                    .score((double) hit.similarity())
+                    .build());
+        }
+        return documents;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getNativeClient() {
+        return Optional.of((T) index);
+    }
+
+    /**
+     * 将过滤表达式转换为节点谓词
+     *
+     * @param operand 过滤表达式
+     * @return 节点谓词
+     * @throws IllegalArgumentException 不支持的运算符或字段
+     */
+    private static Predicate<HnswIndex.Node> toPredicate(Filter.Operand operand) {
+        if (operand instanceof Filter.Group group) {
+            return toPredicate(group.content());
+        }
+        if (!(operand instanceof Filter.Expression expression)) {
+            throw new IllegalArgumentException("不支持的过滤表达式: " + operand);
+        }
+        return switch (expression.type()) {
+            case AND -> toPredicate(expression.left()).and(toPredicate(expression.right()));
+            case OR -> toPredicate(expression.left()).or(toPredicate(expression.right()));
+            case NOT -> toPredicate(expression.left()).negate();
+            case EQ, NE, IN, NIN -> {
+                String key = ((Filter.Key) expression.left()).key();
+                Collection<Long> values = toLongs(((Filter.Value) expression.right()).value());
+                boolean negate = expression.type() == Filter.ExpressionType.NE || expression.type() == Filter.ExpressionType.NIN;
+                yield node -> {
+                    Long attribute = node.attribute(key);
+                    return (attribute != null && values.contains(attribute)) != negate;
+                };
+            }
+            default -> throw new IllegalArgumentException("HNSW 向量库不支持该过滤运算符: " + expression.type());
+        };
+    }
+
+    private static Collection<Long> toLongs(Object value) {
+        List<Long> result = new ArrayList<>();
+        if (value instanceof Collection<?> collection) {
+            collection.forEach(v -> addLong(result, v));
+        } else if (value instanceof Object[] array) {
+            for (Object v : array) {
+                addLong(result, v);
+            }
+        } else {
+            addLong(result, value);
+        }
+        return result;
+    }
+
+    private static void addLong(List<Long> result, Object value) {
+        if (value instanceof Number number) {
+            result.add(number.longValue());
+        } else if (value != null) {
+            try {
+                result.add(Long.parseLong(value.toString()));
+            } catch (NumberFormatException ignored) {
+                // 非数值的过滤值不会匹配任何节点
+            }
+        }
+    }
+}
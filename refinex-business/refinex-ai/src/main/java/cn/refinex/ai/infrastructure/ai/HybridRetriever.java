@@ -0,0 +1,223 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.model.entity.ChunkSearchHitEntity;
+import cn.refinex.ai.domain.repository.AiRepository;
+import cn.refinex.ai.infrastructure.config.RetrievalProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 知识库混合检索器
+ * <p>
+ * 向量检索与切片全文检索（kb_document_chunk 的 ngram 全文索引）并行召回候选，按倒数排名融合（RRF）：
+ * 切片得分为 Σ 1 / (k + 该通道内排名)，两路均命中的切片排名靠前。向量检索擅长语义相近的表述，
+ * 全文检索补足编号、代码、专有名词等精确字面匹配，因此较小的 topK 即可覆盖所需上下文。
+ * <p>
+ * 相似度阈值只作用于向量通道；全文检索超时或失败时降级为纯向量检索。
+ * 各阶段耗时记录在 {@code refinex.ai.retrieval} 指标（stage = vector / lexical / fusion）。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class HybridRetriever {
+
+    /**
+     * 指标名称
+     */
+    private static final String METRIC_NAME = "refinex.ai.retrieval";
+
+    /**
+     * 全文检索文本的最大长度（对话问题可能很长，截断以控制全文检索开销）
+     */
+    private static final int MAX_LEXICAL_QUERY_LENGTH = 512;
+
+    private final AiRepository aiRepository;
+    private final RetrievalProperties properties;
+    private final Map<String, Timer> timers = new HashMap<>();
+
+    public HybridRetriever(AiRepository aiRepository, RetrievalProperties properties,
+                           ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.aiRepository = aiRepository;
+        this.properties = properties;
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry != null) {
+            for (String stage : List.of("vector", "lexical", "fusion")) {
+                timers.put(stage, Timer.builder(METRIC_NAME)
+                        .description("Knowledge base retrieval latency by stage")
+                        .tag("stage", stage)
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    /**
+     * 混合检索
+     *
+     * @param vectorStore         知识库所在的 VectorStore
+     * @param knowledgeBaseIds    知识库ID列表
+     * @param query               检索文本
+     * @param topK                返回的切片数
+     * @param similarityThreshold 向量通道相似度阈值
+     * @return 按融合得分降序的切片（score 为归一化到 [0, 1] 的 RRF 得分，metadata 附带 vector_score / lexical_score）
+     */
+    public List<Document> retrieve(VectorStore vectorStore, Collection<Long> knowledgeBaseIds, String query,
+                                   int topK, double similarityThreshold) {
+        if (query == null || query.isBlank() || knowledgeBaseIds == null || knowledgeBaseIds.isEmpty()) {
+            return List.of();
+        }
+        if (!properties.isLexicalEnabled()) {
+            return timed("vector", () -> vectorSearch(vectorStore, knowledgeBaseIds, query, topK, similarityThreshold));
+        }
+
+        int candidates = Math.max(topK, Math.min(properties.getMaxCandidates(), topK * Math.max(1, properties.getCandidateMultiplier())));
+        Mono<List<Document>> vector = Mono.fromCallable(() -> timed("vector",
+                        () -> vectorSearch(vectorStore, knowledgeBaseIds, query, candidates, similarityThreshold)))
+                .subscribeOn(Schedulers.boundedElastic());
+        Mono<List<ChunkSearchHitEntity>> lexical = Mono.fromCallable(() -> timed("lexical",
+                        () -> aiRepository.searchChunksFullText(knowledgeBaseIds, lexicalQuery(query), candidates)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(properties.getLexicalTimeout())
+                .onErrorResume(e -> {
+                    log.warn("全文检索失败，降级为纯向量检索: kbIds={}, error={}", knowledgeBaseIds, e.toString());
+                    return Mono.just(List.of());
+                });
+
+        Tuple2<List<Document>, List<ChunkSearchHitEntity>> results = Mono.zip(vector, lexical).block();
+        if (results == null) {
+            return List.of();
+        }
+        return timed("fusion", () -> fuse(results.getT1(), results.getT2(), topK));
+    }
+
+    private List<Document> vectorSearch(VectorStore vectorStore, Collection<Long> knowledgeBaseIds, String query,
+                                        int topK, double similarityThreshold) {
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+        Object[] kbIdStrings = knowledgeBaseIds.stream().map(String::valueOf).toArray(Object[]::new);
+        SearchRequest searchRequest = SearchRequest.builder()
+                .query(query)
+                .topK(topK)
+                .similarityThreshold(similarityThreshold)
+                .filterExpression(b.in("knowledge_base_id", kbIdStrings).build())
+                .build();
+        return vectorStore.similaritySearch(searchRequest);
+    }
+
+    /**
+     * 倒数排名融合
+     *
+     * @param vectorHits  向量通道结果（按相似度降序）
+     * @param lexicalHits 全文通道结果（按相关度降序）
+     * @param topK        返回的切片数
+     * @return 融合结果
+     */
+    private List<Document> fuse(List<Document> vectorHits, List<ChunkSearchHitEntity> lexicalHits, int topK) {
+        int k = Math.max(1, properties.getRrfK());
+        Map<String, Fused> fused = new LinkedHashMap<>();
+        for (int i = 0; i < vectorHits.size(); i++) {
+            Document doc = vectorHits.get(i);
+            Fused entry = fused.computeIfAbsent(doc.getId(), id -> new Fused());
+            entry.score += 1.0 / (k + i + 1);
+            entry.document = doc;
+            entry.vectorScore = doc.getScore();
+        }
+        for (int i = 0; i < lexicalHits.size(); i++) {
+            ChunkSearchHitEntity hit = lexicalHits.get(i);
+            Fused entry = fused.computeIfAbsent(hit.getEmbeddingId(), id -> new Fused());
+            entry.score += 1.0 / (k + i + 1);
+            entry.lexicalScore = hit.getScore();
+            if (entry.document == null) {
+                entry.document = toDocument(hit);
+            }
+        }
+
+        // 两路均排名第一时得分为 1
+        double maxScore = 2.0 / (k + 1);
+        List<Document> result = new ArrayList<>(Math.min(topK, fused.size()));
+        fused.values().stream()
+                .sorted(Comparator.comparingDouble((Fused f) -> f.score).reversed())
+                .limit(topK)
+                .forEach(f -> {
+                    Map<String, Object> metadata = new HashMap<>(f.document.getMetadata());
+                    if (f.vectorScore != null) {
+                        metadata.put("vector_score", f.vectorScore);
+                    }
+                    if (f.lexicalScore != null) {
+                        metadata.put("lexical_score", f.lexicalScore);
+                    }
+                    result.add(Document.builder()
+                            .id(f.document.getId())
+                            .text(f.document.getText())
+                            .metadata(metadata)
+                            .score(Math.min(1.0, f.score / maxScore))
+                            .build());
+                });
+        return result;
+    }
+
+    /**
+     * 全文检索命中转换为与向量库一致的 Document
+     *
+     * @param hit 全文检索命中
+     * @return Document
+     */
+    private Document toDocument(ChunkSearchHitEntity hit) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("knowledge_base_id", String.valueOf(hit.getKnowledgeBaseId()));
+        metadata.put("document_id", String.valueOf(hit.getDocumentId()));
+        metadata.put("chunk_index", hit.getChunkIndex());
+        if (hit.getDocName() != null) {
+            metadata.put("doc_name", hit.getDocName());
+        }
+        return new Document(hit.getEmbeddingId(), hit.getContent(), metadata);
+    }
+
+    private static String lexicalQuery(String query) {
+        String trimmed = query.strip();
+        return trimmed.length() > MAX_LEXICAL_QUERY_LENGTH ? trimmed.substring(0, MAX_LEXICAL_QUERY_LENGTH) : trimmed;
+    }
+
+    private <T> T timed(String stage, Supplier<T> supplier) {
+        Timer timer = timers.get(stage);
+        if (timer == null) {
+            return supplier.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 融合中的切片
+     */
+    private static final class Fused {
+
+        private Document document;
+        private double score;
+        private Double vectorScore;
+        private Double lexicalScore;
+    }
+}
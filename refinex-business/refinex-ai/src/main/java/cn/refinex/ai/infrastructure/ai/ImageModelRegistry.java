@@ -1,57 +1,28 @@
 package cn.refinex.ai.infrastructure.ai;
 
+import cn.refinex.ai.infrastructure.config.ModelRegistryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.image.ImageModel;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * ImageModel 缓存注册表
  * <p>
- * 以 provisionId 为 key 缓存已创建的 ImageModel 实例。
+ * 以 provisionId 为 key 缓存已创建的 ImageModel 实例，容量、空闲过期与资源释放见 {@link ModelClientRegistry}。
  *
  * @author refinex
  */
 @Component
-public class ImageModelRegistry {
-
-    private final ConcurrentHashMap<Long, ImageModel> cache = new ConcurrentHashMap<>();
-
-    /**
-     * 从缓存获取 ImageModel
-     *
-     * @param provisionId 租户模型开通ID
-     * @return ImageModel 实例，未命中返回 null
-     */
-    public ImageModel get(Long provisionId) {
-        return cache.get(provisionId);
-    }
-
-    /**
-     * 写入缓存
-     *
-     * @param provisionId 租户模型开通ID
-     * @param model       ImageModel 实例
-     * @return 写入的 ImageModel 实例
-     */
-    public ImageModel put(Long provisionId, ImageModel model) {
-        cache.put(provisionId, model);
-        return model;
-    }
+public class ImageModelRegistry extends ModelClientRegistry<ImageModel> {
 
     /**
-     * 驱逐单条缓存
+     * 构造函数
      *
-     * @param provisionId 租户模型开通ID
-     */
-    public void evict(Long provisionId) {
-        cache.remove(provisionId);
-    }
-
-    /**
-     * 清空全部缓存
+     * @param properties            注册表配置
+     * @param meterRegistryProvider 指标注册表
      */
-    public void evictAll() {
-        cache.clear();
+    public ImageModelRegistry(ModelRegistryProperties properties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        super("image", properties, meterRegistryProvider);
     }
 }
@@ -1,10 +1,6 @@
 package cn.refinex.ai.infrastructure.ai;
 
 import cn.refinex.ai.domain.error.AiErrorCode;
-import cn.refinex.ai.domain.model.entity.ModelEntity;
-import cn.refinex.ai.domain.model.entity.ModelProvisionEntity;
-import cn.refinex.ai.domain.model.entity.ProviderEntity;
-import cn.refinex.ai.domain.repository.AiRepository;
 import cn.refinex.base.config.RefinexCryptoProperties;
 import cn.refinex.base.exception.BizException;
 import cn.refinex.base.utils.AesUtils;
@@ -15,7 +11,7 @@ import org.springframework.stereotype.Component;
 /**
  * ImageModel 路由器
  * <p>
- * 对外统一入口，编排 DB 查询 → 缓存 → 工厂，按 provisionId 或 estabId+modelId 解析 ImageModel。
+ * 对外统一入口，编排 开通快照 → 缓存 → 工厂，按 provisionId 或 estabId+modelId 解析 ImageModel。
  * 复用 ChatModelRouter 的三层解析模式。
  *
  * @author refinex
@@ -24,7 +20,7 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class ImageModelRouter {
 
-    private final AiRepository aiRepository;
+    private final ProvisionSnapshotCache provisionSnapshotCache;
     private final ImageModelFactory imageModelFactory;
     private final ImageModelRegistry imageModelRegistry;
     private final RefinexCryptoProperties cryptoProperties;
@@ -36,17 +32,8 @@ public class ImageModelRouter {
      * @return ImageModel 实例
      */
     public ImageModel resolve(Long provisionId) {
-        ImageModel cached = imageModelRegistry.get(provisionId);
-        if (cached != null) {
-            ModelProvisionEntity provision = aiRepository.findModelProvisionById(provisionId);
-            if (provision == null || !isActive(provision)) {
-                imageModelRegistry.evict(provisionId);
-                throw new BizException(AiErrorCode.MODEL_PROVISION_DISABLED);
-            }
-            return cached;
-        }
-
-        return buildAndCache(provisionId);
+        ProvisionSnapshotCache.ResolvedProvision resolved = provisionSnapshotCache.requireActive(provisionId);
+        return imageModelRegistry.getOrBuild(provisionId, id -> build(resolved));
     }
 
     /**
@@ -57,64 +44,25 @@ public class ImageModelRouter {
      * @return ImageModel 实例
      */
     public ImageModel resolve(Long estabId, Long modelId) {
-        ModelProvisionEntity provision = aiRepository.findActiveProvision(estabId, modelId);
-        if (provision == null) {
+        Long provisionId = provisionSnapshotCache.findActiveProvisionId(estabId, modelId);
+        if (provisionId == null) {
             throw new BizException(AiErrorCode.MODEL_PROVISION_NOT_FOUND);
         }
-        return resolve(provision.getId());
+        return resolve(provisionId);
     }
 
     /**
-     * 从 DB 加载三层数据，创建 ImageModel 并写入缓存
+     * 解密 API Key，创建 ImageModel
      *
-     * @param provisionId 租户模型开通ID
+     * @param resolved 快照中的 provision / model / provider
      * @return ImageModel 实例
      */
-    private ImageModel buildAndCache(Long provisionId) {
-        ModelProvisionEntity provision = aiRepository.findModelProvisionById(provisionId);
-        if (provision == null || !isActive(provision)) {
-            throw new BizException(AiErrorCode.MODEL_PROVISION_DISABLED);
-        }
-
-        ModelEntity model = aiRepository.findModelById(provision.getModelId());
-        if (model == null || !isEnabled(model.getStatus(), model.getDeleted())) {
-            imageModelRegistry.evict(provisionId);
-            throw new BizException(AiErrorCode.MODEL_DISABLED);
-        }
-
-        ProviderEntity provider = aiRepository.findProviderById(model.getProviderId());
-        if (provider == null || !isEnabled(provider.getStatus(), provider.getDeleted())) {
-            imageModelRegistry.evict(provisionId);
-            throw new BizException(AiErrorCode.PROVIDER_DISABLED);
-        }
-
-        String apiKey = AesUtils.decrypt(provision.getApiKeyCipher(), cryptoProperties.getAesKey());
+    private ImageModel build(ProvisionSnapshotCache.ResolvedProvision resolved) {
+        String apiKey = AesUtils.decrypt(resolved.provision().getApiKeyCipher(), cryptoProperties.getAesKey());
         if (apiKey == null || apiKey.isBlank()) {
             throw new BizException(AiErrorCode.API_KEY_MISSING);
         }
 
-        ImageModel imageModel = imageModelFactory.createImageModel(provider, model, provision, apiKey);
-        return imageModelRegistry.put(provisionId, imageModel);
-    }
-
-    /**
-     * 判断 provision 是否活跃（status=1, deleted=0）
-     *
-     * @param provision 租户模型开通实体
-     * @return 是否活跃
-     */
-    private boolean isActive(ModelProvisionEntity provision) {
-        return isEnabled(provision.getStatus(), provision.getDeleted());
-    }
-
-    /**
-     * 判断实体是否启用（status=1, deleted=0）
-     *
-     * @param status  状态
-     * @param deleted 删除标记
-     * @return 是否启用
-     */
-    private boolean isEnabled(Integer status, Integer deleted) {
-        return (status != null && status == 1) && (deleted == null || deleted == 0);
+        return imageModelFactory.createImageModel(resolved.provider(), resolved.model(), resolved.provision(), apiKey);
     }
 }
@@ -0,0 +1,179 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.ModelRegistryProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 模型客户端注册表基类
+ * <p>
+ * 以 provisionId 为 key 缓存已创建的模型客户端（每个客户端持有独立的 HTTP 客户端栈）：
+ * <ul>
+ *     <li>容量上限 + 空闲过期，租户开通数量增长时内存有界</li>
+ *     <li>单飞构建：同一 key 的并发未命中只创建一次客户端</li>
+ *     <li>淘汰、驱逐、关闭应用时调用 {@link #release(Object)} 释放底层资源</li>
+ *     <li>指标：refinex.ai.model-registry.* 缓存大小 / 命中率（CaffeineCacheMetrics），构建耗时 refinex.ai.model-registry.build</li>
+ * </ul>
+ *
+ * @param <T> 客户端类型
+ * @author refinex
+ */
+@Slf4j
+public abstract class ModelClientRegistry<T> implements InitializingBean, DisposableBean {
+
+    /**
+     * 指标名称前缀
+     */
+    private static final String METRIC_PREFIX = "refinex.ai.model-registry";
+
+    private final String name;
+    private final Cache<Long, T> cache;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private Timer buildTimer;
+
+    /**
+     * 构造函数
+     *
+     * @param name                  注册表名称（指标标签）
+     * @param properties            注册表配置
+     * @param meterRegistryProvider 指标注册表
+     */
+    protected ModelClientRegistry(String name, ModelRegistryProperties properties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.name = name;
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterAccess(properties.getExpireAfterAccess())
+                .recordStats()
+                .removalListener((Long key, T client, RemovalCause cause) -> onRemoval(key, client, cause))
+                .build();
+    }
+
+    /**
+     * 注册缓存指标
+     */
+    @Override
+    public void afterPropertiesSet() {
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry == null) {
+            return;
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, METRIC_PREFIX + "." + name);
+        buildTimer = Timer.builder(METRIC_PREFIX + ".build")
+                .description("Model client build latency")
+                .tag("registry", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 关闭应用时释放全部客户端
+     */
+    @Override
+    public void destroy() {
+        cache.invalidateAll();
+        cache.cleanUp();
+    }
+
+    /**
+     * 从缓存获取客户端
+     *
+     * @param provisionId 租户模型开通ID
+     * @return 客户端实例，未命中返回 null
+     */
+    public T get(Long provisionId) {
+        return cache.getIfPresent(provisionId);
+    }
+
+    /**
+     * 获取客户端，未命中时构建并缓存（同一 provisionId 的并发未命中只构建一次，构建异常不缓存）
+     *
+     * @param provisionId 租户模型开通ID
+     * @param builder     构建函数
+     * @return 客户端实例
+     */
+    public T getOrBuild(Long provisionId, Function<Long, ? extends T> builder) {
+        return cache.get(provisionId, key -> {
+            long start = System.nanoTime();
+            try {
+                return builder.apply(key);
+            } finally {
+                if (buildTimer != null) {
+                    buildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * 驱逐单条缓存
+     *
+     * @param provisionId 租户模型开通ID
+     */
+    public void evict(Long provisionId) {
+        cache.invalidate(provisionId);
+    }
+
+    /**
+     * 清空全部缓存
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 当前缓存条目数（近似值）
+     *
+     * @return 条目数
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 释放客户端底层资源
+     * <p>
+     * 默认关闭实现了 {@link AutoCloseable} / {@link DisposableBean} 的客户端；未实现的客户端（如 Spring AI 模型）
+     * 仅丢弃引用，其 HTTP 客户端随之不可达后由 GC 回收。持有独占连接的子类应覆盖此方法。
+     *
+     * @param client 客户端
+     * @throws Exception 释放异常
+     */
+    protected void release(T client) throws Exception {
+        if (client instanceof AutoCloseable closeable) {
+            closeable.close();
+        } else if (client instanceof DisposableBean disposable) {
+            disposable.destroy();
+        }
+    }
+
+    /**
+     * 淘汰回调
+     *
+     * @param provisionId 租户模型开通ID
+     * @param client      客户端
+     * @param cause       淘汰原因
+     */
+    private void onRemoval(Long provisionId, T client, RemovalCause cause) {
+        if (client == null) {
+            return;
+        }
+        try {
+            release(client);
+            log.debug("Model client released: registry={}, provisionId={}, cause={}", name, provisionId, cause);
+        } catch (Exception e) {
+            log.warn("Failed to release model client: registry={}, provisionId={}", name, provisionId, e);
+        }
+    }
+}
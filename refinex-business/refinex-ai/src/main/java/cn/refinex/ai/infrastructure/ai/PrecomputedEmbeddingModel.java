@@ -0,0 +1,124 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 优先使用预计算向量的 EmbeddingModel 装饰器
+ * <p>
+ * VectorStore 持有该装饰器：写入文档时先从 {@link PrecomputedEmbeddings} 取向量，未命中的文档回退委托模型计算；
+ * 检索等其余调用直接委托。
+ *
+ * @author refinex
+ */
+public class PrecomputedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final PrecomputedEmbeddings precomputedEmbeddings;
+
+    /**
+     * 构造函数
+     *
+     * @param delegate              实际嵌入模型
+     * @param precomputedEmbeddings 预计算向量暂存区
+     */
+    public PrecomputedEmbeddingModel(EmbeddingModel delegate, PrecomputedEmbeddings precomputedEmbeddings) {
+        this.delegate = delegate;
+        this.precomputedEmbeddings = precomputedEmbeddings;
+    }
+
+    /**
+     * 直接委托嵌入请求
+     *
+     * @param request 嵌入请求
+     * @return 嵌入响应
+     */
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    /**
+     * 单文本嵌入（检索查询），直接委托
+     *
+     * @param text 文本
+     * @return 向量
+     */
+    @Override
+    public float[] embed(String text) {
+        return delegate.embed(text);
+    }
+
+    /**
+     * 多文本嵌入，直接委托
+     *
+     * @param texts 文本列表
+     * @return 与文本一一对应的向量
+     */
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        return delegate.embed(texts);
+    }
+
+    /**
+     * 单文档嵌入：优先取预计算向量
+     *
+     * @param document 文档
+     * @return 向量
+     */
+    @Override
+    public float[] embed(Document document) {
+        float[] embedding = precomputedEmbeddings.take(document.getId());
+        return embedding != null ? embedding : delegate.embed(document);
+    }
+
+    /**
+     * 批量文档嵌入：命中预计算向量的直接返回，其余按原批次策略委托计算
+     *
+     * @param documents        文档列表
+     * @param options          嵌入选项
+     * @param batchingStrategy 批次策略
+     * @return 与文档一一对应的向量
+     */
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        float[][] result = new float[documents.size()][];
+        List<Document> missing = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            float[] embedding = precomputedEmbeddings.take(documents.get(i).getId());
+            if (embedding != null) {
+                result[i] = embedding;
+            } else {
+                missing.add(documents.get(i));
+                missingIndexes.add(i);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<float[]> computed = delegate.embed(missing, options, batchingStrategy);
+            for (int i = 0; i < missingIndexes.size(); i++) {
+                result[missingIndexes.get(i)] = computed.get(i);
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * 向量维度
+     *
+     * @return 委托模型的向量维度
+     */
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,65 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预计算向量暂存区
+ * <p>
+ * 向量化流水线在嵌入阶段批量计算向量后，存储阶段在 {@link #supply(List, List, Runnable)} 作用域内调用 VectorStore.add()，
+ * 由 {@link PrecomputedEmbeddingModel} 按 Document.id 取走，从而将嵌入与写入拆成两个可独立并发的阶段，避免重复调用嵌入模型。
+ * <p>
+ * 暂存的向量只对当前线程、当前作用域可见（VectorStore.add() 在调用线程上同步计算向量），作用域结束即丢弃：
+ * 不同任务写入相同向量 ID 时互不干扰，写入失败或 VectorStore 未取走的向量也不会残留。
+ *
+ * @author refinex
+ */
+@Component
+public class PrecomputedEmbeddings {
+
+    private final ThreadLocal<Map<String, float[]>> scope = new ThreadLocal<>();
+
+    /**
+     * 在暂存一批文档向量的作用域内执行写入
+     *
+     * @param documents  文档列表
+     * @param embeddings 与文档一一对应的向量
+     * @param action     写入动作（在当前线程执行）
+     */
+    public void supply(List<Document> documents, List<float[]> embeddings, Runnable action) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("文档数与向量数不一致: " + documents.size() + " != " + embeddings.size());
+        }
+        Map<String, float[]> staged = new HashMap<>(documents.size() * 2);
+        for (int i = 0; i < documents.size(); i++) {
+            staged.put(documents.get(i).getId(), embeddings.get(i));
+        }
+
+        Map<String, float[]> previous = scope.get();
+        scope.set(staged);
+        try {
+            action.run();
+        } finally {
+            if (previous != null) {
+                scope.set(previous);
+            } else {
+                scope.remove();
+            }
+        }
+    }
+
+    /**
+     * 取走当前作用域内文档的预计算向量
+     *
+     * @param documentId 文档ID
+     * @return 向量，不在作用域内或未暂存时返回 null
+     */
+    public float[] take(String documentId) {
+        Map<String, float[]> staged = scope.get();
+        return staged != null && documentId != null ? staged.remove(documentId) : null;
+    }
+}
@@ -0,0 +1,79 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.model.entity.ModelEntity;
+import cn.refinex.ai.domain.model.entity.ModelProvisionEntity;
+import cn.refinex.ai.domain.model.entity.ProviderEntity;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 租户模型开通快照
+ * <p>
+ * 某一租户全部活跃 provision 及其关联 model / provider 的只读视图，附带按模型、默认模型、模型类型的预计算索引。
+ * 快照创建后不可变，失效时整体替换。
+ *
+ * @param version                  快照版本号（单调递增，便于日志排查）
+ * @param estabId                  组织ID
+ * @param provisions               provisionId -> 活跃 provision
+ * @param models                   modelId -> 模型
+ * @param providers                providerId -> 供应商
+ * @param provisionIdByModelId     modelId -> provisionId
+ * @param defaultProvisionId       默认 provisionId（不区分类型），无则为 null
+ * @param defaultProvisionIdByType 模型类型 -> 默认 provisionId
+ * @author refinex
+ */
+public record ProvisionSnapshot(long version,
+                                Long estabId,
+                                Map<Long, ModelProvisionEntity> provisions,
+                                Map<Long, ModelEntity> models,
+                                Map<Long, ProviderEntity> providers,
+                                Map<Long, Long> provisionIdByModelId,
+                                Long defaultProvisionId,
+                                Map<Integer, Long> defaultProvisionIdByType) {
+
+    /**
+     * 由 DB 查询结果构建快照
+     *
+     * @param version    快照版本号
+     * @param estabId    组织ID
+     * @param provisions 活跃 provision（按 ID 升序）
+     * @param models     关联模型
+     * @param providers  关联供应商
+     * @return 快照
+     */
+    public static ProvisionSnapshot of(long version, Long estabId, List<ModelProvisionEntity> provisions,
+                                       List<ModelEntity> models, List<ProviderEntity> providers) {
+        Map<Long, ModelEntity> modelMap = new HashMap<>();
+        for (ModelEntity model : models) {
+            modelMap.put(model.getId(), model);
+        }
+        Map<Long, ProviderEntity> providerMap = new HashMap<>();
+        for (ProviderEntity provider : providers) {
+            providerMap.put(provider.getId(), provider);
+        }
+
+        Map<Long, ModelProvisionEntity> provisionMap = new HashMap<>();
+        Map<Long, Long> byModelId = new HashMap<>();
+        Long defaultId = null;
+        Map<Integer, Long> defaultByType = new HashMap<>();
+        for (ModelProvisionEntity provision : provisions) {
+            provisionMap.put(provision.getId(), provision);
+            byModelId.putIfAbsent(provision.getModelId(), provision.getId());
+            if (provision.getIsDefault() == null || provision.getIsDefault() != 1) {
+                continue;
+            }
+            if (defaultId == null) {
+                defaultId = provision.getId();
+            }
+            ModelEntity model = modelMap.get(provision.getModelId());
+            if (model != null && model.getModelType() != null && (model.getDeleted() == null || model.getDeleted() == 0)) {
+                defaultByType.putIfAbsent(model.getModelType(), provision.getId());
+            }
+        }
+
+        return new ProvisionSnapshot(version, estabId, Map.copyOf(provisionMap), Map.copyOf(modelMap),
+                Map.copyOf(providerMap), Map.copyOf(byModelId), defaultId, Map.copyOf(defaultByType));
+    }
+}
@@ -0,0 +1,340 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.error.AiErrorCode;
+import cn.refinex.ai.domain.model.entity.ModelEntity;
+import cn.refinex.ai.domain.model.entity.ModelProvisionEntity;
+import cn.refinex.ai.domain.model.entity.ProviderEntity;
+import cn.refinex.ai.domain.repository.AiRepository;
+import cn.refinex.base.exception.BizException;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.BaseStatusListener;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 租户模型开通快照缓存
+ * <p>
+ * 按 estabId 懒加载 {@link ProvisionSnapshot}（3 次查询：provision / model / provider），模型路由的热路径只读内存，
+ * 预热后解析模型不再访问 DB。provision / model / provider 变更由 {@code AiApplicationService} 在事务提交后
+ * 通过 {@link #CHANGED_CHANNEL} 广播，各节点失效对应快照并驱逐各 {@link ModelClientRegistry} 中已创建的客户端；
+ * 写入后过期时间作为广播丢失时的兜底，订阅重连时清空全部快照。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class ProvisionSnapshotCache implements InitializingBean, DisposableBean {
+
+    /**
+     * 变更广播频道，消息为 estabId，{@link #ALL} 表示全部租户
+     */
+    public static final String CHANGED_CHANNEL = "refinex:ai:provision:changed";
+
+    /**
+     * 全部租户
+     */
+    private static final String ALL = "*";
+
+    /**
+     * 快照过期时间（广播丢失兜底）
+     */
+    private static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+    private final AiRepository aiRepository;
+    private final RedissonClient redissonClient;
+    private final List<ModelClientRegistry<?>> modelClientRegistries;
+
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final LoadingCache<Long, ProvisionSnapshot> snapshots;
+
+    /**
+     * provisionId -> estabId 反查索引，按 provisionId 解析时定位快照
+     */
+    private final Map<Long, Long> provisionEstabIndex = new ConcurrentHashMap<>();
+
+    private RTopic topic;
+    private Integer messageListenerId;
+    private Integer statusListenerId;
+
+    /**
+     * 构造函数
+     *
+     * @param aiRepository           AI 仓储
+     * @param redissonClient         Redisson 客户端
+     * @param modelClientRegistries  模型客户端注册表（含 VectorStore，按 provisionId 缓存）
+     */
+    public ProvisionSnapshotCache(AiRepository aiRepository,
+                                  RedissonClient redissonClient,
+                                  List<ModelClientRegistry<?>> modelClientRegistries) {
+        this.aiRepository = aiRepository;
+        this.redissonClient = redissonClient;
+        this.modelClientRegistries = modelClientRegistries;
+        this.snapshots = Caffeine.newBuilder()
+                .expireAfterWrite(EXPIRE_AFTER_WRITE)
+                .build(this::load);
+    }
+
+    /**
+     * 订阅变更频道
+     */
+    @Override
+    public void afterPropertiesSet() {
+        topic = redissonClient.getTopic(CHANGED_CHANNEL, StringCodec.INSTANCE);
+        messageListenerId = topic.addListener(String.class, (channel, message) -> apply(message));
+        statusListenerId = topic.addListener(new BaseStatusListener() {
+            @Override
+            public void onSubscribe(String channel) {
+                // 首次订阅或断线重连：期间可能漏掉失效消息，全部丢弃
+                invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * 取消订阅
+     */
+    @Override
+    public void destroy() {
+        if (topic == null) {
+            return;
+        }
+        if (messageListenerId != null) {
+            topic.removeListener(messageListenerId);
+        }
+        if (statusListenerId != null) {
+            topic.removeListener(statusListenerId);
+        }
+    }
+
+    /**
+     * 获取租户快照（未命中时加载，同一租户的并发未命中只加载一次）
+     *
+     * @param estabId 组织ID
+     * @return 快照
+     */
+    public ProvisionSnapshot snapshot(Long estabId) {
+        return snapshots.get(estabId);
+    }
+
+    /**
+     * 按 provisionId 解析活跃的 provision / model / provider
+     * <p>
+     * 反查索引未命中时（冷启动或新开通）查询一次 provision 定位租户，之后全部走快照。
+     *
+     * @param provisionId 租户模型开通ID
+     * @return 解析结果
+     */
+    public ResolvedProvision requireActive(Long provisionId) {
+        Long estabId = provisionEstabIndex.get(provisionId);
+        if (estabId == null) {
+            ModelProvisionEntity provision = aiRepository.findModelProvisionById(provisionId);
+            if (provision == null || !isEnabled(provision.getStatus(), provision.getDeleted())) {
+                throw new BizException(AiErrorCode.MODEL_PROVISION_DISABLED);
+            }
+            estabId = provision.getEstabId();
+        }
+
+        ProvisionSnapshot snapshot = snapshot(estabId);
+        ModelProvisionEntity provision = snapshot.provisions().get(provisionId);
+        if (provision == null) {
+            throw new BizException(AiErrorCode.MODEL_PROVISION_DISABLED);
+        }
+
+        ModelEntity model = snapshot.models().get(provision.getModelId());
+        if (model == null || !isEnabled(model.getStatus(), model.getDeleted())) {
+            throw new BizException(AiErrorCode.MODEL_DISABLED);
+        }
+
+        ProviderEntity provider = snapshot.providers().get(model.getProviderId());
+        if (provider == null || !isEnabled(provider.getStatus(), provider.getDeleted())) {
+            throw new BizException(AiErrorCode.PROVIDER_DISABLED);
+        }
+        return new ResolvedProvision(provision, model, provider);
+    }
+
+    /**
+     * 查询租户指定模型的活跃 provisionId
+     *
+     * @param estabId 组织ID
+     * @param modelId 模型ID
+     * @return provisionId，不存在返回 null
+     */
+    public Long findActiveProvisionId(Long estabId, Long modelId) {
+        return snapshot(estabId).provisionIdByModelId().get(modelId);
+    }
+
+    /**
+     * 查询租户默认 provisionId（不区分类型）
+     *
+     * @param estabId 组织ID
+     * @return provisionId，不存在返回 null
+     */
+    public Long findDefaultProvisionId(Long estabId) {
+        return snapshot(estabId).defaultProvisionId();
+    }
+
+    /**
+     * 查询租户指定模型类型的默认 provisionId
+     *
+     * @param estabId   组织ID
+     * @param modelType 模型类型
+     * @return provisionId，不存在返回 null
+     */
+    public Long findDefaultProvisionIdByType(Long estabId, Integer modelType) {
+        return snapshot(estabId).defaultProvisionIdByType().get(modelType);
+    }
+
+    /**
+     * 广播租户 provision 变更（当前事务提交后发送）
+     *
+     * @param estabId 组织ID
+     */
+    public void publishChange(Long estabId) {
+        if (estabId == null) {
+            publishChangeAll();
+            return;
+        }
+        publishAfterCommit(String.valueOf(estabId));
+    }
+
+    /**
+     * 广播全部租户变更（model / provider 变更影响所有租户，当前事务提交后发送）
+     */
+    public void publishChangeAll() {
+        publishAfterCommit(ALL);
+    }
+
+    /**
+     * 事务提交后先失效本节点，再广播给其他节点；无事务时立即执行
+     *
+     * @param message 广播消息
+     */
+    private void publishAfterCommit(String message) {
+        Runnable publish = () -> {
+            apply(message);
+            try {
+                topic.publish(message);
+            } catch (Exception e) {
+                log.warn("Failed to publish provision change: {}", message, e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    /**
+     * 处理变更消息
+     *
+     * @param message estabId 或 {@link #ALL}
+     */
+    private void apply(String message) {
+        if (message == null || message.isBlank() || ALL.equals(message.trim())) {
+            invalidateAll();
+            return;
+        }
+        try {
+            invalidate(Long.valueOf(message.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("Illegal provision change message: {}", message);
+            invalidateAll();
+        }
+    }
+
+    /**
+     * 失效租户快照，并驱逐该租户已创建的模型客户端
+     *
+     * @param estabId 组织ID
+     */
+    public void invalidate(Long estabId) {
+        ProvisionSnapshot previous = snapshots.getIfPresent(estabId);
+        snapshots.invalidate(estabId);
+
+        Set<Long> provisionIds = provisionEstabIndex.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(estabId))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(HashSet::new));
+        if (previous != null) {
+            provisionIds.addAll(previous.provisions().keySet());
+        }
+        for (Long provisionId : provisionIds) {
+            provisionEstabIndex.remove(provisionId);
+            modelClientRegistries.forEach(registry -> registry.evict(provisionId));
+        }
+        log.debug("Provision snapshot invalidated, estabId: {}, provisions: {}", estabId, provisionIds.size());
+    }
+
+    /**
+     * 失效全部快照并清空模型客户端
+     */
+    public void invalidateAll() {
+        snapshots.invalidateAll();
+        provisionEstabIndex.clear();
+        modelClientRegistries.forEach(ModelClientRegistry::evictAll);
+    }
+
+    /**
+     * 从 DB 加载租户快照
+     *
+     * @param estabId 组织ID
+     * @return 快照
+     */
+    private ProvisionSnapshot load(Long estabId) {
+        List<ModelProvisionEntity> provisions = aiRepository.listActiveModelProvisions(estabId);
+        Set<Long> modelIds = provisions.stream().map(ModelProvisionEntity::getModelId).collect(Collectors.toSet());
+        List<ModelEntity> models = aiRepository.findModelsByIds(modelIds);
+        Set<Long> providerIds = models.stream().map(ModelEntity::getProviderId).collect(Collectors.toSet());
+        List<ProviderEntity> providers = aiRepository.findProvidersByIds(providerIds);
+
+        ProvisionSnapshot snapshot = ProvisionSnapshot.of(versionSequence.incrementAndGet(), estabId, provisions, models, providers);
+        snapshot.provisions().keySet().forEach(provisionId -> provisionEstabIndex.put(provisionId, estabId));
+        log.debug("Provision snapshot loaded, estabId: {}, version: {}, provisions: {}",
+                estabId, snapshot.version(), provisions.size());
+        return snapshot;
+    }
+
+    /**
+     * 判断实体是否启用（status=1, deleted=0）
+     *
+     * @param status  状态
+     * @param deleted 删除标记
+     * @return 是否启用
+     */
+    private boolean isEnabled(Integer status, Integer deleted) {
+        return (status != null && status == 1) && (deleted == null || deleted == 0);
+    }
+
+    /**
+     * 解析后的 provision / model / provider
+     *
+     * @param provision 租户模型开通
+     * @param model     模型
+     * @param provider  供应商
+     */
+    public record ResolvedProvision(ModelProvisionEntity provision, ModelEntity model, ProviderEntity provider) {
+    }
+}
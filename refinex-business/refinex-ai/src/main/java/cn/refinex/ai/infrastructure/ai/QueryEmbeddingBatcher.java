@@ -0,0 +1,271 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.RetrievalProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 检索查询向量化合并器
+ * <p>
+ * 对话 RAG 与检索接口每次只向量化一条查询，高并发时会产生大量单条嵌入请求，而供应商单次请求可接受成百上千条输入。
+ * 合并器按嵌入模型 provisionId 将并发的单条查询攒批：首条查询到达后等待 {@code batchWindow}，或攒满 {@code maxBatchSize} 条时
+ * 立即发起一次批量请求，结果按顺序分发回各调用方；同一批次内相同的查询文本只请求一次。
+ * 调用方最多等待 {@code batchTimeout}，批次请求卡住或调度积压时改为单独请求该查询。
+ * <p>
+ * 查询向量按 (provisionId, 查询文本) 缓存在本地 LRU 中，语义回答缓存查询与随后的 RAG 检索、重复提问均直接复用。
+ * 指标：调用方等待耗时 refinex.ai.query-embedding.latency（按 source=cache / provider 区分）、
+ * 嵌入请求耗时 refinex.ai.query-embedding.request、批次大小 refinex.ai.query-embedding.batch-size，均发布百分位直方图；
+ * 等待超时改为单独请求的次数 refinex.ai.query-embedding.fallback。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class QueryEmbeddingBatcher {
+
+    private static final String METRIC_NAME = "refinex.ai.query-embedding";
+
+    private final RetrievalProperties.QueryEmbeddingProperties properties;
+    private final Cache<String, float[]> cache;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final Timer cacheLatency;
+    private final Timer providerLatency;
+    private final Timer requestLatency;
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+
+    /**
+     * 构造函数
+     *
+     * @param retrievalProperties   检索配置
+     * @param meterRegistryProvider 指标注册表
+     */
+    public QueryEmbeddingBatcher(RetrievalProperties retrievalProperties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.properties = retrievalProperties.getQueryEmbedding();
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+        if (properties.getCacheMaximumSize() > 0) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(properties.getCacheMaximumSize())
+                    .expireAfterWrite(properties.getCacheExpireAfterWrite())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, METRIC_NAME);
+        } else {
+            this.cache = null;
+        }
+
+        this.cacheLatency = latencyTimer(meterRegistry, "cache");
+        this.providerLatency = latencyTimer(meterRegistry, "provider");
+        this.requestLatency = Timer.builder(METRIC_NAME + ".request")
+                .description("Embedding provider request latency for query batches")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder(METRIC_NAME + ".batch-size")
+                .description("Queries per embedding provider request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder(METRIC_NAME + ".fallback")
+                .description("Queries embedded alone after waiting for their batch timed out")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 向量化单条查询（阻塞直到所在批次返回，超过 batchTimeout 时改为单独请求）
+     *
+     * @param provisionId 嵌入模型开通ID
+     * @param delegate    实际嵌入模型
+     * @param text        查询文本
+     * @return 查询向量
+     */
+    public float[] embed(Long provisionId, EmbeddingModel delegate, String text) {
+        long start = System.nanoTime();
+        String key = provisionId + ":" + text;
+        float[] cached = cache != null ? cache.getIfPresent(key) : null;
+        if (cached != null) {
+            cacheLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached;
+        }
+
+        float[] embedding;
+        if (properties.isBatchingEnabled()) {
+            embedding = await(lanes.computeIfAbsent(provisionId, Lane::new).submit(delegate, text), provisionId, delegate, text);
+        } else {
+            embedding = requestSingle(delegate, key, text);
+        }
+        providerLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return embedding;
+    }
+
+    /**
+     * 单独请求一条查询并写入缓存
+     *
+     * @param delegate 实际嵌入模型
+     * @param key      缓存键
+     * @param text     查询文本
+     * @return 查询向量
+     */
+    private float[] requestSingle(EmbeddingModel delegate, String key, String text) {
+        float[] embedding = request(delegate, List.of(text)).getFirst();
+        if (cache != null) {
+            cache.put(key, embedding);
+        }
+        return embedding;
+    }
+
+    /**
+     * 发起一次批量嵌入请求
+     *
+     * @param delegate 实际嵌入模型
+     * @param texts    查询文本
+     * @return 与文本一一对应的向量
+     */
+    private List<float[]> request(EmbeddingModel delegate, List<String> texts) {
+        batchSizes.record(texts.size());
+        long start = System.nanoTime();
+        try {
+            List<float[]> embeddings = delegate.embed(texts);
+            if (embeddings.size() != texts.size()) {
+                throw new IllegalStateException("嵌入模型返回的向量数与查询数不一致: expected=" + texts.size() + ", actual=" + embeddings.size());
+            }
+            return embeddings;
+        } finally {
+            requestLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 等待所在批次返回，超时后改为单独请求（批次稍后返回的结果仍写入缓存）
+     *
+     * @param future      批次结果
+     * @param provisionId 嵌入模型开通ID
+     * @param delegate    实际嵌入模型
+     * @param text        查询文本
+     * @return 查询向量
+     */
+    private float[] await(CompletableFuture<float[]> future, Long provisionId, EmbeddingModel delegate, String text) {
+        try {
+            return future.get(properties.getBatchTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            fallbacks.increment();
+            log.warn("等待批量查询向量化超时，改为单独请求: provisionId={}, timeoutMs={}",
+                    provisionId, properties.getBatchTimeout().toMillis());
+            return requestSingle(delegate, provisionId + ":" + text, text);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("批量查询向量化失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待批量查询向量化被中断", e);
+        }
+    }
+
+    private static Timer latencyTimer(MeterRegistry meterRegistry, String source) {
+        return Timer.builder(METRIC_NAME + ".latency")
+                .description("Query embedding latency observed by callers")
+                .tag("source", source)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 单个嵌入模型的攒批通道
+     */
+    private final class Lane {
+
+        private final Long provisionId;
+        private Map<String, CompletableFuture<float[]>> pending = new LinkedHashMap<>();
+        private EmbeddingModel delegate;
+
+        /**
+         * 批次代数，批次被取走时递增，使过期的窗口定时任务失效
+         */
+        private long generation;
+
+        private Lane(Long provisionId) {
+            this.provisionId = provisionId;
+        }
+
+        /**
+         * 加入当前批次：攒满立即发起请求，批次首条查询启动等待窗口
+         */
+        private synchronized CompletableFuture<float[]> submit(EmbeddingModel model, String text) {
+            CompletableFuture<float[]> future = pending.get(text);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(text, future);
+            // 注册表淘汰重建后使用最新的模型实例
+            delegate = model;
+
+            if (pending.size() >= properties.getMaxBatchSize()) {
+                Map<String, CompletableFuture<float[]>> batch = drain();
+                Schedulers.boundedElastic().schedule(() -> execute(model, batch));
+            } else if (pending.size() == 1) {
+                long current = generation;
+                Schedulers.boundedElastic().schedule(() -> flushWindow(current),
+                        properties.getBatchWindow().toNanos(), TimeUnit.NANOSECONDS);
+            }
+            return future;
+        }
+
+        private void flushWindow(long expectedGeneration) {
+            EmbeddingModel model;
+            Map<String, CompletableFuture<float[]>> batch;
+            synchronized (this) {
+                if (expectedGeneration != generation || pending.isEmpty()) {
+                    return;
+                }
+                model = delegate;
+                batch = drain();
+            }
+            execute(model, batch);
+        }
+
+        private Map<String, CompletableFuture<float[]>> drain() {
+            Map<String, CompletableFuture<float[]>> batch = pending;
+            pending = new LinkedHashMap<>();
+            generation++;
+            return batch;
+        }
+
+        private void execute(EmbeddingModel model, Map<String, CompletableFuture<float[]>> batch) {
+            List<String> texts = new ArrayList<>(batch.keySet());
+            try {
+                List<float[]> embeddings = request(model, texts);
+                for (int i = 0; i < texts.size(); i++) {
+                    if (cache != null) {
+                        cache.put(provisionId + ":" + texts.get(i), embeddings.get(i));
+                    }
+                    batch.get(texts.get(i)).complete(embeddings.get(i));
+                }
+            } catch (Exception e) {
+                log.warn("批量查询向量化失败: provisionId={}, size={}, error={}", provisionId, texts.size(), e.getMessage());
+                batch.values().forEach(future -> future.completeExceptionally(e));
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.model.entity.KnowledgeBaseEntity;
+import cn.refinex.ai.infrastructure.config.RetrievalProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多知识库检索协调器
+ * <p>
+ * 对话可同时引用多个知识库，而知识库可能绑定不同的嵌入模型（即不同的 VectorStore 与向量空间）。
+ * 协调器按嵌入模型 provisionId 将知识库分组，每组用各自的 VectorStore 执行混合检索，各组并行且单独限时：
+ * 超时或失败的分组被跳过，返回其余分组的部分结果。
+ * <p>
+ * 混合检索的 RRF 得分只取决于各通道内的排名（已归一化到 [0, 1]），跨分组可直接比较，合并时统一排序取前 topK。
+ * 关闭全文检索时得分为各嵌入模型的原始相似度，分布不可直接比较，跨多个分组时合并前每组按组内最高分归一化（组内首条为 1）。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RetrievalCoordinator {
+
+    private final EmbeddingModelRouter embeddingModelRouter;
+    private final VectorStoreRouter vectorStoreRouter;
+    private final HybridRetriever hybridRetriever;
+    private final RetrievalProperties properties;
+
+    /**
+     * 跨知识库检索
+     *
+     * @param knowledgeBases      已向量化的知识库
+     * @param query               检索文本
+     * @param topK                返回的切片数
+     * @param similarityThreshold 向量通道相似度阈值
+     * @return 按得分降序的切片（metadata 附带 embedding_provision_id）
+     */
+    public List<Document> retrieve(List<KnowledgeBaseEntity> knowledgeBases, String query, int topK, double similarityThreshold) {
+        if (knowledgeBases == null || knowledgeBases.isEmpty() || query == null || query.isBlank()) {
+            return List.of();
+        }
+
+        Map<Long, List<Long>> groups = groupByProvision(knowledgeBases);
+        if (groups.isEmpty()) {
+            return List.of();
+        }
+        // RRF 得分跨分组可比；仅纯向量检索的原始相似度在跨分组时需要归一化
+        boolean normalize = groups.size() > 1 && !properties.isLexicalEnabled();
+        List<List<Document>> results = Flux.fromIterable(groups.entrySet())
+                .flatMap(group -> Mono.fromCallable(() -> searchGroup(group.getKey(), group.getValue(), query, topK, similarityThreshold, normalize))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .timeout(properties.getStoreTimeout())
+                        .onErrorResume(e -> {
+                            log.warn("知识库分组检索超时或失败，跳过该分组: provisionId={}, kbIds={}, error={}",
+                                    group.getKey(), group.getValue(), e.toString());
+                            return Mono.just(List.of());
+                        }))
+                .collectList()
+                .block();
+        return merge(results, topK);
+    }
+
+    /**
+     * 构建供 RetrievalAugmentationAdvisor 使用的文档检索器
+     *
+     * @param knowledgeBases      已向量化的知识库
+     * @param topK                返回的切片数
+     * @param similarityThreshold 向量通道相似度阈值
+     * @return 文档检索器
+     */
+    public DocumentRetriever documentRetriever(List<KnowledgeBaseEntity> knowledgeBases, int topK, double similarityThreshold) {
+        return query -> retrieve(knowledgeBases, query.text(), topK, similarityThreshold);
+    }
+
+    /**
+     * 按嵌入模型 provisionId 分组知识库，无法解析嵌入模型的知识库被跳过
+     *
+     * @param knowledgeBases 知识库
+     * @return provisionId → 知识库ID列表
+     */
+    private Map<Long, List<Long>> groupByProvision(List<KnowledgeBaseEntity> knowledgeBases) {
+        Map<Long, List<Long>> groups = new LinkedHashMap<>();
+        for (KnowledgeBaseEntity kb : knowledgeBases) {
+            try {
+                Long provisionId = embeddingModelRouter.resolveProvisionIdForKnowledgeBase(kb);
+                groups.computeIfAbsent(provisionId, k -> new ArrayList<>()).add(kb.getId());
+            } catch (Exception e) {
+                log.warn("解析知识库嵌入模型失败，跳过检索: kbId={}, error={}", kb.getId(), e.getMessage());
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * 在单个嵌入模型分组内检索
+     *
+     * @param provisionId         嵌入模型开通ID
+     * @param knowledgeBaseIds    分组内的知识库ID
+     * @param query               检索文本
+     * @param topK                返回的切片数
+     * @param similarityThreshold 向量通道相似度阈值
+     * @param normalize           是否按组内最高分归一化（仅纯向量检索的原始相似度）
+     * @return 检索结果
+     */
+    private List<Document> searchGroup(Long provisionId, List<Long> knowledgeBaseIds, String query,
+                                       int topK, double similarityThreshold, boolean normalize) {
+        List<Document> docs;
+        try (VectorStoreRegistry.Lease lease = vectorStoreRouter.acquire(provisionId)) {
+            docs = hybridRetriever.retrieve(lease.store(), knowledgeBaseIds, query, topK, similarityThreshold);
+        }
+        double max = 1.0;
+        if (normalize) {
+            max = docs.stream().map(Document::getScore).filter(s -> s != null && s > 0)
+                    .mapToDouble(Double::doubleValue).max().orElse(1.0);
+        }
+        List<Document> result = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            Map<String, Object> metadata = new HashMap<>(doc.getMetadata());
+            metadata.put("embedding_provision_id", String.valueOf(provisionId));
+            double score = doc.getScore() != null ? doc.getScore() / max : 0.0;
+            result.add(Document.builder()
+                    .id(doc.getId())
+                    .text(doc.getText())
+                    .metadata(metadata)
+                    .score(score)
+                    .build());
+        }
+        return result;
+    }
+
+    private static List<Document> merge(List<List<Document>> results, int topK) {
+        if (results == null) {
+            return List.of();
+        }
+        return results.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingDouble((Document d) -> d.getScore() != null ? d.getScore() : 0.0).reversed())
+                .limit(topK)
+                .toList();
+    }
+}
@@ -1,57 +1,28 @@
 package cn.refinex.ai.infrastructure.ai;
 
+import cn.refinex.ai.infrastructure.config.ModelRegistryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.audio.tts.TextToSpeechModel;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * TextToSpeechModel 缓存注册表
  * <p>
- * 以 provisionId 为 key 缓存已创建的 TextToSpeechModel 实例。
+ * 以 provisionId 为 key 缓存已创建的 TextToSpeechModel 实例，容量、空闲过期与资源释放见 {@link ModelClientRegistry}。
  *
  * @author refinex
  */
 @Component
-public class SpeechModelRegistry {
-
-    private final ConcurrentHashMap<Long, TextToSpeechModel> cache = new ConcurrentHashMap<>();
-
-    /**
-     * 从缓存获取 TextToSpeechModel
-     *
-     * @param provisionId 租户模型开通ID
-     * @return TextToSpeechModel 实例，未命中返回 null
-     */
-    public TextToSpeechModel get(Long provisionId) {
-        return cache.get(provisionId);
-    }
-
-    /**
-     * 写入缓存
-     *
-     * @param provisionId 租户模型开通ID
-     * @param model       TextToSpeechModel 实例
-     * @return 写入的 TextToSpeechModel 实例
-     */
-    public TextToSpeechModel put(Long provisionId, TextToSpeechModel model) {
-        cache.put(provisionId, model);
-        return model;
-    }
+public class SpeechModelRegistry extends ModelClientRegistry<TextToSpeechModel> {
 
     /**
-     * 驱逐单条缓存
+     * 构造函数
      *
-     * @param provisionId 租户模型开通ID
-     */
-    public void evict(Long provisionId) {
-        cache.remove(provisionId);
-    }
-
-    /**
-     * 清空全部缓存
+     * @param properties            注册表配置
+     * @param meterRegistryProvider 指标注册表
      */
-    public void evictAll() {
-        cache.clear();
+    public SpeechModelRegistry(ModelRegistryProperties properties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        super("speech", properties, meterRegistryProvider);
     }
 }
@@ -0,0 +1,185 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.TokenizerProperties;
+import cn.refinex.base.exception.BizException;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * token 计数器（BPE 分词）
+ * <p>
+ * 按模型选择 tiktoken 编码：OpenAI 新一代模型（gpt-4o / gpt-4.1 / gpt-5 / o 系列）使用 o200k_base，
+ * 旧模型按 JTokkit 内置的模型映射（gpt-4 / gpt-3.5 为 cl100k_base）；DeepSeek、GLM、MiniMax、Claude 等没有公开词表，
+ * 使用默认编码近似，可按供应商编码覆盖。编码按 (providerCode, modelCode) 缓存，词表在首次使用时加载。
+ * <p>
+ * 长文本按约 16K 字符分段计数，只分配分段字符串、不生成 token 列表；分段优先切在“字母或数字 + 空格”处，
+ * 与预分词边界一致，无空格的长段（如连续中文）每个分段边界至多产生 1 个 token 的误差。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class TokenCounter {
+
+    /**
+     * 分段字符数
+     */
+    private static final int SEGMENT_CHARS = 16 * 1024;
+
+    /**
+     * 分段末尾向前查找空格的最大字符数
+     */
+    private static final int BOUNDARY_SEARCH_CHARS = 1024;
+
+    /**
+     * 使用 o200k_base 的模型编码前缀（JTokkit 内置映射未覆盖的新模型）
+     */
+    private static final List<String> O200K_MODEL_PREFIXES = List.of(
+            "gpt-4o", "gpt-4.1", "gpt-4.5", "gpt-5", "chatgpt-", "o1", "o3", "o4");
+
+    private final TokenizerProperties properties;
+    private final ProvisionSnapshotCache provisionSnapshotCache;
+    private final EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+    private final Encoding defaultEncoding;
+    private final Map<String, Encoding> encodings = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param properties             分词器配置
+     * @param provisionSnapshotCache 租户模型开通快照缓存
+     */
+    public TokenCounter(TokenizerProperties properties, ProvisionSnapshotCache provisionSnapshotCache) {
+        this.properties = properties;
+        this.provisionSnapshotCache = provisionSnapshotCache;
+        this.defaultEncoding = registry.getEncoding(properties.getDefaultEncoding())
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Unknown tokenizer encoding: " + properties.getDefaultEncoding()));
+    }
+
+    /**
+     * 使用默认编码计数（不区分模型的文本，如文档内容）
+     *
+     * @param text 文本
+     * @return token 数
+     */
+    public int count(CharSequence text) {
+        return count(defaultEncoding, text);
+    }
+
+    /**
+     * 使用模型开通对应的编码计数
+     *
+     * @param provisionId 租户模型开通ID
+     * @param text        文本
+     * @return token 数
+     */
+    public int count(Long provisionId, CharSequence text) {
+        return count(encodingForProvision(provisionId), text);
+    }
+
+    /**
+     * 使用指定编码计数
+     *
+     * @param encoding 编码
+     * @param text     文本
+     * @return token 数
+     */
+    public int count(Encoding encoding, CharSequence text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int length = text.length();
+        if (length <= SEGMENT_CHARS) {
+            return encoding.countTokensOrdinary(text.toString());
+        }
+
+        int total = 0;
+        int start = 0;
+        while (start < length) {
+            int end = segmentEnd(text, start, length);
+            total += encoding.countTokensOrdinary(text.subSequence(start, end).toString());
+            start = end;
+        }
+        return total;
+    }
+
+    /**
+     * 模型开通对应的编码，开通不可用时返回默认编码
+     *
+     * @param provisionId 租户模型开通ID
+     * @return 编码
+     */
+    public Encoding encodingForProvision(Long provisionId) {
+        if (provisionId == null) {
+            return defaultEncoding;
+        }
+        try {
+            ProvisionSnapshotCache.ResolvedProvision resolved = provisionSnapshotCache.requireActive(provisionId);
+            return encodingFor(resolved.provider().getProviderCode(), resolved.model().getModelCode());
+        } catch (BizException e) {
+            return defaultEncoding;
+        }
+    }
+
+    /**
+     * 模型对应的编码
+     *
+     * @param providerCode 供应商编码（可为 null）
+     * @param modelCode    模型编码（可为 null）
+     * @return 编码
+     */
+    public Encoding encodingFor(String providerCode, String modelCode) {
+        return encodings.computeIfAbsent(providerCode + ':' + modelCode, key -> resolve(providerCode, modelCode));
+    }
+
+    private Encoding resolve(String providerCode, String modelCode) {
+        String override = providerCode != null ? properties.getProviders().get(providerCode) : null;
+        if (override != null) {
+            Optional<Encoding> encoding = registry.getEncoding(override);
+            if (encoding.isPresent()) {
+                return encoding.get();
+            }
+            log.warn("未知的分词编码，使用默认编码: providerCode={}, encoding={}", providerCode, override);
+            return defaultEncoding;
+        }
+
+        if (modelCode != null) {
+            String model = modelCode.toLowerCase(Locale.ROOT);
+            if (O200K_MODEL_PREFIXES.stream().anyMatch(model::startsWith)) {
+                return registry.getEncoding(EncodingType.O200K_BASE);
+            }
+            Optional<Encoding> known = registry.getEncodingForModel(model);
+            if (known.isPresent()) {
+                return known.get();
+            }
+        }
+        return defaultEncoding;
+    }
+
+    /**
+     * 分段结束位置：优先切在字母或数字后的空格前，找不到时按分段长度切分（不拆开代理对）
+     */
+    private static int segmentEnd(CharSequence text, int start, int length) {
+        int limit = start + SEGMENT_CHARS;
+        if (limit >= length) {
+            return length;
+        }
+        for (int i = limit; i > limit - BOUNDARY_SEARCH_CHARS; i--) {
+            if (text.charAt(i) == ' ' && Character.isLetterOrDigit(text.charAt(i - 1))) {
+                return i;
+            }
+        }
+        return Character.isLowSurrogate(text.charAt(limit)) ? limit - 1 : limit;
+    }
+}
@@ -0,0 +1,355 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * 向量量化编码
+ * <p>
+ * 供 {@link HnswIndex} 在图检索阶段用紧凑编码近似计算相似度，编码与全精度向量分文件存放，
+ * 检索时只有重排的少量候选读取全精度向量：
+ * <ul>
+ *     <li>{@link #int8(int)}：标量量化，每个分量 1 字节 + 每条向量 4 字节缩放系数，约为 float32 的 1/4</li>
+ *     <li>{@link #product(int, int, List)}：乘积量化，向量按子空间切分，每个子空间用 256 个聚类中心之一（1 字节）表示，
+ *     子空间维度为 4 时约为 float32 的 1/16；查询时先算出查询向量与各聚类中心的点积表，逐条编码只需查表求和</li>
+ * </ul>
+ * 输入向量均已归一化，相似度为点积。
+ *
+ * @author refinex
+ */
+public abstract sealed class VectorQuantizer {
+
+    /**
+     * 乘积量化每个子空间的聚类中心数（编码为 1 字节）
+     */
+    private static final int CENTROIDS = 256;
+
+    /**
+     * 乘积量化训练的 k-means 迭代次数
+     */
+    private static final int KMEANS_ITERATIONS = 8;
+
+    private static final byte TYPE_INT8 = 1;
+    private static final byte TYPE_PRODUCT = 2;
+
+    protected final int dimensions;
+
+    private VectorQuantizer(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * 创建标量量化编码
+     *
+     * @param dimensions 向量维度
+     * @return 编码器
+     */
+    public static VectorQuantizer int8(int dimensions) {
+        return new Int8(dimensions);
+    }
+
+    /**
+     * 训练乘积量化编码（各子空间并行执行 k-means）
+     *
+     * @param dimensions           向量维度
+     * @param subvectorDimensions  子空间维度（最后一个子空间可能更短）
+     * @param samples              训练样本（已归一化）
+     * @return 编码器
+     */
+    public static VectorQuantizer product(int dimensions, int subvectorDimensions, List<float[]> samples) {
+        int width = Math.max(1, Math.min(subvectorDimensions, dimensions));
+        int subspaces = (dimensions + width - 1) / width;
+        float[][][] codebooks = new float[subspaces][][];
+        IntStream.range(0, subspaces).parallel().forEach(s -> {
+            int from = s * width;
+            int to = Math.min(dimensions, from + width);
+            codebooks[s] = kmeans(samples, from, to, s);
+        });
+        return new Product(dimensions, width, codebooks);
+    }
+
+    /**
+     * 读取持久化的编码器
+     *
+     * @param in 输入流
+     * @return 编码器
+     * @throws IOException 格式错误
+     */
+    public static VectorQuantizer read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        int dimensions = in.readInt();
+        return switch (type) {
+            case TYPE_INT8 -> new Int8(dimensions);
+            case TYPE_PRODUCT -> {
+                int width = in.readInt();
+                float[][][] codebooks = new float[in.readInt()][][];
+                for (int s = 0; s < codebooks.length; s++) {
+                    codebooks[s] = new float[in.readInt()][in.readInt()];
+                    for (float[] centroid : codebooks[s]) {
+                        for (int i = 0; i < centroid.length; i++) {
+                            centroid[i] = in.readFloat();
+                        }
+                    }
+                }
+                yield new Product(dimensions, width, codebooks);
+            }
+            default -> throw new IOException("未知的量化类型: " + type);
+        };
+    }
+
+    /**
+     * 向量维度
+     *
+     * @return 维度
+     */
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 量化模式名称（与配置一致）
+     *
+     * @return int8 / pq
+     */
+    public abstract String mode();
+
+    /**
+     * 单条编码的字节数
+     *
+     * @return 字节数
+     */
+    public abstract int codeBytes();
+
+    /**
+     * 编码向量
+     *
+     * @param vector 归一化向量
+     * @param target 目标缓冲区
+     * @param offset 写入位置
+     */
+    public abstract void encode(float[] vector, ByteBuffer target, int offset);
+
+    /**
+     * 为查询向量预计算打分所需的数据
+     *
+     * @param query 归一化查询向量
+     * @return 查询表
+     */
+    public abstract float[] prepare(float[] query);
+
+    /**
+     * 用编码近似计算与查询向量的点积
+     *
+     * @param table  {@link #prepare(float[])} 的结果
+     * @param codes  编码缓冲区
+     * @param offset 编码位置
+     * @return 近似点积
+     */
+    public abstract float score(float[] table, ByteBuffer codes, int offset);
+
+    /**
+     * 持久化编码器
+     *
+     * @param out 输出流
+     * @throws IOException 写入失败
+     */
+    public abstract void write(DataOutputStream out) throws IOException;
+
+    /**
+     * 在 [from, to) 子空间上训练聚类中心
+     */
+    private static float[][] kmeans(List<float[]> samples, int from, int to, long seed) {
+        int width = to - from;
+        int k = Math.min(CENTROIDS, samples.size());
+        Random random = new Random(seed);
+        float[][] centroids = new float[k][];
+        for (int c = 0; c < k; c++) {
+            centroids[c] = slice(samples.get(random.nextInt(samples.size())), from, to);
+        }
+        int[] assignment = new int[samples.size()];
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            for (int n = 0; n < samples.size(); n++) {
+                assignment[n] = nearest(centroids, samples.get(n), from, width);
+            }
+            float[][] sums = new float[k][width];
+            int[] counts = new int[k];
+            for (int n = 0; n < samples.size(); n++) {
+                float[] sample = samples.get(n);
+                float[] sum = sums[assignment[n]];
+                for (int i = 0; i < width; i++) {
+                    sum[i] += sample[from + i];
+                }
+                counts[assignment[n]]++;
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // 空簇重新随机取样，避免聚类中心浪费
+                    centroids[c] = slice(samples.get(random.nextInt(samples.size())), from, to);
+                    continue;
+                }
+                for (int i = 0; i < width; i++) {
+                    centroids[c][i] = sums[c][i] / counts[c];
+                }
+            }
+        }
+        return centroids;
+    }
+
+    private static int nearest(float[][] centroids, float[] vector, int from, int width) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < centroids.length; c++) {
+            float distance = 0;
+            for (int i = 0; i < width; i++) {
+                float d = vector[from + i] - centroids[c][i];
+                distance += d * d;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static float[] slice(float[] vector, int from, int to) {
+        float[] slice = new float[to - from];
+        System.arraycopy(vector, from, slice, 0, slice.length);
+        return slice;
+    }
+
+    /**
+     * 标量量化：code = round(v / scale)，scale = max|v| / 127
+     */
+    private static final class Int8 extends VectorQuantizer {
+
+        private Int8(int dimensions) {
+            super(dimensions);
+        }
+
+        @Override
+        public String mode() {
+            return "int8";
+        }
+
+        @Override
+        public int codeBytes() {
+            return Float.BYTES + dimensions;
+        }
+
+        @Override
+        public void encode(float[] vector, ByteBuffer target, int offset) {
+            float max = 0;
+            for (float v : vector) {
+                max = Math.max(max, Math.abs(v));
+            }
+            float scale = max == 0 ? 1 : max / 127;
+            target.putFloat(offset, scale);
+            for (int i = 0; i < dimensions; i++) {
+                target.put(offset + Float.BYTES + i, (byte) Math.round(vector[i] / scale));
+            }
+        }
+
+        @Override
+        public float[] prepare(float[] query) {
+            return query;
+        }
+
+        @Override
+        public float score(float[] table, ByteBuffer codes, int offset) {
+            float scale = codes.getFloat(offset);
+            int base = offset + Float.BYTES;
+            float sum = 0;
+            for (int i = 0; i < dimensions; i++) {
+                sum += codes.get(base + i) * table[i];
+            }
+            return sum * scale;
+        }
+
+        @Override
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(TYPE_INT8);
+            out.writeInt(dimensions);
+        }
+    }
+
+    /**
+     * 乘积量化：每个子空间记录最近聚类中心的下标
+     */
+    private static final class Product extends VectorQuantizer {
+
+        private final int width;
+        private final float[][][] codebooks;
+
+        private Product(int dimensions, int width, float[][][] codebooks) {
+            super(dimensions);
+            this.width = width;
+            this.codebooks = codebooks;
+        }
+
+        @Override
+        public String mode() {
+            return "pq";
+        }
+
+        @Override
+        public int codeBytes() {
+            return codebooks.length;
+        }
+
+        @Override
+        public void encode(float[] vector, ByteBuffer target, int offset) {
+            for (int s = 0; s < codebooks.length; s++) {
+                target.put(offset + s, (byte) nearest(codebooks[s], vector, s * width, Math.min(width, dimensions - s * width)));
+            }
+        }
+
+        @Override
+        public float[] prepare(float[] query) {
+            float[] table = new float[codebooks.length * CENTROIDS];
+            for (int s = 0; s < codebooks.length; s++) {
+                int from = s * width;
+                for (int c = 0; c < codebooks[s].length; c++) {
+                    float[] centroid = codebooks[s][c];
+                    float dot = 0;
+                    for (int i = 0; i < centroid.length; i++) {
+                        dot += centroid[i] * query[from + i];
+                    }
+                    table[s * CENTROIDS + c] = dot;
+                }
+            }
+            return table;
+        }
+
+        @Override
+        public float score(float[] table, ByteBuffer codes, int offset) {
+            float sum = 0;
+            for (int s = 0; s < codebooks.length; s++) {
+                sum += table[s * CENTROIDS + (codes.get(offset + s) & 0xFF)];
+            }
+            return sum;
+        }
+
+        @Override
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(TYPE_PRODUCT);
+            out.writeInt(dimensions);
+            out.writeInt(width);
+            out.writeInt(codebooks.length);
+            for (float[][] codebook : codebooks) {
+                out.writeInt(codebook.length);
+                out.writeInt(codebook[0].length);
+                for (float[] centroid : codebook) {
+                    for (float v : centroid) {
+                        out.writeFloat(v);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -39,20 +39,23 @@ public class VectorStoreFactory {
     private final ObjectProvider<JedisPooled> jedisPooledProvider;
     private final ObjectProvider<JdbcTemplate> jdbcTemplateProvider;
     private final ObjectProvider<RestClient> esRestClientProvider;
+    private final HnswIndexRegistry hnswIndexRegistry;
 
     /**
      * 根据后端类型创建 VectorStore 实例
      *
-     * @param provider       向量存储后端类型
-     * @param embeddingModel 嵌入模型
+     * @param provider             向量存储后端类型
+     * @param embeddingModel       嵌入模型
+     * @param embeddingProvisionId 嵌入模型开通ID（进程内索引按嵌入模型分目录存储）
      * @return VectorStore 实例
      */
-    public VectorStore create(VectorStoreProvider provider, EmbeddingModel embeddingModel) {
+    public VectorStore create(VectorStoreProvider provider, EmbeddingModel embeddingModel, Long embeddingProvisionId) {
         return switch (provider) {
             case REDIS -> createRedis(embeddingModel);
             case ELASTICSEARCH -> createElasticsearch(embeddingModel);
             case PGVECTOR -> createPgVector(embeddingModel);
             case QDRANT -> createQdrant(embeddingModel);
+            case HNSW -> createHnsw(embeddingModel, embeddingProvisionId);
             case SIMPLE -> createSimple(embeddingModel);
         };
     }
@@ -161,6 +164,22 @@ public class VectorStoreFactory {
         return store;
     }
 
+    /**
+     * 创建进程内 HNSW VectorStore
+     *
+     * @param embeddingModel       嵌入模型
+     * @param embeddingProvisionId 嵌入模型开通ID
+     * @return HnswVectorStore 实例
+     */
+    private VectorStore createHnsw(EmbeddingModel embeddingModel, Long embeddingProvisionId) {
+        VectorStoreProperties.HnswProperties hnswCfg = properties.getHnsw();
+        HnswIndex index = hnswIndexRegistry.open(embeddingProvisionId);
+
+        log.info("创建 HNSW VectorStore: provisionId={}, nodes={}, efSearch={}",
+                embeddingProvisionId, index.liveCount(), hnswCfg.getEfSearch());
+        return new HnswVectorStore(index, embeddingModel, hnswCfg.getEfSearch());
+    }
+
     /**
      * 创建 SimpleVectorStore（内存/文件，开发测试用）
      *
@@ -0,0 +1,162 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.ModelRegistryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.qdrant.client.QdrantClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.qdrant.QdrantVectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * VectorStore 缓存注册表
+ * <p>
+ * 以嵌入模型 provisionId 为 key 缓存 VectorStore 实例。Redis / Elasticsearch / PGvector 复用容器级共享客户端，
+ * HNSW 索引由 {@link HnswIndexRegistry} 持有，淘汰时均不关闭；Qdrant 每个实例独占一个 gRPC 连接，需要关闭。
+ * <p>
+ * 使用方通过 {@link #acquire(Long, Function)} 租用实例、用完关闭租约。缓存条目被淘汰或驱逐（如开通配置刷新）时只标记退役，
+ * 进行中的检索与向量化任务继续使用原实例，最后一个租约归还后才关闭底层连接；退役后新的租用会构建新实例。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class VectorStoreRegistry extends ModelClientRegistry<VectorStoreRegistry.Entry> {
+
+    /**
+     * 构造函数
+     *
+     * @param properties            注册表配置
+     * @param meterRegistryProvider 指标注册表
+     */
+    public VectorStoreRegistry(ModelRegistryProperties properties, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        super("vector-store", properties, meterRegistryProvider);
+    }
+
+    /**
+     * 租用 VectorStore，未命中时构建并缓存
+     *
+     * @param provisionId 嵌入模型开通ID
+     * @param builder     构建函数
+     * @return 租约，使用完毕后必须关闭
+     */
+    public Lease acquire(Long provisionId, Function<Long, ? extends VectorStore> builder) {
+        while (true) {
+            Entry entry = getOrBuild(provisionId, key -> new Entry(provisionId, builder.apply(key)));
+            if (entry.retain()) {
+                return new Lease(entry);
+            }
+            // 取到的实例恰好被淘汰，重新获取（缓存中已是新实例或重新构建）
+        }
+    }
+
+    /**
+     * 缓存条目淘汰：标记退役，没有进行中的租约时立即关闭底层连接
+     *
+     * @param entry 缓存条目
+     */
+    @Override
+    protected void release(Entry entry) {
+        if (entry.retire()) {
+            close(entry);
+        }
+    }
+
+    /**
+     * 关闭 VectorStore 独占的底层连接
+     *
+     * @param entry 缓存条目
+     */
+    private static void close(Entry entry) {
+        try {
+            if (entry.store instanceof QdrantVectorStore) {
+                entry.store.<QdrantClient>getNativeClient().ifPresent(QdrantClient::close);
+            }
+            log.debug("VectorStore 已关闭: provisionId={}", entry.provisionId);
+        } catch (Exception e) {
+            log.warn("关闭 VectorStore 失败: provisionId={}", entry.provisionId, e);
+        }
+    }
+
+    /**
+     * 缓存条目：VectorStore 及其进行中的租约数
+     */
+    public static final class Entry {
+
+        private final Long provisionId;
+        private final VectorStore store;
+        private int leases;
+        private boolean retired;
+
+        private Entry(Long provisionId, VectorStore store) {
+            this.provisionId = provisionId;
+            this.store = store;
+        }
+
+        /**
+         * 增加租约
+         *
+         * @return 条目已退役时返回 false
+         */
+        private synchronized boolean retain() {
+            if (retired) {
+                return false;
+            }
+            leases++;
+            return true;
+        }
+
+        /**
+         * 归还租约
+         *
+         * @return 条目已退役且这是最后一个租约时返回 true（需要关闭）
+         */
+        private synchronized boolean unretain() {
+            leases--;
+            return retired && leases == 0;
+        }
+
+        /**
+         * 标记退役
+         *
+         * @return 没有进行中的租约时返回 true（需要关闭）
+         */
+        private synchronized boolean retire() {
+            retired = true;
+            return leases == 0;
+        }
+    }
+
+    /**
+     * VectorStore 租约，关闭时归还（重复关闭无副作用）
+     */
+    public static final class Lease implements AutoCloseable {
+
+        private final Entry entry;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * 租用的 VectorStore，仅在租约关闭前使用
+         *
+         * @return VectorStore 实例
+         */
+        public VectorStore store() {
+            return entry.store;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true) && entry.unretain()) {
+                VectorStoreRegistry.close(entry);
+            }
+        }
+    }
+}
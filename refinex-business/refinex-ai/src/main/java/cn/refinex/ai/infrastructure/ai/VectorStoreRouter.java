@@ -11,13 +11,14 @@ import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * VectorStore 路由器
  * <p>
- * 按嵌入模型 provisionId 缓存 VectorStore 实例。
+ * 按嵌入模型 provisionId 缓存 VectorStore 实例（{@link VectorStoreRegistry}，有界 + 空闲过期）。
+ * 调用方以租约方式使用（try-with-resources），缓存刷新时进行中的调用不会因底层连接被关闭而失败。
  * 同一嵌入模型的多个知识库共享同一 VectorStore 实例，通过 metadata 隔离数据。
+ * VectorStore 绑定的嵌入模型经 {@link PrecomputedEmbeddingModel} 包装，写入时优先使用向量化流水线预计算的向量；
+ * 内层经 {@link BatchingEmbeddingModel} 包装，检索查询与其他并发查询合并为批量请求。
  *
  * @author refinex
  */
@@ -29,29 +30,40 @@ public class VectorStoreRouter {
     private final VectorStoreProperties vectorStoreProperties;
     private final VectorStoreFactory vectorStoreFactory;
     private final EmbeddingModelRouter embeddingModelRouter;
-    private final ConcurrentHashMap<Long, VectorStore> cache = new ConcurrentHashMap<>();
+    private final VectorStoreRegistry vectorStoreRegistry;
+    private final PrecomputedEmbeddings precomputedEmbeddings;
+    private final QueryEmbeddingBatcher queryEmbeddingBatcher;
 
     /**
-     * 为知识库解析 VectorStore
+     * 为知识库租用 VectorStore
      *
      * @param kb 知识库实体
-     * @return VectorStore 实例
+     * @return VectorStore 租约，使用完毕后必须关闭
      */
-    public VectorStore resolve(KnowledgeBaseEntity kb) {
+    public VectorStoreRegistry.Lease acquire(KnowledgeBaseEntity kb) {
         if (kb.getVectorized() == null || kb.getVectorized() != 1) {
             throw new BizException(AiErrorCode.KB_NOT_VECTORIZED);
         }
 
+        return acquire(embeddingModelRouter.resolveProvisionIdForKnowledgeBase(kb));
+    }
+
+    /**
+     * 按嵌入模型 provisionId 租用 VectorStore
+     *
+     * @param embeddingProvisionId 嵌入模型开通ID
+     * @return VectorStore 租约，使用完毕后必须关闭
+     */
+    public VectorStoreRegistry.Lease acquire(Long embeddingProvisionId) {
         VectorStoreProvider provider = VectorStoreProvider.fromCode(vectorStoreProperties.getProvider());
         if (provider == null) {
             throw new BizException(AiErrorCode.VECTOR_STORE_NOT_CONFIGURED);
         }
 
-        Long embeddingProvisionId = embeddingModelRouter.resolveProvisionIdForKnowledgeBase(kb);
-
-        return cache.computeIfAbsent(embeddingProvisionId, key -> {
-            EmbeddingModel embeddingModel = embeddingModelRouter.resolve(key);
-            VectorStore store = vectorStoreFactory.create(provider, embeddingModel);
+        return vectorStoreRegistry.acquire(embeddingProvisionId, key -> {
+            EmbeddingModel batching = new BatchingEmbeddingModel(embeddingModelRouter.resolve(key), key, queryEmbeddingBatcher);
+            EmbeddingModel embeddingModel = new PrecomputedEmbeddingModel(batching, precomputedEmbeddings);
+            VectorStore store = vectorStoreFactory.create(provider, embeddingModel, key);
             log.info("创建 VectorStore 缓存: provisionId={}, provider={}", key, provider.getCode());
             return store;
         });
@@ -63,13 +75,13 @@ public class VectorStoreRouter {
      * @param embeddingProvisionId 嵌入模型开通ID
      */
     public void evict(Long embeddingProvisionId) {
-        cache.remove(embeddingProvisionId);
+        vectorStoreRegistry.evict(embeddingProvisionId);
     }
 
     /**
      * 清空全部 VectorStore 缓存
      */
     public void evictAll() {
-        cache.clear();
+        vectorStoreRegistry.evictAll();
     }
 }
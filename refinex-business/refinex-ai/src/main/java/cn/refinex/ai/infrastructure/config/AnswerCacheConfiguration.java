@@ -0,0 +1,16 @@
+package cn.refinex.ai.infrastructure.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 语义回答缓存配置类
+ * <p>
+ * 仅启用 Properties 绑定，缓存由 {@link cn.refinex.ai.infrastructure.ai.AnswerCache} 实现。
+ *
+ * @author refinex
+ */
+@Configuration
+@EnableConfigurationProperties(AnswerCacheProperties.class)
+public class AnswerCacheConfiguration {
+}
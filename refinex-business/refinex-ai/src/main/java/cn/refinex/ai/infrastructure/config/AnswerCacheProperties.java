@@ -0,0 +1,54 @@
+package cn.refinex.ai.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 语义回答缓存配置属性
+ * <p>
+ * 缓存作用域为 (组织, 对话模型, 知识库集合及其向量化版本, 系统提示词哈希, RAG 参数)，作用域内按问题向量的余弦相似度匹配。
+ * 仅对新建对话的首轮纯文本提问生效（多轮对话的回答依赖历史消息，不可复用）。
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.answer-cache")
+public class AnswerCacheProperties {
+
+    /**
+     * 是否启用语义回答缓存（默认关闭，按需开启）
+     */
+    private boolean enabled = false;
+
+    /**
+     * 命中所需的最低问题相似度
+     */
+    private double similarityThreshold = 0.95;
+
+    /**
+     * 单个作用域保留的最近回答数，超出时淘汰最早的回答
+     */
+    private int maxEntriesPerScope = 100;
+
+    /**
+     * 缓存回答的有效期
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * 本地缓存的作用域数上限
+     */
+    private int localMaximumScopes = 1000;
+
+    /**
+     * 本地作用域从 Redis 重新加载的间隔（多实例间新写入的回答在此间隔后可见）
+     */
+    private Duration localRefreshInterval = Duration.ofMinutes(1);
+
+    /**
+     * 回放时单个 answer 事件的字符数
+     */
+    private int replayChunkSize = 32;
+}
@@ -1,11 +1,16 @@
 package cn.refinex.ai.infrastructure.config;
 
+import cn.refinex.ai.infrastructure.persistence.repository.AppendOnlyChatMemoryRepository;
+import org.redisson.api.RedissonClient;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
-import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
 
 /**
  * ChatMemory 配置
@@ -13,32 +18,42 @@ import org.springframework.jdbc.core.JdbcTemplate;
  * @author refinex
  */
 @Configuration
+@EnableConfigurationProperties(ChatMemoryProperties.class)
 public class ChatMemoryConfiguration {
 
     /**
-     * 手动创建 JdbcChatMemoryRepository（替代 Spring AI 自动配置，因其引用了 Boot 3.x 已移除的 JdbcTemplateAutoConfiguration）
+     * 只追加的聊天记忆仓储（替代 Spring AI 的 JdbcChatMemoryRepository，后者每轮对话删除并重写整个窗口）
      *
-     * @param jdbcTemplate JdbcTemplate（由 Spring Boot 自动配置）
-     * @return JdbcChatMemoryRepository 实例
+     * @param properties         聊天记忆配置
+     * @param jdbcTemplate       JdbcTemplate（由 Spring Boot 自动配置）
+     * @param transactionManager 事务管理器
+     * @param redissonClient     Redisson 客户端
+     * @param jsonMapper         JSON 序列化
+     * @return AppendOnlyChatMemoryRepository 实例
      */
     @Bean
-    public JdbcChatMemoryRepository jdbcChatMemoryRepository(JdbcTemplate jdbcTemplate) {
-        return JdbcChatMemoryRepository.builder()
-                .jdbcTemplate(jdbcTemplate)
-                .build();
+    public AppendOnlyChatMemoryRepository appendOnlyChatMemoryRepository(ChatMemoryProperties properties,
+                                                                         JdbcTemplate jdbcTemplate,
+                                                                         PlatformTransactionManager transactionManager,
+                                                                         RedissonClient redissonClient,
+                                                                         ObjectMapper jsonMapper) {
+        return new AppendOnlyChatMemoryRepository(properties, jdbcTemplate,
+                new TransactionTemplate(transactionManager), redissonClient, jsonMapper);
     }
 
     /**
-     * 基于 JDBC 的 ChatMemory（滑动窗口策略，最多保留 20 条消息）
+     * ChatMemory（滑动窗口策略，窗口大小见 refinex.chat-memory.max-messages）
      *
-     * @param jdbcChatMemoryRepository JDBC 聊天记忆仓储
+     * @param properties                     聊天记忆配置
+     * @param appendOnlyChatMemoryRepository 只追加的聊天记忆仓储
      * @return ChatMemory 实例
      */
     @Bean
-    public ChatMemory chatMemory(JdbcChatMemoryRepository jdbcChatMemoryRepository) {
+    public ChatMemory chatMemory(ChatMemoryProperties properties,
+                                 AppendOnlyChatMemoryRepository appendOnlyChatMemoryRepository) {
         return MessageWindowChatMemory.builder()
-                .chatMemoryRepository(jdbcChatMemoryRepository)
-                .maxMessages(20)
+                .chatMemoryRepository(appendOnlyChatMemoryRepository)
+                .maxMessages(properties.getMaxMessages())
                 .build();
     }
 }
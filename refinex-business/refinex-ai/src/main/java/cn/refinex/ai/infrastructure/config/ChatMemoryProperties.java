@@ -0,0 +1,96 @@
+package cn.refinex.ai.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 聊天记忆配置属性
+ * <p>
+ * 消息只追加不重写：活跃窗口保存在 Redis，MySQL 按批异步写入完整历史，详见
+ * {@link cn.refinex.ai.infrastructure.persistence.repository.AppendOnlyChatMemoryRepository}。
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.chat-memory")
+public class ChatMemoryProperties {
+
+    /**
+     * 滑动窗口保留的消息数（发送给模型的历史上下文）
+     */
+    private int maxMessages = 20;
+
+    /**
+     * 是否启用 Redis 热数据层，关闭后窗口直接从 MySQL 读取
+     */
+    private boolean redisEnabled = true;
+
+    /**
+     * Redis 窗口的空闲过期时间，过期后从 MySQL 重新加载
+     */
+    private Duration redisTtl = Duration.ofHours(24);
+
+    /**
+     * 异步写入 MySQL 的间隔
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * 单次写入 MySQL 的最大消息数
+     */
+    private int flushBatchSize = 500;
+
+    /**
+     * 待写入消息数上限，超出时由调用线程同步写入（背压）
+     */
+    private int maxPending = 50000;
+
+    /**
+     * 历史压缩配置
+     */
+    private CompactionProperties compaction = new CompactionProperties();
+
+    /**
+     * 历史压缩配置：记忆窗口超出模型 token 预算时，较早的消息由低价模型异步压缩为摘要，固定在窗口首位
+     */
+    @Data
+    public static class CompactionProperties {
+
+        /**
+         * 是否启用历史压缩
+         */
+        private boolean enabled = true;
+
+        /**
+         * 历史预算占模型可用上下文（最大上下文窗口 - 最大输出 token 数）的比例
+         */
+        private double budgetRatio = 0.5;
+
+        /**
+         * 历史预算上限（token 数），控制长上下文模型每轮的输入成本，0 表示不限制
+         */
+        private int maxHistoryTokens = 16000;
+
+        /**
+         * 模型未配置上下文窗口时使用的历史预算（token 数）
+         */
+        private int defaultHistoryTokens = 4000;
+
+        /**
+         * 压缩后保留的近期消息占历史预算的比例
+         */
+        private double retainRatio = 0.5;
+
+        /**
+         * 压缩后至少保留的近期消息数
+         */
+        private int minRetainMessages = 2;
+
+        /**
+         * 摘要模型编码（需已为组织开通），为空时选用组织已开通对话模型中价格最低者
+         */
+        private String summaryModelCode;
+    }
+}
@@ -0,0 +1,16 @@
+package cn.refinex.ai.infrastructure.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 文档内容提取配置类
+ * <p>
+ * 仅启用 Properties 绑定，解析由 {@link cn.refinex.ai.infrastructure.ai.DocumentContentExtractor} 执行。
+ *
+ * @author refinex
+ */
+@Configuration
+@EnableConfigurationProperties(DocumentExtractionProperties.class)
+public class DocumentExtractionConfiguration {
+}
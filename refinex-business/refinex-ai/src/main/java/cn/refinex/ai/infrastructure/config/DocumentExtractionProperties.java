@@ -0,0 +1,45 @@
+package cn.refinex.ai.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 文档内容提取配置属性
+ * <p>
+ * 文档解析在独立的有界线程池中以流式方式执行：Tika 解析事件直接写入文本缓冲区，不再物化分页 Document 列表。
+ * 单篇文档的堆内存占用受 {@link #maxChars} 约束，同时解析的文档数受 {@link #concurrency} 约束。
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.document-extraction")
+public class DocumentExtractionProperties {
+
+    /**
+     * 同时解析的文档数上限
+     */
+    private int concurrency = 2;
+
+    /**
+     * 排队等待解析的请求数上限，超出后直接拒绝
+     */
+    private int queueCapacity = 16;
+
+    /**
+     * 单篇文档解析超时（含排队时间）
+     */
+    private Duration timeout = Duration.ofMinutes(5);
+
+    /**
+     * 提取文本的字符数上限，超出后中止解析
+     */
+    private int maxChars = 10_000_000;
+
+    /**
+     * PDF 解析时 PDFBox 使用的堆内存上限，超出部分落临时文件
+     */
+    private DataSize pdfMaxMainMemory = DataSize.ofMegabytes(64);
+}
@@ -0,0 +1,16 @@
+package cn.refinex.ai.infrastructure.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 模型客户端注册表配置类
+ * <p>
+ * 仅启用 Properties 绑定，各注册表由 {@link cn.refinex.ai.infrastructure.ai.ModelClientRegistry} 子类创建。
+ *
+ * @author refinex
+ */
+@Configuration
+@EnableConfigurationProperties(ModelRegistryProperties.class)
+public class ModelRegistryConfiguration {
+}
@@ -0,0 +1,28 @@
+package cn.refinex.ai.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 模型客户端注册表配置属性
+ * <p>
+ * 对 Chat / Embedding / Image / Speech / Transcription / Moderation 模型及 VectorStore 缓存统一生效（每类注册表独立计数）。
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.model-registry")
+public class ModelRegistryProperties {
+
+    /**
+     * 每类注册表最多缓存的客户端数量，超出后按 W-TinyLFU 淘汰
+     */
+    private long maximumSize = 500;
+
+    /**
+     * 空闲过期时间，超过该时间未被访问的客户端被淘汰并释放资源
+     */
+    private Duration expireAfterAccess = Duration.ofMinutes(30);
+}
@@ -0,0 +1,16 @@
+package cn.refinex.ai.infrastructure.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 仓储批量写入配置类
+ * <p>
+ * 仅启用 Properties 绑定，批量写入由 {@link cn.refinex.ai.infrastructure.persistence.repository.AiRepositoryImpl} 执行。
+ *
+ * @author refinex
+ */
+@Configuration
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class PersistenceConfiguration {
+}
@@ -0,0 +1,22 @@
+package cn.refinex.ai.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 仓储批量写入配置属性
+ * <p>
+ * 切片、技能工具关联、技能知识库关联等批量写入走 MyBatis BATCH 执行器，按 {@link #batchSize} 分段 flush。
+ * 数据源 URL 开启 {@code rewriteBatchedStatements=true} 后，驱动会将同一批次改写为多 VALUES 语句。
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.persistence")
+public class PersistenceProperties {
+
+    /**
+     * 单次 JDBC 批次包含的行数
+     */
+    private int batchSize = 500;
+}
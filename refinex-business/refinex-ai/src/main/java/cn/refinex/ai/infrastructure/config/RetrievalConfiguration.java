@@ -0,0 +1,16 @@
+package cn.refinex.ai.infrastructure.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 知识库检索配置类
+ * <p>
+ * 仅启用 Properties 绑定，混合检索由 {@link cn.refinex.ai.infrastructure.ai.HybridRetriever} 执行。
+ *
+ * @author refinex
+ */
+@Configuration
+@EnableConfigurationProperties(RetrievalProperties.class)
+public class RetrievalConfiguration {
+}
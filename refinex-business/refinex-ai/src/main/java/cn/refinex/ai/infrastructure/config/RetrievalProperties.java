@@ -0,0 +1,91 @@
+package cn.refinex.ai.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 知识库检索配置属性
+ * <p>
+ * 知识库检索（检索接口与对话 RAG）为混合检索：向量检索与切片全文检索并行召回候选，
+ * 再按倒数排名融合（RRF）取前 topK。两路各召回 topK × {@link #candidateMultiplier} 个候选（不超过 {@link #maxCandidates}）。
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.retrieval")
+public class RetrievalProperties {
+
+    /**
+     * 是否启用全文检索通道，关闭后退化为纯向量检索
+     */
+    private boolean lexicalEnabled = true;
+
+    /**
+     * 单路候选数相对 topK 的倍数
+     */
+    private int candidateMultiplier = 4;
+
+    /**
+     * 单路候选数上限
+     */
+    private int maxCandidates = 50;
+
+    /**
+     * RRF 平滑常数 k，得分为 Σ 1 / (k + 排名)
+     */
+    private int rrfK = 60;
+
+    /**
+     * 全文检索超时，超时或失败时仅使用向量检索结果
+     */
+    private Duration lexicalTimeout = Duration.ofSeconds(2);
+
+    /**
+     * 跨嵌入模型检索时单个 VectorStore 分组的超时，超时分组被跳过，返回其余分组的部分结果
+     */
+    private Duration storeTimeout = Duration.ofSeconds(3);
+
+    /**
+     * 检索查询向量化配置
+     */
+    private QueryEmbeddingProperties queryEmbedding = new QueryEmbeddingProperties();
+
+    /**
+     * 检索查询向量化配置：同一嵌入模型的并发单条查询在短窗口内合并为一次批量请求，结果按查询文本缓存
+     */
+    @Data
+    public static class QueryEmbeddingProperties {
+
+        /**
+         * 是否合并并发查询，关闭后每条查询单独请求
+         */
+        private boolean batchingEnabled = true;
+
+        /**
+         * 合并等待窗口：首条查询到达后最多等待该时长再发起请求
+         */
+        private Duration batchWindow = Duration.ofMillis(5);
+
+        /**
+         * 单次批量请求最多包含的查询数，攒满立即发起请求
+         */
+        private int maxBatchSize = 64;
+
+        /**
+         * 调用方等待所在批次返回的最长时间，超时后改为单独请求（批次请求卡住或调度积压时不阻塞检索线程）
+         */
+        private Duration batchTimeout = Duration.ofSeconds(2);
+
+        /**
+         * 查询向量缓存条数上限（按嵌入模型 + 查询文本 LRU 淘汰），0 表示不缓存
+         */
+        private int cacheMaximumSize = 10000;
+
+        /**
+         * 查询向量缓存过期时间
+         */
+        private Duration cacheExpireAfterWrite = Duration.ofMinutes(10);
+    }
+}
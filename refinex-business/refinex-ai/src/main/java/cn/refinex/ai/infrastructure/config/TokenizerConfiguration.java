@@ -0,0 +1,16 @@
+package cn.refinex.ai.infrastructure.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 分词器配置类
+ * <p>
+ * 仅启用 Properties 绑定，token 计数由 {@link cn.refinex.ai.infrastructure.ai.TokenCounter} 实现。
+ *
+ * @author refinex
+ */
+@Configuration
+@EnableConfigurationProperties(TokenizerProperties.class)
+public class TokenizerConfiguration {
+}
@@ -0,0 +1,30 @@
+package cn.refinex.ai.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 分词器配置属性
+ * <p>
+ * token 计数由 {@link cn.refinex.ai.infrastructure.ai.TokenCounter} 按模型选择 BPE 编码，
+ * 编码名称取值：o200k_base / cl100k_base / p50k_base / p50k_edit / r50k_base。
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.tokenizer")
+public class TokenizerProperties {
+
+    /**
+     * 默认编码：无公开词表的模型（DeepSeek / GLM / MiniMax / Claude 等）及未指定模型的文本计数使用
+     */
+    private String defaultEncoding = "o200k_base";
+
+    /**
+     * 按供应商编码（providerCode）覆盖编码，优先于按模型编码的自动识别
+     */
+    private Map<String, String> providers = new HashMap<>();
+}
@@ -15,7 +15,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class VectorStoreProperties {
 
     /**
-     * 激活的向量存储后端 (redis/elasticsearch/pgvector/qdrant/simple)
+     * 激活的向量存储后端 (redis/elasticsearch/pgvector/qdrant/hnsw/simple)
      */
     private String provider = "simple";
 
@@ -44,6 +44,11 @@ public class VectorStoreProperties {
      */
     private QdrantProperties qdrant = new QdrantProperties();
 
+    /**
+     * 进程内 HNSW 索引配置
+     */
+    private HnswProperties hnsw = new HnswProperties();
+
     /**
      * SimpleVectorStore 配置
      */
@@ -142,6 +147,65 @@ public class VectorStoreProperties {
         private boolean useTls = false;
     }
 
+    /**
+     * 进程内 HNSW 索引配置
+     */
+    @Data
+    public static class HnswProperties {
+
+        /**
+         * 索引根目录（每个嵌入模型一个子目录）
+         */
+        private String directory = "/tmp/refinex-hnsw";
+
+        /**
+         * 每个节点在上层的最大连接数（第 0 层为 2 倍）
+         */
+        private int m = 16;
+
+        /**
+         * 构建时的候选集大小，越大召回越高、写入越慢
+         */
+        private int efConstruction = 200;
+
+        /**
+         * 检索时的候选集大小（不小于 topK），越大召回越高、检索越慢
+         */
+        private int efSearch = 100;
+
+        /**
+         * 每插入多少个节点写一次图快照（重启时快照之后的节点需重新插入）
+         */
+        private int snapshotInterval = 10000;
+
+        /**
+         * 已删除节点占比超过该值则重建索引（启动时及删除后检查）
+         */
+        private double compactRatio = 0.3;
+
+        /**
+         * 向量量化模式：none（全精度）/ int8（标量量化）/ pq（乘积量化）
+         * <p>
+         * 量化编码是全精度向量文件之外的额外文件，只减少图遍历阶段读取的字节数，不减少磁盘占用
+         */
+        private String quantization = "none";
+
+        /**
+         * 乘积量化的子空间维度，每个子空间编码为 1 字节
+         */
+        private int pqSubvectorDimensions = 4;
+
+        /**
+         * 乘积量化训练码本所需的向量数，积累到该数量前按全精度检索
+         */
+        private int pqTrainingSize = 10000;
+
+        /**
+         * 量化检索的最小检索宽度 = topK × rerankMultiplier，候选集全部用全精度向量重排
+         */
+        private int rerankMultiplier = 4;
+    }
+
     /**
      * SimpleVectorStore 配置
      */
@@ -0,0 +1,16 @@
+package cn.refinex.ai.infrastructure.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 向量化流水线配置类
+ * <p>
+ * 仅启用 Properties 绑定，流水线由 {@link cn.refinex.ai.application.service.VectorizationService} 编排。
+ *
+ * @author refinex
+ */
+@Configuration
+@EnableConfigurationProperties(VectorizationProperties.class)
+public class VectorizationConfiguration {
+}
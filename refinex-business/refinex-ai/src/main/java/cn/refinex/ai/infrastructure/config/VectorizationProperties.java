@@ -0,0 +1,171 @@
+package cn.refinex.ai.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 向量化流水线配置属性
+ * <p>
+ * 向量化以持久化任务排队执行（{@link #job}），每个任务处理一篇文档：切片 → 嵌入 → 存储 → 切片落库；
+ * 嵌入阶段按供应商（providerCode）配置批大小、token 预算与并发，未配置的供应商使用 {@link #embedding} 默认值。
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.vectorization")
+public class VectorizationProperties {
+
+    /**
+     * 单文档内并发写入向量库的批次数
+     */
+    private int storeConcurrency = 2;
+
+    /**
+     * 向量化任务队列与工作线程
+     */
+    private JobProperties job = new JobProperties();
+
+    /**
+     * 默认嵌入批次策略
+     */
+    private EmbeddingProperties embedding = new EmbeddingProperties();
+
+    /**
+     * 按供应商编码覆盖的嵌入批次策略，key 为 providerCode
+     */
+    private Map<String, EmbeddingProperties> providers = new HashMap<>();
+
+    /**
+     * 嵌入向量缓存，key 为 (嵌入模型 provisionId, 切片内容哈希)
+     */
+    private CacheProperties cache = new CacheProperties();
+
+    /**
+     * 解析供应商的嵌入批次策略
+     *
+     * @param providerCode 供应商编码
+     * @return 供应商策略，未配置时返回默认策略
+     */
+    public EmbeddingProperties resolveEmbedding(String providerCode) {
+        if (providerCode == null) {
+            return embedding;
+        }
+        return providers.getOrDefault(providerCode, embedding);
+    }
+
+    /**
+     * 向量化任务队列配置
+     */
+    @Data
+    public static class JobProperties {
+
+        /**
+         * 是否在本实例启动任务工作线程（关闭后本实例只负责入队）
+         */
+        private boolean workerEnabled = true;
+
+        /**
+         * 本实例同时执行的任务数（所有组织共享）
+         */
+        private int concurrency = 4;
+
+        /**
+         * 单个组织在全集群同时执行的任务数上限，避免大批量提交占满所有工作线程
+         */
+        private int maxRunningPerEstab = 2;
+
+        /**
+         * 空闲时轮询排队任务的间隔（入队与任务结束时会立即触发调度）
+         */
+        private Duration pollInterval = Duration.ofSeconds(2);
+
+        /**
+         * 执行中任务的心跳间隔
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(10);
+
+        /**
+         * 心跳超时时间，超时的执行中任务视为实例宕机，放回队列从检查点续跑
+         */
+        private Duration staleTimeout = Duration.ofSeconds(60);
+
+        /**
+         * 单个任务的最大执行次数（含宕机回收后的续跑），超出后标记失败
+         */
+        private int maxAttempts = 3;
+    }
+
+    /**
+     * 嵌入批次策略
+     */
+    @Data
+    public static class EmbeddingProperties {
+
+        /**
+         * 单次嵌入请求最多包含的切片数
+         */
+        private int maxBatchSize = 32;
+
+        /**
+         * 单次嵌入请求的 token 预算（按嵌入模型的编码计数），超出则切分为新批次
+         */
+        private int maxBatchTokens = 8000;
+
+        /**
+         * 同一嵌入模型开通的全局并发请求数，跨知识库共享
+         */
+        private int concurrency = 4;
+
+        /**
+         * 命中限流（429）后的最大重试次数
+         */
+        private int maxRetries = 5;
+
+        /**
+         * 限流重试的初始退避时间（指数递增 + 抖动）
+         */
+        private Duration minBackoff = Duration.ofSeconds(1);
+
+        /**
+         * 限流重试的最大退避时间
+         */
+        private Duration maxBackoff = Duration.ofSeconds(30);
+    }
+
+    /**
+     * 嵌入向量缓存配置（本地 Caffeine + Redis 两级）
+     */
+    @Data
+    public static class CacheProperties {
+
+        /**
+         * 是否启用嵌入向量缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本地缓存容量上限（按向量字节数计权）
+         */
+        private DataSize localMaximumSize = DataSize.ofMegabytes(128);
+
+        /**
+         * 本地缓存空闲过期时间
+         */
+        private Duration localExpireAfterAccess = Duration.ofHours(1);
+
+        /**
+         * 是否启用 Redis 二级缓存（多实例共享、重启不丢）
+         */
+        private boolean redisEnabled = true;
+
+        /**
+         * Redis 缓存过期时间
+         */
+        private Duration redisTtl = Duration.ofDays(7);
+    }
+}
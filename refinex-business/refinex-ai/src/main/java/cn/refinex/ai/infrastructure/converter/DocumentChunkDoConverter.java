@@ -1,6 +1,8 @@
 package cn.refinex.ai.infrastructure.converter;
 
+import cn.refinex.ai.domain.model.entity.ChunkSearchHitEntity;
 import cn.refinex.ai.domain.model.entity.DocumentChunkEntity;
+import cn.refinex.ai.infrastructure.persistence.dataobject.ChunkSearchHitDo;
 import cn.refinex.ai.infrastructure.persistence.dataobject.KbDocumentChunkDo;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -34,4 +36,12 @@ public interface DocumentChunkDoConverter {
     @Mapping(target = "gmtCreate", ignore = true)
     @Mapping(target = "gmtModified", ignore = true)
     KbDocumentChunkDo toDo(DocumentChunkEntity documentChunkEntity);
+
+    /**
+     * 转换为切片全文检索命中
+     *
+     * @param chunkSearchHitDo 全文检索结果
+     * @return 检索命中
+     */
+    ChunkSearchHitEntity toSearchHitEntity(ChunkSearchHitDo chunkSearchHitDo);
 }
@@ -0,0 +1,48 @@
+package cn.refinex.ai.infrastructure.converter;
+
+import cn.refinex.ai.domain.model.entity.VectorizeJobEntity;
+import cn.refinex.ai.domain.model.entity.VectorizeRoundEntity;
+import cn.refinex.ai.infrastructure.persistence.dataobject.KbVectorizeJobDo;
+import cn.refinex.ai.infrastructure.persistence.dataobject.VectorizeRoundDo;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * 向量化任务 DO 转换器
+ *
+ * @author refinex
+ */
+@Mapper(componentModel = "spring")
+public interface VectorizeJobDoConverter {
+
+    /**
+     * 转换为向量化任务实体
+     *
+     * @param vectorizeJobDo 向量化任务数据对象
+     * @return 向量化任务实体
+     */
+    VectorizeJobEntity toEntity(KbVectorizeJobDo vectorizeJobDo);
+
+    /**
+     * 转换为向量化任务数据对象
+     *
+     * @param vectorizeJobEntity 向量化任务实体
+     * @return 向量化任务数据对象
+     */
+    @Mapping(target = "createBy", ignore = true)
+    @Mapping(target = "updateBy", ignore = true)
+    @Mapping(target = "deleteBy", ignore = true)
+    @Mapping(target = "deleted", ignore = true)
+    @Mapping(target = "lockVersion", ignore = true)
+    @Mapping(target = "gmtCreate", ignore = true)
+    @Mapping(target = "gmtModified", ignore = true)
+    KbVectorizeJobDo toDo(VectorizeJobEntity vectorizeJobEntity);
+
+    /**
+     * 转换为向量化轮次统计
+     *
+     * @param vectorizeRoundDo 轮次统计结果
+     * @return 轮次统计
+     */
+    VectorizeRoundEntity toRoundEntity(VectorizeRoundDo vectorizeRoundDo);
+}
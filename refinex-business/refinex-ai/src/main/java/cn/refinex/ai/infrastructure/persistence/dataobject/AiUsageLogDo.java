@@ -82,6 +82,16 @@ public class AiUsageLogDo extends BaseEntity {
      */
     private String errorMessage;
 
+    /**
+     * 是否命中语义回答缓存 1是 0否
+     */
+    private Integer cacheHit;
+
+    /**
+     * 命中缓存节省的token数(生成被回放回答时的总token数)
+     */
+    private Integer savedTokens;
+
     /**
      * 扩展信息
      */
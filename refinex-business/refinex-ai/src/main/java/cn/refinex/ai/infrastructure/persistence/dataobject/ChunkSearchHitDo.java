@@ -0,0 +1,52 @@
+package cn.refinex.ai.infrastructure.persistence.dataobject;
+
+import lombok.Data;
+
+/**
+ * 切片全文检索命中（检索查询结果，无对应表）
+ *
+ * @author refinex
+ */
+@Data
+public class ChunkSearchHitDo {
+
+    /**
+     * 切片ID
+     */
+    private Long id;
+
+    /**
+     * 文档ID
+     */
+    private Long documentId;
+
+    /**
+     * 知识库ID
+     */
+    private Long knowledgeBaseId;
+
+    /**
+     * 切片序号(从0开始)
+     */
+    private Integer chunkIndex;
+
+    /**
+     * 切片文本内容
+     */
+    private String content;
+
+    /**
+     * 向量数据库中的向量ID
+     */
+    private String embeddingId;
+
+    /**
+     * 文档名称
+     */
+    private String docName;
+
+    /**
+     * 全文检索相关度
+     */
+    private Double score;
+}
@@ -0,0 +1,94 @@
+package cn.refinex.ai.infrastructure.persistence.dataobject;
+
+import cn.refinex.datasource.domain.entity.BaseEntity;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 向量化任务 DO
+ *
+ * @author refinex
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("kb_vectorize_job")
+public class KbVectorizeJobDo extends BaseEntity {
+
+    /**
+     * 组织ID
+     */
+    private Long estabId;
+
+    /**
+     * 知识库ID
+     */
+    private Long knowledgeBaseId;
+
+    /**
+     * 文档ID
+     */
+    private Long documentId;
+
+    /**
+     * 提交轮次(同一轮提交的任务共享，用于统计知识库进度)
+     */
+    private Long roundId;
+
+    /**
+     * 任务状态 0排队 1执行中 2已完成 3失败 4已取消
+     */
+    private Integer status;
+
+    /**
+     * 已执行次数
+     */
+    private Integer attempts;
+
+    /**
+     * 检查点对应的文档内容哈希，内容变化时检查点失效
+     */
+    private String contentHash;
+
+    /**
+     * 切片总数
+     */
+    private Integer totalChunks;
+
+    /**
+     * 需写入向量库的切片数
+     */
+    private Integer pendingChunks;
+
+    /**
+     * 检查点：按批次推进的、已连续写入向量库的待写切片数，续跑时跳过
+     */
+    private Integer checkpointChunks;
+
+    /**
+     * 执行实例标识
+     */
+    private String workerId;
+
+    /**
+     * 最近心跳时间
+     */
+    private LocalDateTime heartbeatAt;
+
+    /**
+     * 首次开始执行时间
+     */
+    private LocalDateTime startedAt;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishedAt;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+}
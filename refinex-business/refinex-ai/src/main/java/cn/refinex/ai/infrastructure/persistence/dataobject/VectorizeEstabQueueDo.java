@@ -0,0 +1,22 @@
+package cn.refinex.ai.infrastructure.persistence.dataobject;
+
+import lombok.Data;
+
+/**
+ * 组织维度的向量化排队统计（聚合查询，无对应表）
+ *
+ * @author refinex
+ */
+@Data
+public class VectorizeEstabQueueDo {
+
+    /**
+     * 组织ID
+     */
+    private Long estabId;
+
+    /**
+     * 执行中的任务数（全集群）
+     */
+    private Integer runningJobs;
+}
@@ -0,0 +1,49 @@
+package cn.refinex.ai.infrastructure.persistence.dataobject;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 知识库向量化轮次统计结果（聚合查询，无对应表）
+ *
+ * @author refinex
+ */
+@Data
+public class VectorizeRoundDo {
+
+    /**
+     * 本轮文档总数
+     */
+    private Integer totalDocuments;
+
+    /**
+     * 已完成文档数
+     */
+    private Integer completedDocuments;
+
+    /**
+     * 失败（含取消）文档数
+     */
+    private Integer failedDocuments;
+
+    /**
+     * 排队或执行中的文档数
+     */
+    private Integer activeDocuments;
+
+    /**
+     * 已完成文档的切片数
+     */
+    private Long chunks;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startedAt;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishedAt;
+}
@@ -1,8 +1,16 @@
 package cn.refinex.ai.infrastructure.persistence.mapper;
 
+import cn.refinex.ai.infrastructure.persistence.dataobject.ChunkSearchHitDo;
 import cn.refinex.ai.infrastructure.persistence.dataobject.KbDocumentChunkDo;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 文档切片 Mapper
@@ -11,4 +19,76 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface KbDocumentChunkMapper extends BaseMapper<KbDocumentChunkDo> {
+
+    /**
+     * 物理删除文档的全部切片
+     *
+     * @param documentId 文档ID
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM kb_document_chunk WHERE document_id = #{documentId}")
+    int deleteByDocumentIdHard(@Param("documentId") Long documentId);
+
+    /**
+     * 按ID物理删除切片
+     *
+     * @param ids 切片ID列表
+     * @return 影响行数
+     */
+    @Delete("""
+            <script>
+            DELETE FROM kb_document_chunk
+            WHERE id IN
+            <foreach collection='ids' item='id' open='(' separator=',' close=')'>
+              #{id}
+            </foreach>
+            </script>
+            """)
+    int deleteByIdsHard(@Param("ids") List<Long> ids);
+
+    /**
+     * 将切片序号暂存为负数（-1 - 原序号），为随后的序号重排腾出唯一键
+     *
+     * @param ids 切片ID列表
+     * @return 影响行数
+     */
+    @Update("""
+            <script>
+            UPDATE kb_document_chunk
+            SET chunk_index = -1 - chunk_index
+            WHERE id IN
+            <foreach collection='ids' item='id' open='(' separator=',' close=')'>
+              #{id}
+            </foreach>
+            </script>
+            """)
+    int parkChunkIndexes(@Param("ids") List<Long> ids);
+
+    /**
+     * 切片全文检索（ngram 全文索引，按相关度降序）
+     *
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param query            检索文本
+     * @param limit            最多返回的切片数
+     * @return 检索命中
+     */
+    @Select("""
+            <script>
+            SELECT c.id, c.document_id, c.knowledge_base_id, c.chunk_index, c.content, c.embedding_id,
+                   d.doc_name, MATCH(c.content) AGAINST(#{query} IN NATURAL LANGUAGE MODE) AS score
+            FROM kb_document_chunk c
+            JOIN kb_document d ON d.id = c.document_id AND d.deleted = 0
+            WHERE c.knowledge_base_id IN
+            <foreach collection='knowledgeBaseIds' item='kbId' open='(' separator=',' close=')'>
+              #{kbId}
+            </foreach>
+              AND c.deleted = 0
+              AND c.embedding_id IS NOT NULL
+              AND MATCH(c.content) AGAINST(#{query} IN NATURAL LANGUAGE MODE)
+            ORDER BY score DESC
+            LIMIT #{limit}
+            </script>
+            """)
+    List<ChunkSearchHitDo> searchFullText(@Param("knowledgeBaseIds") Collection<Long> knowledgeBaseIds,
+                                          @Param("query") String query, @Param("limit") int limit);
 }
@@ -0,0 +1,210 @@
+package cn.refinex.ai.infrastructure.persistence.mapper;
+
+import cn.refinex.ai.infrastructure.persistence.dataobject.KbVectorizeJobDo;
+import cn.refinex.ai.infrastructure.persistence.dataobject.VectorizeEstabQueueDo;
+import cn.refinex.ai.infrastructure.persistence.dataobject.VectorizeRoundDo;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * 向量化任务 Mapper
+ * <p>
+ * 状态流转均为带前置状态（及执行实例）条件的单条 UPDATE，多实例并发领取、心跳、回收时以影响行数判定是否成功。
+ *
+ * @author refinex
+ */
+@Mapper
+public interface KbVectorizeJobMapper extends BaseMapper<KbVectorizeJobDo> {
+
+    /**
+     * 查询有排队任务的组织，按全集群执行中任务数升序（执行越少越优先），其次按最早排队任务
+     *
+     * @param limit 最多返回的组织数
+     * @return 组织排队统计
+     */
+    @Select("""
+            SELECT q.estab_id AS estabId,
+                   (SELECT COUNT(*) FROM kb_vectorize_job r
+                    WHERE r.estab_id = q.estab_id AND r.status = 1 AND r.deleted = 0) AS runningJobs
+            FROM kb_vectorize_job q
+            WHERE q.status = 0
+              AND q.deleted = 0
+            GROUP BY q.estab_id
+            ORDER BY runningJobs ASC, MIN(q.id) ASC
+            LIMIT #{limit}
+            """)
+    List<VectorizeEstabQueueDo> selectPendingEstabs(@Param("limit") int limit);
+
+    /**
+     * 查询组织下可领取的排队任务（同一文档已有执行中任务时跳过，待其结束后再执行）
+     *
+     * @param estabId 组织ID
+     * @param limit   最多返回的任务数
+     * @return 排队任务（按提交顺序）
+     */
+    @Select("""
+            SELECT * FROM kb_vectorize_job q
+            WHERE q.estab_id = #{estabId}
+              AND q.status = 0
+              AND q.deleted = 0
+              AND NOT EXISTS (SELECT 1 FROM kb_vectorize_job r
+                              WHERE r.document_id = q.document_id AND r.status = 1 AND r.deleted = 0)
+            ORDER BY q.id ASC
+            LIMIT #{limit}
+            """)
+    List<KbVectorizeJobDo> selectClaimable(@Param("estabId") Long estabId, @Param("limit") int limit);
+
+    /**
+     * 领取排队任务
+     *
+     * @param id       任务ID
+     * @param workerId 执行实例标识
+     * @return 影响行数，0 表示已被其他实例领取
+     */
+    @Update("""
+            UPDATE kb_vectorize_job
+            SET status = 1, worker_id = #{workerId}, attempts = attempts + 1,
+                heartbeat_at = NOW(3), started_at = COALESCE(started_at, NOW(3)), error_message = NULL
+            WHERE id = #{id} AND status = 0 AND deleted = 0
+            """)
+    int claim(@Param("id") Long id, @Param("workerId") String workerId);
+
+    /**
+     * 刷新执行实例全部执行中任务的心跳
+     *
+     * @param workerId 执行实例标识
+     * @return 影响行数
+     */
+    @Update("UPDATE kb_vectorize_job SET heartbeat_at = NOW(3) WHERE worker_id = #{workerId} AND status = 1")
+    int heartbeat(@Param("workerId") String workerId);
+
+    /**
+     * 查询心跳超时的执行中任务
+     *
+     * @param staleSeconds 心跳超时秒数
+     * @param limit        最多返回的任务数
+     * @return 超时任务
+     */
+    @Select("""
+            SELECT * FROM kb_vectorize_job
+            WHERE status = 1
+              AND deleted = 0
+              AND heartbeat_at < DATE_SUB(NOW(3), INTERVAL #{staleSeconds} SECOND)
+            ORDER BY id ASC
+            LIMIT #{limit}
+            """)
+    List<KbVectorizeJobDo> selectStale(@Param("staleSeconds") long staleSeconds, @Param("limit") int limit);
+
+    /**
+     * 将心跳超时的执行中任务放回队列（保留检查点）
+     *
+     * @param id           任务ID
+     * @param staleSeconds 心跳超时秒数
+     * @return 影响行数，0 表示任务已恢复心跳或已结束
+     */
+    @Update("""
+            UPDATE kb_vectorize_job
+            SET status = 0, worker_id = NULL
+            WHERE id = #{id} AND status = 1
+              AND heartbeat_at < DATE_SUB(NOW(3), INTERVAL #{staleSeconds} SECOND)
+            """)
+    int requeueStale(@Param("id") Long id, @Param("staleSeconds") long staleSeconds);
+
+    /**
+     * 将执行实例的全部执行中任务放回队列（实例优雅停机时调用，保留检查点）
+     *
+     * @param workerId 执行实例标识
+     * @return 影响行数
+     */
+    @Update("UPDATE kb_vectorize_job SET status = 0, worker_id = NULL WHERE worker_id = #{workerId} AND status = 1")
+    int requeueByWorker(@Param("workerId") String workerId);
+
+    /**
+     * 更新任务切片统计与检查点（仅当任务仍由该实例执行）
+     *
+     * @param job      任务（取 contentHash / totalChunks / pendingChunks / checkpointChunks）
+     * @param workerId 执行实例标识
+     * @return 影响行数，0 表示任务已被取消或被其他实例回收
+     */
+    @Update("""
+            UPDATE kb_vectorize_job
+            SET content_hash = #{job.contentHash}, total_chunks = #{job.totalChunks}, pending_chunks = #{job.pendingChunks},
+                checkpoint_chunks = #{job.checkpointChunks}, heartbeat_at = NOW(3)
+            WHERE id = #{job.id} AND status = 1 AND worker_id = #{workerId}
+            """)
+    int updateProgress(@Param("job") KbVectorizeJobDo job, @Param("workerId") String workerId);
+
+    /**
+     * 结束执行中任务（仅当任务仍由该实例执行）
+     *
+     * @param id           任务ID
+     * @param workerId     执行实例标识
+     * @param status       结束状态
+     * @param errorMessage 失败原因
+     * @return 影响行数
+     */
+    @Update("""
+            UPDATE kb_vectorize_job
+            SET status = #{status}, error_message = #{errorMessage}, finished_at = NOW(3), worker_id = NULL
+            WHERE id = #{id} AND status = 1 AND worker_id = #{workerId}
+            """)
+    int finish(@Param("id") Long id, @Param("workerId") String workerId,
+               @Param("status") int status, @Param("errorMessage") String errorMessage);
+
+    /**
+     * 取消文档未结束的任务
+     *
+     * @param documentId 文档ID
+     * @return 影响行数
+     */
+    @Update("""
+            UPDATE kb_vectorize_job
+            SET status = 4, finished_at = NOW(3), worker_id = NULL
+            WHERE document_id = #{documentId} AND status IN (0, 1) AND deleted = 0
+            """)
+    int cancelActiveByDocumentId(@Param("documentId") Long documentId);
+
+    /**
+     * 统计知识库最近一轮向量化
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @return 轮次统计，从未向量化时各计数为 0
+     */
+    @Select("""
+            SELECT COUNT(*) AS totalDocuments,
+                   COALESCE(SUM(status = 2), 0) AS completedDocuments,
+                   COALESCE(SUM(status IN (3, 4)), 0) AS failedDocuments,
+                   COALESCE(SUM(status IN (0, 1)), 0) AS activeDocuments,
+                   COALESCE(SUM(CASE WHEN status = 2 THEN total_chunks ELSE 0 END), 0) AS chunks,
+                   MIN(gmt_create) AS startedAt,
+                   MAX(finished_at) AS finishedAt
+            FROM kb_vectorize_job
+            WHERE knowledge_base_id = #{knowledgeBaseId}
+              AND deleted = 0
+              AND round_id = (SELECT MAX(round_id) FROM kb_vectorize_job
+                              WHERE knowledge_base_id = #{knowledgeBaseId} AND deleted = 0)
+            """)
+    VectorizeRoundDo selectLatestRound(@Param("knowledgeBaseId") Long knowledgeBaseId);
+
+    /**
+     * 查询处于向量化中、但没有未结束任务的文档ID（引入任务队列前遗留，或任务被人工清理）
+     *
+     * @param limit 最多返回的文档数
+     * @return 文档ID列表
+     */
+    @Select("""
+            SELECT d.id FROM kb_document d
+            WHERE d.vector_status = 1
+              AND d.deleted = 0
+              AND NOT EXISTS (SELECT 1 FROM kb_vectorize_job j
+                              WHERE j.document_id = d.id AND j.status IN (0, 1) AND j.deleted = 0)
+            ORDER BY d.id ASC
+            LIMIT #{limit}
+            """)
+    List<Long> selectOrphanVectorizingDocumentIds(@Param("limit") int limit);
+}
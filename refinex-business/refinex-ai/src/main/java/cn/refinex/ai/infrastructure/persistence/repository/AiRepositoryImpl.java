@@ -2,18 +2,28 @@ package cn.refinex.ai.infrastructure.persistence.repository;
 
 import cn.refinex.ai.domain.model.entity.*;
 import cn.refinex.ai.domain.repository.AiRepository;
+import cn.refinex.ai.infrastructure.config.PersistenceProperties;
 import cn.refinex.ai.infrastructure.converter.*;
 import cn.refinex.ai.infrastructure.persistence.dataobject.*;
 import cn.refinex.ai.infrastructure.persistence.mapper.*;
 import cn.refinex.base.response.PageResponse;
+import cn.refinex.datasource.domain.entity.BaseEntity;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * AI 模块仓储实现
@@ -39,6 +49,7 @@ public class AiRepositoryImpl implements AiRepository {
     private final KbDocumentMapper kbDocumentMapper;
     private final KbDocumentChunkMapper kbDocumentChunkMapper;
     private final AiSkillKnowledgeMapper aiSkillKnowledgeMapper;
+    private final KbVectorizeJobMapper kbVectorizeJobMapper;
     private final ProviderDoConverter providerDoConverter;
     private final ModelDoConverter modelDoConverter;
     private final PromptTemplateDoConverter promptTemplateDoConverter;
@@ -54,6 +65,8 @@ public class AiRepositoryImpl implements AiRepository {
     private final DocumentDoConverter documentDoConverter;
     private final DocumentChunkDoConverter documentChunkDoConverter;
     private final SkillKnowledgeDoConverter skillKnowledgeDoConverter;
+    private final VectorizeJobDoConverter vectorizeJobDoConverter;
+    private final PersistenceProperties persistenceProperties;
 
     // ── Provider ──
 
@@ -648,6 +661,28 @@ public class AiRepositoryImpl implements AiRepository {
         aiModelProvisionMapper.deleteById(provisionId);
     }
 
+    /**
+     * 查询租户全部活跃模型开通（status=1, deleted=0），按 ID 升序
+     *
+     * @param estabId 组织ID
+     * @return 租户模型开通列表
+     */
+    @Override
+    public List<ModelProvisionEntity> listActiveModelProvisions(Long estabId) {
+        List<AiModelProvisionDo> rows = aiModelProvisionMapper.selectList(
+                Wrappers.lambdaQuery(AiModelProvisionDo.class)
+                        .eq(AiModelProvisionDo::getEstabId, estabId)
+                        .eq(AiModelProvisionDo::getStatus, 1)
+                        .eq(AiModelProvisionDo::getDeleted, 0)
+                        .orderByAsc(AiModelProvisionDo::getId)
+        );
+        List<ModelProvisionEntity> result = new ArrayList<>();
+        for (AiModelProvisionDo row : rows) {
+            result.add(modelProvisionDoConverter.toEntity(row));
+        }
+        return result;
+    }
+
     /**
      * 查询租户的活跃模型开通（estabId + modelId, status=1, deleted=0）
      *
@@ -1212,12 +1247,7 @@ public class AiRepositoryImpl implements AiRepository {
         // 先删除旧关联
         deleteSkillToolsBySkillId(skillId);
         // 再批量插入新关联
-        if (skillTools != null && !skillTools.isEmpty()) {
-            for (SkillToolEntity st : skillTools) {
-                AiSkillToolDo row = skillToolDoConverter.toDo(st);
-                aiSkillToolMapper.insert(row);
-            }
-        }
+        batchInsert(aiSkillToolMapper, skillTools, skillToolDoConverter::toDo, SkillToolEntity::setId);
     }
 
     /**
@@ -1760,6 +1790,25 @@ public class AiRepositoryImpl implements AiRepository {
         kbDocumentMapper.updateById(row);
     }
 
+    /**
+     * 批量更新文档向量化状态（同时清空失败原因）
+     *
+     * @param documentIds  文档ID列表
+     * @param vectorStatus 向量化状态
+     */
+    @Override
+    public void updateDocumentsVectorStatus(Collection<Long> documentIds, int vectorStatus) {
+        if (documentIds == null || documentIds.isEmpty()) {
+            return;
+        }
+        for (List<Long> part : partition(documentIds)) {
+            kbDocumentMapper.update(null, Wrappers.lambdaUpdate(KbDocumentDo.class)
+                    .set(KbDocumentDo::getVectorStatus, vectorStatus)
+                    .set(KbDocumentDo::getVectorError, null)
+                    .in(KbDocumentDo::getId, part));
+        }
+    }
+
     // ── DocumentChunk ──
 
     /**
@@ -1791,25 +1840,65 @@ public class AiRepositoryImpl implements AiRepository {
      */
     @Override
     public void deleteChunksByDocumentId(Long documentId) {
-        kbDocumentChunkMapper.delete(
-                Wrappers.lambdaQuery(KbDocumentChunkDo.class)
-                        .eq(KbDocumentChunkDo::getDocumentId, documentId)
-        );
+        // 切片为派生数据，物理删除，避免逻辑删除行占用 uk_doc_chunk 导致重新切片时冲突
+        kbDocumentChunkMapper.deleteByDocumentIdHard(documentId);
     }
 
     /**
      * 批量插入切片
      *
-     * @param chunks 切片列表
+     * @param chunks 切片列表，插入后回填自增ID
      */
     @Override
     public void batchInsertChunks(List<DocumentChunkEntity> chunks) {
-        if (chunks != null && !chunks.isEmpty()) {
-            for (DocumentChunkEntity chunk : chunks) {
-                KbDocumentChunkDo row = documentChunkDoConverter.toDo(chunk);
-                kbDocumentChunkMapper.insert(row);
+        batchInsert(kbDocumentChunkMapper, chunks, documentChunkDoConverter::toDo, DocumentChunkEntity::setId);
+    }
+
+    /**
+     * 按增量对齐结果变更文档切片
+     * <p>
+     * 待更新切片先统一暂存到负序号再逐行写回，避免序号交换时触发 uk_doc_chunk 唯一键冲突。
+     *
+     * @param removedIds 需删除的切片ID
+     * @param updated    需更新的切片（含ID，序号可能变化）
+     * @param inserted   需新增的切片
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void applyChunkChanges(List<Long> removedIds, List<DocumentChunkEntity> updated, List<DocumentChunkEntity> inserted) {
+        if (removedIds != null && !removedIds.isEmpty()) {
+            kbDocumentChunkMapper.deleteByIdsHard(removedIds);
+        }
+
+        if (updated != null && !updated.isEmpty()) {
+            kbDocumentChunkMapper.parkChunkIndexes(updated.stream().map(DocumentChunkEntity::getId).toList());
+            for (DocumentChunkEntity chunk : updated) {
+                kbDocumentChunkMapper.updateById(documentChunkDoConverter.toDo(chunk));
             }
         }
+
+        batchInsertChunks(inserted);
+    }
+
+    /**
+     * 切片全文检索（混合检索的词法召回通道）
+     *
+     * @param knowledgeBaseIds 知识库ID列表
+     * @param query            检索文本
+     * @param limit            最多返回的切片数
+     * @return 按相关度降序的检索命中
+     */
+    @Override
+    public List<ChunkSearchHitEntity> searchChunksFullText(Collection<Long> knowledgeBaseIds, String query, int limit) {
+        if (knowledgeBaseIds == null || knowledgeBaseIds.isEmpty() || query == null || query.isBlank() || limit <= 0) {
+            return List.of();
+        }
+
+        List<ChunkSearchHitEntity> result = new ArrayList<>();
+        for (ChunkSearchHitDo row : kbDocumentChunkMapper.searchFullText(knowledgeBaseIds, query, limit)) {
+            result.add(documentChunkDoConverter.toSearchHitEntity(row));
+        }
+        return result;
     }
 
     /**
@@ -1877,15 +1966,321 @@ public class AiRepositoryImpl implements AiRepository {
     /**
      * 批量插入技能知识库关联
      *
-     * @param list 技能知识库关联列表
+     * @param list 技能知识库关联列表，插入后回填自增ID
      */
     @Override
     public void batchInsertSkillKnowledges(List<SkillKnowledgeEntity> list) {
-        if (list != null && !list.isEmpty()) {
-            for (SkillKnowledgeEntity entity : list) {
-                AiSkillKnowledgeDo row = skillKnowledgeDoConverter.toDo(entity);
-                aiSkillKnowledgeMapper.insert(row);
+        batchInsert(aiSkillKnowledgeMapper, list, skillKnowledgeDoConverter::toDo, SkillKnowledgeEntity::setId);
+    }
+
+    // ── VectorizeJob ──
+
+    /**
+     * 批量插入向量化任务
+     *
+     * @param jobs 任务列表，插入后回填自增ID
+     */
+    @Override
+    public void batchInsertVectorizeJobs(List<VectorizeJobEntity> jobs) {
+        batchInsert(kbVectorizeJobMapper, jobs, vectorizeJobDoConverter::toDo, VectorizeJobEntity::setId);
+    }
+
+    /**
+     * 查询向量化任务
+     *
+     * @param id 任务ID
+     * @return 任务实体
+     */
+    @Override
+    public VectorizeJobEntity findVectorizeJobById(Long id) {
+        KbVectorizeJobDo row = kbVectorizeJobMapper.selectById(id);
+        return row == null ? null : vectorizeJobDoConverter.toEntity(row);
+    }
+
+    /**
+     * 查询文档未结束（排队或执行中）的向量化任务
+     *
+     * @param documentIds 文档ID列表
+     * @return 任务列表
+     */
+    @Override
+    public List<VectorizeJobEntity> listActiveVectorizeJobsByDocumentIds(Collection<Long> documentIds) {
+        if (documentIds == null || documentIds.isEmpty()) {
+            return List.of();
+        }
+        List<VectorizeJobEntity> result = new ArrayList<>();
+        for (List<Long> part : partition(documentIds)) {
+            List<KbVectorizeJobDo> rows = kbVectorizeJobMapper.selectList(
+                    Wrappers.lambdaQuery(KbVectorizeJobDo.class)
+                            .in(KbVectorizeJobDo::getDocumentId, part)
+                            .in(KbVectorizeJobDo::getStatus, 0, 1)
+                            .eq(KbVectorizeJobDo::getDeleted, 0)
+            );
+            for (KbVectorizeJobDo row : rows) {
+                result.add(vectorizeJobDoConverter.toEntity(row));
             }
         }
+        return result;
+    }
+
+    /**
+     * 查询知识库进行中的向量化轮次
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @return 轮次ID，无未结束任务时返回 null
+     */
+    @Override
+    public Long findActiveVectorizeRoundId(Long knowledgeBaseId) {
+        KbVectorizeJobDo row = kbVectorizeJobMapper.selectOne(
+                Wrappers.lambdaQuery(KbVectorizeJobDo.class)
+                        .select(KbVectorizeJobDo::getRoundId)
+                        .eq(KbVectorizeJobDo::getKnowledgeBaseId, knowledgeBaseId)
+                        .in(KbVectorizeJobDo::getStatus, 0, 1)
+                        .eq(KbVectorizeJobDo::getDeleted, 0)
+                        .orderByDesc(KbVectorizeJobDo::getRoundId)
+                        .last("LIMIT 1")
+        );
+        return row == null ? null : row.getRoundId();
+    }
+
+    /**
+     * 查询向量化任务分页列表
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @param documentId      文档ID
+     * @param status          任务状态
+     * @param currentPage     当前页码
+     * @param pageSize        每页数量
+     * @return 任务分页列表（按ID倒序）
+     */
+    @Override
+    public PageResponse<VectorizeJobEntity> listVectorizeJobs(Long knowledgeBaseId, Long documentId, Integer status, int currentPage, int pageSize) {
+        LambdaQueryWrapper<KbVectorizeJobDo> query = Wrappers.lambdaQuery(KbVectorizeJobDo.class)
+                .eq(KbVectorizeJobDo::getKnowledgeBaseId, knowledgeBaseId)
+                .eq(KbVectorizeJobDo::getDeleted, 0)
+                .orderByDesc(KbVectorizeJobDo::getId);
+
+        if (documentId != null) {
+            query.eq(KbVectorizeJobDo::getDocumentId, documentId);
+        }
+        if (status != null) {
+            query.eq(KbVectorizeJobDo::getStatus, status);
+        }
+
+        Page<KbVectorizeJobDo> page = new Page<>(currentPage, pageSize);
+        Page<KbVectorizeJobDo> rowsPage = kbVectorizeJobMapper.selectPage(page, query);
+
+        List<VectorizeJobEntity> result = new ArrayList<>();
+        for (KbVectorizeJobDo row : rowsPage.getRecords()) {
+            result.add(vectorizeJobDoConverter.toEntity(row));
+        }
+
+        return PageResponse.of(result, rowsPage.getTotal(), (int) rowsPage.getSize(), (int) rowsPage.getCurrent());
+    }
+
+    /**
+     * 查询有排队任务的组织及其执行中任务数
+     *
+     * @param limit 最多返回的组织数
+     * @return 组织ID → 全集群执行中任务数，按执行中任务数升序
+     */
+    @Override
+    public Map<Long, Integer> listPendingVectorizeEstabs(int limit) {
+        Map<Long, Integer> result = new LinkedHashMap<>();
+        for (VectorizeEstabQueueDo row : kbVectorizeJobMapper.selectPendingEstabs(limit)) {
+            result.put(row.getEstabId(), row.getRunningJobs() == null ? 0 : row.getRunningJobs());
+        }
+        return result;
+    }
+
+    /**
+     * 查询组织下可领取的排队任务
+     *
+     * @param estabId 组织ID
+     * @param limit   最多返回的任务数
+     * @return 排队任务（按提交顺序）
+     */
+    @Override
+    public List<VectorizeJobEntity> listClaimableVectorizeJobs(Long estabId, int limit) {
+        List<VectorizeJobEntity> result = new ArrayList<>();
+        for (KbVectorizeJobDo row : kbVectorizeJobMapper.selectClaimable(estabId, limit)) {
+            result.add(vectorizeJobDoConverter.toEntity(row));
+        }
+        return result;
+    }
+
+    /**
+     * 领取排队任务
+     *
+     * @param id       任务ID
+     * @param workerId 执行实例标识
+     * @return 是否领取成功
+     */
+    @Override
+    public boolean claimVectorizeJob(Long id, String workerId) {
+        return kbVectorizeJobMapper.claim(id, workerId) > 0;
+    }
+
+    /**
+     * 刷新执行实例全部执行中任务的心跳
+     *
+     * @param workerId 执行实例标识
+     * @return 刷新的任务数
+     */
+    @Override
+    public int heartbeatVectorizeJobs(String workerId) {
+        return kbVectorizeJobMapper.heartbeat(workerId);
+    }
+
+    /**
+     * 查询心跳超时的执行中任务
+     *
+     * @param staleTimeout 心跳超时时间
+     * @param limit        最多返回的任务数
+     * @return 超时任务
+     */
+    @Override
+    public List<VectorizeJobEntity> listStaleVectorizeJobs(Duration staleTimeout, int limit) {
+        List<VectorizeJobEntity> result = new ArrayList<>();
+        for (KbVectorizeJobDo row : kbVectorizeJobMapper.selectStale(staleTimeout.toSeconds(), limit)) {
+            result.add(vectorizeJobDoConverter.toEntity(row));
+        }
+        return result;
+    }
+
+    /**
+     * 将心跳超时的执行中任务放回队列（保留检查点）
+     *
+     * @param id           任务ID
+     * @param staleTimeout 心跳超时时间
+     * @return 是否放回成功
+     */
+    @Override
+    public boolean requeueStaleVectorizeJob(Long id, Duration staleTimeout) {
+        return kbVectorizeJobMapper.requeueStale(id, staleTimeout.toSeconds()) > 0;
+    }
+
+    /**
+     * 将执行实例的全部执行中任务放回队列（保留检查点）
+     *
+     * @param workerId 执行实例标识
+     * @return 放回的任务数
+     */
+    @Override
+    public int requeueVectorizeJobsByWorker(String workerId) {
+        return kbVectorizeJobMapper.requeueByWorker(workerId);
+    }
+
+    /**
+     * 更新任务切片统计与检查点
+     *
+     * @param job      任务实体
+     * @param workerId 执行实例标识
+     * @return 是否更新成功，false 表示任务已被取消或被其他实例回收
+     */
+    @Override
+    public boolean updateVectorizeJobProgress(VectorizeJobEntity job, String workerId) {
+        return kbVectorizeJobMapper.updateProgress(vectorizeJobDoConverter.toDo(job), workerId) > 0;
+    }
+
+    /**
+     * 结束执行中任务
+     *
+     * @param id           任务ID
+     * @param workerId     执行实例标识
+     * @param status       结束状态
+     * @param errorMessage 失败原因
+     * @return 是否更新成功
+     */
+    @Override
+    public boolean finishVectorizeJob(Long id, String workerId, int status, String errorMessage) {
+        return kbVectorizeJobMapper.finish(id, workerId, status, errorMessage) > 0;
+    }
+
+    /**
+     * 取消文档未结束的向量化任务
+     *
+     * @param documentId 文档ID
+     * @return 取消的任务数
+     */
+    @Override
+    public int cancelActiveVectorizeJobs(Long documentId) {
+        return kbVectorizeJobMapper.cancelActiveByDocumentId(documentId);
+    }
+
+    /**
+     * 统计知识库最近一轮向量化
+     *
+     * @param knowledgeBaseId 知识库ID
+     * @return 轮次统计，从未向量化时返回 null
+     */
+    @Override
+    public VectorizeRoundEntity statLatestVectorizeRound(Long knowledgeBaseId) {
+        VectorizeRoundDo row = kbVectorizeJobMapper.selectLatestRound(knowledgeBaseId);
+        if (row == null || row.getTotalDocuments() == null || row.getTotalDocuments() == 0) {
+            return null;
+        }
+        return vectorizeJobDoConverter.toRoundEntity(row);
+    }
+
+    /**
+     * 查询处于向量化中、但没有未结束任务的文档ID
+     *
+     * @param limit 最多返回的文档数
+     * @return 文档ID列表
+     */
+    @Override
+    public List<Long> listOrphanVectorizingDocumentIds(int limit) {
+        return kbVectorizeJobMapper.selectOrphanVectorizingDocumentIds(limit);
+    }
+
+    // ── 批量写入 ──
+
+    /**
+     * 批量插入并回填自增ID
+     * <p>
+     * 使用 MyBatis BATCH 执行器按 {@link PersistenceProperties#getBatchSize()} 分段 flush，每段一次网络往返；
+     * 驱动通过 getGeneratedKeys 返回自增主键，由 MyBatis 写回数据对象后再同步到领域实体。
+     * 在外层事务中调用时复用同一连接，随事务一起提交或回滚。
+     *
+     * @param mapper   Mapper
+     * @param entities 领域实体列表
+     * @param toDo     实体转数据对象
+     * @param idSetter 回填实体ID
+     * @param <E>      领域实体类型
+     * @param <D>      数据对象类型
+     */
+    private <E, D extends BaseEntity> void batchInsert(BaseMapper<D> mapper, List<E> entities,
+                                                       Function<E, D> toDo, BiConsumer<E, Long> idSetter) {
+        if (entities == null || entities.isEmpty()) {
+            return;
+        }
+
+        List<D> rows = new ArrayList<>(entities.size());
+        for (E entity : entities) {
+            rows.add(toDo.apply(entity));
+        }
+
+        mapper.insert(rows, Math.max(1, persistenceProperties.getBatchSize()));
+
+        for (int i = 0; i < entities.size(); i++) {
+            idSetter.accept(entities.get(i), rows.get(i).getId());
+        }
+    }
+
+    /**
+     * 按批次大小切分ID列表，避免 IN 子句过长
+     *
+     * @param ids ID列表
+     * @return 分段后的ID列表
+     */
+    private List<List<Long>> partition(Collection<Long> ids) {
+        List<Long> list = new ArrayList<>(ids);
+        int size = Math.max(1, persistenceProperties.getBatchSize());
+        List<List<Long>> parts = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += size) {
+            parts.add(list.subList(from, Math.min(from + size, list.size())));
+        }
+        return parts;
     }
 }
@@ -0,0 +1,752 @@
+package cn.refinex.ai.infrastructure.persistence.repository;
+
+import cn.refinex.ai.infrastructure.config.ChatMemoryProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.BatchResult;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RListAsync;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只追加的聊天记忆仓储
+ * <p>
+ * {@code MessageWindowChatMemory} 每轮对话都以完整窗口调用 {@link #saveAll}，JDBC 仓储的实现是删除后重新插入整个窗口（最多 20 条）。
+ * 本仓储返回的消息均在 metadata 中带有消息标识，saveAll 只写入不带标识的新增消息（通常为一问一答 2 条）：
+ * <ul>
+ *     <li>热数据：Redis 列表 {@code refinex:ai:chat-memory:{conversationId}} 保存活跃窗口，读取窗口只访问该列表，
+ *     追加后按窗口大小裁剪；列表过期或 Redis 不可用时从 MySQL 读取最近的窗口并回填</li>
+ *     <li>冷数据：SPRING_AI_CHAT_MEMORY 保存完整历史（只插入，不再随窗口滑动删除），由后台线程按批异步写入，
+ *     待写入消息超过上限时由调用线程同步写入</li>
+ *     <li>摘要：窗口首部的系统消息视为固定条目，单独保存在 Redis 与 SPRING_AI_CHAT_MEMORY_SUMMARY 中，不计入历史；
+ *     {@link #compact} 将窗口首部的若干条消息替换为摘要，MySQL 中记录摘要覆盖到的消息 id，重建窗口时只读取其后的消息</li>
+ *     <li>新窗口已保存部分的最后一条消息不是当前窗口的最后一条时（并发写入、窗口整体滑出等），只重置 Redis 窗口，
+ *     MySQL 中的历史从不因保存窗口而删除，删除只发生在 {@link #deleteByConversationId}</li>
+ * </ul>
+ * 从 MySQL 读取时合并尚未写入的消息，读到的始终是最新数据；停机时写入全部待写入消息。
+ *
+ * @author refinex
+ */
+@Slf4j
+public class AppendOnlyChatMemoryRepository implements ChatMemoryRepository, SmartLifecycle {
+
+    /**
+     * 活跃窗口 key 前缀，完整 key 为 prefix + 会话ID
+     */
+    private static final String WINDOW_KEY_PREFIX = "refinex:ai:chat-memory:";
+
+    /**
+     * 窗口摘要 key 前缀，完整 key 为 prefix + 会话ID
+     */
+    private static final String SUMMARY_KEY_PREFIX = "refinex:ai:chat-memory-summary:";
+
+    /**
+     * 消息 metadata 中的消息标识，带有标识的消息视为已保存
+     */
+    static final String MESSAGE_ID_METADATA = "refinex_chat_memory_id";
+
+    /**
+     * 摘要系统消息的标识
+     */
+    private static final String SUMMARY_MESSAGE_ID = "summary";
+
+    /**
+     * 从 MySQL 加载的消息标识前缀，完整标识为 prefix + 行 id
+     */
+    private static final String ROW_MESSAGE_ID_PREFIX = "row:";
+
+    /**
+     * 校验窗口首部仍为待压缩的消息后，裁掉这些消息并写入摘要（原子执行，避免与并发追加交错）
+     * <p>
+     * KEYS: 窗口、摘要；ARGV: 消息数、摘要、过期毫秒数、待压缩消息...
+     */
+    private static final String COMPACT_SCRIPT = """
+            local n = tonumber(ARGV[1])
+            local head = redis.call('LRANGE', KEYS[1], 0, n - 1)
+            if #head ~= n then return 0 end
+            for i = 1, n do
+                if head[i] ~= ARGV[i + 3] then return 0 end
+            end
+            redis.call('LTRIM', KEYS[1], n, -1)
+            redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[3])
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO SPRING_AI_CHAT_MEMORY (conversation_id, content, type, `timestamp`) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM SPRING_AI_CHAT_MEMORY WHERE conversation_id = ?";
+    private static final String SELECT_WINDOW_SQL =
+            "SELECT id, content, type FROM SPRING_AI_CHAT_MEMORY WHERE conversation_id = ? AND id > ? ORDER BY id DESC LIMIT ?";
+    private static final String SELECT_HISTORY_SQL =
+            "SELECT id, content, type FROM SPRING_AI_CHAT_MEMORY WHERE conversation_id = ? ORDER BY id";
+    private static final String SELECT_CONVERSATION_IDS_SQL = "SELECT DISTINCT conversation_id FROM SPRING_AI_CHAT_MEMORY";
+    private static final String SELECT_SUMMARY_SQL =
+            "SELECT content, covered_until_id FROM SPRING_AI_CHAT_MEMORY_SUMMARY WHERE conversation_id = ?";
+    private static final String UPSERT_SUMMARY_SQL =
+            "INSERT INTO SPRING_AI_CHAT_MEMORY_SUMMARY (conversation_id, content, covered_until_id, `timestamp`) VALUES (?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE content = VALUES(content), covered_until_id = VALUES(covered_until_id), `timestamp` = VALUES(`timestamp`)";
+    private static final String UPSERT_SUMMARY_CONTENT_SQL =
+            "INSERT INTO SPRING_AI_CHAT_MEMORY_SUMMARY (conversation_id, content, covered_until_id, `timestamp`) VALUES (?, ?, 0, ?) "
+                    + "ON DUPLICATE KEY UPDATE content = VALUES(content), `timestamp` = VALUES(`timestamp`)";
+    private static final String DELETE_SUMMARY_SQL = "DELETE FROM SPRING_AI_CHAT_MEMORY_SUMMARY WHERE conversation_id = ?";
+
+    private final ChatMemoryProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedissonClient redissonClient;
+    private final ObjectMapper jsonMapper;
+
+    /**
+     * 待写入操作（按提交顺序），由 queue 自身加锁
+     */
+    private final Deque<Op> queue = new ArrayDeque<>();
+
+    /**
+     * 正在写入 MySQL 的操作，写入成功前不移除，失败后下次原样重试；由 flushLock 加锁
+     */
+    private final List<Op> inFlight = new ArrayList<>();
+
+    /**
+     * 串行化写入，同时保证从 MySQL 读取与合并待写入操作之间不会有批次提交
+     */
+    private final Object flushLock = new Object();
+
+    private final AtomicInteger pendingMessages = new AtomicInteger();
+    private ScheduledExecutorService executor;
+    private volatile boolean active;
+
+    /**
+     * 构造函数
+     *
+     * @param properties          聊天记忆配置
+     * @param jdbcTemplate        JdbcTemplate
+     * @param transactionTemplate 事务模板（单个写入批次在同一事务内提交，失败重试不会重复插入）
+     * @param redissonClient      Redisson 客户端
+     * @param jsonMapper          JSON 序列化
+     */
+    public AppendOnlyChatMemoryRepository(ChatMemoryProperties properties, JdbcTemplate jdbcTemplate,
+                                          TransactionTemplate transactionTemplate, RedissonClient redissonClient,
+                                          ObjectMapper jsonMapper) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.redissonClient = redissonClient;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chat-memory-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        active = true;
+        long interval = Math.max(10, properties.getFlushInterval().toMillis());
+        executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        active = false;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush();
+            log.info("聊天记忆写入线程已停止");
+        } catch (Exception e) {
+            log.error("停机时写入聊天记忆失败，未写入消息数={}", pendingMessages.get(), e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return active;
+    }
+
+    /**
+     * 查询所有会话ID（含尚未写入 MySQL 的会话）
+     *
+     * @return 会话ID列表
+     */
+    @Override
+    public List<String> findConversationIds() {
+        synchronized (flushLock) {
+            Set<String> ids = new LinkedHashSet<>(jdbcTemplate.queryForList(SELECT_CONVERSATION_IDS_SQL, String.class));
+            for (Op op : pendingOps()) {
+                if (op instanceof Append append) {
+                    ids.add(append.conversationId());
+                }
+            }
+            return new ArrayList<>(ids);
+        }
+    }
+
+    /**
+     * 读取活跃窗口：优先读取 Redis，未命中时从 MySQL 读取最近的窗口并回填
+     *
+     * @param conversationId 会话ID
+     * @return 窗口内消息（按时间升序，有摘要时摘要以系统消息位于首位）
+     */
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Window window = window(conversationId);
+        List<Message> messages = new ArrayList<>(window.body().size() + 1);
+        if (window.summary() != null) {
+            messages.add(SystemMessage.builder().text(window.summary())
+                    .metadata(new HashMap<>(Map.of(MESSAGE_ID_METADATA, SUMMARY_MESSAGE_ID))).build());
+        }
+        messages.addAll(toMessages(window.body()));
+        return messages;
+    }
+
+    /**
+     * 保存窗口：只追加不带消息标识的新增消息，首部系统消息变化时更新摘要
+     * <p>
+     * 新窗口中已保存消息的最后一条即当前窗口的最后一条时，Redis 窗口追加后裁剪；否则只以新窗口重置 Redis 窗口，
+     * 不删除 MySQL 历史。
+     *
+     * @param conversationId 会话ID
+     * @param messages       完整窗口
+     */
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Window current = window(conversationId);
+
+        int pinned = 0;
+        while (pinned < messages.size() && messages.get(pinned).getMessageType() == MessageType.SYSTEM) {
+            pinned++;
+        }
+        // 本仓储返回的摘要原样传回时不视为变化，避免覆盖并发压缩写入的新摘要
+        List<Message> pinnedMessages = messages.subList(0, pinned);
+        String changedSummary = null;
+        if (pinnedMessages.stream().anyMatch(message -> messageId(message) == null)) {
+            String summary = String.join("\n\n", pinnedMessages.stream()
+                    .map(message -> Objects.requireNonNullElse(message.getText(), "")).toList());
+            changedSummary = summary.equals(current.summary()) ? null : summary;
+        }
+
+        List<StoredMessage> body = new ArrayList<>(messages.size() - pinned);
+        List<StoredMessage> appended = new ArrayList<>();
+        String lastSaved = null;
+        boolean continuation = true;
+        for (Message message : messages.subList(pinned, messages.size())) {
+            String id = messageId(message);
+            if (id == null) {
+                StoredMessage stored = StoredMessage.of(message, UUID.randomUUID().toString());
+                body.add(stored);
+                appended.add(stored);
+            } else {
+                body.add(StoredMessage.of(message, id));
+                lastSaved = id;
+                // 已保存的消息出现在新增消息之后，说明窗口被改写
+                continuation &= appended.isEmpty();
+            }
+        }
+
+        if (changedSummary != null) {
+            enqueue(new Summary(conversationId, changedSummary));
+        }
+        if (!appended.isEmpty()) {
+            enqueue(new Append(conversationId, appended));
+        }
+
+        String currentLast = current.body().isEmpty() ? null : current.body().getLast().id();
+        if (continuation && Objects.equals(lastSaved, currentLast)) {
+            if (!appended.isEmpty() || changedSummary != null) {
+                writeWindow(conversationId, changedSummary, appended, false);
+            }
+            return;
+        }
+        log.debug("聊天记忆窗口不是当前窗口的延续，重置 Redis 窗口: conversationId={}", conversationId);
+        writeWindow(conversationId, changedSummary != null ? changedSummary : current.summary(), body, true);
+    }
+
+    /**
+     * 删除会话的全部记忆（含摘要）
+     *
+     * @param conversationId 会话ID
+     */
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        enqueue(new Delete(conversationId));
+        if (properties.isRedisEnabled()) {
+            try {
+                redissonClient.getKeys().delete(WINDOW_KEY_PREFIX + conversationId, SUMMARY_KEY_PREFIX + conversationId);
+            } catch (Exception e) {
+                log.warn("删除 Redis 聊天记忆窗口失败: conversationId={}, error={}", conversationId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 压缩窗口：窗口首部的若干条消息替换为摘要（原摘要被新摘要取代）
+     * <p>
+     * 被替换的消息仍保留在完整历史中。窗口首部已不是这些消息时（并发写入或已被其他实例压缩）不做修改。
+     *
+     * @param conversationId 会话ID
+     * @param summarized     被摘要替换的消息（窗口首部，不含原摘要）
+     * @param summary        新摘要
+     * @return true 表示已压缩
+     */
+    public boolean compact(String conversationId, List<Message> summarized, String summary) {
+        List<StoredMessage> expected = summarized.stream().map(StoredMessage::of).toList();
+        if (expected.isEmpty()) {
+            return false;
+        }
+
+        if (properties.isRedisEnabled()) {
+            try {
+                List<Object> args = new ArrayList<>(expected.size() + 3);
+                args.add(String.valueOf(expected.size()));
+                args.add(summary);
+                args.add(String.valueOf(properties.getRedisTtl().toMillis()));
+                for (StoredMessage message : expected) {
+                    args.add(jsonMapper.writeValueAsString(message));
+                }
+                Boolean applied = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, COMPACT_SCRIPT,
+                        RScript.ReturnType.BOOLEAN, List.<Object>of(WINDOW_KEY_PREFIX + conversationId, SUMMARY_KEY_PREFIX + conversationId),
+                        args.toArray());
+                if (!Boolean.TRUE.equals(applied)) {
+                    return false;
+                }
+            } catch (Exception e) {
+                log.warn("压缩 Redis 聊天记忆窗口失败，删除窗口后从 MySQL 重建: conversationId={}, error={}", conversationId, e.getMessage());
+                deleteWindowQuietly(conversationId);
+            }
+        }
+
+        // 先写入待写入消息，摘要覆盖的消息才有 id
+        flush();
+        synchronized (flushLock) {
+            SummaryRow current = findSummary(conversationId);
+            List<IdentifiedMessage> rows = new ArrayList<>(jdbcTemplate.query(SELECT_WINDOW_SQL,
+                    (rs, rowNum) -> new IdentifiedMessage(rs.getLong("id"),
+                            new StoredMessage(rs.getString("type"), rs.getString("content"), null)),
+                    conversationId, current == null ? 0L : current.coveredUntilId(),
+                    properties.getMaxMessages() + expected.size()));
+            Collections.reverse(rows);
+
+            for (int start = rows.size() - expected.size(); start >= 0; start--) {
+                if (matches(rows, start, expected)) {
+                    long coveredUntilId = rows.get(start + expected.size() - 1).id();
+                    jdbcTemplate.update(UPSERT_SUMMARY_SQL, conversationId, summary, coveredUntilId,
+                            new Timestamp(System.currentTimeMillis()));
+                    return true;
+                }
+            }
+        }
+        log.debug("压缩的消息不在 MySQL 窗口中，跳过: conversationId={}", conversationId);
+        return properties.isRedisEnabled();
+    }
+
+    /**
+     * 读取会话的完整历史（不受窗口大小限制，不含摘要，含尚未写入 MySQL 的消息）
+     *
+     * @param conversationId 会话ID
+     * @return 全部消息（按时间升序）
+     */
+    public List<Message> findHistory(String conversationId) {
+        synchronized (flushLock) {
+            List<StoredMessage> rows = jdbcTemplate.query(SELECT_HISTORY_SQL, (rs, rowNum) -> new StoredMessage(
+                    rs.getString("type"), rs.getString("content"), ROW_MESSAGE_ID_PREFIX + rs.getLong("id")), conversationId);
+            return toMessages(applyPending(conversationId, new Window(null, rows)).body());
+        }
+    }
+
+    /**
+     * 当前窗口：Redis 未命中或不可用时从 MySQL 加载
+     */
+    private Window window(String conversationId) {
+        if (properties.isRedisEnabled()) {
+            try {
+                RBatch batch = redissonClient.createBatch();
+                batch.<String>getList(WINDOW_KEY_PREFIX + conversationId, StringCodec.INSTANCE).readAllAsync();
+                batch.<String>getBucket(SUMMARY_KEY_PREFIX + conversationId, StringCodec.INSTANCE).getAsync();
+                BatchResult<?> result = batch.execute();
+                @SuppressWarnings("unchecked")
+                List<String> raw = (List<String>) result.getResponses().get(0);
+                if (!raw.isEmpty()) {
+                    List<StoredMessage> body = new ArrayList<>(raw.size());
+                    boolean untagged = false;
+                    for (String json : raw) {
+                        StoredMessage message = jsonMapper.readValue(json, StoredMessage.class);
+                        untagged |= message.id() == null;
+                        body.add(message.id() == null ? message.withId(UUID.randomUUID().toString()) : message);
+                    }
+                    Window window = new Window((String) result.getResponses().get(1), body);
+                    if (untagged) {
+                        // 升级前写入的窗口不带消息标识，补齐后整体重写
+                        writeWindow(conversationId, window.summary(), body, true);
+                    }
+                    return window;
+                }
+            } catch (Exception e) {
+                log.warn("读取 Redis 聊天记忆窗口失败，从 MySQL 加载: conversationId={}, error={}", conversationId, e.getMessage());
+                return loadWindow(conversationId);
+            }
+        }
+
+        Window window = loadWindow(conversationId);
+        if (properties.isRedisEnabled() && !window.body().isEmpty()) {
+            writeWindow(conversationId, window.summary(), window.body(), true);
+        }
+        return window;
+    }
+
+    /**
+     * 从 MySQL 读取摘要及其后最近的窗口，并合并待写入操作
+     */
+    private Window loadWindow(String conversationId) {
+        int maxMessages = properties.getMaxMessages();
+        synchronized (flushLock) {
+            SummaryRow summary = findSummary(conversationId);
+            List<StoredMessage> rows = new ArrayList<>(jdbcTemplate.query(SELECT_WINDOW_SQL, (rs, rowNum) -> new StoredMessage(
+                    rs.getString("type"), rs.getString("content"), ROW_MESSAGE_ID_PREFIX + rs.getLong("id")),
+                    conversationId, summary == null ? 0L : summary.coveredUntilId(), maxMessages));
+            Collections.reverse(rows);
+            Window merged = applyPending(conversationId, new Window(summary == null ? null : summary.content(), rows));
+            List<StoredMessage> body = merged.body();
+            return body.size() > maxMessages
+                    ? new Window(merged.summary(), new ArrayList<>(body.subList(body.size() - maxMessages, body.size())))
+                    : merged;
+        }
+    }
+
+    private SummaryRow findSummary(String conversationId) {
+        List<SummaryRow> rows = jdbcTemplate.query(SELECT_SUMMARY_SQL,
+                (rs, rowNum) -> new SummaryRow(rs.getString("content"), rs.getLong("covered_until_id")), conversationId);
+        return rows.isEmpty() ? null : rows.getFirst();
+    }
+
+    /**
+     * 写入 Redis 窗口（追加或整体替换），按窗口大小裁剪并续期；失败时删除窗口，下次从 MySQL 加载
+     *
+     * @param summary 摘要：替换时为窗口摘要（null 表示无摘要），追加时为变化后的摘要（null 表示未变化）
+     */
+    private void writeWindow(String conversationId, String summary, List<StoredMessage> messages, boolean replace) {
+        if (!properties.isRedisEnabled()) {
+            return;
+        }
+        try {
+            List<String> values = new ArrayList<>(messages.size());
+            for (StoredMessage message : messages) {
+                values.add(jsonMapper.writeValueAsString(message));
+            }
+            RBatch batch = redissonClient.createBatch();
+            RListAsync<String> list = batch.getList(WINDOW_KEY_PREFIX + conversationId, StringCodec.INSTANCE);
+            RBucketAsync<String> summaryBucket = batch.getBucket(SUMMARY_KEY_PREFIX + conversationId, StringCodec.INSTANCE);
+            if (replace) {
+                list.deleteAsync();
+            }
+            if (!values.isEmpty()) {
+                list.addAllAsync(values);
+                list.trimAsync(-properties.getMaxMessages(), -1);
+            }
+            list.expireAsync(properties.getRedisTtl());
+            if (summary != null) {
+                summaryBucket.setAsync(summary, properties.getRedisTtl());
+            } else if (replace) {
+                summaryBucket.deleteAsync();
+            } else {
+                summaryBucket.expireAsync(properties.getRedisTtl());
+            }
+            batch.execute();
+        } catch (Exception e) {
+            log.warn("写入 Redis 聊天记忆窗口失败: conversationId={}, error={}", conversationId, e.getMessage());
+            deleteWindowQuietly(conversationId);
+        }
+    }
+
+    private void deleteWindowQuietly(String conversationId) {
+        try {
+            redissonClient.getKeys().delete(WINDOW_KEY_PREFIX + conversationId, SUMMARY_KEY_PREFIX + conversationId);
+        } catch (Exception ignored) {
+            // Redis 不可用时读取同样失败，会直接从 MySQL 加载
+        }
+    }
+
+    /**
+     * 按提交顺序将待写入操作应用到从 MySQL 读取的窗口上（调用方持有 flushLock）
+     */
+    private Window applyPending(String conversationId, Window window) {
+        String summary = window.summary();
+        List<StoredMessage> body = new ArrayList<>(window.body());
+        for (Op op : pendingOps()) {
+            if (!op.conversationId().equals(conversationId)) {
+                continue;
+            }
+            switch (op) {
+                case Delete ignored -> {
+                    summary = null;
+                    body.clear();
+                }
+                case Summary pending -> summary = pending.content();
+                case Append append -> body.addAll(append.messages());
+            }
+        }
+        return new Window(summary, body);
+    }
+
+    /**
+     * 正在写入与排队中的操作快照（调用方持有 flushLock）
+     */
+    private List<Op> pendingOps() {
+        List<Op> ops = new ArrayList<>(inFlight);
+        synchronized (queue) {
+            ops.addAll(queue);
+        }
+        return ops;
+    }
+
+    /**
+     * 提交写入操作，待写入消息超过上限时由调用线程同步写入
+     */
+    private void enqueue(Op op) {
+        synchronized (queue) {
+            queue.addLast(op);
+        }
+        if (op instanceof Append append
+                && pendingMessages.addAndGet(append.messages().size()) > properties.getMaxPending()) {
+            flushQuietly();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("写入聊天记忆失败，稍后重试: pending={}, error={}", pendingMessages.get(), e.getMessage());
+        }
+    }
+
+    /**
+     * 按批写入待写入操作，直到队列为空；批次失败时保留在 inFlight 中等待重试
+     */
+    private void flush() {
+        synchronized (flushLock) {
+            while (true) {
+                if (inFlight.isEmpty()) {
+                    int rows = 0;
+                    synchronized (queue) {
+                        while (!queue.isEmpty() && rows < properties.getFlushBatchSize()) {
+                            Op op = queue.pollFirst();
+                            inFlight.add(op);
+                            rows += op instanceof Append append ? append.messages().size() : 1;
+                        }
+                    }
+                    if (inFlight.isEmpty()) {
+                        return;
+                    }
+                }
+                transactionTemplate.executeWithoutResult(status -> write(inFlight));
+                int written = inFlight.stream()
+                        .mapToInt(op -> op instanceof Append append ? append.messages().size() : 0)
+                        .sum();
+                pendingMessages.addAndGet(-written);
+                inFlight.clear();
+            }
+        }
+    }
+
+    /**
+     * 连续的追加操作合并为一次批量插入，删除与摘要操作按顺序穿插执行
+     */
+    private void write(List<Op> ops) {
+        List<Object[]> batch = new ArrayList<>();
+        for (Op op : ops) {
+            if (op instanceof Append append) {
+                Timestamp timestamp = new Timestamp(append.createdAt());
+                for (StoredMessage message : append.messages()) {
+                    batch.add(new Object[]{append.conversationId(), message.text(), message.type(), timestamp});
+                }
+                continue;
+            }
+            if (!batch.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                batch.clear();
+            }
+            switch (op) {
+                case Delete delete -> {
+                    jdbcTemplate.update(DELETE_SQL, delete.conversationId());
+                    jdbcTemplate.update(DELETE_SUMMARY_SQL, delete.conversationId());
+                }
+                case Summary summary -> jdbcTemplate.update(UPSERT_SUMMARY_CONTENT_SQL, summary.conversationId(),
+                        summary.content(), new Timestamp(summary.createdAt()));
+                case Append ignored -> {
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        }
+    }
+
+    private static boolean matches(List<IdentifiedMessage> rows, int start, List<StoredMessage> expected) {
+        for (int i = 0; i < expected.size(); i++) {
+            if (!rows.get(start + i).message().sameContent(expected.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String messageId(Message message) {
+        return message.getMetadata().get(MESSAGE_ID_METADATA) instanceof String id ? id : null;
+    }
+
+    private static List<Message> toMessages(List<StoredMessage> stored) {
+        List<Message> messages = new ArrayList<>(stored.size());
+        for (StoredMessage message : stored) {
+            messages.add(message.toMessage());
+        }
+        return messages;
+    }
+
+    /**
+     * 活跃窗口
+     *
+     * @param summary 摘要（无摘要时为 null）
+     * @param body    摘要之后的消息
+     */
+    private record Window(String summary, List<StoredMessage> body) {
+    }
+
+    /**
+     * MySQL 中保存的摘要
+     *
+     * @param content        摘要
+     * @param coveredUntilId 摘要覆盖的最后一条消息 id
+     */
+    private record SummaryRow(String content, long coveredUntilId) {
+    }
+
+    /**
+     * 带 MySQL id 的消息
+     *
+     * @param id      消息 id
+     * @param message 消息
+     */
+    private record IdentifiedMessage(long id, StoredMessage message) {
+    }
+
+    /**
+     * 写入操作
+     */
+    private sealed interface Op permits Append, Delete, Summary {
+
+        String conversationId();
+    }
+
+    /**
+     * 追加消息
+     *
+     * @param conversationId 会话ID
+     * @param messages       新增消息
+     * @param createdAt      提交时间（毫秒）
+     */
+    private record Append(String conversationId, List<StoredMessage> messages, long createdAt) implements Op {
+
+        private Append(String conversationId, List<StoredMessage> messages) {
+            this(conversationId, List.copyOf(messages), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 删除会话（含摘要）
+     *
+     * @param conversationId 会话ID
+     */
+    private record Delete(String conversationId) implements Op {
+    }
+
+    /**
+     * 更新摘要内容（不改变覆盖范围）
+     *
+     * @param conversationId 会话ID
+     * @param content        摘要
+     * @param createdAt      提交时间（毫秒）
+     */
+    private record Summary(String conversationId, String content, long createdAt) implements Op {
+
+        private Summary(String conversationId, String content) {
+            this(conversationId, content, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Redis 与 MySQL 中保存的消息（与 JDBC 仓储一致，只保存类型与文本）
+     *
+     * @param type 消息类型
+     * @param text 消息文本
+     * @param id   消息标识（只保存在 Redis 中，MySQL 中的消息以行 id 标识）
+     */
+    record StoredMessage(String type, String text, String id) {
+
+        static StoredMessage of(Message message) {
+            return of(message, messageId(message));
+        }
+
+        static StoredMessage of(Message message, String id) {
+            return new StoredMessage(message.getMessageType().name(), Objects.requireNonNullElse(message.getText(), ""), id);
+        }
+
+        StoredMessage withId(String id) {
+            return new StoredMessage(type, text, id);
+        }
+
+        boolean sameContent(StoredMessage other) {
+            return type.equals(other.type()) && text.equals(other.text());
+        }
+
+        Message toMessage() {
+            Map<String, Object> metadata = new HashMap<>();
+            if (id != null) {
+                metadata.put(MESSAGE_ID_METADATA, id);
+            }
+            return switch (MessageType.valueOf(type)) {
+                case USER -> UserMessage.builder().text(text).metadata(metadata).build();
+                case ASSISTANT -> AssistantMessage.builder().content(text).properties(metadata).build();
+                case SYSTEM -> SystemMessage.builder().text(text).metadata(metadata).build();
+                case TOOL -> ToolResponseMessage.builder().responses(List.of()).metadata(metadata).build();
+            };
+        }
+    }
+}
@@ -6,12 +6,16 @@ import cn.refinex.ai.application.dto.DocumentDTO;
 import cn.refinex.ai.application.dto.FolderDTO;
 import cn.refinex.ai.application.dto.KnowledgeBaseDTO;
 import cn.refinex.ai.application.dto.SearchResultDTO;
+import cn.refinex.ai.application.dto.VectorizationProgressDTO;
+import cn.refinex.ai.application.dto.VectorizeJobDTO;
 import cn.refinex.ai.interfaces.dto.*;
 import cn.refinex.ai.interfaces.vo.DocumentChunkVO;
 import cn.refinex.ai.interfaces.vo.DocumentVO;
 import cn.refinex.ai.interfaces.vo.FolderVO;
 import cn.refinex.ai.interfaces.vo.KnowledgeBaseVO;
 import cn.refinex.ai.interfaces.vo.SearchResultVO;
+import cn.refinex.ai.interfaces.vo.VectorizationProgressVO;
+import cn.refinex.ai.interfaces.vo.VectorizeJobVO;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
@@ -202,4 +206,33 @@ public interface KbApiAssembler {
      * @return 检索结果VO列表
      */
     List<SearchResultVO> toSearchResultVoList(List<SearchResultDTO> dtos);
+
+    // ── VectorizationProgress ──
+
+    /**
+     * 向量化进度DTO转换为向量化进度VO
+     *
+     * @param dto 向量化进度DTO
+     * @return 向量化进度VO
+     */
+    VectorizationProgressVO toVectorizationProgressVo(VectorizationProgressDTO dto);
+
+    // ── VectorizeJob ──
+
+    /**
+     * 查询向量化任务列表参数转换
+     *
+     * @param query 查询向量化任务列表参数
+     * @return 查询向量化任务列表命令
+     */
+    @Mapping(target = "knowledgeBaseId", ignore = true)
+    QueryVectorizeJobListCommand toQueryVectorizeJobListCommand(VectorizeJobListQuery query);
+
+    /**
+     * 向量化任务DTO列表转换为向量化任务VO列表
+     *
+     * @param dtos 向量化任务DTO列表
+     * @return 向量化任务VO列表
+     */
+    List<VectorizeJobVO> toVectorizeJobVoList(List<VectorizeJobDTO> dtos);
 }
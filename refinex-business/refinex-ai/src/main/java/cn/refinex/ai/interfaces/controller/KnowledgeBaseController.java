@@ -399,6 +399,44 @@ public class KnowledgeBaseController {
         }).subscribeOn(Schedulers.boundedElastic());
     }
 
+    /**
+     * 查询知识库最近一轮向量化进度
+     *
+     * @param kbId 知识库ID
+     * @return 向量化进度（含文档/切片吞吐），从未向量化时为空
+     */
+    @GetMapping("/{kbId}/vectorize/progress")
+    public Mono<Result<VectorizationProgressVO>> getVectorizationProgress(@PathVariable @Positive(message = "知识库ID必须大于0") Long kbId) {
+        return Mono.fromCallable(() -> {
+            VectorizationProgressDTO progress = vectorizationService.getProgress(kbId);
+            return Result.success(kbApiAssembler.toVectorizationProgressVo(progress));
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 查询知识库向量化任务分页列表
+     *
+     * @param kbId  知识库ID
+     * @param query 查询参数
+     * @return 任务分页列表（含执行实例、心跳与检查点）
+     */
+    @GetMapping("/{kbId}/vectorize/jobs")
+    public Mono<PageResult<VectorizeJobVO>> listVectorizeJobs(
+            @PathVariable @Positive(message = "知识库ID必须大于0") Long kbId,
+            @Valid VectorizeJobListQuery query) {
+        return Mono.fromCallable(() -> {
+            QueryVectorizeJobListCommand command = kbApiAssembler.toQueryVectorizeJobListCommand(query);
+            command.setKnowledgeBaseId(kbId);
+            PageResponse<VectorizeJobDTO> jobs = vectorizationService.listJobs(command);
+            return PageResult.success(
+                    kbApiAssembler.toVectorizeJobVoList(jobs.getData()),
+                    jobs.getTotal(),
+                    jobs.getCurrentPage(),
+                    jobs.getPageSize()
+            );
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
     /**
      * 移除文档向量
      *
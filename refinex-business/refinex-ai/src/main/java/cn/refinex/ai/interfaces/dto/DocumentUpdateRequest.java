@@ -26,6 +26,22 @@ public class DocumentUpdateRequest {
      */
     private Long folderId;
 
+    /**
+     * 原始文件存储地址（变更时重新提取内容）
+     */
+    @Size(max = 1024, message = "文件存储地址长度不能超过1024个字符")
+    private String fileUrl;
+
+    /**
+     * 文件大小(字节)
+     */
+    private Long fileSize;
+
+    /**
+     * 编辑后的文档纯文本内容（未变更文件地址时生效）
+     */
+    private String content;
+
     /**
      * 状态 1正常 0禁用
      */
@@ -0,0 +1,31 @@
+package cn.refinex.ai.interfaces.dto;
+
+import cn.refinex.base.request.PageRequest;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 向量化任务列表查询
+ *
+ * @author refinex
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class VectorizeJobListQuery extends PageRequest {
+
+    /**
+     * 文档ID
+     */
+    @Positive(message = "文档ID必须大于0")
+    private Long documentId;
+
+    /**
+     * 状态 0排队 1执行中 2完成 3失败 4取消
+     */
+    @Min(value = 0, message = "状态取值非法")
+    @Max(value = 4, message = "状态取值非法")
+    private Integer status;
+}
@@ -0,0 +1,64 @@
+package cn.refinex.ai.interfaces.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 知识库向量化进度 VO
+ *
+ * @author refinex
+ */
+@Data
+public class VectorizationProgressVO {
+
+    /**
+     * 本轮文档总数
+     */
+    private Integer totalDocuments;
+
+    /**
+     * 已完成文档数
+     */
+    private Integer completedDocuments;
+
+    /**
+     * 失败文档数
+     */
+    private Integer failedDocuments;
+
+    /**
+     * 已写入切片数
+     */
+    private Long chunks;
+
+    /**
+     * 是否运行中
+     */
+    private Boolean running;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startedAt;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishedAt;
+
+    /**
+     * 已耗时（毫秒）
+     */
+    private Long elapsedMillis;
+
+    /**
+     * 文档吞吐（篇/秒）
+     */
+    private Double documentsPerSecond;
+
+    /**
+     * 切片吞吐（条/秒）
+     */
+    private Double chunksPerSecond;
+}
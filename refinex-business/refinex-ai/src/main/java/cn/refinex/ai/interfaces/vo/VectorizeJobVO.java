@@ -0,0 +1,89 @@
+package cn.refinex.ai.interfaces.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 向量化任务 VO
+ *
+ * @author refinex
+ */
+@Data
+public class VectorizeJobVO {
+
+    /**
+     * 任务ID
+     */
+    private Long id;
+
+    /**
+     * 知识库ID
+     */
+    private Long knowledgeBaseId;
+
+    /**
+     * 文档ID
+     */
+    private Long documentId;
+
+    /**
+     * 轮次ID（同一轮提交的任务共享）
+     */
+    private Long roundId;
+
+    /**
+     * 状态 0排队 1执行中 2完成 3失败 4取消
+     */
+    private Integer status;
+
+    /**
+     * 已执行次数
+     */
+    private Integer attempts;
+
+    /**
+     * 切片总数
+     */
+    private Integer totalChunks;
+
+    /**
+     * 需嵌入写入的切片数
+     */
+    private Integer pendingChunks;
+
+    /**
+     * 已写入向量库的切片数（检查点）
+     */
+    private Integer checkpointChunks;
+
+    /**
+     * 执行实例标识
+     */
+    private String workerId;
+
+    /**
+     * 最近心跳时间
+     */
+    private LocalDateTime heartbeatAt;
+
+    /**
+     * 首次开始时间
+     */
+    private LocalDateTime startedAt;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishedAt;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 提交时间
+     */
+    private LocalDateTime gmtCreate;
+}
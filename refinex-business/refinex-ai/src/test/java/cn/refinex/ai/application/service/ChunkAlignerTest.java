@@ -0,0 +1,131 @@
+package cn.refinex.ai.application.service;
+
+import cn.refinex.ai.application.service.ChunkAligner.Alignment;
+import cn.refinex.ai.application.service.ChunkAligner.MatchType;
+import cn.refinex.ai.domain.model.entity.DocumentChunkEntity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 切片对齐器测试
+ * <p>
+ * 对齐只比较内容哈希是否相等，测试中直接以文本作为哈希。
+ *
+ * @author refinex
+ */
+class ChunkAlignerTest {
+
+    private static final String INTRO = "Refinex 知识库支持上传 PDF、Word 与 Markdown 文档，上传后自动切片并向量化。";
+    private static final String SEARCH = "检索时同时执行向量检索与全文检索，两路结果按倒数排名融合后返回给对话模型。";
+    private static final String BILLING = "嵌入模型按 token 计费，内容未变的切片复用缓存向量，不会重复调用嵌入模型。";
+    private static final String LIMITS = "单个文档最大 10MB，单个知识库最多包含一万个文档，超出后需要联系管理员扩容。";
+
+    @Test
+    void testUnchangedChunksAreIdentical() {
+        List<DocumentChunkEntity> existing = existing(INTRO, SEARCH, BILLING);
+
+        Alignment alignment = align(List.of(INTRO, SEARCH, BILLING), existing);
+
+        Assertions.assertEquals(List.of(MatchType.IDENTICAL, MatchType.IDENTICAL, MatchType.IDENTICAL), alignment.types());
+        Assertions.assertEquals(existing, alignment.matched());
+        Assertions.assertTrue(alignment.removed().isEmpty());
+    }
+
+    @Test
+    void testEditedChunkIsModified() {
+        List<DocumentChunkEntity> existing = existing(INTRO, SEARCH, BILLING);
+        String edited = SEARCH.replace("对话模型", "大语言模型");
+
+        Alignment alignment = align(List.of(INTRO, edited, BILLING), existing);
+
+        Assertions.assertEquals(List.of(MatchType.IDENTICAL, MatchType.MODIFIED, MatchType.IDENTICAL), alignment.types());
+        Assertions.assertSame(existing.get(1), alignment.matched().get(1));
+        Assertions.assertTrue(alignment.removed().isEmpty());
+    }
+
+    @Test
+    void testInsertedChunkIsAdded() {
+        List<DocumentChunkEntity> existing = existing(INTRO, BILLING);
+
+        Alignment alignment = align(List.of(INTRO, LIMITS, BILLING), existing);
+
+        Assertions.assertEquals(List.of(MatchType.IDENTICAL, MatchType.ADDED, MatchType.IDENTICAL), alignment.types());
+        Assertions.assertNull(alignment.matched().get(1));
+        Assertions.assertSame(existing.get(1), alignment.matched().get(2));
+        Assertions.assertTrue(alignment.removed().isEmpty());
+    }
+
+    @Test
+    void testDeletedChunkIsRemoved() {
+        List<DocumentChunkEntity> existing = existing(INTRO, SEARCH, BILLING);
+
+        Alignment alignment = align(List.of(INTRO, BILLING), existing);
+
+        Assertions.assertEquals(List.of(MatchType.IDENTICAL, MatchType.IDENTICAL), alignment.types());
+        Assertions.assertEquals(List.of(existing.get(1)), alignment.removed());
+    }
+
+    @Test
+    void testDissimilarReplacementIsAddedAndRemoved() {
+        List<DocumentChunkEntity> existing = existing(INTRO, SEARCH, BILLING);
+
+        Alignment alignment = align(List.of(INTRO, LIMITS, BILLING), existing);
+
+        Assertions.assertEquals(List.of(MatchType.IDENTICAL, MatchType.ADDED, MatchType.IDENTICAL), alignment.types());
+        Assertions.assertEquals(List.of(existing.get(1)), alignment.removed());
+    }
+
+    @Test
+    void testReorderedChunksPairByContent() {
+        List<DocumentChunkEntity> existing = existing(INTRO, SEARCH, BILLING);
+
+        Alignment alignment = align(List.of(BILLING, INTRO, SEARCH), existing);
+
+        Assertions.assertEquals(List.of(MatchType.IDENTICAL, MatchType.IDENTICAL, MatchType.IDENTICAL), alignment.types());
+        Assertions.assertEquals(List.of(existing.get(2), existing.get(0), existing.get(1)), alignment.matched());
+        Assertions.assertTrue(alignment.removed().isEmpty());
+    }
+
+    @Test
+    void testDuplicateChunksPairInOrder() {
+        List<DocumentChunkEntity> existing = existing(INTRO, SEARCH, INTRO);
+
+        Alignment alignment = align(List.of(INTRO, INTRO), existing);
+
+        Assertions.assertEquals(List.of(existing.get(0), existing.get(2)), alignment.matched());
+        Assertions.assertEquals(List.of(existing.get(1)), alignment.removed());
+    }
+
+    @Test
+    void testModifiedMatchStaysBetweenAnchors() {
+        // 被编辑的切片只在左右已配对切片之间的旧位置中寻找匹配，不会与窗口外的相似切片配对
+        String intro2 = INTRO.replace("Markdown", "Excel");
+        List<DocumentChunkEntity> existing = existing(INTRO, SEARCH, BILLING);
+
+        Alignment alignment = align(List.of(SEARCH, intro2, BILLING), existing);
+
+        Assertions.assertEquals(List.of(MatchType.IDENTICAL, MatchType.ADDED, MatchType.IDENTICAL), alignment.types());
+        Assertions.assertEquals(List.of(existing.get(0)), alignment.removed());
+    }
+
+    private static Alignment align(List<String> texts, List<DocumentChunkEntity> existing) {
+        return ChunkAligner.align(texts, texts, existing);
+    }
+
+    private static List<DocumentChunkEntity> existing(String... texts) {
+        List<DocumentChunkEntity> chunks = new ArrayList<>(texts.length);
+        for (int i = 0; i < texts.length; i++) {
+            DocumentChunkEntity chunk = new DocumentChunkEntity();
+            chunk.setId((long) i + 1);
+            chunk.setChunkIndex(i);
+            chunk.setContent(texts[i]);
+            chunk.setContentHash(texts[i]);
+            chunk.setEmbeddingId("vec-" + i);
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,391 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.VectorStoreProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * HNSW 索引测试
+ *
+ * @author refinex
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+    private static final int TOP_K = 10;
+    private static final int EF_SEARCH = 64;
+
+    @TempDir
+    Path root;
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() {
+        // 压缩时会替换索引目录本身，放在临时目录的子目录中
+        directory = root.resolve("index");
+    }
+
+    @Test
+    void testRecallAgainstBruteForce() {
+        List<float[]> vectors = randomVectors(2000, 1);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+
+            List<float[]> queries = randomVectors(50, 2);
+            int hits = 0;
+            for (float[] query : queries) {
+                Set<String> expected = bruteForce(vectors, query, TOP_K);
+                for (HnswIndex.Hit hit : index.search(query, TOP_K, EF_SEARCH, null)) {
+                    if (expected.contains(hit.node().id())) {
+                        hits++;
+                    }
+                }
+            }
+            double recall = hits / (double) (queries.size() * TOP_K);
+            Assertions.assertTrue(recall >= 0.95, "recall@10 = " + recall);
+        }
+    }
+
+    @Test
+    void testSearchReturnsExactMatchFirst() {
+        List<float[]> vectors = randomVectors(500, 3);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+
+            List<HnswIndex.Hit> hits = index.search(vectors.get(42), TOP_K, EF_SEARCH, null);
+
+            Assertions.assertEquals("v42", hits.getFirst().node().id());
+            Assertions.assertEquals(1.0f, hits.getFirst().similarity(), 1e-5);
+            for (int i = 1; i < hits.size(); i++) {
+                Assertions.assertTrue(hits.get(i - 1).similarity() >= hits.get(i).similarity());
+            }
+            HnswIndex.Entry stored = index.load(hits.getFirst().node());
+            Assertions.assertEquals("text-42", stored.text());
+            Assertions.assertEquals(42L, stored.metadata().get(HnswIndex.DOCUMENT_ID));
+        }
+    }
+
+    @Test
+    void testDeletedNodesExcludedFromResults() {
+        List<float[]> vectors = randomVectors(500, 4);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+
+            Assertions.assertEquals(2, index.delete(List.of("v7", "v8", "missing")));
+            Assertions.assertEquals(0, index.delete(List.of("v7")));
+
+            Assertions.assertEquals(498, index.liveCount());
+            for (HnswIndex.Hit hit : index.search(vectors.get(7), TOP_K, EF_SEARCH, null)) {
+                Assertions.assertNotEquals("v7", hit.node().id());
+                Assertions.assertNotEquals("v8", hit.node().id());
+            }
+            Assertions.assertEquals("v9", index.search(vectors.get(9), 1, EF_SEARCH, null).getFirst().node().id());
+        }
+    }
+
+    @Test
+    void testDeleteByFilter() {
+        List<float[]> vectors = randomVectors(300, 5);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+
+            int deleted = index.delete(node -> node.attribute(HnswIndex.KNOWLEDGE_BASE_ID) == 1L);
+
+            Assertions.assertEquals(150, deleted);
+            Assertions.assertEquals(150, index.liveCount());
+            for (HnswIndex.Hit hit : index.search(vectors.get(1), 50, EF_SEARCH, null)) {
+                Assertions.assertEquals(0L, hit.node().attribute(HnswIndex.KNOWLEDGE_BASE_ID));
+            }
+        }
+    }
+
+    @Test
+    void testReplaceKeepsOnlyLatestVersion() {
+        List<float[]> vectors = randomVectors(300, 6);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+            float[] replacement = randomVectors(1, 7).getFirst();
+
+            index.add(List.of(new HnswIndex.Entry("v3", replacement, "replaced", Map.of())));
+
+            Assertions.assertEquals(300, index.liveCount());
+            List<HnswIndex.Hit> hits = index.search(replacement, TOP_K, EF_SEARCH, null);
+            Assertions.assertEquals("v3", hits.getFirst().node().id());
+            Assertions.assertEquals("replaced", index.load(hits.getFirst().node()).text());
+            Assertions.assertEquals(1, hits.stream().filter(hit -> hit.node().id().equals("v3")).count());
+        }
+    }
+
+    @Test
+    void testFilteredSearchFallsBackToExactScan() {
+        List<float[]> vectors = randomVectors(1000, 8);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+
+            // 只有 document_id = 500 的一个节点满足条件，且与查询向量不相近
+            List<HnswIndex.Hit> hits = index.search(vectors.get(1), TOP_K, EF_SEARCH,
+                    node -> node.attribute(HnswIndex.DOCUMENT_ID) == 500L);
+
+            Assertions.assertEquals(1, hits.size());
+            Assertions.assertEquals("v500", hits.getFirst().node().id());
+        }
+    }
+
+    @Test
+    void testReopenRestoresIndexFromFiles() {
+        List<float[]> vectors = randomVectors(800, 9);
+        List<float[]> queries = randomVectors(20, 10);
+        List<List<String>> before = new ArrayList<>();
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+            index.delete(List.of("v0", "v1"));
+            for (float[] query : queries) {
+                before.add(ids(index.search(query, TOP_K, EF_SEARCH, null)));
+            }
+        }
+
+        try (HnswIndex reopened = HnswIndex.open(directory, config())) {
+            Assertions.assertEquals(DIMENSIONS, reopened.dimensions());
+            Assertions.assertEquals(798, reopened.liveCount());
+            for (int i = 0; i < queries.size(); i++) {
+                Assertions.assertEquals(before.get(i), ids(reopened.search(queries.get(i), TOP_K, EF_SEARCH, null)));
+            }
+            HnswIndex.Hit hit = reopened.search(vectors.get(5), 1, EF_SEARCH, null).getFirst();
+            Assertions.assertEquals("text-5", reopened.load(hit.node()).text());
+        }
+    }
+
+    @Test
+    void testReopenWithoutSnapshotRebuildsGraph() throws Exception {
+        List<float[]> vectors = randomVectors(400, 11);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+        }
+        Files.delete(directory.resolve("graph.snapshot"));
+
+        try (HnswIndex reopened = HnswIndex.open(directory, config())) {
+            Assertions.assertEquals(400, reopened.liveCount());
+            Assertions.assertEquals("v123", reopened.search(vectors.get(123), 1, EF_SEARCH, null).getFirst().node().id());
+        }
+    }
+
+    @Test
+    void testTruncatedLogRecordDropped() throws Exception {
+        List<float[]> vectors = randomVectors(100, 12);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+        }
+        // 模拟追加日志时进程退出：末尾只写入了半条记录
+        Path log = directory.resolve("documents.log");
+        Files.write(log, new byte[]{0, 0, 1, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (HnswIndex reopened = HnswIndex.open(directory, config())) {
+            Assertions.assertEquals(100, reopened.liveCount());
+            reopened.add(entries(randomVectors(1, 13), 100));
+            Assertions.assertEquals(101, reopened.liveCount());
+        }
+    }
+
+    @Test
+    void testRuntimeCompactionReclaimsDeletedNodes() throws Exception {
+        List<float[]> vectors = randomVectors(1200, 14);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+            HnswIndex.Node kept = index.search(vectors.get(1), 1, EF_SEARCH, null).getFirst().node();
+            long logBefore = Files.size(directory.resolve("documents.log"));
+
+            List<String> evens = IntStream.range(0, 1200).filter(i -> i % 2 == 0).mapToObj(i -> "v" + i).toList();
+            index.delete(evens);
+
+            // 删除后超过 compactRatio，日志只保留存活节点
+            Assertions.assertTrue(Files.size(directory.resolve("documents.log")) < logBefore * 0.6);
+            Assertions.assertFalse(Files.exists(directory.resolveSibling(directory.getFileName() + ".compact")));
+            Assertions.assertEquals(600, index.liveCount());
+            Assertions.assertEquals("v1", index.search(vectors.get(1), 1, EF_SEARCH, null).getFirst().node().id());
+            Assertions.assertTrue(index.search(vectors.get(2), TOP_K, EF_SEARCH, null).stream()
+                    .noneMatch(hit -> hit.node().id().equals("v2")));
+
+            // 压缩前检索到的节点仍可读取
+            Assertions.assertEquals("text-1", index.load(kept).text());
+
+            index.add(entries(randomVectors(1, 15), 5000));
+            Assertions.assertEquals(601, index.liveCount());
+        }
+
+        try (HnswIndex reopened = HnswIndex.open(directory, config())) {
+            Assertions.assertEquals(601, reopened.liveCount());
+        }
+    }
+
+    @Test
+    void testConcurrentInsertAndSearch() throws Exception {
+        List<float[]> vectors = randomVectors(3000, 16);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors.subList(0, 200), 0));
+
+            ExecutorService executor = Executors.newFixedThreadPool(5);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+            CountDownLatch readers = new CountDownLatch(4);
+            executor.submit(() -> {
+                try {
+                    for (int from = 200; from < vectors.size(); from += 100) {
+                        index.add(entries(vectors.subList(from, from + 100), from));
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    writing.set(false);
+                }
+            });
+            for (int r = 0; r < 4; r++) {
+                int seed = r;
+                executor.submit(() -> {
+                    try {
+                        Random random = new Random(seed);
+                        while (writing.get()) {
+                            float[] query = vectors.get(random.nextInt(200));
+                            List<HnswIndex.Hit> hits = index.search(query, TOP_K, EF_SEARCH, null);
+                            Assertions.assertFalse(hits.isEmpty());
+                            Assertions.assertNotNull(index.load(hits.getFirst().node()).text());
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        readers.countDown();
+                    }
+                });
+            }
+            Assertions.assertTrue(readers.await(60, TimeUnit.SECONDS));
+            executor.shutdown();
+            Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            Assertions.assertTrue(errors.isEmpty(), () -> "并发检索失败: " + errors.peek());
+
+            Assertions.assertEquals(3000, index.liveCount());
+            int found = 0;
+            for (int i = 0; i < vectors.size(); i += 30) {
+                if (index.search(vectors.get(i), 1, EF_SEARCH, null).getFirst().node().id().equals("v" + i)) {
+                    found++;
+                }
+            }
+            Assertions.assertTrue(found >= 95, "found = " + found);
+        }
+    }
+
+    @Test
+    void testSearchDuringRuntimeCompaction() throws Exception {
+        List<float[]> vectors = randomVectors(1500, 17);
+        try (HnswIndex index = HnswIndex.open(directory, config())) {
+            index.add(entries(vectors, 0));
+
+            ExecutorService executor = Executors.newFixedThreadPool(3);
+            AtomicBoolean compacting = new AtomicBoolean(true);
+            ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+            CountDownLatch readers = new CountDownLatch(3);
+            for (int r = 0; r < 3; r++) {
+                int seed = r;
+                executor.submit(() -> {
+                    try {
+                        Random random = new Random(seed);
+                        while (compacting.get()) {
+                            // 只检索奇数节点，压缩前后都存在
+                            int i = random.nextInt(750) * 2 + 1;
+                            for (HnswIndex.Hit hit : index.search(vectors.get(i), TOP_K, EF_SEARCH, null)) {
+                                HnswIndex.Entry stored = index.load(hit.node());
+                                if (stored != null) {
+                                    Assertions.assertEquals("text-" + hit.node().id().substring(1), stored.text());
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        readers.countDown();
+                    }
+                });
+            }
+
+            index.delete(IntStream.range(0, 1500).filter(i -> i % 2 == 0).mapToObj(i -> "v" + i).toList());
+            compacting.set(false);
+            Assertions.assertTrue(readers.await(30, TimeUnit.SECONDS));
+            executor.shutdown();
+            Assertions.assertTrue(errors.isEmpty(), () -> "压缩期间检索失败: " + errors.peek());
+            Assertions.assertEquals(750, index.liveCount());
+        }
+    }
+
+    private static VectorStoreProperties.HnswProperties config() {
+        VectorStoreProperties.HnswProperties cfg = new VectorStoreProperties.HnswProperties();
+        cfg.setM(12);
+        cfg.setEfConstruction(100);
+        return cfg;
+    }
+
+    private static List<HnswIndex.Entry> entries(List<float[]> vectors, int firstId) {
+        List<HnswIndex.Entry> entries = new ArrayList<>(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            int id = firstId + i;
+            entries.add(new HnswIndex.Entry("v" + id, vectors.get(i), "text-" + id,
+                    Map.of(HnswIndex.KNOWLEDGE_BASE_ID, (long) id % 2, HnswIndex.DOCUMENT_ID, (long) id)));
+        }
+        return entries;
+    }
+
+    private static List<float[]> randomVectors(int count, long seed) {
+        Random random = new Random(seed);
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+
+    private static Set<String> bruteForce(List<float[]> vectors, float[] query, int k) {
+        List<Integer> order = new ArrayList<>(IntStream.range(0, vectors.size()).boxed().toList());
+        order.sort(Comparator.comparingDouble((Integer i) -> cosine(vectors.get(i), query)).reversed());
+        Set<String> ids = new HashSet<>();
+        order.subList(0, k).forEach(i -> ids.add("v" + i));
+        return ids;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double na = 0;
+        double nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+
+    private static List<String> ids(List<HnswIndex.Hit> hits) {
+        return hits.stream().map(hit -> hit.node().id()).toList();
+    }
+}
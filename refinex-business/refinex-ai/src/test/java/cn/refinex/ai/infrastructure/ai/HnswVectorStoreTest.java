@@ -0,0 +1,132 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.VectorStoreProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * HNSW VectorStore 测试（写入与检索向量由桩嵌入模型按文本生成）
+ *
+ * @author refinex
+ */
+class HnswVectorStoreTest {
+
+    @TempDir
+    Path root;
+
+    private HnswIndex index;
+    private HnswVectorStore vectorStore;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embed(any(Document.class))).thenAnswer(invocation -> vector(invocation.<Document>getArgument(0).getText()));
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> vector(invocation.getArgument(0)));
+        index = HnswIndex.open(root.resolve("index"), new VectorStoreProperties.HnswProperties());
+        vectorStore = new HnswVectorStore(index, embeddingModel, 50);
+
+        vectorStore.add(List.of(
+                document("c1", "apple", 1L, 10L),
+                document("c2", "apricot", 1L, 11L),
+                document("c3", "banana", 2L, 20L),
+                document("c4", "blueberry", 3L, 30L)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.close();
+    }
+
+    @Test
+    void testSearchReturnsScoreAndMetadata() {
+        List<Document> documents = vectorStore.similaritySearch(SearchRequest.builder().query("apple").topK(1).build());
+
+        Assertions.assertEquals(1, documents.size());
+        Document document = documents.getFirst();
+        Assertions.assertEquals("c1", document.getId());
+        Assertions.assertEquals("apple", document.getText());
+        Assertions.assertEquals(1.0, document.getScore(), 1e-5);
+        Assertions.assertEquals(0.0, (double) document.getMetadata().get("distance"), 1e-5);
+        Assertions.assertEquals(10L, document.getMetadata().get(HnswIndex.DOCUMENT_ID));
+    }
+
+    @Test
+    void testSimilarityThresholdCutsResults() {
+        List<Document> documents = vectorStore.similaritySearch(SearchRequest.builder()
+                .query("apple").topK(4).similarityThreshold(0.99).build());
+
+        Assertions.assertEquals(List.of("c1"), ids(documents));
+    }
+
+    @Test
+    void testFilterExpressions() {
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+
+        Assertions.assertEquals(List.of("c3"), ids(search(b.eq(HnswIndex.KNOWLEDGE_BASE_ID, 2L))));
+        Assertions.assertEquals(List.of("c1", "c2", "c4"), sorted(search(b.in(HnswIndex.KNOWLEDGE_BASE_ID, 1L, 3L))));
+        Assertions.assertEquals(List.of("c3", "c4"), sorted(search(b.nin(HnswIndex.KNOWLEDGE_BASE_ID, List.of(1L)))));
+        Assertions.assertEquals(List.of("c2"), ids(search(b.and(b.eq(HnswIndex.KNOWLEDGE_BASE_ID, 1L),
+                b.ne(HnswIndex.DOCUMENT_ID, 10L)))));
+        Assertions.assertEquals(List.of("c1", "c4"), sorted(search(b.or(b.eq(HnswIndex.DOCUMENT_ID, 10L),
+                b.eq(HnswIndex.DOCUMENT_ID, "30")))));
+    }
+
+    @Test
+    void testUnsupportedFilterKeyRejected() {
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> search(b.eq("title", "apple")));
+    }
+
+    @Test
+    void testDeleteByIdAndFilter() {
+        vectorStore.delete(List.of("c1"));
+        vectorStore.delete(new FilterExpressionBuilder().eq(HnswIndex.KNOWLEDGE_BASE_ID, 2L).build());
+
+        Assertions.assertEquals(List.of("c2", "c4"), sorted(vectorStore.similaritySearch(SearchRequest.builder().query("apple").topK(4).build())));
+    }
+
+    private List<Document> search(FilterExpressionBuilder.Op filter) {
+        return vectorStore.similaritySearch(SearchRequest.builder().query("apple").topK(4).filterExpression(filter.build()).build());
+    }
+
+    private static Document document(String id, String text, Long knowledgeBaseId, Long documentId) {
+        return Document.builder().id(id).text(text)
+                .metadata(Map.of(HnswIndex.KNOWLEDGE_BASE_ID, knowledgeBaseId, HnswIndex.DOCUMENT_ID, documentId))
+                .build();
+    }
+
+    /**
+     * 按首字母与长度生成向量：首字母相同的文本相似度较高
+     */
+    private static float[] vector(String text) {
+        float[] vector = new float[8];
+        vector[text.charAt(0) % 4] = 1f;
+        vector[4 + text.length() % 4] = 0.5f;
+        return vector;
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+
+    private static List<String> sorted(List<Document> documents) {
+        return documents.stream().map(Document::getId).sorted().toList();
+    }
+}
@@ -0,0 +1,136 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.model.entity.ChunkSearchHitEntity;
+import cn.refinex.ai.domain.repository.AiRepository;
+import cn.refinex.ai.infrastructure.config.RetrievalProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 混合检索 RRF 融合测试
+ *
+ * @author refinex
+ */
+class HybridRetrieverTest {
+
+    private static final int RRF_K = 60;
+
+    private final AiRepository aiRepository = mock(AiRepository.class);
+    private final VectorStore vectorStore = mock(VectorStore.class);
+    private RetrievalProperties properties;
+    private HybridRetriever retriever;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties = new RetrievalProperties();
+        properties.setRrfK(RRF_K);
+        retriever = new HybridRetriever(aiRepository, properties, mock(ObjectProvider.class));
+    }
+
+    @Test
+    void testFusedScoreIsRankBased() {
+        vectorHits("a", "b", "c");
+        lexicalHits("b", "d");
+
+        List<Document> result = retriever.retrieve(vectorStore, List.of(1L), "query", 4, 0.0);
+
+        // b: 向量第 2 + 全文第 1；a: 向量第 1；d: 全文第 2；c: 向量第 3
+        Assertions.assertEquals(List.of("b", "a", "d", "c"), result.stream().map(Document::getId).toList());
+        double max = 2.0 / (RRF_K + 1);
+        Assertions.assertEquals((1.0 / (RRF_K + 2) + 1.0 / (RRF_K + 1)) / max, result.get(0).getScore(), 1e-9);
+        Assertions.assertEquals((1.0 / (RRF_K + 1)) / max, result.get(1).getScore(), 1e-9);
+        Assertions.assertEquals((1.0 / (RRF_K + 2)) / max, result.get(2).getScore(), 1e-9);
+    }
+
+    @Test
+    void testTopInBothChannelsScoresOne() {
+        vectorHits("a", "b");
+        lexicalHits("a");
+
+        List<Document> result = retriever.retrieve(vectorStore, List.of(1L), "query", 2, 0.0);
+
+        Assertions.assertEquals("a", result.getFirst().getId());
+        Assertions.assertEquals(1.0, result.getFirst().getScore(), 1e-9);
+    }
+
+    @Test
+    void testChannelScoresKeptInMetadata() {
+        vectorHits("a");
+        lexicalHits("a", "d");
+
+        List<Document> result = retriever.retrieve(vectorStore, List.of(1L), "query", 2, 0.0);
+
+        Map<String, Object> metadata = result.getFirst().getMetadata();
+        Assertions.assertEquals(0.9, (Double) metadata.get("vector_score"), 1e-9);
+        Assertions.assertEquals(5.0, (Double) metadata.get("lexical_score"), 1e-9);
+        // 仅全文命中的切片由全文检索结果构建
+        Document lexicalOnly = result.get(1);
+        Assertions.assertEquals("d", lexicalOnly.getId());
+        Assertions.assertEquals("content-d", lexicalOnly.getText());
+        Assertions.assertEquals("1", lexicalOnly.getMetadata().get("knowledge_base_id"));
+        Assertions.assertFalse(lexicalOnly.getMetadata().containsKey("vector_score"));
+    }
+
+    @Test
+    void testLexicalFailureFallsBackToVector() {
+        vectorHits("a", "b");
+        when(aiRepository.searchChunksFullText(anyCollection(), anyString(), anyInt()))
+                .thenThrow(new IllegalStateException("fulltext index unavailable"));
+
+        List<Document> result = retriever.retrieve(vectorStore, List.of(1L), "query", 2, 0.0);
+
+        Assertions.assertEquals(List.of("a", "b"), result.stream().map(Document::getId).toList());
+        Assertions.assertTrue(result.get(0).getScore() > result.get(1).getScore());
+    }
+
+    @Test
+    void testLexicalDisabledReturnsVectorHits() {
+        properties.setLexicalEnabled(false);
+        vectorHits("a", "b");
+
+        List<Document> result = retriever.retrieve(vectorStore, List.of(1L), "query", 2, 0.0);
+
+        Assertions.assertEquals(List.of("a", "b"), result.stream().map(Document::getId).toList());
+        Assertions.assertEquals(0.9, result.getFirst().getScore(), 1e-9);
+    }
+
+    private void vectorHits(String... ids) {
+        List<Document> docs = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            docs.add(Document.builder().id(ids[i]).text("content-" + ids[i]).metadata(Map.of()).score(0.9 - i * 0.1).build());
+        }
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(docs);
+    }
+
+    private void lexicalHits(String... ids) {
+        List<ChunkSearchHitEntity> hits = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            ChunkSearchHitEntity hit = new ChunkSearchHitEntity();
+            hit.setEmbeddingId(ids[i]);
+            hit.setContent("content-" + ids[i]);
+            hit.setKnowledgeBaseId(1L);
+            hit.setDocumentId(10L);
+            hit.setChunkIndex(i);
+            hit.setScore(5.0 - i);
+            hits.add(hit);
+        }
+        when(aiRepository.searchChunksFullText(anyCollection(), anyString(), anyInt())).thenReturn(hits);
+    }
+}
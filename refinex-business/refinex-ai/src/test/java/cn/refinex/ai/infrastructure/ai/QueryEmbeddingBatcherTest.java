@@ -0,0 +1,180 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.RetrievalProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 检索查询向量化合并器测试
+ *
+ * @author refinex
+ */
+class QueryEmbeddingBatcherTest {
+
+    private static final Long PROVISION_ID = 1L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+    private RetrievalProperties retrievalProperties;
+    private EmbeddingModel model;
+
+    @BeforeEach
+    void setUp() {
+        retrievalProperties = new RetrievalProperties();
+        retrievalProperties.getQueryEmbedding().setBatchWindow(Duration.ofMillis(100));
+        model = mock(EmbeddingModel.class);
+        when(model.embed(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            requests.add(texts);
+            return texts.stream().map(QueryEmbeddingBatcherTest::vector).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentQueriesShareOneRequest() throws Exception {
+        QueryEmbeddingBatcher batcher = batcher();
+
+        List<Future<float[]>> futures = new ArrayList<>();
+        for (String text : List.of("a", "bb", "ccc", "bb")) {
+            futures.add(callers.submit(() -> batcher.embed(PROVISION_ID, model, text)));
+        }
+
+        Assertions.assertEquals(1f, futures.get(0).get(5, TimeUnit.SECONDS)[0]);
+        Assertions.assertEquals(2f, futures.get(1).get(5, TimeUnit.SECONDS)[0]);
+        Assertions.assertEquals(3f, futures.get(2).get(5, TimeUnit.SECONDS)[0]);
+        Assertions.assertEquals(2f, futures.get(3).get(5, TimeUnit.SECONDS)[0]);
+        // 同一批次内相同文本只请求一次
+        Assertions.assertEquals(1, requests.size());
+        Assertions.assertEquals(3, requests.getFirst().size());
+    }
+
+    @Test
+    void testFullBatchSentBeforeWindow() throws Exception {
+        retrievalProperties.getQueryEmbedding().setBatchWindow(Duration.ofSeconds(30));
+        retrievalProperties.getQueryEmbedding().setMaxBatchSize(2);
+        QueryEmbeddingBatcher batcher = batcher();
+
+        Future<float[]> first = callers.submit(() -> batcher.embed(PROVISION_ID, model, "a"));
+        Future<float[]> second = callers.submit(() -> batcher.embed(PROVISION_ID, model, "bb"));
+
+        Assertions.assertEquals(1f, first.get(5, TimeUnit.SECONDS)[0]);
+        Assertions.assertEquals(2f, second.get(5, TimeUnit.SECONDS)[0]);
+        Assertions.assertEquals(List.of(List.of("a", "bb")), requests);
+    }
+
+    @Test
+    void testCachedQueryNotRequestedAgain() {
+        QueryEmbeddingBatcher batcher = batcher();
+
+        batcher.embed(PROVISION_ID, model, "a");
+        batcher.embed(PROVISION_ID, model, "a");
+        batcher.embed(2L, model, "a");
+
+        // 缓存按嵌入模型区分
+        Assertions.assertEquals(2, requests.size());
+    }
+
+    @Test
+    void testStuckBatchFallsBackToDirectRequest() throws Exception {
+        retrievalProperties.getQueryEmbedding().setBatchTimeout(Duration.ofMillis(200));
+        CountDownLatch release = new CountDownLatch(1);
+        EmbeddingModel stuck = mock(EmbeddingModel.class);
+        when(stuck.embed(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            requests.add(texts);
+            if (requests.size() == 1) {
+                // 第一次（批量）请求卡住
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return texts.stream().map(QueryEmbeddingBatcherTest::vector).toList();
+        });
+        QueryEmbeddingBatcher batcher = batcher();
+
+        long start = System.nanoTime();
+        float[] embedding = batcher.embed(PROVISION_ID, stuck, "abcd");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        Assertions.assertEquals(4f, embedding[0]);
+        Assertions.assertTrue(elapsedMs < 5000, "elapsedMs = " + elapsedMs);
+        Assertions.assertEquals(2, requests.size());
+        Assertions.assertEquals(1.0, meterRegistry.get("refinex.ai.query-embedding.fallback").counter().count());
+    }
+
+    @Test
+    void testBatchFailurePropagates() {
+        EmbeddingModel failing = mock(EmbeddingModel.class);
+        when(failing.embed(anyList())).thenThrow(new IllegalStateException("provider down"));
+        QueryEmbeddingBatcher batcher = batcher();
+
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                () -> batcher.embed(PROVISION_ID, failing, "a"));
+
+        Assertions.assertEquals("provider down", e.getMessage());
+        verify(failing, times(1)).embed(anyList());
+    }
+
+    @Test
+    void testMismatchedResponseSizeRejected() {
+        EmbeddingModel broken = mock(EmbeddingModel.class);
+        when(broken.embed(anyList())).thenReturn(List.of());
+        QueryEmbeddingBatcher batcher = batcher();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> batcher.embed(PROVISION_ID, broken, "a"));
+    }
+
+    @Test
+    void testBatchingDisabledRequestsDirectly() {
+        retrievalProperties.getQueryEmbedding().setBatchingEnabled(false);
+        retrievalProperties.getQueryEmbedding().setBatchTimeout(Duration.ofMillis(1));
+        QueryEmbeddingBatcher batcher = batcher();
+
+        Assertions.assertEquals(2f, batcher.embed(PROVISION_ID, model, "bb")[0]);
+        Assertions.assertEquals(List.of(List.of("bb")), requests);
+        verify(model, never()).embed(any(String.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private QueryEmbeddingBatcher batcher() {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(meterRegistry);
+        return new QueryEmbeddingBatcher(retrievalProperties, provider);
+    }
+
+    /**
+     * 以文本长度作为首个分量，便于校验结果分发
+     */
+    private static float[] vector(String text) {
+        return new float[]{text.length(), 0f};
+    }
+}
@@ -0,0 +1,108 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.model.entity.KnowledgeBaseEntity;
+import cn.refinex.ai.infrastructure.config.ModelRegistryProperties;
+import cn.refinex.ai.infrastructure.config.RetrievalProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 多知识库检索协调器测试：跨嵌入模型分组的得分合并
+ *
+ * @author refinex
+ */
+class RetrievalCoordinatorTest {
+
+    private final EmbeddingModelRouter embeddingModelRouter = mock(EmbeddingModelRouter.class);
+    private final VectorStoreRouter vectorStoreRouter = mock(VectorStoreRouter.class);
+    private final HybridRetriever hybridRetriever = mock(HybridRetriever.class);
+    private final VectorStore storeA = mock(VectorStore.class);
+    private final VectorStore storeB = mock(VectorStore.class);
+    private RetrievalProperties properties;
+    private RetrievalCoordinator coordinator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties = new RetrievalProperties();
+        coordinator = new RetrievalCoordinator(embeddingModelRouter, vectorStoreRouter, hybridRetriever, properties);
+
+        VectorStoreRegistry registry = new VectorStoreRegistry(new ModelRegistryProperties(), mock(ObjectProvider.class));
+        when(embeddingModelRouter.resolveProvisionIdForKnowledgeBase(any())).thenAnswer(inv -> {
+            KnowledgeBaseEntity kb = inv.getArgument(0);
+            return kb.getId() * 100;
+        });
+        when(vectorStoreRouter.acquire(100L)).thenAnswer(inv -> registry.acquire(100L, k -> storeA));
+        when(vectorStoreRouter.acquire(200L)).thenAnswer(inv -> registry.acquire(200L, k -> storeB));
+    }
+
+    @Test
+    void testRrfScoresMergedWithoutRenormalization() {
+        hits(storeA, Map.of("a1", 0.5, "a2", 0.25));
+        hits(storeB, Map.of("b1", 0.4));
+
+        List<Document> result = coordinator.retrieve(List.of(kb(1L), kb(2L)), "query", 3, 0.0);
+
+        Assertions.assertEquals(List.of("a1", "b1", "a2"), result.stream().map(Document::getId).toList());
+        Assertions.assertEquals(List.of(0.5, 0.4, 0.25), result.stream().map(Document::getScore).toList());
+        Assertions.assertEquals("200", result.get(1).getMetadata().get("embedding_provision_id"));
+    }
+
+    @Test
+    void testRawSimilarityNormalizedPerGroup() {
+        properties.setLexicalEnabled(false);
+        hits(storeA, Map.of("a1", 0.8, "a2", 0.4));
+        hits(storeB, Map.of("b1", 0.5));
+
+        List<Document> result = coordinator.retrieve(List.of(kb(1L), kb(2L)), "query", 3, 0.0);
+
+        Assertions.assertEquals(1.0, score(result, "a1"), 1e-9);
+        Assertions.assertEquals(0.5, score(result, "a2"), 1e-9);
+        Assertions.assertEquals(1.0, score(result, "b1"), 1e-9);
+    }
+
+    @Test
+    void testFailedGroupSkipped() {
+        hits(storeA, Map.of("a1", 0.5));
+        when(hybridRetriever.retrieve(eq(storeB), anyCollection(), anyString(), anyInt(), anyDouble()))
+                .thenThrow(new IllegalStateException("store unavailable"));
+
+        List<Document> result = coordinator.retrieve(List.of(kb(1L), kb(2L)), "query", 3, 0.0);
+
+        Assertions.assertEquals(List.of("a1"), result.stream().map(Document::getId).toList());
+    }
+
+    private void hits(VectorStore store, Map<String, Double> scores) {
+        List<Document> docs = scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .map(e -> Document.builder().id(e.getKey()).text(e.getKey()).metadata(Map.of()).score(e.getValue()).build())
+                .toList();
+        when(hybridRetriever.retrieve(eq(store), anyCollection(), anyString(), anyInt(), anyDouble())).thenReturn(docs);
+    }
+
+    private static double score(List<Document> docs, String id) {
+        return docs.stream().filter(d -> d.getId().equals(id)).findFirst().orElseThrow().getScore();
+    }
+
+    private static KnowledgeBaseEntity kb(Long id) {
+        KnowledgeBaseEntity kb = new KnowledgeBaseEntity();
+        kb.setId(id);
+        return kb;
+    }
+}
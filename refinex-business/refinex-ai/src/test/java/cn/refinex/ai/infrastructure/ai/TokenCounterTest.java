@@ -0,0 +1,149 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.domain.error.AiErrorCode;
+import cn.refinex.ai.domain.model.entity.ModelEntity;
+import cn.refinex.ai.domain.model.entity.ProviderEntity;
+import cn.refinex.ai.infrastructure.config.TokenizerProperties;
+import cn.refinex.base.exception.BizException;
+import com.knuddels.jtokkit.api.Encoding;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * token 计数器测试：编码选择、长文本分段计数误差
+ *
+ * @author refinex
+ */
+class TokenCounterTest {
+
+    private TokenizerProperties properties;
+    private ProvisionSnapshotCache provisionSnapshotCache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenizerProperties();
+        provisionSnapshotCache = mock(ProvisionSnapshotCache.class);
+    }
+
+    @Test
+    void testEmptyTextCountsZero() {
+        TokenCounter counter = counter();
+
+        Assertions.assertEquals(0, counter.count(null));
+        Assertions.assertEquals(0, counter.count(""));
+    }
+
+    @Test
+    void testShortTextMatchesEncoding() {
+        TokenCounter counter = counter();
+        String text = "Hello, world! 你好，世界。";
+
+        Assertions.assertEquals(counter.encodingFor(null, null).countTokensOrdinary(text), counter.count(text));
+    }
+
+    @Test
+    void testSegmentedCountExactAtWordBoundaries() {
+        TokenCounter counter = counter();
+        Encoding encoding = counter.encodingFor(null, null);
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(1);
+        while (text.length() < 100_000) {
+            text.append("word").append(random.nextInt(1000)).append(' ');
+        }
+
+        // 分段切在“字母或数字 + 空格”处，与整段计数一致
+        Assertions.assertEquals(encoding.countTokensOrdinary(text.toString()), counter.count(text));
+    }
+
+    @Test
+    void testSegmentedCountErrorBoundedWithoutSpaces() {
+        TokenCounter counter = counter();
+        Encoding encoding = counter.encodingFor(null, null);
+        String text = "连续中文没有空格的长段落".repeat(8_000);
+        int segments = (text.length() + 16 * 1024 - 1) / (16 * 1024);
+
+        int exact = encoding.countTokensOrdinary(text);
+        Assertions.assertTrue(Math.abs(counter.count(text) - exact) <= segments,
+                "segmented = " + counter.count(text) + ", exact = " + exact);
+    }
+
+    @Test
+    void testSegmentBoundaryKeepsSurrogatePairs() {
+        TokenCounter counter = counter();
+        Encoding encoding = counter.encodingFor(null, null);
+        // 奇数偏移使分段长度落在代理对中间
+        String text = "a" + "😀".repeat(20_000);
+        int segments = (text.length() + 16 * 1024 - 1) / (16 * 1024);
+
+        int exact = encoding.countTokensOrdinary(text);
+        Assertions.assertTrue(Math.abs(counter.count(text) - exact) <= segments,
+                "segmented = " + counter.count(text) + ", exact = " + exact);
+    }
+
+    @Test
+    void testEncodingByModel() {
+        TokenCounter counter = counter();
+
+        Assertions.assertEquals("o200k_base", counter.encodingFor("openai", "gpt-4o-mini").getName());
+        Assertions.assertEquals("o200k_base", counter.encodingFor("openai", "GPT-5").getName());
+        Assertions.assertEquals("o200k_base", counter.encodingFor("openai", "o3-mini").getName());
+        Assertions.assertEquals("cl100k_base", counter.encodingFor("openai", "gpt-4").getName());
+        Assertions.assertEquals("cl100k_base", counter.encodingFor("openai", "gpt-3.5-turbo").getName());
+        // 无公开词表的模型使用默认编码
+        Assertions.assertEquals("o200k_base", counter.encodingFor("deepseek", "deepseek-chat").getName());
+        Assertions.assertEquals("o200k_base", counter.encodingFor(null, null).getName());
+    }
+
+    @Test
+    void testProviderOverrideTakesPrecedence() {
+        properties.getProviders().put("anthropic", "cl100k_base");
+        properties.getProviders().put("broken", "unknown_base");
+        TokenCounter counter = counter();
+
+        Assertions.assertEquals("cl100k_base", counter.encodingFor("anthropic", "claude-sonnet").getName());
+        Assertions.assertEquals("o200k_base", counter.encodingFor("broken", "gpt-4").getName());
+        Assertions.assertSame(counter.encodingFor("anthropic", "claude-sonnet"), counter.encodingFor("anthropic", "claude-sonnet"));
+    }
+
+    @Test
+    void testDefaultEncodingConfigurable() {
+        properties.setDefaultEncoding("cl100k_base");
+
+        Assertions.assertEquals("cl100k_base", counter().encodingFor("deepseek", "deepseek-chat").getName());
+    }
+
+    @Test
+    void testUnknownDefaultEncodingRejected() {
+        properties.setDefaultEncoding("unknown_base");
+
+        Assertions.assertThrows(IllegalArgumentException.class, this::counter);
+    }
+
+    @Test
+    void testEncodingForProvision() {
+        ProviderEntity provider = new ProviderEntity();
+        provider.setProviderCode("openai");
+        ModelEntity model = new ModelEntity();
+        model.setModelCode("gpt-4");
+        when(provisionSnapshotCache.requireActive(1L))
+                .thenReturn(new ProvisionSnapshotCache.ResolvedProvision(null, model, provider));
+        when(provisionSnapshotCache.requireActive(2L)).thenThrow(new BizException(AiErrorCode.MODEL_DISABLED));
+        TokenCounter counter = counter();
+
+        Assertions.assertEquals("cl100k_base", counter.encodingForProvision(1L).getName());
+        // 开通不可用或未指定时使用默认编码
+        Assertions.assertEquals("o200k_base", counter.encodingForProvision(2L).getName());
+        Assertions.assertEquals("o200k_base", counter.encodingForProvision(null).getName());
+        Assertions.assertEquals(counter.encodingForProvision(1L).countTokensOrdinary("hello world"), counter.count(1L, "hello world"));
+    }
+
+    private TokenCounter counter() {
+        return new TokenCounter(properties, provisionSnapshotCache);
+    }
+}
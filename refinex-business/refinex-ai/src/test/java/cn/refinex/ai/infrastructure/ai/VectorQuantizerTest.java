@@ -0,0 +1,249 @@
+package cn.refinex.ai.infrastructure.ai;
+
+import cn.refinex.ai.infrastructure.config.VectorStoreProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 向量量化测试：编码往返误差、编码器持久化、量化检索召回率
+ * <p>
+ * 数据为高斯混合分布的归一化向量（近似嵌入向量的聚簇结构）。
+ *
+ * @author refinex
+ */
+class VectorQuantizerTest {
+
+    private static final int DIMENSIONS = 64;
+    private static final int TOP_K = 10;
+
+    @TempDir
+    Path root;
+
+    @Test
+    void testInt8RoundTripError() {
+        VectorQuantizer quantizer = VectorQuantizer.int8(DIMENSIONS);
+        List<float[]> vectors = clustered(200, 1);
+        ByteBuffer codes = encodeAll(quantizer, vectors);
+
+        Assertions.assertEquals("int8", quantizer.mode());
+        Assertions.assertEquals(Float.BYTES + DIMENSIONS, quantizer.codeBytes());
+        float[] query = clustered(1, 2).getFirst();
+        float[] table = quantizer.prepare(query);
+        for (int i = 0; i < vectors.size(); i++) {
+            float approx = quantizer.score(table, codes, i * quantizer.codeBytes());
+            Assertions.assertEquals(dot(vectors.get(i), query), approx, 0.01);
+        }
+    }
+
+    @Test
+    void testInt8ZeroVector() {
+        VectorQuantizer quantizer = VectorQuantizer.int8(4);
+        ByteBuffer codes = encodeAll(quantizer, List.of(new float[4]));
+
+        Assertions.assertEquals(0f, quantizer.score(quantizer.prepare(new float[]{0.5f, 0.5f, 0.5f, 0.5f}), codes, 0));
+    }
+
+    @Test
+    void testProductRoundTripError() {
+        List<float[]> samples = clustered(2000, 3);
+        VectorQuantizer quantizer = VectorQuantizer.product(DIMENSIONS, 4, samples);
+        ByteBuffer codes = encodeAll(quantizer, samples);
+
+        Assertions.assertEquals("pq", quantizer.mode());
+        Assertions.assertEquals(DIMENSIONS / 4, quantizer.codeBytes());
+        float[] query = clustered(1, 4).getFirst();
+        float[] table = quantizer.prepare(query);
+        double error = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            error += Math.abs(dot(samples.get(i), query) - quantizer.score(table, codes, i * quantizer.codeBytes()));
+        }
+        Assertions.assertTrue(error / samples.size() < 0.05, "mean error = " + error / samples.size());
+    }
+
+    @Test
+    void testProductShorterLastSubspace() {
+        // 30 维按 4 维切分：最后一个子空间只有 2 维
+        List<float[]> samples = new ArrayList<>();
+        for (float[] vector : clustered(500, 5)) {
+            samples.add(normalize(Arrays.copyOf(vector, 30)));
+        }
+        VectorQuantizer quantizer = VectorQuantizer.product(30, 4, samples);
+        ByteBuffer codes = encodeAll(quantizer, samples);
+
+        Assertions.assertEquals(8, quantizer.codeBytes());
+        float[] query = samples.get(7);
+        Assertions.assertEquals(1.0, quantizer.score(quantizer.prepare(query), codes, 7 * quantizer.codeBytes()), 0.1);
+    }
+
+    @Test
+    void testPersistedQuantizerScoresIdentically() throws IOException {
+        List<float[]> samples = clustered(1000, 6);
+        for (VectorQuantizer quantizer : List.of(VectorQuantizer.int8(DIMENSIONS), VectorQuantizer.product(DIMENSIONS, 4, samples))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            quantizer.write(new DataOutputStream(bytes));
+            VectorQuantizer restored = VectorQuantizer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+            Assertions.assertEquals(quantizer.mode(), restored.mode());
+            Assertions.assertEquals(quantizer.dimensions(), restored.dimensions());
+            Assertions.assertEquals(quantizer.codeBytes(), restored.codeBytes());
+            ByteBuffer codes = encodeAll(quantizer, samples.subList(0, 50));
+            ByteBuffer restoredCodes = encodeAll(restored, samples.subList(0, 50));
+            Assertions.assertEquals(codes, restoredCodes);
+            float[] query = samples.get(500);
+            float[] table = quantizer.prepare(query);
+            float[] restoredTable = restored.prepare(query);
+            for (int i = 0; i < 50; i++) {
+                Assertions.assertEquals(quantizer.score(table, codes, i * quantizer.codeBytes()),
+                        restored.score(restoredTable, restoredCodes, i * restored.codeBytes()));
+            }
+        }
+    }
+
+    @Test
+    void testUnknownQuantizerTypeRejected() {
+        byte[] bytes = {9, 0, 0, 0, 4};
+
+        Assertions.assertThrows(IOException.class, () -> VectorQuantizer.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+    }
+
+    @Test
+    void testInt8IndexRecall() {
+        double recall = indexRecall("int8");
+        Assertions.assertTrue(recall >= 0.95, "recall@10 = " + recall);
+    }
+
+    @Test
+    void testProductIndexRecall() {
+        double recall = indexRecall("pq");
+        Assertions.assertTrue(recall >= 0.9, "recall@10 = " + recall);
+    }
+
+    @Test
+    void testQuantizationWritesCodesBesideFullPrecisionVectors() {
+        Path directory = root.resolve("files");
+        try (HnswIndex index = HnswIndex.open(directory, config("int8"))) {
+            index.add(entries(clustered(100, 7)));
+        }
+
+        // 编码是额外文件，全精度向量文件仍保留
+        Assertions.assertTrue(Files.exists(directory.resolve("vectors.dat")));
+        Assertions.assertTrue(Files.exists(directory.resolve("codes.dat")));
+        Assertions.assertTrue(Files.exists(directory.resolve("quantizer.dat")));
+    }
+
+    /**
+     * 量化索引的 recall@10（以全精度暴力检索为基准，量化检索包含全精度重排）
+     */
+    private double indexRecall(String quantization) {
+        List<float[]> vectors = clustered(3000, 8);
+        List<float[]> queries = clustered(50, 9);
+        try (HnswIndex index = HnswIndex.open(root.resolve(quantization), config(quantization))) {
+            index.add(entries(vectors));
+            int hits = 0;
+            for (float[] query : queries) {
+                Set<Integer> expected = bruteForce(vectors, query);
+                for (HnswIndex.Hit hit : index.search(query, TOP_K, 100, null)) {
+                    if (expected.contains(Integer.parseInt(hit.node().id()))) {
+                        hits++;
+                    }
+                }
+            }
+            return hits / (double) (queries.size() * TOP_K);
+        }
+    }
+
+    private static VectorStoreProperties.HnswProperties config(String quantization) {
+        VectorStoreProperties.HnswProperties cfg = new VectorStoreProperties.HnswProperties();
+        cfg.setQuantization(quantization);
+        cfg.setEfConstruction(100);
+        cfg.setPqTrainingSize(1000);
+        return cfg;
+    }
+
+    private static List<HnswIndex.Entry> entries(List<float[]> vectors) {
+        List<HnswIndex.Entry> entries = new ArrayList<>(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            entries.add(new HnswIndex.Entry(String.valueOf(i), vectors.get(i), "text-" + i, Map.of()));
+        }
+        return entries;
+    }
+
+    private static ByteBuffer encodeAll(VectorQuantizer quantizer, List<float[]> vectors) {
+        ByteBuffer codes = ByteBuffer.allocate(quantizer.codeBytes() * vectors.size()).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < vectors.size(); i++) {
+            quantizer.encode(vectors.get(i), codes, i * quantizer.codeBytes());
+        }
+        return codes;
+    }
+
+    private static Set<Integer> bruteForce(List<float[]> vectors, float[] query) {
+        List<Integer> order = new ArrayList<>(IntStream.range(0, vectors.size()).boxed().toList());
+        order.sort(Comparator.comparingDouble((Integer i) -> dot(vectors.get(i), query)).reversed());
+        return new HashSet<>(order.subList(0, TOP_K));
+    }
+
+    /**
+     * 生成高斯混合分布的归一化向量（16 个簇）
+     */
+    private static List<float[]> clustered(int count, long seed) {
+        Random centers = new Random(42);
+        float[][] clusters = new float[16][DIMENSIONS];
+        for (float[] center : clusters) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                center[d] = (float) centers.nextGaussian();
+            }
+        }
+        Random random = new Random(seed);
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] center = clusters[random.nextInt(clusters.length)];
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = center[d] + (float) random.nextGaussian() * 0.6f;
+            }
+            vectors.add(normalize(vector));
+        }
+        return vectors;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,147 @@
+package cn.refinex.ai.infrastructure.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 切片批量插入基准：逐行 insert vs JDBC 批次
+ * <p>
+ * 需要已初始化 kb_document_chunk 的本地 MySQL，在 IDE 中执行 main 方法运行：
+ * -Drefinex.mysql.url=jdbc:mysql://127.0.0.1:3306/refinex -Drefinex.mysql.username=root -Drefinex.mysql.password=...
+ * <p>
+ * LOOP 对应改造前每行一次 insert 的写法；BATCH 与 MyBatis BATCH 执行器一致，按 batchSize 分段 executeBatch，
+ * 两者都取回自增主键。URL 是否带 rewriteBatchedStatements=true 决定驱动是否改写为多 VALUES 语句，建议分别跑一遍对比。
+ *
+ * @author refinex
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChunkBatchInsertBenchmark {
+
+    private static final String INSERT_SQL = "INSERT INTO kb_document_chunk "
+            + "(document_id, knowledge_base_id, chunk_index, content, token_count, content_hash, embedding_id, deleted, lock_version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, 0, 0)";
+
+    @Param({"LOOP", "BATCH"})
+    private String mode;
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    @Param({"500"})
+    private int batchSize;
+
+    private Connection connection;
+    private String content;
+    private long documentId;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("refinex.mysql.url", "jdbc:mysql://127.0.0.1:3306/refinex?rewriteBatchedStatements=true"),
+                System.getProperty("refinex.mysql.username", "root"),
+                System.getProperty("refinex.mysql.password", ""));
+        content = "知识库切片内容 ".repeat(60);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextDocument() {
+        documentId = -ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    }
+
+    @TearDown(Level.Invocation)
+    public void cleanup() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM kb_document_chunk WHERE document_id = ?")) {
+            ps.setLong(1, documentId);
+            ps.executeUpdate();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long insert() throws SQLException {
+        return "LOOP".equals(mode) ? loop() : batch();
+    }
+
+    private long loop() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rows; i++) {
+                bind(ps, i);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        lastId = keys.getLong(1);
+                    }
+                }
+            }
+        }
+        return lastId;
+    }
+
+    private long batch() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rows; i++) {
+                bind(ps, i);
+                ps.addBatch();
+                if ((i + 1) % batchSize == 0 || i == rows - 1) {
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            lastId = keys.getLong(1);
+                        }
+                    }
+                }
+            }
+        }
+        return lastId;
+    }
+
+    private void bind(PreparedStatement ps, int index) throws SQLException {
+        ps.setLong(1, documentId);
+        ps.setLong(2, 0L);
+        ps.setInt(3, index);
+        ps.setString(4, content);
+        ps.setInt(5, 256);
+        ps.setString(6, Integer.toHexString(index));
+        ps.setString(7, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChunkBatchInsertBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
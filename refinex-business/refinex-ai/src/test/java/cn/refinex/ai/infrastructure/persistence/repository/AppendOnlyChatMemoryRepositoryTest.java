@@ -0,0 +1,438 @@
+package cn.refinex.ai.infrastructure.persistence.repository;
+
+import cn.refinex.ai.infrastructure.config.ChatMemoryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.BatchResult;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RKeys;
+import org.redisson.api.RListAsync;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * 只追加聊天记忆仓储测试
+ * <p>
+ * Redis 与 MySQL 均为内存实现：Redis 按命令语义模拟列表、字符串与压缩脚本，MySQL 按 SQL 模拟消息表与摘要表。
+ *
+ * @author refinex
+ */
+class AppendOnlyChatMemoryRepositoryTest {
+
+    private static final String CONVERSATION_ID = "c1";
+    private static final String WINDOW_KEY = "refinex:ai:chat-memory:" + CONVERSATION_ID;
+    private static final String SUMMARY_KEY = "refinex:ai:chat-memory-summary:" + CONVERSATION_ID;
+
+    private final Map<String, List<String>> redisLists = new HashMap<>();
+    private final Map<String, String> redisStrings = new HashMap<>();
+    private final List<Row> rows = new ArrayList<>();
+    private final Map<String, SummaryRow> summaries = new HashMap<>();
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    private ChatMemoryProperties properties;
+    private AppendOnlyChatMemoryRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ChatMemoryProperties();
+        properties.setMaxMessages(6);
+        repository = new AppendOnlyChatMemoryRepository(properties, jdbcTemplate(), transactionTemplate(),
+                redissonClient(), jsonMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.stop();
+    }
+
+    @Test
+    void testWindowNotFullAppendsOnlyNewMessages() {
+        ChatMemory memory = memory();
+
+        memory.add(CONVERSATION_ID, List.of(new UserMessage("u1"), new AssistantMessage("a1")));
+        memory.add(CONVERSATION_ID, List.of(new UserMessage("u2"), new AssistantMessage("a2")));
+        repository.stop();
+
+        Assertions.assertEquals(List.of("u1", "a1", "u2", "a2"), historyTexts());
+        Assertions.assertEquals(List.of("u1", "a1", "u2", "a2"), redisTexts());
+        Assertions.assertEquals(List.of("u1", "a1", "u2", "a2"), texts(memory.get(CONVERSATION_ID)));
+        assertNoDelete();
+    }
+
+    @Test
+    void testFullWindowAppendsOnlyNewMessages() {
+        ChatMemory memory = memory();
+
+        for (int round = 1; round <= 5; round++) {
+            memory.add(CONVERSATION_ID, List.of(new UserMessage("u" + round), new AssistantMessage("a" + round)));
+        }
+        repository.stop();
+
+        // 窗口已满后每轮仍只写入新增的一问一答
+        Assertions.assertEquals(List.of("u1", "a1", "u2", "a2", "u3", "a3", "u4", "a4", "u5", "a5"), historyTexts());
+        Assertions.assertEquals(List.of("u3", "a3", "u4", "a4", "u5", "a5"), redisTexts());
+        Assertions.assertEquals(List.of("u3", "a3", "u4", "a4", "u5", "a5"), texts(memory.get(CONVERSATION_ID)));
+        assertNoDelete();
+    }
+
+    @Test
+    void testWholeWindowSlidOutResetsRedisOnly() {
+        ChatMemory memory = memory();
+
+        memory.add(CONVERSATION_ID, List.of(new UserMessage("u1"), new AssistantMessage("a1")));
+        List<Message> burst = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            burst.add(new UserMessage("b" + i));
+        }
+        memory.add(CONVERSATION_ID, burst);
+        repository.stop();
+
+        Assertions.assertEquals(List.of("u1", "a1", "b1", "b2", "b3", "b4", "b5", "b6"), historyTexts());
+        Assertions.assertEquals(List.of("b1", "b2", "b3", "b4", "b5", "b6"), redisTexts());
+        assertNoDelete();
+    }
+
+    @Test
+    void testCompactionBetweenReadAndSave() {
+        ChatMemory memory = memory();
+        for (int round = 1; round <= 3; round++) {
+            memory.add(CONVERSATION_ID, List.of(new UserMessage("u" + round), new AssistantMessage("a" + round)));
+        }
+
+        // 读取窗口后、保存之前，另一实例压缩掉窗口首部的一问一答
+        List<Message> window = repository.findByConversationId(CONVERSATION_ID);
+        Assertions.assertTrue(repository.compact(CONVERSATION_ID, window.subList(0, 2), "摘要"));
+        List<Message> next = new ArrayList<>(window.subList(2, window.size()));
+        next.add(new UserMessage("u4"));
+        next.add(new AssistantMessage("a4"));
+        repository.saveAll(CONVERSATION_ID, next);
+        repository.stop();
+
+        Assertions.assertEquals(List.of("u1", "a1", "u2", "a2", "u3", "a3", "u4", "a4"), historyTexts());
+        Assertions.assertEquals(List.of("u2", "a2", "u3", "a3", "u4", "a4"), redisTexts());
+        Assertions.assertEquals("摘要", redisStrings.get(SUMMARY_KEY));
+        Assertions.assertEquals(new SummaryRow("摘要", rows.get(1).id()), summaries.get(CONVERSATION_ID));
+        List<Message> current = repository.findByConversationId(CONVERSATION_ID);
+        Assertions.assertInstanceOf(SystemMessage.class, current.getFirst());
+        Assertions.assertEquals(List.of("摘要", "u2", "a2", "u3", "a3", "u4", "a4"), texts(current));
+        assertNoDelete();
+    }
+
+    @Test
+    void testCompactionAfterWindowSavedByStaleReader() {
+        ChatMemory memory = memory();
+        for (int round = 1; round <= 3; round++) {
+            memory.add(CONVERSATION_ID, List.of(new UserMessage("u" + round), new AssistantMessage("a" + round)));
+        }
+
+        // 保存后的窗口仍带有压缩前读取的摘要消息，不覆盖新摘要
+        List<Message> window = repository.findByConversationId(CONVERSATION_ID);
+        Assertions.assertTrue(repository.compact(CONVERSATION_ID, window.subList(0, 2), "摘要一"));
+        List<Message> compacted = repository.findByConversationId(CONVERSATION_ID);
+        Assertions.assertTrue(repository.compact(CONVERSATION_ID, compacted.subList(1, 3), "摘要二"));
+        List<Message> next = new ArrayList<>(compacted);
+        next.add(new UserMessage("u4"));
+        repository.saveAll(CONVERSATION_ID, next);
+        repository.stop();
+
+        Assertions.assertEquals("摘要二", redisStrings.get(SUMMARY_KEY));
+        Assertions.assertEquals("摘要二", summaries.get(CONVERSATION_ID).content());
+        Assertions.assertEquals(List.of("u3", "a3", "u4"), redisTexts());
+    }
+
+    @Test
+    void testMismatchedTailResetsRedisWindowOnly() {
+        ChatMemory memory = memory();
+        memory.add(CONVERSATION_ID, List.of(new UserMessage("u1"), new AssistantMessage("a1")));
+        List<Message> stale = repository.findByConversationId(CONVERSATION_ID);
+        memory.add(CONVERSATION_ID, List.of(new UserMessage("u2"), new AssistantMessage("a2")));
+
+        // 基于过期窗口保存：已保存部分的最后一条不是当前窗口的最后一条
+        List<Message> next = new ArrayList<>(stale);
+        next.add(new UserMessage("x1"));
+        repository.saveAll(CONVERSATION_ID, next);
+        repository.stop();
+
+        Assertions.assertEquals(List.of("u1", "a1", "u2", "a2", "x1"), historyTexts());
+        Assertions.assertEquals(List.of("u1", "a1", "x1"), redisTexts());
+        assertNoDelete();
+    }
+
+    @Test
+    void testLegacyWindowTaggedOnRead() {
+        redisLists.put(WINDOW_KEY, new ArrayList<>(List.of("{\"type\":\"USER\",\"text\":\"u1\"}",
+                "{\"type\":\"ASSISTANT\",\"text\":\"a1\"}")));
+        ChatMemory memory = memory();
+
+        memory.add(CONVERSATION_ID, new UserMessage("u2"));
+        repository.stop();
+
+        Assertions.assertEquals(List.of("u2"), historyTexts());
+        Assertions.assertEquals(List.of("u1", "a1", "u2"), redisTexts());
+        Assertions.assertTrue(redisLists.get(WINDOW_KEY).stream().noneMatch(json -> json.contains("\"id\":null")));
+    }
+
+    @Test
+    void testWindowLoadedFromMysqlWhenRedisExpired() {
+        ChatMemory memory = memory();
+        memory.add(CONVERSATION_ID, List.of(new UserMessage("u1"), new AssistantMessage("a1")));
+        repository.stop();
+        redisLists.clear();
+
+        memory.add(CONVERSATION_ID, new UserMessage("u2"));
+        repository.stop();
+
+        Assertions.assertEquals(List.of("u1", "a1", "u2"), historyTexts());
+        Assertions.assertEquals(List.of("u1", "a1", "u2"), redisTexts());
+    }
+
+    @Test
+    void testDeleteByConversationIdRemovesHistory() {
+        ChatMemory memory = memory();
+        memory.add(CONVERSATION_ID, List.of(new UserMessage("u1"), new AssistantMessage("a1")));
+
+        memory.clear(CONVERSATION_ID);
+        repository.stop();
+
+        Assertions.assertTrue(rows.isEmpty());
+        Assertions.assertFalse(redisLists.containsKey(WINDOW_KEY));
+        Assertions.assertTrue(memory.get(CONVERSATION_ID).isEmpty());
+    }
+
+    private ChatMemory memory() {
+        return MessageWindowChatMemory.builder()
+                .chatMemoryRepository(repository)
+                .maxMessages(properties.getMaxMessages())
+                .build();
+    }
+
+    private void assertNoDelete() {
+        Assertions.assertTrue(statements.stream().noneMatch(sql -> sql.startsWith("DELETE")), statements::toString);
+    }
+
+    private List<String> historyTexts() {
+        return rows.stream().map(Row::content).toList();
+    }
+
+    private List<String> redisTexts() {
+        return redisLists.getOrDefault(WINDOW_KEY, List.of()).stream()
+                .map(json -> jsonMapper.readValue(json, AppendOnlyChatMemoryRepository.StoredMessage.class).text())
+                .toList();
+    }
+
+    private static List<String> texts(List<Message> messages) {
+        return messages.stream().map(Message::getText).toList();
+    }
+
+    // ---------------------------------------------------------------- MySQL
+
+    private JdbcTemplate jdbcTemplate() {
+        return mock(JdbcTemplate.class, invocation -> {
+            Object[] args = invocation.getArguments();
+            String sql = (String) args[0];
+            return switch (invocation.getMethod().getName()) {
+                case "queryForList" -> rows.stream().map(Row::conversationId).distinct().toList();
+                case "query" -> query(sql, (RowMapper<?>) args[1], Arrays.copyOfRange(args, 2, args.length));
+                case "update" -> update(sql, Arrays.copyOfRange(args, 1, args.length));
+                case "batchUpdate" -> {
+                    statements.add(sql);
+                    @SuppressWarnings("unchecked")
+                    List<Object[]> batch = (List<Object[]>) args[1];
+                    for (Object[] values : batch) {
+                        rows.add(new Row(rows.size() + 1L, (String) values[0], (String) values[1], (String) values[2]));
+                    }
+                    yield new int[batch.size()];
+                }
+                default -> throw new UnsupportedOperationException(invocation.getMethod().getName());
+            };
+        });
+    }
+
+    private List<Object> query(String sql, RowMapper<?> mapper, Object[] args) throws Exception {
+        String conversationId = (String) args[0];
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (sql.contains("SPRING_AI_CHAT_MEMORY_SUMMARY")) {
+            SummaryRow summary = summaries.get(conversationId);
+            if (summary != null) {
+                result.add(Map.of("content", summary.content(), "covered_until_id", summary.coveredUntilId()));
+            }
+        } else {
+            long after = args.length > 1 ? ((Number) args[1]).longValue() : 0L;
+            List<Row> matched = rows.stream()
+                    .filter(row -> row.conversationId().equals(conversationId) && row.id() > after)
+                    .sorted(Comparator.comparingLong(Row::id))
+                    .toList();
+            if (sql.contains("DESC LIMIT")) {
+                matched = matched.reversed().stream().limit(((Number) args[2]).longValue()).toList();
+            }
+            for (Row row : matched) {
+                result.add(Map.of("id", row.id(), "content", row.content(), "type", row.type()));
+            }
+        }
+        List<Object> mapped = new ArrayList<>(result.size());
+        for (int i = 0; i < result.size(); i++) {
+            Map<String, Object> columns = result.get(i);
+            ResultSet rs = mock(ResultSet.class, invocation -> columns.get((String) invocation.getArgument(0)));
+            mapped.add(mapper.mapRow(rs, i));
+        }
+        return mapped;
+    }
+
+    private int update(String sql, Object[] args) {
+        statements.add(sql);
+        String conversationId = (String) args[0];
+        if (sql.startsWith("DELETE FROM SPRING_AI_CHAT_MEMORY_SUMMARY")) {
+            summaries.remove(conversationId);
+        } else if (sql.startsWith("DELETE FROM SPRING_AI_CHAT_MEMORY")) {
+            rows.removeIf(row -> row.conversationId().equals(conversationId));
+        } else if (sql.contains("covered_until_id = VALUES")) {
+            summaries.put(conversationId, new SummaryRow((String) args[1], ((Number) args[2]).longValue()));
+        } else {
+            SummaryRow current = summaries.get(conversationId);
+            summaries.put(conversationId, new SummaryRow((String) args[1], current == null ? 0L : current.coveredUntilId()));
+        }
+        return 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TransactionTemplate transactionTemplate() {
+        TransactionTemplate template = mock(TransactionTemplate.class, invocation -> {
+            if ("executeWithoutResult".equals(invocation.getMethod().getName())) {
+                ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            }
+            return null;
+        });
+        return template;
+    }
+
+    // ---------------------------------------------------------------- Redis
+
+    private RedissonClient redissonClient() {
+        RKeys keys = mock(RKeys.class, invocation -> {
+            for (Object key : (Object[]) invocation.getRawArguments()[0]) {
+                redisLists.remove((String) key);
+                redisStrings.remove((String) key);
+            }
+            return 0L;
+        });
+        RScript script = mock(RScript.class, invocation -> compactScript(invocation.getArgument(3),
+                (Object[]) invocation.getRawArguments()[4]));
+        return mock(RedissonClient.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "createBatch" -> batch();
+            case "getKeys" -> keys;
+            case "getScript" -> script;
+            default -> throw new UnsupportedOperationException(invocation.getMethod().getName());
+        });
+    }
+
+    private RBatch batch() {
+        List<Supplier<Object>> commands = new ArrayList<>();
+        return mock(RBatch.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "getList" -> list(invocation.getArgument(0), commands);
+            case "getBucket" -> bucket(invocation.getArgument(0), commands);
+            case "execute" -> {
+                List<Object> responses = new ArrayList<>();
+                for (Supplier<Object> command : commands) {
+                    responses.add(command.get());
+                }
+                yield new BatchResult<>(responses, 0);
+            }
+            default -> throw new UnsupportedOperationException(invocation.getMethod().getName());
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private RListAsync<String> list(String key, List<Supplier<Object>> commands) {
+        return mock(RListAsync.class, invocation -> {
+            commands.add(switch (invocation.getMethod().getName()) {
+                case "readAllAsync" -> () -> new ArrayList<>(redisLists.getOrDefault(key, List.of()));
+                case "deleteAsync" -> () -> redisLists.remove(key) != null;
+                case "addAllAsync" -> () -> redisLists.computeIfAbsent(key, k -> new ArrayList<>())
+                        .addAll(invocation.getArgument(0));
+                case "trimAsync" -> () -> {
+                    List<String> values = redisLists.getOrDefault(key, new ArrayList<>());
+                    int size = values.size();
+                    int start = Math.max(0, normalize(invocation.getArgument(0), size));
+                    int end = Math.min(size - 1, normalize(invocation.getArgument(1), size));
+                    List<String> kept = start > end ? new ArrayList<>() : new ArrayList<>(values.subList(start, end + 1));
+                    redisLists.put(key, kept);
+                    return null;
+                };
+                case "expireAsync" -> () -> true;
+                default -> throw new UnsupportedOperationException(invocation.getMethod().getName());
+            });
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private RBucketAsync<String> bucket(String key, List<Supplier<Object>> commands) {
+        return mock(RBucketAsync.class, invocation -> {
+            commands.add(switch (invocation.getMethod().getName()) {
+                case "getAsync" -> () -> redisStrings.get(key);
+                case "setAsync" -> () -> redisStrings.put(key, invocation.getArgument(0));
+                case "deleteAsync" -> () -> redisStrings.remove(key) != null;
+                case "expireAsync" -> () -> true;
+                default -> throw new UnsupportedOperationException(invocation.getMethod().getName());
+            });
+            return null;
+        });
+    }
+
+    /**
+     * 压缩脚本：首部与待压缩消息一致时裁掉并写入摘要
+     */
+    private Boolean compactScript(List<Object> keys, Object[] args) {
+        int n = Integer.parseInt((String) args[0]);
+        List<String> window = redisLists.getOrDefault((String) keys.get(0), List.of());
+        if (window.size() < n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (!window.get(i).equals(args[i + 3])) {
+                return false;
+            }
+        }
+        redisLists.put((String) keys.get(0), new ArrayList<>(window.subList(n, window.size())));
+        redisStrings.put((String) keys.get(1), (String) args[1]);
+        return true;
+    }
+
+    private static int normalize(int index, int size) {
+        return index < 0 ? size + index : index;
+    }
+
+    private record Row(long id, String conversationId, String content, String type) {
+    }
+
+    private record SummaryRow(String content, long coveredUntilId) {
+    }
+}
@@ -27,6 +27,13 @@ public class LoginUser implements Serializable {
      */
     public static final String SESSION_KEY = "loginUser";
 
+    /**
+     * 登录用户 Session 变更广播频道（Redis Pub/Sub），消息体为 loginId
+     * <p>
+     * 认证服务在登录、登出、切换企业等改写 Session 的场景下发布，网关据此失效本地 LoginUser 缓存。
+     */
+    public static final String SESSION_CHANGED_CHANNEL = "refinex:login-user:changed";
+
     /**
      * 用户ID
      */
@@ -0,0 +1,67 @@
+package cn.refinex.limiter.annotation;
+
+import cn.refinex.limiter.constant.RateLimitConstant;
+
+import java.lang.annotation.*;
+
+/**
+ * 限流注解
+ * <p>
+ * 基于 {@link cn.refinex.limiter.api.RateLimiter} 实现，支持 SpEL 表达式 key（按方法预编译，调用时不再解析）。
+ * 同一方法可叠加多条规则，多条规则通过 tryAcquireAll 原子校验。
+ *
+ * @author refinex
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Repeatable(RateLimits.class)
+public @interface RateLimit {
+
+    /**
+     * 限流的业务场景前缀 (Namespace)
+     * <p>
+     * 例如: "order:create:ip", "sms:send:phone"
+     * 最终 Key 格式: {scene}:{key}，同时作为指标的 rule 标签。
+     * 同一方法叠加的多条规则，scene 首段（第一个 ':' 之前）须相同，作为共同的 hash tag 保证集群模式下位于同一 slot。
+     */
+    String scene();
+
+    /**
+     * 固定 Key 后缀
+     * <p>
+     * 如果 key() 和 keyExpression() 都未设置，则按 scene 做全局限流。
+     */
+    String key() default RateLimitConstant.NONE_KEY;
+
+    /**
+     * SpEL 表达式 Key
+     * <p>
+     * 示例: "#user.id", "#req.phone"
+     * 优先级低于 key()，当 key() 为 NONE 时生效。
+     */
+    String keyExpression() default RateLimitConstant.NONE_KEY;
+
+    /**
+     * 限流阈值
+     */
+    int limit();
+
+    /**
+     * 窗口大小，单位：秒
+     */
+    int windowSize() default RateLimitConstant.DEFAULT_WINDOW_SIZE;
+
+    /**
+     * 限流器异常（如 Redis 不可用）时是否放行
+     * <p>
+     * 默认 true: 放行（Fail-Open），保证可用性。
+     * false: 拒绝（Fail-Closed），适用于短信发送等防刷场景。叠加多条规则时任一规则为 false 即拒绝。
+     */
+    boolean failOpen() default true;
+
+    /**
+     * 被限流时的提示信息
+     */
+    String errorMessage() default "请求过于频繁，请稍后再试";
+}
@@ -0,0 +1,21 @@
+package cn.refinex.limiter.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 限流注解容器
+ * <p>
+ * 同一方法声明多个 {@link RateLimit} 时由编译器自动生成，无需直接使用。
+ *
+ * @author refinex
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimits {
+
+    /**
+     * 限流规则
+     */
+    RateLimit[] value();
+}
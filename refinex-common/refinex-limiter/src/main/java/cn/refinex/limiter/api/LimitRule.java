@@ -0,0 +1,24 @@
+package cn.refinex.limiter.api;
+
+/**
+ * 限流规则
+ *
+ * @param key        限流资源 Key (如: "auth:sms:ip:127.0.0.1")
+ * @param limit      限流阈值 (如: 10)
+ * @param windowSize 窗口大小，单位：秒 (如: 60)
+ * @author refinex
+ */
+public record LimitRule(String key, int limit, int windowSize) {
+
+    /**
+     * 创建限流规则
+     *
+     * @param key        限流资源 Key
+     * @param limit      限流阈值
+     * @param windowSize 窗口大小，单位：秒
+     * @return 限流规则
+     */
+    public static LimitRule of(String key, int limit, int windowSize) {
+        return new LimitRule(key, limit, windowSize);
+    }
+}
@@ -0,0 +1,24 @@
+package cn.refinex.limiter.api;
+
+/**
+ * 限流算法
+ *
+ * @author refinex
+ */
+public enum RateLimitAlgorithm {
+
+    /**
+     * 默认模式：经 Redisson 执行滑动日志脚本，单规则与多规则校验共享同一份计数（Key 版本号固定为 1）
+     */
+    REDISSON,
+
+    /**
+     * GCRA 通用信元速率算法：每个 Key 只保存一个理论到达时间，O(1) 内存，平滑放行并允许一个窗口内的突发
+     */
+    GCRA,
+
+    /**
+     * 滑动日志：记录窗口内每次放行的时间戳，任意时刻回看一个窗口都精确不超过阈值，内存与阈值成正比
+     */
+    SLIDING_LOG
+}
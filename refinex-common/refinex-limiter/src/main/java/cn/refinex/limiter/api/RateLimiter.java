@@ -1,5 +1,7 @@
 package cn.refinex.limiter.api;
 
+import java.util.List;
+
 /**
  * 统一限流接口
  * <p>
@@ -9,6 +11,11 @@ package cn.refinex.limiter.api;
  */
 public interface RateLimiter {
 
+    /**
+     * {@link #tryAcquireAll(List)} 全部规则通过时的返回值
+     */
+    int ACQUIRED = -1;
+
     /**
      * 尝试获取许可（非阻塞）
      *
@@ -18,4 +25,15 @@ public interface RateLimiter {
      * @return true 表示通过，false 表示被限流
      */
     boolean tryAcquire(String key, int limit, int windowSize);
+
+    /**
+     * 原子地按多条规则获取许可（非阻塞）
+     * <p>
+     * 全部规则都有余量时才同时扣减，任一规则超限则不扣减任何规则（不会因后面的规则拒绝而白白消耗前面规则的许可）。
+     * 各规则 Key 的首段（第一个 ':' 之前）须相同，作为共同的 hash tag 保证集群模式下位于同一 slot。
+     *
+     * @param rules 限流规则
+     * @return 全部通过时返回 {@link #ACQUIRED}，否则返回被限流的规则在 rules 中的下标
+     */
+    int tryAcquireAll(List<LimitRule> rules);
 }
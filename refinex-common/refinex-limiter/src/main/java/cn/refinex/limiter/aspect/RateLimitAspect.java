@@ -0,0 +1,296 @@
+package cn.refinex.limiter.aspect;
+
+import cn.refinex.limiter.annotation.RateLimit;
+import cn.refinex.limiter.api.LimitRule;
+import cn.refinex.limiter.api.RateLimiter;
+import cn.refinex.limiter.constant.RateLimitConstant;
+import cn.refinex.limiter.exception.RateLimitException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流切面实现
+ * <p>
+ * 每个方法首次调用时解析注解并预编译 SpEL（MIXED 模式，热点表达式会被编译为字节码），结果按 {@link Method} 缓存，
+ * 后续调用只做表达式求值与一次限流器调用。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Aspect
+@Order(Integer.MIN_VALUE + 5) // 先于分布式锁(@DistributedLock)与事务生效，被限流的请求不占用锁和连接
+public class RateLimitAspect {
+
+    /**
+     * SpEL 解析器 (线程安全，静态复用)
+     */
+    private static final SpelExpressionParser SPEL_PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, RateLimitAspect.class.getClassLoader()));
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    /**
+     * 限流器
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * 指标注册表
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 方法 -> 预编译的限流规则
+     */
+    private final Map<Method, CompiledMethod> compiledMethods = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param rateLimiter   限流器
+     * @param meterRegistry 指标注册表
+     */
+    public RateLimitAspect(RateLimiter rateLimiter, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 环绕通知
+     *
+     * @param joinPoint 连接点
+     * @return 结果
+     * @throws Throwable 可能的异常
+     */
+    @Around("@annotation(cn.refinex.limiter.annotation.RateLimit) || @annotation(cn.refinex.limiter.annotation.RateLimits)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        CompiledMethod compiled = compiledMethods.computeIfAbsent(method, m -> compile(m, joinPoint.getTarget()));
+        if (compiled.rules().isEmpty()) {
+            return joinPoint.proceed();
+        }
+
+        long start = System.nanoTime();
+        int rejected;
+        try {
+            rejected = acquire(compiled, joinPoint.getArgs());
+        } catch (RateLimitException e) {
+            throw e;
+        } catch (Exception e) {
+            compiled.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            compiled.rules().forEach(rule -> rule.error().increment());
+            if (compiled.failOpen()) {
+                log.warn("Rate limiter unavailable, fail open: [{}]", compiled.name(), e);
+                return joinPoint.proceed();
+            }
+            log.error("Rate limiter unavailable, fail closed: [{}]", compiled.name(), e);
+            throw new RateLimitException(compiled.rules().getFirst().errorMessage(), e);
+        }
+        compiled.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (rejected != RateLimiter.ACQUIRED) {
+            CompiledRule rule = compiled.rules().get(rejected);
+            rule.rejected().increment();
+            log.debug("Request limited: [{}] by rule [{}]", compiled.name(), rule.scene());
+            throw new RateLimitException(rule.errorMessage());
+        }
+        compiled.rules().forEach(rule -> rule.accepted().increment());
+        return joinPoint.proceed();
+    }
+
+    /**
+     * 求值 Key 并调用限流器
+     * <p>
+     * 单条与多条规则都走 tryAcquireAll，同一条规则无论是否与其他注解叠加都落在同一份限流状态上。
+     *
+     * @param compiled 预编译的方法规则
+     * @param args     方法参数
+     * @return 通过时返回 {@link RateLimiter#ACQUIRED}，否则返回被限流的规则下标
+     */
+    private int acquire(CompiledMethod compiled, Object[] args) {
+        List<CompiledRule> rules = compiled.rules();
+        EvaluationContext context = compiled.requiresContext() ? createContext(compiled.parameterNames(), args) : null;
+
+        List<LimitRule> limitRules = new ArrayList<>(rules.size());
+        for (CompiledRule rule : rules) {
+            limitRules.add(LimitRule.of(rule.resolveKey(context), rule.limit(), rule.windowSize()));
+        }
+        return rateLimiter.tryAcquireAll(limitRules);
+    }
+
+    /**
+     * 构建 SpEL 求值上下文
+     *
+     * @param parameterNames 参数名
+     * @param args           方法参数
+     * @return 求值上下文
+     */
+    private EvaluationContext createContext(String[] parameterNames, Object[] args) {
+        EvaluationContext context = new StandardEvaluationContext();
+        if (parameterNames != null) {
+            for (int i = 0; i < parameterNames.length; i++) {
+                context.setVariable(parameterNames[i], args[i]);
+            }
+        }
+        return context;
+    }
+
+    /**
+     * 解析方法上的限流注解，预编译表达式并注册指标
+     *
+     * @param method 方法
+     * @param target 目标对象
+     * @return 预编译的方法规则
+     */
+    private CompiledMethod compile(Method method, Object target) {
+        Method specificMethod = target == null ? method : AopUtils.getMostSpecificMethod(method, AopUtils.getTargetClass(target));
+        Set<RateLimit> annotations = AnnotatedElementUtils.findMergedRepeatableAnnotations(specificMethod, RateLimit.class);
+        String name = specificMethod.getDeclaringClass().getSimpleName() + "." + specificMethod.getName();
+
+        List<CompiledRule> rules = new ArrayList<>(annotations.size());
+        boolean failOpen = true;
+        boolean requiresContext = false;
+        for (RateLimit annotation : annotations) {
+            if (annotation.limit() <= 0 || annotation.windowSize() <= 0) {
+                throw new RateLimitException("Invalid rate limit on " + name + ": limit and windowSize must be positive");
+            }
+            Expression expression = null;
+            String fixedKey = annotation.scene();
+            if (!RateLimitConstant.NONE_KEY.equals(annotation.key())) {
+                fixedKey = annotation.scene() + ":" + annotation.key();
+            } else if (!RateLimitConstant.NONE_KEY.equals(annotation.keyExpression())) {
+                try {
+                    expression = SPEL_PARSER.parseExpression(annotation.keyExpression());
+                } catch (Exception e) {
+                    log.error("SpEL expression parse failed: [{}] on [{}]", annotation.keyExpression(), name, e);
+                    throw new RateLimitException("Invalid rate limit key expression");
+                }
+                requiresContext = true;
+            }
+            failOpen &= annotation.failOpen();
+            rules.add(new CompiledRule(annotation.scene(), fixedKey, expression, annotation.limit(), annotation.windowSize(),
+                    annotation.errorMessage(),
+                    counter(annotation.scene(), name, "accepted"),
+                    counter(annotation.scene(), name, "rejected"),
+                    counter(annotation.scene(), name, "error")));
+        }
+
+        String namespace = namespace(rules.isEmpty() ? "" : rules.getFirst().scene());
+        for (CompiledRule rule : rules) {
+            if (!namespace.equals(namespace(rule.scene()))) {
+                throw new RateLimitException("Invalid rate limit on " + name
+                        + ": stacked rules must share the first scene segment (cluster hash tag)");
+            }
+        }
+
+        Timer timer = Timer.builder(RateLimitConstant.METRIC_DECISION)
+                .description("Rate limit decision latency")
+                .tag("method", name)
+                .register(meterRegistry);
+        String[] parameterNames = requiresContext ? PARAMETER_NAME_DISCOVERER.getParameterNames(specificMethod) : null;
+        return new CompiledMethod(name, List.copyOf(rules), failOpen, requiresContext, parameterNames, timer);
+    }
+
+    /**
+     * 场景的首段（第一个 ':' 之前），即多规则限流 Key 共同的 hash tag
+     *
+     * @param scene 场景
+     * @return 首段
+     */
+    private static String namespace(String scene) {
+        int end = scene.indexOf(':');
+        return end > 0 ? scene.substring(0, end) : scene;
+    }
+
+    /**
+     * 注册规则计数器
+     *
+     * @param scene   规则场景
+     * @param method  方法名
+     * @param outcome 判定结果
+     * @return 计数器
+     */
+    private Counter counter(String scene, String method, String outcome) {
+        return Counter.builder(RateLimitConstant.METRIC_REQUESTS)
+                .description("Rate limit decisions per rule")
+                .tag("rule", scene)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 预编译的方法规则
+     *
+     * @param name            方法名 (Class.method)
+     * @param rules           限流规则
+     * @param failOpen        限流器异常时是否放行
+     * @param requiresContext 是否需要 SpEL 求值上下文
+     * @param parameterNames  参数名
+     * @param timer           判定耗时
+     */
+    private record CompiledMethod(String name, List<CompiledRule> rules, boolean failOpen, boolean requiresContext,
+                                  String[] parameterNames, Timer timer) {
+    }
+
+    /**
+     * 预编译的单条规则
+     *
+     * @param scene        场景
+     * @param fixedKey     固定 Key (无表达式时使用)
+     * @param expression   预编译的 SpEL 表达式
+     * @param limit        限流阈值
+     * @param windowSize   窗口大小 (秒)
+     * @param errorMessage 被限流时的提示信息
+     * @param accepted     通过计数
+     * @param rejected     拒绝计数
+     * @param error        限流器异常计数
+     */
+    private record CompiledRule(String scene, String fixedKey, Expression expression, int limit, int windowSize,
+                                String errorMessage, Counter accepted, Counter rejected, Counter error) {
+
+        /**
+         * 解析最终限流 Key
+         *
+         * @param context 求值上下文
+         * @return {scene}:{key}
+         */
+        String resolveKey(EvaluationContext context) {
+            if (expression == null) {
+                return fixedKey;
+            }
+            Object value;
+            try {
+                value = expression.getValue(context);
+            } catch (Exception e) {
+                log.error("SpEL expression evaluate failed: [{}]", expression.getExpressionString(), e);
+                throw new RateLimitException("Invalid rate limit key expression");
+            }
+            return scene + ":" + (value == null ? RateLimitConstant.UNKNOWN_KEY : value);
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package cn.refinex.limiter.autoconfigure;
 
 import cn.refinex.limiter.api.RateLimiter;
+import cn.refinex.limiter.api.RateLimitAlgorithm;
+import cn.refinex.limiter.aspect.RateLimitAspect;
+import cn.refinex.limiter.support.LeasedRateLimiter;
+import cn.refinex.limiter.support.ScriptRateLimiter;
 import cn.refinex.limiter.support.SlidingWindowRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
 /**
@@ -16,17 +24,43 @@ import org.springframework.context.annotation.Bean;
         "org.redisson.spring.starter.RedissonAutoConfigurationV4",
         "org.redisson.spring.starter.RedissonAutoConfigurationV2"
 })
+@EnableConfigurationProperties(LimiterProperties.class)
 public class LimiterAutoConfiguration {
 
     /**
-     * 提供滑动窗口限流器
+     * 提供限流器
+     * <p>
+     * 精确模式按 refinex.limiter.algorithm 选择 Redisson 滑动窗口或 GCRA / 滑动日志脚本；
+     * 配置了 refinex.limiter.leased.key-prefixes 时，命中前缀的 Key 切换为本地租约模式。
      *
-     * @param redissonClient Redisson 客户端
-     * @return 滑动窗口限流器
+     * @param redissonClient    Redisson 客户端
+     * @param limiterProperties 限流配置
+     * @return 限流器
      */
     @Bean
     @ConditionalOnMissingBean(RateLimiter.class)
-    public RateLimiter slidingWindowRateLimiter(RedissonClient redissonClient) {
-        return new SlidingWindowRateLimiter(redissonClient);
+    public RateLimiter slidingWindowRateLimiter(RedissonClient redissonClient, LimiterProperties limiterProperties) {
+        RateLimiter exactRateLimiter = limiterProperties.getAlgorithm() == RateLimitAlgorithm.REDISSON
+                ? new SlidingWindowRateLimiter(redissonClient)
+                : new ScriptRateLimiter(redissonClient, limiterProperties.getAlgorithm(), limiterProperties.getKeyVersion());
+        if (limiterProperties.getLeased().getKeyPrefixes().isEmpty()) {
+            return exactRateLimiter;
+        }
+        return new LeasedRateLimiter(redissonClient, exactRateLimiter, limiterProperties.getLeased());
+    }
+
+    /**
+     * 限流注解切面
+     * <p>
+     * 未引入 Actuator 时指标注册到 Micrometer 全局注册表。
+     *
+     * @param rateLimiter   限流器
+     * @param meterRegistry 指标注册表
+     * @return 限流注解切面
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public RateLimitAspect rateLimitAspect(RateLimiter rateLimiter, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RateLimitAspect(rateLimiter, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
 }
@@ -0,0 +1,79 @@
+package cn.refinex.limiter.autoconfigure;
+
+import cn.refinex.limiter.api.RateLimitAlgorithm;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 限流组件配置属性
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.limiter")
+public class LimiterProperties {
+
+    /**
+     * 精确模式使用的限流算法，默认 REDISSON
+     * <p>
+     * RRateLimiter 无法在一次调用中原子判定多个 Key，REDISSON 模式下单规则与多规则调用统一使用滑动日志脚本，
+     * 同一条规则单独校验与组合校验共享同一份计数。
+     */
+    private RateLimitAlgorithm algorithm = RateLimitAlgorithm.REDISSON;
+
+    /**
+     * 限流 Key 版本号（GCRA / SLIDING_LOG 生效），修改后全部限流状态重新计数
+     */
+    private String keyVersion = "1";
+
+    /**
+     * 本地租约模式配置
+     */
+    private Leased leased = new Leased();
+
+    /**
+     * 本地租约模式配置
+     * <p>
+     * 命中 keyPrefixes 的限流 Key 由节点向 Redis 批量租借许可，在本地无锁扣减；其余 Key 保持精确模式（每次访问 Redis）。
+     * 租约按固定窗口计数，窗口边界前后各用满一次阈值时，一个窗口长度内最多放行 2 × 阈值，只适合能接受边界突发的 Key。
+     */
+    @Data
+    public static class Leased {
+
+        /**
+         * 使用租约模式的 Key 前缀（如 "auth:login:ip:"），为空表示全部使用精确模式
+         */
+        private List<String> keyPrefixes = new ArrayList<>();
+
+        /**
+         * 全局误差上限（占限流阈值的比例）
+         * <p>
+         * 单次租借的许可数不超过 limit * errorRatio，即每个节点最多滞留这么多未使用的许可（窗口内只会少放行，不会多放行）。
+         */
+        private double errorRatio = 0.05;
+
+        /**
+         * 单次租借许可数上限
+         */
+        private int maxLeaseSize = 100;
+
+        /**
+         * 本地剩余许可低于租借数的该比例时，异步预取下一批
+         */
+        private double refillRatio = 0.2;
+
+        /**
+         * 本地租约空闲过期时间
+         */
+        private Duration idleExpire = Duration.ofMinutes(10);
+
+        /**
+         * 本地最多保留的租约数
+         */
+        private long maximumSize = 100_000;
+    }
+}
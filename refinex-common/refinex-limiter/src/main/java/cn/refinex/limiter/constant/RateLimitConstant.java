@@ -0,0 +1,37 @@
+package cn.refinex.limiter.constant;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * 限流常量定义
+ *
+ * @author refinex
+ */
+@UtilityClass
+public class RateLimitConstant {
+
+    /**
+     * 默认 Key 占位符
+     */
+    public static final String NONE_KEY = "NONE";
+
+    /**
+     * SpEL 结果为 null 时使用的 Key
+     */
+    public static final String UNKNOWN_KEY = "unknown";
+
+    /**
+     * 默认窗口大小 (秒)
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1;
+
+    /**
+     * 限流判定计数指标
+     */
+    public static final String METRIC_REQUESTS = "refinex.limiter.requests";
+
+    /**
+     * 限流判定耗时指标
+     */
+    public static final String METRIC_DECISION = "refinex.limiter.decision";
+}
@@ -0,0 +1,28 @@
+package cn.refinex.limiter.exception;
+
+/**
+ * 限流异常
+ *
+ * @author refinex
+ */
+public class RateLimitException extends RuntimeException {
+
+    /**
+     * 错误信息
+     *
+     * @param message 错误信息
+     */
+    public RateLimitException(String message) {
+        super(message);
+    }
+
+    /**
+     * 错误信息
+     *
+     * @param message 错误信息
+     * @param cause   原始异常
+     */
+    public RateLimitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
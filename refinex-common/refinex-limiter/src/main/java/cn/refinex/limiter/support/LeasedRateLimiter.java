@@ -0,0 +1,364 @@
+package cn.refinex.limiter.support;
+
+import cn.refinex.limiter.api.LimitRule;
+import cn.refinex.limiter.api.RateLimiter;
+import cn.refinex.limiter.autoconfigure.LimiterProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 本地租约 + 分布式令牌桶的混合限流实现
+ * <p>
+ * 命中租约前缀的 Key：节点通过一次 Lua 调用从 Redis 租借一批许可（Redis 侧按固定窗口累计已租出的数量），
+ * 之后在本地用无锁计数器扣减，余量不足时异步预取下一批；Redis 返回 0 时在本地缓存拒绝结果直到窗口结束。
+ * 本地许可不会跨越 Redis 窗口使用，因此每个 Redis 窗口内的全局放行量不会超过阈值；窗口内的误差只体现为各节点滞留的未用许可（少放行），
+ * 上限为 节点数 × 单次租借数，单次租借数由 {@link LimiterProperties.Leased#getErrorRatio()} 控制。
+ * <p>
+ * 租约按固定窗口计数，这是换取本地扣减性能所接受的折衷：客户端可以在一个窗口末尾用完阈值、紧接着在下一个窗口开头再用完阈值，
+ * 跨越窗口边界的任意一个窗口长度内最多放行 2 × 阈值。需要任意时刻回看一个窗口都不超过阈值的 Key 不要配置为租约前缀，
+ * 改用精确模式的 GCRA / SLIDING_LOG 算法。
+ * <p>
+ * 其余 Key 交给精确模式的委托限流器处理；多规则原子限流中命中租约前缀的规则同样走本地租约，其余规则一次性交给精确模式。
+ * 租约 Key 中包含 limit 与 windowSize，配置变更后立即生效。
+ *
+ * @author refinex
+ */
+@Slf4j
+public class LeasedRateLimiter implements RateLimiter {
+
+    /**
+     * 租约 Key 前缀
+     */
+    private static final String LEASE_KEY_PREFIX = "refinex:limiter:lease:";
+
+    /**
+     * 同一窗口判定容差，吸收往返时延带来的 TTL 偏差
+     */
+    private static final long WINDOW_TOLERANCE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * 租借脚本
+     * <p>
+     * KEYS[1] 窗口内已租出数量；ARGV[1] 阈值，ARGV[2] 期望租借数，ARGV[3] 窗口毫秒数。
+     * 返回 {实际租借数, 窗口剩余毫秒}。
+     */
+    private static final String LEASE_SCRIPT = """
+            local limit = tonumber(ARGV[1])
+            local want = tonumber(ARGV[2])
+            local used = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local grant = math.min(want, limit - used)
+            if grant > 0 then
+                redis.call('INCRBY', KEYS[1], grant)
+            else
+                grant = 0
+            end
+            local ttl = redis.call('PTTL', KEYS[1])
+            if ttl < 0 then
+                ttl = tonumber(ARGV[3])
+                if grant > 0 then
+                    redis.call('PEXPIRE', KEYS[1], ttl)
+                end
+            end
+            return {grant, ttl}
+            """;
+
+    private final RedissonClient redissonClient;
+    private final RateLimiter exactRateLimiter;
+    private final LimiterProperties.Leased properties;
+    private final Cache<String, PermitLease> leases;
+
+    /**
+     * 构造函数
+     *
+     * @param redissonClient   Redisson 客户端
+     * @param exactRateLimiter 精确模式限流器，用于未配置租约前缀的 Key
+     * @param properties       租约模式配置
+     */
+    public LeasedRateLimiter(RedissonClient redissonClient, RateLimiter exactRateLimiter, LimiterProperties.Leased properties) {
+        this.redissonClient = redissonClient;
+        this.exactRateLimiter = exactRateLimiter;
+        this.properties = properties;
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterAccess(properties.getIdleExpire())
+                .build();
+    }
+
+    /**
+     * 尝试获取许可（非阻塞）
+     *
+     * @param key        限流资源 Key (如: "order_create_ip:127.0.0.1")
+     * @param limit      限流阈值 (如: 10)
+     * @param windowSize 窗口大小，单位：秒 (如: 1)
+     * @return true 表示通过，false 表示被限流
+     */
+    @Override
+    public boolean tryAcquire(String key, int limit, int windowSize) {
+        if (!isLeased(key)) {
+            return exactRateLimiter.tryAcquire(key, limit, windowSize);
+        }
+        return take(key, limit, windowSize) != null;
+    }
+
+    /**
+     * 原子地按多条规则获取许可
+     * <p>
+     * 命中租约前缀的规则先在本地租约中扣减，其余规则随后一次性交给精确模式判定；
+     * 任一规则被拒绝时，已从本地租约扣减的许可原样退回，不会因其他规则的拒绝而白白消耗。
+     *
+     * @param rules 限流规则
+     * @return 全部通过时返回 {@link #ACQUIRED}，否则返回被限流的规则下标
+     */
+    @Override
+    public int tryAcquireAll(List<LimitRule> rules) {
+        if (rules == null || rules.isEmpty()) {
+            return ACQUIRED;
+        }
+
+        List<LimitRule> exactRules = new ArrayList<>(rules.size());
+        List<Integer> exactIndexes = new ArrayList<>(rules.size());
+        List<PermitBlock> taken = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            LimitRule rule = rules.get(i);
+            if (!isLeased(rule.key())) {
+                exactRules.add(rule);
+                exactIndexes.add(i);
+                continue;
+            }
+            PermitBlock block = take(rule.key(), rule.limit(), rule.windowSize());
+            if (block == null) {
+                refund(taken);
+                return i;
+            }
+            taken.add(block);
+        }
+        if (exactRules.isEmpty()) {
+            return ACQUIRED;
+        }
+
+        int rejected;
+        try {
+            rejected = exactRateLimiter.tryAcquireAll(exactRules);
+        } catch (RuntimeException e) {
+            refund(taken);
+            throw e;
+        }
+        if (rejected == ACQUIRED) {
+            return ACQUIRED;
+        }
+        refund(taken);
+        return exactIndexes.get(rejected);
+    }
+
+    /**
+     * 从本地租约扣减一个许可，余量不足时向 Redis 租借
+     *
+     * @param key        限流 Key
+     * @param limit      限流阈值
+     * @param windowSize 窗口大小，单位：秒
+     * @return 扣减了许可的许可块，被限流时返回 null
+     */
+    private PermitBlock take(String key, int limit, int windowSize) {
+        String leaseKey = LEASE_KEY_PREFIX + key + ":" + limit + ":" + windowSize;
+        PermitLease lease = leases.get(leaseKey, k -> new PermitLease());
+        int leaseSize = leaseSize(limit);
+
+        long now = System.nanoTime();
+        PermitBlock block = lease.tryTake(now);
+        if (block != null) {
+            prefetchIfLow(leaseKey, lease, limit, windowSize, leaseSize);
+            return block;
+        }
+        if (lease.isExhausted(now)) {
+            log.debug("Rate limit exceeded for key: {}", key);
+            return null;
+        }
+
+        // 本地许可耗尽：同步租借（同一 Key 的并发线程共享同一次 Redis 调用）
+        try {
+            refill(leaseKey, lease, limit, windowSize, leaseSize).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+
+        block = lease.tryTake(System.nanoTime());
+        if (block == null) {
+            log.debug("Rate limit exceeded for key: {}", key);
+        }
+        return block;
+    }
+
+    /**
+     * 退回已扣减的本地许可（许可块已过期时，退回的许可随之失效）
+     *
+     * @param taken 扣减了许可的许可块
+     */
+    private static void refund(List<PermitBlock> taken) {
+        for (PermitBlock block : taken) {
+            block.remaining.incrementAndGet();
+        }
+    }
+
+    /**
+     * 是否使用租约模式
+     *
+     * @param key 限流 Key
+     * @return 是否命中租约前缀
+     */
+    private boolean isLeased(String key) {
+        for (String prefix : properties.getKeyPrefixes()) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 计算单次租借数：limit * errorRatio，至少 1，至多 maxLeaseSize
+     *
+     * @param limit 限流阈值
+     * @return 单次租借数
+     */
+    private int leaseSize(int limit) {
+        int size = (int) Math.floor(limit * properties.getErrorRatio());
+        return Math.max(1, Math.min(size, properties.getMaxLeaseSize()));
+    }
+
+    /**
+     * 余量低于阈值时异步预取
+     */
+    private void prefetchIfLow(String leaseKey, PermitLease lease, int limit, int windowSize, int leaseSize) {
+        if (leaseSize <= 1 || lease.remaining() > leaseSize * properties.getRefillRatio() || lease.inflight.get() != null) {
+            return;
+        }
+        refill(leaseKey, lease, limit, windowSize, leaseSize).exceptionally(e -> {
+            log.warn("Failed to prefetch rate limit permits, key: {}", leaseKey, e);
+            return null;
+        });
+    }
+
+    /**
+     * 向 Redis 租借一批许可，同一租约同时只有一个请求在途
+     *
+     * @return 租借完成的 Future
+     */
+    private CompletableFuture<Void> refill(String leaseKey, PermitLease lease, int limit, int windowSize, int leaseSize) {
+        while (true) {
+            CompletableFuture<Void> inflight = lease.inflight.get();
+            if (inflight != null) {
+                return inflight;
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            if (!lease.inflight.compareAndSet(null, future)) {
+                continue;
+            }
+
+            long windowMillis = TimeUnit.SECONDS.toMillis(windowSize);
+            redissonClient.getScript(LongCodec.INSTANCE)
+                    .<List<Long>>evalAsync(RScript.Mode.READ_WRITE, LEASE_SCRIPT, RScript.ReturnType.LIST,
+                            List.of(leaseKey), limit, leaseSize, windowMillis)
+                    .whenComplete((result, error) -> {
+                        if (error == null) {
+                            lease.apply(result.get(0).intValue(), result.get(1), System.nanoTime());
+                        }
+                        lease.inflight.set(null);
+                        if (error == null) {
+                            future.complete(null);
+                        } else {
+                            future.completeExceptionally(error);
+                        }
+                    });
+            return future;
+        }
+    }
+
+    /**
+     * 单个 Key 的本地租约
+     */
+    private static final class PermitLease {
+
+        /**
+         * 当前窗口的许可块
+         */
+        private final AtomicReference<PermitBlock> block = new AtomicReference<>(PermitBlock.EMPTY);
+
+        /**
+         * 在途租借请求
+         */
+        private final AtomicReference<CompletableFuture<Void>> inflight = new AtomicReference<>();
+
+        private PermitBlock tryTake(long now) {
+            PermitBlock current = block.get();
+            return current.isLive(now) && current.take() ? current : null;
+        }
+
+        private boolean isExhausted(long now) {
+            PermitBlock current = block.get();
+            return current.exhausted && current.isLive(now);
+        }
+
+        private int remaining() {
+            return block.get().remaining.get();
+        }
+
+        /**
+         * 应用租借结果；仅由在途租借的回调调用，不存在并发写
+         */
+        private void apply(int granted, long ttlMillis, long now) {
+            long deadline = now + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+            PermitBlock current = block.get();
+            if (granted > 0 && current.isLive(now) && !current.exhausted
+                    && Math.abs(deadline - current.deadlineNanos) <= WINDOW_TOLERANCE_NANOS) {
+                current.remaining.addAndGet(granted);
+                return;
+            }
+            block.set(new PermitBlock(granted, deadline, granted == 0));
+        }
+    }
+
+    /**
+     * 同一 Redis 窗口内租得的许可
+     */
+    private static final class PermitBlock {
+
+        private static final PermitBlock EMPTY = new PermitBlock(0, System.nanoTime(), false);
+
+        private final AtomicInteger remaining;
+        private final long deadlineNanos;
+        private final boolean exhausted;
+
+        private PermitBlock(int remaining, long deadlineNanos, boolean exhausted) {
+            this.remaining = new AtomicInteger(remaining);
+            this.deadlineNanos = deadlineNanos;
+            this.exhausted = exhausted;
+        }
+
+        private boolean isLive(long now) {
+            return now - deadlineNanos < 0;
+        }
+
+        private boolean take() {
+            int current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+    }
+}
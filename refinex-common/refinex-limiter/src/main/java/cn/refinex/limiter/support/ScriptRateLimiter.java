@@ -0,0 +1,193 @@
+package cn.refinex.limiter.support;
+
+import cn.refinex.limiter.api.LimitRule;
+import cn.refinex.limiter.api.RateLimitAlgorithm;
+import cn.refinex.limiter.api.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 基于 Lua 脚本的限流实现（GCRA / 滑动日志）
+ * <p>
+ * 每次判定都是一次脚本调用、一次网络往返，时间取 Redis 服务端 TIME，避免节点时钟偏差。
+ * 阈值与窗口随调用传入，并作为配置版本拼入 Key（{@code refinex:limiter:{<scene>}:gcra:<key>:v<keyVersion>:<limit>-<window>}），
+ * Nacos 修改限流参数后新请求立即落到新 Key，旧 Key 随 TTL 自然过期，不存在 RRateLimiter 旧配置残留的问题。
+ * <p>
+ * 业务 Key 的首段（第一个 ':' 之前，如 {@code auth:sms:ip:127.0.0.1} 的 {@code auth}）作为 hash tag：
+ * 同一条规则无论单独校验还是与其他规则一起校验都落在同一个 Key 上，多规则调用的 Key 在集群模式下位于同一 slot。
+ * 因此一次多规则调用中各规则 Key 的首段必须相同，否则直接拒绝调用（避免集群模式下 CROSSSLOT）。
+ *
+ * @author refinex
+ */
+@Slf4j
+public class ScriptRateLimiter implements RateLimiter {
+
+    /**
+     * 限流 Key 前缀
+     */
+    private static final String LIMIT_KEY_PREFIX = "refinex:limiter:";
+
+    /**
+     * GCRA 脚本
+     * <p>
+     * KEYS[i] 第 i 条规则的理论到达时间（TAT，毫秒）；ARGV[2i-1] 阈值，ARGV[2i] 窗口毫秒数。
+     * 发射间隔 = 窗口 / 阈值，突发容量 = 阈值。返回 0 表示全部通过，否则返回首个超限规则的序号。
+     */
+    private static final String GCRA_SCRIPT = """
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + tonumber(time[2]) / 1000
+            local count = #KEYS
+            local tats = {}
+            for i = 1, count do
+                local limit = tonumber(ARGV[2 * i - 1])
+                local window = tonumber(ARGV[2 * i])
+                if limit <= 0 then
+                    return i
+                end
+                local tat = tonumber(redis.call('GET', KEYS[i]) or now)
+                if tat < now then
+                    tat = now
+                end
+                local next = tat + window / limit
+                if next - window > now then
+                    return i
+                end
+                tats[i] = next
+            end
+            for i = 1, count do
+                redis.call('SET', KEYS[i], string.format('%.3f', tats[i]), 'PX', math.ceil(tats[i] - now))
+            end
+            return 0
+            """;
+
+    /**
+     * 滑动日志脚本
+     * <p>
+     * KEYS[i] 第 i 条规则的放行日志（ZSET）；ARGV[2i-1] 阈值，ARGV[2i] 窗口毫秒数，最后一个 ARGV 为本次请求的唯一成员。
+     * 返回 0 表示全部通过，否则返回首个超限规则的序号。
+     */
+    private static final String SLIDING_LOG_SCRIPT = """
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local count = #KEYS
+            for i = 1, count do
+                local limit = tonumber(ARGV[2 * i - 1])
+                local window = tonumber(ARGV[2 * i])
+                redis.call('ZREMRANGEBYSCORE', KEYS[i], '-inf', now - window)
+                if redis.call('ZCARD', KEYS[i]) >= limit then
+                    return i
+                end
+            end
+            local member = ARGV[2 * count + 1]
+            for i = 1, count do
+                redis.call('ZADD', KEYS[i], now, member)
+                redis.call('PEXPIRE', KEYS[i], ARGV[2 * i])
+            end
+            return 0
+            """;
+
+    private final RedissonClient redissonClient;
+    private final RateLimitAlgorithm algorithm;
+    private final String keyVersion;
+
+    /**
+     * 构造函数
+     *
+     * @param redissonClient Redisson 客户端
+     * @param algorithm      限流算法，仅支持 GCRA / SLIDING_LOG
+     * @param keyVersion     Key 版本号，修改后全部限流状态重新计数
+     */
+    public ScriptRateLimiter(RedissonClient redissonClient, RateLimitAlgorithm algorithm, String keyVersion) {
+        if (algorithm != RateLimitAlgorithm.GCRA && algorithm != RateLimitAlgorithm.SLIDING_LOG) {
+            throw new IllegalArgumentException("Unsupported script rate limit algorithm: " + algorithm);
+        }
+        this.redissonClient = redissonClient;
+        this.algorithm = algorithm;
+        this.keyVersion = keyVersion == null || keyVersion.isBlank() ? "1" : keyVersion.trim();
+    }
+
+    /**
+     * 尝试获取许可（非阻塞）
+     *
+     * @param key        限流资源 Key (如: "order_create_ip:127.0.0.1")
+     * @param limit      限流阈值 (如: 10)
+     * @param windowSize 窗口大小，单位：秒 (如: 1)
+     * @return true 表示通过，false 表示被限流
+     */
+    @Override
+    public boolean tryAcquire(String key, int limit, int windowSize) {
+        return tryAcquireAll(List.of(LimitRule.of(key, limit, windowSize))) == ACQUIRED;
+    }
+
+    /**
+     * 原子地按多条规则获取许可（非阻塞），一次网络往返
+     *
+     * @param rules 限流规则
+     * @return 全部通过时返回 {@link #ACQUIRED}，否则返回被限流的规则下标
+     */
+    @Override
+    public int tryAcquireAll(List<LimitRule> rules) {
+        if (rules == null || rules.isEmpty()) {
+            return ACQUIRED;
+        }
+
+        String hashTag = hashTag(rules.getFirst().key());
+        for (int i = 1; i < rules.size(); i++) {
+            if (!hashTag.equals(hashTag(rules.get(i).key()))) {
+                throw new IllegalArgumentException("Rules of one multi-rule call must share the first key segment (hash tag): "
+                        + rules.getFirst().key() + ", " + rules.get(i).key());
+            }
+        }
+
+        boolean slidingLog = algorithm == RateLimitAlgorithm.SLIDING_LOG;
+        List<Object> keys = new ArrayList<>(rules.size());
+        Object[] args = new Object[rules.size() * 2 + (slidingLog ? 1 : 0)];
+        for (int i = 0; i < rules.size(); i++) {
+            LimitRule rule = rules.get(i);
+            keys.add(buildKey(rule));
+            args[2 * i] = String.valueOf(rule.limit());
+            args[2 * i + 1] = String.valueOf(rule.windowSize() * 1000L);
+        }
+        if (slidingLog) {
+            args[args.length - 1] = UUID.randomUUID().toString();
+        }
+
+        Long rejected = redissonClient.getScript(StringCodec.INSTANCE)
+                .eval(RScript.Mode.READ_WRITE, slidingLog ? SLIDING_LOG_SCRIPT : GCRA_SCRIPT, RScript.ReturnType.LONG, keys, args);
+
+        if (rejected != null && rejected > 0) {
+            int index = rejected.intValue() - 1;
+            log.debug("Rate limit exceeded for key: {}", rules.get(index).key());
+            return index;
+        }
+        return ACQUIRED;
+    }
+
+    /**
+     * 构造带 hash tag 与配置版本的 Redis Key
+     *
+     * @param rule 限流规则
+     * @return Redis Key
+     */
+    private String buildKey(LimitRule rule) {
+        return LIMIT_KEY_PREFIX + "{" + hashTag(rule.key()) + "}:" + (algorithm == RateLimitAlgorithm.GCRA ? "gcra:" : "log:")
+                + rule.key() + ":v" + keyVersion + ":" + rule.limit() + "-" + rule.windowSize();
+    }
+
+    /**
+     * 业务 Key 的 hash tag：首段（第一个 ':' 之前），无 ':' 时为整个 Key
+     *
+     * @param key 业务 Key
+     * @return hash tag
+     */
+    private static String hashTag(String key) {
+        int end = key.indexOf(':');
+        return end > 0 ? key.substring(0, end) : key;
+    }
+}
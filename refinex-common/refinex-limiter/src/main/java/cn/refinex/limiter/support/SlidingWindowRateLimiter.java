@@ -1,33 +1,30 @@
 package cn.refinex.limiter.support;
 
+import cn.refinex.limiter.api.LimitRule;
+import cn.refinex.limiter.api.RateLimitAlgorithm;
 import cn.refinex.limiter.api.RateLimiter;
-import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RRateLimiter;
-import org.redisson.api.RateIntervalUnit;
-import org.redisson.api.RateType;
 import org.redisson.api.RedissonClient;
 
+import java.util.List;
+
 /**
- * 基于 Redisson 的滑动窗口限流实现
+ * 基于 Redisson 的滑动窗口限流实现（REDISSON 模式）
+ * <p>
+ * 适用于分布式环境下的精确限流。单规则 {@link #tryAcquire} 与多规则 {@link #tryAcquireAll(List)} 都委托给滑动日志模式的
+ * {@link ScriptRateLimiter}：同一条规则无论单独校验还是与其他规则一起校验都落在同一个 Key 上，共享同一份计数。
+ * 多规则调用在一个 Lua 脚本中先校验全部规则再统一扣减。
  * <p>
- * 适用于分布式环境下的精确限流。
- * 注意：Redisson 的 RRateLimiter 配置是持久化的。如果代码中修改了 limit/windowSize，
- * 但 Redis 中 key 已存在，旧配置不会自动更新。建议在 key 中包含版本号或定期过期。
+ * 每个 Key 的内存占用与阈值成正比；阈值与窗口作为配置版本拼入 Key，修改后立即生效。
+ * 一次调用中各规则 Key 的首段须相同（作为共同的 hash tag，集群模式下位于同一 slot），见 {@link ScriptRateLimiter}。
  *
  * @author refinex
  */
-@Slf4j
 public class SlidingWindowRateLimiter implements RateLimiter {
 
     /**
-     * Redisson 客户端
+     * 限流委托（滑动日志）
      */
-    private final RedissonClient redissonClient;
-
-    /**
-     * 限流 Key 前缀，防止与其他业务 Key 冲突
-     */
-    private static final String LIMIT_KEY_PREFIX = "refinex:limiter:";
+    private final ScriptRateLimiter delegate;
 
     /**
      * 构造函数
@@ -35,7 +32,7 @@ public class SlidingWindowRateLimiter implements RateLimiter {
      * @param redissonClient Redisson 客户端
      */
     public SlidingWindowRateLimiter(RedissonClient redissonClient) {
-        this.redissonClient = redissonClient;
+        this.delegate = new ScriptRateLimiter(redissonClient, RateLimitAlgorithm.SLIDING_LOG, null);
     }
 
     /**
@@ -48,23 +45,17 @@ public class SlidingWindowRateLimiter implements RateLimiter {
      */
     @Override
     public boolean tryAcquire(String key, int limit, int windowSize) {
-        // 构造完整的 Redis Key
-        String fullKey = LIMIT_KEY_PREFIX + key;
-
-        RRateLimiter rateLimiter = redissonClient.getRateLimiter(fullKey);
-
-        // 初始化限流规则
-        // trySetRate: 仅当配置不存在时设置。返回 true 表示设置成功，false 表示已存在。
-        // RateType.OVERALL: 全局限流（所有客户端共享）
-        rateLimiter.trySetRate(RateType.OVERALL, limit, windowSize, RateIntervalUnit.SECONDS);
-
-        // 尝试获取 1 个许可
-        boolean acquired = rateLimiter.tryAcquire(1);
-
-        if (!acquired) {
-            log.debug("Rate limit exceeded for key: {}", key);
-        }
+        return delegate.tryAcquire(key, limit, windowSize);
+    }
 
-        return acquired;
+    /**
+     * 原子地按多条规则获取许可（非阻塞），一次网络往返
+     *
+     * @param rules 限流规则
+     * @return 全部通过时返回 {@link #ACQUIRED}，否则返回被限流的规则下标
+     */
+    @Override
+    public int tryAcquireAll(List<LimitRule> rules) {
+        return delegate.tryAcquireAll(rules);
     }
 }
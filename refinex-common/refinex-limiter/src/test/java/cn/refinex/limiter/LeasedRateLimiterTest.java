@@ -0,0 +1,106 @@
+package cn.refinex.limiter;
+
+import cn.refinex.limiter.api.LimitRule;
+import cn.refinex.limiter.api.RateLimiter;
+import cn.refinex.limiter.support.LeasedRateLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Leased Rate Limiter Test
+ *
+ * @author refinex
+ */
+@SpringBootTest(classes = RateLimiterTestConfiguration.class)
+@ActiveProfiles("test")
+@Disabled("集成测试需要本地 Redis 环境，默认跳过")
+class LeasedRateLimiterTest {
+
+    @Autowired
+    private LeasedRateLimiter rateLimiter;
+
+    @Test
+    void testLeasedLimiting() {
+        String key = "leased:test_limit_" + UUID.randomUUID();
+        int limit = 10;
+
+        // 租约模式下单节点可用满阈值
+        for (int i = 0; i < limit; i++) {
+            Assertions.assertTrue(rateLimiter.tryAcquire(key, limit, 5));
+        }
+
+        // 超过阈值被拒绝
+        Assertions.assertFalse(rateLimiter.tryAcquire(key, limit, 5));
+    }
+
+    @Test
+    void testNeverExceedsLimitUnderConcurrency() throws InterruptedException {
+        String key = "leased:test_concurrent_" + UUID.randomUUID();
+        int limit = 200;
+        AtomicInteger accepted = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> {
+                if (rateLimiter.tryAcquire(key, limit, 10)) {
+                    accepted.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assertions.assertEquals(limit, accepted.get());
+    }
+
+    @Test
+    void testExactModeForOtherPrefixes() {
+        String key = "exact:test_limit_" + UUID.randomUUID();
+
+        Assertions.assertTrue(rateLimiter.tryAcquire(key, 1, 5));
+        Assertions.assertFalse(rateLimiter.tryAcquire(key, 1, 5));
+    }
+
+    @Test
+    void testAcquireAllLeasesMatchingRules() {
+        String suffix = UUID.randomUUID().toString();
+        LimitRule leased = LimitRule.of("leased:test_all_" + suffix, 3, 5);
+        LimitRule exact = LimitRule.of("exact:test_all_" + suffix, 1, 5);
+
+        Assertions.assertEquals(RateLimiter.ACQUIRED, rateLimiter.tryAcquireAll(List.of(leased, exact)));
+
+        // exact 规则超限，从租约扣减的许可被退回
+        Assertions.assertEquals(1, rateLimiter.tryAcquireAll(List.of(leased, exact)));
+        Assertions.assertEquals(1, rateLimiter.tryAcquireAll(List.of(leased, exact)));
+
+        // leased 规则仍剩 2 次（单规则与多规则共享同一租约）
+        Assertions.assertTrue(rateLimiter.tryAcquire(leased.key(), leased.limit(), leased.windowSize()));
+        Assertions.assertTrue(rateLimiter.tryAcquire(leased.key(), leased.limit(), leased.windowSize()));
+        Assertions.assertFalse(rateLimiter.tryAcquire(leased.key(), leased.limit(), leased.windowSize()));
+    }
+
+    @Test
+    void testAcquireAllRejectsOnLeasedRule() {
+        String suffix = UUID.randomUUID().toString();
+        LimitRule leased = LimitRule.of("leased:test_reject_" + suffix, 1, 5);
+        LimitRule exact = LimitRule.of("exact:test_reject_" + suffix, 2, 5);
+
+        Assertions.assertEquals(RateLimiter.ACQUIRED, rateLimiter.tryAcquireAll(List.of(leased, exact)));
+
+        // leased 规则超限，exact 规则不被扣减
+        Assertions.assertEquals(0, rateLimiter.tryAcquireAll(List.of(leased, exact)));
+        Assertions.assertEquals(RateLimiter.ACQUIRED, rateLimiter.tryAcquireAll(List.of(exact)));
+        Assertions.assertEquals(0, rateLimiter.tryAcquireAll(List.of(exact)));
+    }
+}
@@ -0,0 +1,95 @@
+package cn.refinex.limiter;
+
+import cn.refinex.limiter.api.LimitRule;
+import cn.refinex.limiter.api.RateLimitAlgorithm;
+import cn.refinex.limiter.api.RateLimiter;
+import cn.refinex.limiter.support.ScriptRateLimiter;
+import cn.refinex.limiter.support.SlidingWindowRateLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rate Limit Algorithm Concurrency Test
+ *
+ * @author refinex
+ */
+@SpringBootTest(classes = RateLimiterTestConfiguration.class)
+@ActiveProfiles("test")
+@Disabled("集成测试需要本地 Redis 环境，默认跳过")
+class RateLimitAlgorithmTest {
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    private RateLimiter create(RateLimitAlgorithm algorithm) {
+        return algorithm == RateLimitAlgorithm.REDISSON
+                ? new SlidingWindowRateLimiter(redissonClient)
+                : new ScriptRateLimiter(redissonClient, algorithm, "test");
+    }
+
+    @ParameterizedTest
+    @EnumSource(RateLimitAlgorithm.class)
+    void testConcurrentAccuracy(RateLimitAlgorithm algorithm) throws InterruptedException {
+        RateLimiter rateLimiter = create(algorithm);
+        String key = "test_concurrent_" + algorithm + "_" + UUID.randomUUID();
+        int limit = 100;
+        AtomicInteger accepted = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        for (int i = 0; i < 2000; i++) {
+            executor.execute(() -> {
+                if (rateLimiter.tryAcquire(key, limit, 30)) {
+                    accepted.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assertions.assertEquals(limit, accepted.get());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RateLimitAlgorithm.class, names = {"GCRA", "SLIDING_LOG"})
+    void testConfigChangeTakesEffectImmediately(RateLimitAlgorithm algorithm) {
+        RateLimiter rateLimiter = create(algorithm);
+        String key = "test_config_" + algorithm + "_" + UUID.randomUUID();
+
+        Assertions.assertTrue(rateLimiter.tryAcquire(key, 1, 30));
+        Assertions.assertFalse(rateLimiter.tryAcquire(key, 1, 30));
+
+        // 阈值调大后立即按新配置计数
+        Assertions.assertTrue(rateLimiter.tryAcquire(key, 2, 30));
+        Assertions.assertTrue(rateLimiter.tryAcquire(key, 2, 30));
+        Assertions.assertFalse(rateLimiter.tryAcquire(key, 2, 30));
+    }
+
+    @ParameterizedTest
+    @EnumSource(RateLimitAlgorithm.class)
+    void testAcquireAllIsAtomic(RateLimitAlgorithm algorithm) {
+        RateLimiter rateLimiter = create(algorithm);
+        String suffix = UUID.randomUUID().toString();
+        LimitRule wide = LimitRule.of("test:all_wide_" + suffix, 2, 30);
+        LimitRule narrow = LimitRule.of("test:all_narrow_" + suffix, 1, 30);
+
+        Assertions.assertEquals(RateLimiter.ACQUIRED, rateLimiter.tryAcquireAll(List.of(wide, narrow)));
+        Assertions.assertEquals(1, rateLimiter.tryAcquireAll(List.of(wide, narrow)));
+
+        // narrow 拒绝时 wide 未被扣减；单规则校验与组合校验共享同一份计数
+        Assertions.assertTrue(rateLimiter.tryAcquire(wide.key(), wide.limit(), wide.windowSize()));
+        Assertions.assertFalse(rateLimiter.tryAcquire(wide.key(), wide.limit(), wide.windowSize()));
+    }
+}
@@ -0,0 +1,156 @@
+package cn.refinex.limiter;
+
+import cn.refinex.limiter.annotation.RateLimit;
+import cn.refinex.limiter.api.LimitRule;
+import cn.refinex.limiter.api.RateLimiter;
+import cn.refinex.limiter.aspect.RateLimitAspect;
+import cn.refinex.limiter.constant.RateLimitConstant;
+import cn.refinex.limiter.exception.RateLimitException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rate Limit Aspect Test（桩限流器，无需 Redis）
+ *
+ * @author refinex
+ */
+class RateLimitAspectTest {
+
+    private StubRateLimiter rateLimiter;
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitAspect aspect;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = new StubRateLimiter();
+        meterRegistry = new SimpleMeterRegistry();
+        aspect = new RateLimitAspect(rateLimiter, meterRegistry);
+    }
+
+    @Test
+    void testAcceptedCountsEveryRule() throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint("send", "13800000000");
+
+        Assertions.assertEquals("sent", aspect.around(joinPoint));
+
+        Assertions.assertEquals(List.of("sms:ip:global", "sms:phone:13800000000"), rateLimiter.lastKeys);
+        Assertions.assertEquals(1.0, count("sms:ip", "accepted"));
+        Assertions.assertEquals(1.0, count("sms:phone", "accepted"));
+    }
+
+    @Test
+    void testRejectedCountsOnlyRejectingRule() throws Throwable {
+        rateLimiter.rejectedIndex = 1;
+        ProceedingJoinPoint joinPoint = joinPoint("send", "13800000000");
+
+        RateLimitException e = Assertions.assertThrows(RateLimitException.class, () -> aspect.around(joinPoint));
+
+        Assertions.assertEquals("手机号发送过于频繁", e.getMessage());
+        Assertions.assertEquals(0.0, count("sms:ip", "rejected"));
+        Assertions.assertEquals(1.0, count("sms:phone", "rejected"));
+        Assertions.assertEquals(0.0, count("sms:ip", "accepted"));
+        verify(joinPoint, never()).proceed();
+    }
+
+    @Test
+    void testRejectedSingleRule() throws Throwable {
+        rateLimiter.rejectedIndex = 0;
+        ProceedingJoinPoint joinPoint = joinPoint("single", "u1");
+
+        RateLimitException e = Assertions.assertThrows(RateLimitException.class, () -> aspect.around(joinPoint));
+
+        Assertions.assertEquals("下单过于频繁", e.getMessage());
+        Assertions.assertEquals(List.of("order:create:u1"), rateLimiter.lastKeys);
+        Assertions.assertEquals(1.0, count("order:create", "rejected"));
+    }
+
+    @Test
+    void testFailOpenOnLimiterError() throws Throwable {
+        rateLimiter.failure = new IllegalStateException("redis down");
+        ProceedingJoinPoint joinPoint = joinPoint("single", "u1");
+
+        Assertions.assertEquals("sent", aspect.around(joinPoint));
+        Assertions.assertEquals(1.0, count("order:create", "error"));
+    }
+
+    @Test
+    void testStackedRulesMustShareNamespace() throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint("mixed", "u1");
+
+        Assertions.assertThrows(RateLimitException.class, () -> aspect.around(joinPoint));
+        Assertions.assertTrue(rateLimiter.lastKeys.isEmpty());
+    }
+
+    private double count(String rule, String outcome) {
+        return meterRegistry.get(RateLimitConstant.METRIC_REQUESTS).tag("rule", rule).tag("outcome", outcome).counter().count();
+    }
+
+    private ProceedingJoinPoint joinPoint(String methodName, String arg) throws Throwable {
+        Method method = Target.class.getDeclaredMethod(methodName, String.class);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(new Target());
+        when(joinPoint.getArgs()).thenReturn(new Object[]{arg});
+        when(joinPoint.proceed()).thenReturn("sent");
+        return joinPoint;
+    }
+
+    static class Target {
+
+        @RateLimit(scene = "sms:ip", key = "global", limit = 10, errorMessage = "IP 发送过于频繁")
+        @RateLimit(scene = "sms:phone", keyExpression = "#phone", limit = 1, errorMessage = "手机号发送过于频繁")
+        public String send(String phone) {
+            return "sent";
+        }
+
+        @RateLimit(scene = "order:create", keyExpression = "#userId", limit = 5, errorMessage = "下单过于频繁")
+        public String single(String userId) {
+            return "sent";
+        }
+
+        @RateLimit(scene = "sms:ip", key = "global", limit = 10)
+        @RateLimit(scene = "order:create", keyExpression = "#userId", limit = 5)
+        public String mixed(String userId) {
+            return "sent";
+        }
+    }
+
+    /**
+     * 记录调用 Key、按预设结果返回的限流器（切面只应调用 tryAcquireAll，单条规则也与叠加规则共用同一份状态）
+     */
+    static class StubRateLimiter implements RateLimiter {
+
+        int rejectedIndex = ACQUIRED;
+        RuntimeException failure;
+        List<String> lastKeys = new ArrayList<>();
+
+        @Override
+        public boolean tryAcquire(String key, int limit, int windowSize) {
+            throw new AssertionError("single rule must be checked through tryAcquireAll: " + key);
+        }
+
+        @Override
+        public int tryAcquireAll(List<LimitRule> rules) {
+            if (failure != null) {
+                throw failure;
+            }
+            lastKeys = rules.stream().map(LimitRule::key).toList();
+            return rejectedIndex;
+        }
+    }
+}
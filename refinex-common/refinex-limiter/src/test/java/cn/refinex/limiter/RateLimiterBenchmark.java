@@ -0,0 +1,98 @@
+package cn.refinex.limiter;
+
+import cn.refinex.limiter.api.RateLimitAlgorithm;
+import cn.refinex.limiter.api.RateLimiter;
+import cn.refinex.limiter.support.ScriptRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流算法基准：GCRA vs 滑动日志（REDISSON 模式同为滑动日志脚本）
+ * <p>
+ * 需要本地 Redis（-Drefinex.redis.url=127.0.0.1:6379），在 IDE 中执行 main 方法运行。
+ * single 为单线程延迟，contended 为 16 线程争用同一批热点 Key 的吞吐。
+ *
+ * @author refinex
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    @Param({"GCRA", "SLIDING_LOG"})
+    private RateLimitAlgorithm algorithm;
+
+    @Param({"16"})
+    private int hotKeys;
+
+    private RedissonClient redissonClient;
+    private RateLimiter rateLimiter;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Config config = new Config();
+        String redisUrl = System.getProperty("refinex.redis.url", "127.0.0.1:6379");
+        config.useSingleServer().setAddress((redisUrl.startsWith("redis://") ? "" : "redis://") + redisUrl);
+        redissonClient = Redisson.create(config);
+
+        rateLimiter = new ScriptRateLimiter(redissonClient, algorithm, UUID.randomUUID().toString());
+
+        String run = UUID.randomUUID().toString();
+        keys = new String[hotKeys];
+        for (int i = 0; i < hotKeys; i++) {
+            keys[i] = "bench:" + run + ":" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redissonClient.shutdown();
+    }
+
+    private String nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+
+    @Benchmark
+    public boolean single() {
+        return rateLimiter.tryAcquire(nextKey(), 100, 1);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean contended() {
+        return rateLimiter.tryAcquire(nextKey(), 100, 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
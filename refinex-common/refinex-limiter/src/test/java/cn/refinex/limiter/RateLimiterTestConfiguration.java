@@ -1,5 +1,7 @@
 package cn.refinex.limiter;
 
+import cn.refinex.limiter.autoconfigure.LimiterProperties;
+import cn.refinex.limiter.support.LeasedRateLimiter;
 import cn.refinex.limiter.support.SlidingWindowRateLimiter;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
@@ -8,6 +10,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 
+import java.util.List;
+
 /**
  * Rate Limiter Test
  *
@@ -32,4 +36,12 @@ public class RateLimiterTestConfiguration {
     public SlidingWindowRateLimiter slidingWindowRateLimiter(RedissonClient redissonClient) {
         return new SlidingWindowRateLimiter(redissonClient);
     }
+
+    @Bean
+    public LeasedRateLimiter leasedRateLimiter(RedissonClient redissonClient, SlidingWindowRateLimiter slidingWindowRateLimiter) {
+        LimiterProperties.Leased leased = new LimiterProperties.Leased();
+        leased.setKeyPrefixes(List.of("leased:"));
+        leased.setErrorRatio(0.2);
+        return new LeasedRateLimiter(redissonClient, slidingWindowRateLimiter, leased);
+    }
 }
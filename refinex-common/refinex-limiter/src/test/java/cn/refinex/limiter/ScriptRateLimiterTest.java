@@ -0,0 +1,130 @@
+package cn.refinex.limiter;
+
+import cn.refinex.limiter.api.LimitRule;
+import cn.refinex.limiter.api.RateLimiter;
+import cn.refinex.limiter.api.RateLimitAlgorithm;
+import cn.refinex.limiter.support.ScriptRateLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.connection.CRC16;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Script Rate Limiter Key Test（集群 slot 约束，无需 Redis）
+ *
+ * @author refinex
+ */
+class ScriptRateLimiterTest {
+
+    private static final int SLOT_COUNT = 16384;
+
+    @ParameterizedTest
+    @EnumSource(value = RateLimitAlgorithm.class, names = {"GCRA", "SLIDING_LOG"})
+    void testAcquireAllKeysShareSlot(RateLimitAlgorithm algorithm) {
+        RScript script = mockScript();
+        ScriptRateLimiter rateLimiter = new ScriptRateLimiter(client(script), algorithm, "1");
+
+        Assertions.assertEquals(RateLimiter.ACQUIRED, rateLimiter.tryAcquireAll(List.of(
+                LimitRule.of("auth:sms:ip:10.0.0.1", 10, 60),
+                LimitRule.of("auth:sms:phone:13800000000", 1, 60),
+                LimitRule.of("auth:sms:device:d-1", 5, 60))));
+
+        List<Object> keys = evalKeys(script);
+        Assertions.assertEquals(3, keys.size());
+        int slot = slot(keys.getFirst().toString());
+        for (Object key : keys) {
+            Assertions.assertEquals(slot, slot(key.toString()), "key not in the same slot: " + key);
+        }
+    }
+
+    @Test
+    void testSingleAndMultiCallUseSameKey() {
+        RScript script = mockScript();
+        ScriptRateLimiter rateLimiter = new ScriptRateLimiter(client(script), RateLimitAlgorithm.GCRA, "1");
+        LimitRule rule = LimitRule.of("auth:login:ip:10.0.0.1", 10, 60);
+
+        rateLimiter.tryAcquire(rule.key(), rule.limit(), rule.windowSize());
+        rateLimiter.tryAcquireAll(List.of(rule, LimitRule.of("auth:login:id:u1", 5, 60)));
+
+        ArgumentCaptor<List<Object>> captor = keysCaptor();
+        verify(script, times(2)).eval(any(RScript.Mode.class), anyString(),
+                any(RScript.ReturnType.class), captor.capture(), any(Object[].class));
+        Assertions.assertEquals(captor.getAllValues().get(0).getFirst(), captor.getAllValues().get(1).getFirst());
+    }
+
+    @Test
+    void testAcquireAllReturnsRejectedRuleIndex() {
+        RScript script = mockScript();
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(Object[].class)))
+                .thenReturn(2L);
+        ScriptRateLimiter rateLimiter = new ScriptRateLimiter(client(script), RateLimitAlgorithm.GCRA, "1");
+
+        // 脚本返回 1-based 规则序号，接口返回 0-based 下标
+        Assertions.assertEquals(1, rateLimiter.tryAcquireAll(List.of(
+                LimitRule.of("auth:login:ip:10.0.0.1", 10, 60),
+                LimitRule.of("auth:login:id:u1", 5, 60))));
+    }
+
+    @Test
+    void testAcquireAllRejectsMixedHashTags() {
+        ScriptRateLimiter rateLimiter = new ScriptRateLimiter(client(mockScript()), RateLimitAlgorithm.GCRA, "1");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> rateLimiter.tryAcquireAll(List.of(
+                LimitRule.of("auth:sms:ip:10.0.0.1", 10, 60),
+                LimitRule.of("order:create:ip:10.0.0.1", 10, 60))));
+    }
+
+    private static RScript mockScript() {
+        RScript script = mock(RScript.class);
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(Object[].class)))
+                .thenReturn(0L);
+        return script;
+    }
+
+    private static RedissonClient client(RScript script) {
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.getScript(any(Codec.class))).thenReturn(script);
+        return client;
+    }
+
+    private static List<Object> evalKeys(RScript script) {
+        ArgumentCaptor<List<Object>> captor = keysCaptor();
+        verify(script).eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), captor.capture(), any(Object[].class));
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Object>> keysCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    /**
+     * 与 Redis Cluster 相同的 slot 计算：存在非空 {...} 时只对其内容取 CRC16
+     */
+    private static int slot(String key) {
+        int start = key.indexOf('{');
+        if (start >= 0) {
+            int end = key.indexOf('}', start + 1);
+            if (end > start + 1) {
+                key = key.substring(start + 1, end);
+            }
+        }
+        return CRC16.crc16(key.getBytes(StandardCharsets.UTF_8)) % SLOT_COUNT;
+    }
+}
@@ -1,5 +1,7 @@
 package cn.refinex.limiter;
 
+import cn.refinex.limiter.api.LimitRule;
+import cn.refinex.limiter.api.RateLimiter;
 import cn.refinex.limiter.support.SlidingWindowRateLimiter;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Disabled;
@@ -8,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -52,4 +55,23 @@ class SlidingWindowRateLimiterTest {
         // 应该再次通过
         Assertions.assertTrue(rateLimiter.tryAcquire(key, 1, 1));
     }
+
+    @Test
+    void testAcquireAllIsAtomic() {
+        String suffix = UUID.randomUUID().toString();
+        LimitRule ip = LimitRule.of("test:all_ip_" + suffix, 3, 5);
+        LimitRule phone = LimitRule.of("test:all_phone_" + suffix, 1, 5);
+
+        // 两条规则都有余量，同时扣减
+        Assertions.assertEquals(RateLimiter.ACQUIRED, rateLimiter.tryAcquireAll(List.of(ip, phone)));
+
+        // phone 规则超限，ip 规则不应被扣减
+        Assertions.assertEquals(1, rateLimiter.tryAcquireAll(List.of(ip, phone)));
+        Assertions.assertEquals(1, rateLimiter.tryAcquireAll(List.of(ip, phone)));
+
+        // ip 规则仍剩 2 次，单规则校验与组合校验共享同一份计数
+        Assertions.assertEquals(RateLimiter.ACQUIRED, rateLimiter.tryAcquireAll(List.of(ip)));
+        Assertions.assertTrue(rateLimiter.tryAcquire(ip.key(), ip.limit(), ip.windowSize()));
+        Assertions.assertFalse(rateLimiter.tryAcquire(ip.key(), ip.limit(), ip.windowSize()));
+    }
 }
@@ -8,6 +8,7 @@ import java.lang.annotation.*;
  * 分布式锁注解
  * <p>
  * 基于 Redisson 实现，支持 SpEL 表达式 key 解析、自动续期（WatchDog）、等待超时控制。
+ * 方法返回 Mono / Flux 时自动切换为非阻塞的响应式锁，锁在返回流完成、异常或取消时释放。
  *
  * @author refinex
  */
@@ -55,6 +56,16 @@ public @interface DistributedLock {
      */
     long waitTime() default DistributedLockConstant.DEFAULT_WAIT_TIME;
 
+    /**
+     * 是否启用本地预加锁
+     * <p>
+     * 默认 false: 每个竞争线程都直接向 Redis 发起加锁（等待期间各自订阅 / 轮询）。
+     * true: 同一 JVM 内同 Key 的线程先在本地分段锁上排队，每个节点同一时刻只有一个线程竞争 Redis 锁，
+     * 适用于单节点内热点 Key 高并发竞争的场景。本地排队时间计入 waitTime；不同 Key 可能落在同一分段上，
+     * Fail-Fast 模式下极少数情况会因分段冲突提前失败。对返回 Mono / Flux 的方法不生效。
+     */
+    boolean localPreLock() default false;
+
     /**
      * 锁失败时的提示信息
      */
@@ -3,13 +3,20 @@ package cn.refinex.lock.aspect;
 import cn.refinex.lock.annotation.DistributedLock;
 import cn.refinex.lock.constant.DistributedLockConstant;
 import cn.refinex.lock.exception.DistributedLockException;
+import com.google.common.util.concurrent.Striped;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.reactivestreams.Publisher;
 import org.redisson.api.RLock;
+import org.redisson.api.RLockReactive;
 import org.redisson.api.RedissonClient;
+import org.redisson.api.RedissonReactiveClient;
 import org.springframework.core.DefaultParameterNameDiscoverer;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.annotation.Order;
@@ -18,12 +25,21 @@ import org.springframework.expression.Expression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 /**
  * 分布式锁切面实现
+ * <p>
+ * 普通方法使用阻塞的 {@link RLock}；返回 {@link Mono} / {@link Flux} 的方法使用 {@link RLockReactive}，
+ * 订阅时异步加锁，在完成、异常或取消时释放，全程不阻塞调用线程（包括 Netty 事件循环）。
  *
  * @author refinex
  */
@@ -37,6 +53,26 @@ public class DistributedLockAspect {
      */
     private final RedissonClient redissonClient;
 
+    /**
+     * Redisson 响应式客户端
+     */
+    private final RedissonReactiveClient redissonReactiveClient;
+
+    /**
+     * 本地分段锁 (localPreLock 模式使用)
+     */
+    private final Striped<Lock> localLocks;
+
+    /**
+     * 指标注册表
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 场景 -> 指标
+     */
+    private final Map<String, LockMeters> sceneMeters = new ConcurrentHashMap<>();
+
     /**
      * SpEL 解析器 (线程安全，静态复用)
      */
@@ -47,9 +83,14 @@ public class DistributedLockAspect {
      * 构造函数
      *
      * @param redissonClient Redisson 客户端
+     * @param localStripes   本地分段锁数量
+     * @param meterRegistry  指标注册表
      */
-    public DistributedLockAspect(RedissonClient redissonClient) {
+    public DistributedLockAspect(RedissonClient redissonClient, int localStripes, MeterRegistry meterRegistry) {
         this.redissonClient = redissonClient;
+        this.redissonReactiveClient = redissonClient.reactive();
+        this.localLocks = Striped.lock(localStripes);
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -66,23 +107,45 @@ public class DistributedLockAspect {
         String businessKey = parseKey(distributedLock, joinPoint);
         String lockKey = distributedLock.scene() + ":" + businessKey;
 
+        // 响应式方法: 锁的生命周期绑定到返回的 Mono / Flux，而不是方法调用本身
+        Class<?> returnType = ((MethodSignature) joinPoint.getSignature()).getReturnType();
+        if (Mono.class.isAssignableFrom(returnType) || Flux.class.isAssignableFrom(returnType)) {
+            return aroundReactive(joinPoint, distributedLock, lockKey, Mono.class.isAssignableFrom(returnType));
+        }
+
         // 2. 获取锁对象
         RLock rLock = redissonClient.getLock(lockKey);
+        Lock localLock = distributedLock.localPreLock() ? localLocks.get(lockKey) : null;
+        LockMeters meters = meters(distributedLock.scene());
 
         long leaseTime = distributedLock.leaseTime();
         long waitTime = distributedLock.waitTime();
+        long startNanos = System.nanoTime();
+        long acquiredNanos = 0;
+        boolean isLocalLocked = false;
         boolean isLocked = false;
 
         try {
-            // 3. 执行加锁逻辑
+            // 3. 本地预加锁: 同一 JVM 内同 Key 的竞争者先在本地排队，每个节点只有一个线程去 Redis 竞争
+            if (localLock != null) {
+                isLocalLocked = waitTime > 0 ? localLock.tryLock(waitTime, TimeUnit.MILLISECONDS) : localLock.tryLock();
+                if (!isLocalLocked) {
+                    meters.failures().increment();
+                    log.warn("Failed to acquire local pre-lock: [{}], waitTime: {}ms", lockKey, waitTime);
+                    throw new DistributedLockException(distributedLock.errorMessage());
+                }
+            }
+
+            // 4. 执行加锁逻辑
             if (waitTime > 0) {
-                // 场景 A: 带等待时间的尝试加锁 (阻塞直到超时)
+                // 场景 A: 带等待时间的尝试加锁 (阻塞直到超时)，本地排队已耗费的时间从等待时间中扣除
+                long remainingWaitTime = Math.max(waitTime - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), 0);
                 if (leaseTime > 0) {
                     // 指定了租约时间 (WatchDog 不生效)
-                    isLocked = rLock.tryLock(waitTime, leaseTime, TimeUnit.MILLISECONDS);
+                    isLocked = rLock.tryLock(remainingWaitTime, leaseTime, TimeUnit.MILLISECONDS);
                 } else {
                     // 未指定租约时间 (WatchDog 生效)
-                    isLocked = rLock.tryLock(waitTime, TimeUnit.MILLISECONDS);
+                    isLocked = rLock.tryLock(remainingWaitTime, TimeUnit.MILLISECONDS);
                 }
             } else {
                 // 场景 B: 不等待 (Fail-Fast) 或 默认阻塞
@@ -95,15 +158,18 @@ public class DistributedLockAspect {
                 }
             }
 
-            // 4. 加锁失败处理
+            // 5. 加锁失败处理
             if (!isLocked) {
+                meters.failures().increment();
                 log.warn("Failed to acquire lock: [{}], waitTime: {}ms", lockKey, waitTime);
                 throw new DistributedLockException(distributedLock.errorMessage());
             }
 
+            acquiredNanos = System.nanoTime();
+            meters.waitTimer().record(acquiredNanos - startNanos, TimeUnit.NANOSECONDS);
             log.debug("Lock acquired: [{}], thread: {}", lockKey, Thread.currentThread().threadId());
 
-            // 5. 执行业务逻辑
+            // 6. 执行业务逻辑
             return joinPoint.proceed();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -112,9 +178,10 @@ public class DistributedLockAspect {
             // 异常透传，不要包装成 Checked Exception
             throw e;
         } finally {
-            // 6. 释放锁
+            // 7. 释放锁
             // 只有当前线程持有锁时才释放，防止释放了别人的锁 (Redisson 内部也做了判断，这里双重保险)
             if (isLocked && rLock.isHeldByCurrentThread()) {
+                meters.holdTimer().record(System.nanoTime() - acquiredNanos, TimeUnit.NANOSECONDS);
                 try {
                     rLock.unlock();
                     log.debug("Lock released: [{}]", lockKey);
@@ -122,9 +189,102 @@ public class DistributedLockAspect {
                     log.error("Failed to release lock: [{}]", lockKey, e);
                 }
             }
+            // 本地锁在 Redis 锁之后释放，保证本节点下一个竞争者拿到本地锁时 Redis 锁已可用
+            if (isLocalLocked) {
+                localLock.unlock();
+            }
         }
     }
 
+    /**
+     * 获取场景对应的指标 (按 scene 聚合，避免业务 Key 导致标签基数膨胀)
+     *
+     * @param scene 锁场景
+     * @return 指标
+     */
+    private LockMeters meters(String scene) {
+        return sceneMeters.computeIfAbsent(scene, s -> new LockMeters(
+                Timer.builder("refinex.lock.wait").description("Lock acquisition wait time").tag("scene", s).register(meterRegistry),
+                Timer.builder("refinex.lock.hold").description("Lock hold time").tag("scene", s).register(meterRegistry),
+                Counter.builder("refinex.lock.failures").description("Lock acquisition failures").tag("scene", s).register(meterRegistry)));
+    }
+
+    /**
+     * 响应式环绕
+     * <p>
+     * 每次订阅生成随机的锁持有者 ID（响应式链路会跨线程执行，不能使用线程 ID），waitTime 内通过 Redis 订阅异步等待，
+     * 不占用任何线程；leaseTime 为 -1 时同样由 WatchDog 按持有者 ID 续期。目标方法在加锁成功后才被调用。
+     *
+     * @param joinPoint       连接点
+     * @param distributedLock 分布式锁注解
+     * @param lockKey         锁 Key
+     * @param mono            返回类型是否为 Mono
+     * @return 受锁保护的 Mono / Flux
+     */
+    private Object aroundReactive(ProceedingJoinPoint joinPoint, DistributedLock distributedLock, String lockKey, boolean mono) {
+        RLockReactive rLock = redissonReactiveClient.getLock(lockKey);
+        long waitTime = Math.max(distributedLock.waitTime(), 0);
+        long leaseTime = distributedLock.leaseTime() > 0 ? distributedLock.leaseTime() : -1;
+
+        Mono<Long> acquire = Mono.defer(() -> {
+            long ownerId = ThreadLocalRandom.current().nextLong();
+            return rLock.tryLock(waitTime, leaseTime, TimeUnit.MILLISECONDS, ownerId)
+                    .flatMap(locked -> {
+                        if (!locked) {
+                            log.warn("Failed to acquire reactive lock: [{}], waitTime: {}ms", lockKey, waitTime);
+                            return Mono.error(new DistributedLockException(distributedLock.errorMessage()));
+                        }
+                        log.debug("Reactive lock acquired: [{}], owner: {}", lockKey, ownerId);
+                        return Mono.just(ownerId);
+                    });
+        });
+
+        if (mono) {
+            return Mono.usingWhen(acquire,
+                    ownerId -> Mono.from(proceedReactive(joinPoint)),
+                    ownerId -> unlockReactive(rLock, lockKey, ownerId),
+                    (ownerId, e) -> unlockReactive(rLock, lockKey, ownerId),
+                    ownerId -> unlockReactive(rLock, lockKey, ownerId));
+        }
+        return Flux.usingWhen(acquire,
+                ownerId -> proceedReactive(joinPoint),
+                ownerId -> unlockReactive(rLock, lockKey, ownerId),
+                (ownerId, e) -> unlockReactive(rLock, lockKey, ownerId),
+                ownerId -> unlockReactive(rLock, lockKey, ownerId));
+    }
+
+    /**
+     * 调用目标方法并返回其 Publisher
+     *
+     * @param joinPoint 连接点
+     * @return 目标方法返回的 Publisher
+     */
+    private Flux<?> proceedReactive(ProceedingJoinPoint joinPoint) {
+        try {
+            Object result = joinPoint.proceed();
+            return result == null ? Flux.empty() : Flux.from((Publisher<?>) result);
+        } catch (Throwable e) {
+            return Flux.error(e);
+        }
+    }
+
+    /**
+     * 异步释放响应式锁，释放失败只记录日志，不影响业务结果
+     *
+     * @param rLock   响应式锁
+     * @param lockKey 锁 Key
+     * @param ownerId 锁持有者 ID
+     * @return 释放完成信号
+     */
+    private Mono<Void> unlockReactive(RLockReactive rLock, String lockKey, long ownerId) {
+        return rLock.unlock(ownerId)
+                .doOnSuccess(unused -> log.debug("Reactive lock released: [{}]", lockKey))
+                .onErrorResume(e -> {
+                    log.error("Failed to release reactive lock: [{}]", lockKey, e);
+                    return Mono.empty();
+                });
+    }
+
     /**
      * 解析 SpEL 表达式或直接获取 Key
      *
@@ -169,4 +329,14 @@ public class DistributedLockAspect {
             throw new DistributedLockException("Invalid lock key expression");
         }
     }
+
+    /**
+     * 锁指标
+     *
+     * @param waitTimer 加锁等待耗时 (含本地排队)
+     * @param holdTimer 锁持有耗时
+     * @param failures  加锁失败次数
+     */
+    private record LockMeters(Timer waitTimer, Timer holdTimer, Counter failures) {
+    }
 }
@@ -1,10 +1,14 @@
 package cn.refinex.lock.autoconfigure;
 
 import cn.refinex.lock.aspect.DistributedLockAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
 /**
@@ -14,17 +18,24 @@ import org.springframework.context.annotation.Bean;
  */
 @AutoConfiguration
 @ConditionalOnClass(RedissonClient.class) // 如果类路径下存在 RedissonClient 类则进行自动配置
+@EnableConfigurationProperties(LockProperties.class)
 public class LockAutoConfiguration {
 
     /**
      * 分布式锁切面
+     * <p>
+     * 未引入 Actuator 时指标注册到 Micrometer 全局注册表。
      *
      * @param redissonClient Redisson 客户端
+     * @param lockProperties 分布式锁配置
+     * @param meterRegistry  指标注册表
      * @return 分布式锁切面
      */
     @Bean
     @ConditionalOnMissingBean
-    public DistributedLockAspect distributedLockAspect(RedissonClient redissonClient) {
-        return new DistributedLockAspect(redissonClient);
+    public DistributedLockAspect distributedLockAspect(RedissonClient redissonClient, LockProperties lockProperties,
+                                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        return new DistributedLockAspect(redissonClient, lockProperties.getLocalStripes(),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
 }
@@ -0,0 +1,19 @@
+package cn.refinex.lock.autoconfigure;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 分布式锁配置属性
+ *
+ * @author refinex
+ */
+@Data
+@ConfigurationProperties(prefix = "refinex.lock")
+public class LockProperties {
+
+    /**
+     * 本地预加锁（@DistributedLock(localPreLock = true)）使用的分段锁数量，越大不同 Key 落入同一分段的概率越低
+     */
+    private int localStripes = 1024;
+}
@@ -0,0 +1,222 @@
+package cn.refinex.lock;
+
+import cn.refinex.lock.annotation.DistributedLock;
+import cn.refinex.lock.aspect.DistributedLockAspect;
+import cn.refinex.lock.exception.DistributedLockException;
+import com.google.common.util.concurrent.Striped;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Distributed Lock Aspect Test（桩 RLock，覆盖本地预加锁与锁指标）
+ *
+ * @author refinex
+ */
+class DistributedLockAspectTest {
+
+    private static final String LOCK_KEY = "order:1";
+
+    private RLock rLock;
+    private SimpleMeterRegistry meterRegistry;
+    private DistributedLockAspect aspect;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        rLock = mock(RLock.class);
+        when(rLock.tryLock(anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(true);
+        when(rLock.isHeldByCurrentThread()).thenReturn(true);
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        when(redissonClient.getLock(LOCK_KEY)).thenReturn(rLock);
+        meterRegistry = new SimpleMeterRegistry();
+        aspect = new DistributedLockAspect(redissonClient, 16, meterRegistry);
+    }
+
+    @Test
+    void testLocalLockReleasedAfterRedisLock() throws Throwable {
+        ReentrantLock localLock = localLock();
+        doAnswer(invocation -> {
+            // Redis 锁释放时本地锁仍被持有
+            Assertions.assertTrue(localLock.isHeldByCurrentThread());
+            return null;
+        }).when(rLock).unlock();
+
+        Assertions.assertEquals("ok", aspect.around(joinPoint("localPreLock", invocation -> "ok"), lock("localPreLock")));
+
+        verify(rLock, times(1)).unlock();
+        Assertions.assertFalse(localLock.isLocked());
+    }
+
+    @Test
+    void testLocalLockReleasedAfterRedisLockWhenBodyThrows() throws Throwable {
+        ReentrantLock localLock = localLock();
+        doAnswer(invocation -> {
+            Assertions.assertTrue(localLock.isHeldByCurrentThread());
+            return null;
+        }).when(rLock).unlock();
+        ProceedingJoinPoint joinPoint = joinPoint("localPreLock", invocation -> {
+            throw new IllegalStateException("business failed");
+        });
+
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                () -> aspect.around(joinPoint, lock("localPreLock")));
+
+        Assertions.assertEquals("business failed", e.getMessage());
+        verify(rLock, times(1)).unlock();
+        Assertions.assertFalse(localLock.isLocked());
+        Assertions.assertEquals(1, meterRegistry.get("refinex.lock.hold").tag("scene", "order").timer().count());
+    }
+
+    @Test
+    void testLocalLockFailureCountedAndThrown() throws Throwable {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> holder = holdLocalLock(entered, release);
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        try {
+            DistributedLockException e = Assertions.assertThrows(DistributedLockException.class,
+                    () -> aspect.around(joinPoint("localPreLockShortWait", invocation -> "ok"), lock("localPreLockShortWait")));
+
+            Assertions.assertEquals("订单处理中", e.getMessage());
+            Assertions.assertEquals(1.0, meterRegistry.get("refinex.lock.failures").tag("scene", "order").counter().count());
+            // 本地排队失败不会再去 Redis 竞争
+            verify(rLock, times(1)).tryLock(anyLong(), eq(TimeUnit.MILLISECONDS));
+        } finally {
+            release.countDown();
+        }
+        Assertions.assertEquals("held", holder.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRedisWaitReducedByLocalQueueTime() throws Throwable {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> holder = holdLocalLock(entered, release);
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return aspect.around(joinPoint("localPreLock", invocation -> "ok"), lock("localPreLock"));
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(300);
+        release.countDown();
+
+        Assertions.assertEquals("held", holder.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("ok", waiter.get(5, TimeUnit.SECONDS));
+        ArgumentCaptor<Long> waitTimes = ArgumentCaptor.forClass(Long.class);
+        verify(rLock, times(2)).tryLock(waitTimes.capture(), eq(TimeUnit.MILLISECONDS));
+        List<Long> values = waitTimes.getAllValues();
+        // 第二个竞争者在本地排队约 300ms，Redis 等待时间相应扣减
+        Assertions.assertTrue(values.get(1) > 0 && values.get(1) <= 1700, "remaining wait = " + values.get(1));
+        Assertions.assertTrue(values.get(1) < values.get(0), "wait times = " + values);
+    }
+
+    @Test
+    void testWaitAndHoldRecordedOnSuccess() throws Throwable {
+        Assertions.assertEquals("ok", aspect.around(joinPoint("localPreLock", invocation -> "ok"), lock("localPreLock")));
+
+        Assertions.assertEquals(1, meterRegistry.get("refinex.lock.wait").tag("scene", "order").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("refinex.lock.hold").tag("scene", "order").timer().count());
+        Assertions.assertEquals(0.0, meterRegistry.get("refinex.lock.failures").tag("scene", "order").counter().count());
+    }
+
+    @Test
+    void testRedisLockFailureCounted() throws Throwable {
+        when(rLock.tryLock(anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(false);
+        ProceedingJoinPoint joinPoint = joinPoint("localPreLock", invocation -> "ok");
+
+        Assertions.assertThrows(DistributedLockException.class, () -> aspect.around(joinPoint, lock("localPreLock")));
+
+        verify(joinPoint, never()).proceed();
+        verify(rLock, never()).unlock();
+        Assertions.assertEquals(1.0, meterRegistry.get("refinex.lock.failures").tag("scene", "order").counter().count());
+        Assertions.assertEquals(0, meterRegistry.get("refinex.lock.hold").tag("scene", "order").timer().count());
+        Assertions.assertFalse(localLock().isLocked());
+    }
+
+    /**
+     * 在后台线程进入锁保护的方法并阻塞，直到 release 放行
+     */
+    private CompletableFuture<Object> holdLocalLock(CountDownLatch entered, CountDownLatch release) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return aspect.around(joinPoint("localPreLock", invocation -> {
+                    entered.countDown();
+                    Assertions.assertTrue(release.await(5, TimeUnit.SECONDS));
+                    return "held";
+                }), lock("localPreLock"));
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * 锁 Key 对应的本地分段锁
+     */
+    @SuppressWarnings("unchecked")
+    private ReentrantLock localLock() throws ReflectiveOperationException {
+        Field field = DistributedLockAspect.class.getDeclaredField("localLocks");
+        field.setAccessible(true);
+        Lock lock = ((Striped<Lock>) field.get(aspect)).get(LOCK_KEY);
+        return (ReentrantLock) lock;
+    }
+
+    private static DistributedLock lock(String methodName) throws NoSuchMethodException {
+        return Target.class.getDeclaredMethod(methodName).getAnnotation(DistributedLock.class);
+    }
+
+    private static ProceedingJoinPoint joinPoint(String methodName, Answer<Object> body) throws Throwable {
+        Method method = Target.class.getDeclaredMethod(methodName);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        when(signature.getReturnType()).thenReturn(method.getReturnType());
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getArgs()).thenReturn(new Object[0]);
+        when(joinPoint.proceed()).thenAnswer(body);
+        return joinPoint;
+    }
+
+    static class Target {
+
+        @DistributedLock(scene = "order", key = "1", waitTime = 2000, localPreLock = true, errorMessage = "订单处理中")
+        public String localPreLock() {
+            return "ok";
+        }
+
+        @DistributedLock(scene = "order", key = "1", waitTime = 50, localPreLock = true, errorMessage = "订单处理中")
+        public String localPreLockShortWait() {
+            return "ok";
+        }
+    }
+}
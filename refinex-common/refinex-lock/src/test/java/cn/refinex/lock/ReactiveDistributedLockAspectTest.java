@@ -0,0 +1,196 @@
+package cn.refinex.lock;
+
+import cn.refinex.lock.annotation.DistributedLock;
+import cn.refinex.lock.aspect.DistributedLockAspect;
+import cn.refinex.lock.exception.DistributedLockException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.reactivestreams.Publisher;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.RedissonReactiveClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reactive Distributed Lock Aspect Test（桩 RLockReactive，无需 Redis）
+ *
+ * @author refinex
+ */
+class ReactiveDistributedLockAspectTest {
+
+    private RLockReactive rLock;
+    private DistributedLockAspect aspect;
+
+    @BeforeEach
+    void setUp() {
+        rLock = mock(RLockReactive.class);
+        when(rLock.tryLock(anyLong(), anyLong(), eq(TimeUnit.MILLISECONDS), anyLong())).thenReturn(Mono.just(true));
+        when(rLock.unlock(anyLong())).thenReturn(Mono.empty());
+        RedissonReactiveClient reactiveClient = mock(RedissonReactiveClient.class);
+        when(reactiveClient.getLock("pay:1")).thenReturn(rLock);
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        when(redissonClient.reactive()).thenReturn(reactiveClient);
+        aspect = new DistributedLockAspect(redissonClient, 16, new SimpleMeterRegistry());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"mono", "flux"})
+    void testTargetInvokedOnlyAfterLockAcquired(String methodName) throws Throwable {
+        Sinks.One<Boolean> locked = Sinks.one();
+        when(rLock.tryLock(anyLong(), anyLong(), eq(TimeUnit.MILLISECONDS), anyLong())).thenReturn(locked.asMono());
+        AtomicBoolean subscribed = new AtomicBoolean();
+        ProceedingJoinPoint joinPoint = joinPoint(methodName, Flux.just("ok").doOnSubscribe(s -> subscribed.set(true)));
+
+        Flux<String> result = flux(aspect.around(joinPoint, lock(methodName)));
+        verify(joinPoint, never()).proceed();
+
+        List<String> values = new CopyOnWriteArrayList<>();
+        result.subscribe(values::add);
+        // 已订阅但锁尚未获取：目标方法未被调用，其返回的流也未被订阅
+        verify(joinPoint, never()).proceed();
+        Assertions.assertFalse(subscribed.get());
+
+        locked.tryEmitValue(true);
+        verify(joinPoint, times(1)).proceed();
+        Assertions.assertTrue(subscribed.get());
+        Assertions.assertEquals(List.of("ok"), values);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"mono", "flux"})
+    void testUnlockOnceOnComplete(String methodName) throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint(methodName, Flux.just("ok"));
+
+        Assertions.assertEquals(List.of("ok"), flux(aspect.around(joinPoint, lock(methodName))).collectList().block());
+
+        assertUnlockedOnceByOwner();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"mono", "flux"})
+    void testUnlockOnceOnError(String methodName) throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint(methodName, Flux.error(new IllegalStateException("business failed")));
+
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                () -> flux(aspect.around(joinPoint, lock(methodName))).blockLast());
+
+        Assertions.assertEquals("business failed", e.getMessage());
+        assertUnlockedOnceByOwner();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"mono", "flux"})
+    void testUnlockOnceOnCancel(String methodName) throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint(methodName, Flux.never());
+
+        Disposable subscription = flux(aspect.around(joinPoint, lock(methodName))).subscribe();
+        verify(rLock, never()).unlock(anyLong());
+        subscription.dispose();
+
+        assertUnlockedOnceByOwner();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"mono", "flux"})
+    void testFailedAcquireSurfacesLockException(String methodName) throws Throwable {
+        when(rLock.tryLock(anyLong(), anyLong(), eq(TimeUnit.MILLISECONDS), anyLong())).thenReturn(Mono.just(false));
+        ProceedingJoinPoint joinPoint = joinPoint(methodName, Flux.just("ok"));
+
+        DistributedLockException e = Assertions.assertThrows(DistributedLockException.class,
+                () -> flux(aspect.around(joinPoint, lock(methodName))).blockLast());
+
+        Assertions.assertEquals("支付处理中", e.getMessage());
+        verify(joinPoint, never()).proceed();
+        verify(rLock, never()).unlock(anyLong());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"mono", "flux"})
+    void testUnlockFailureKeepsBusinessResult(String methodName) throws Throwable {
+        when(rLock.unlock(anyLong())).thenReturn(Mono.error(new IllegalStateException("redis down")));
+
+        ProceedingJoinPoint success = joinPoint(methodName, Flux.just("ok"));
+        Assertions.assertEquals(List.of("ok"), flux(aspect.around(success, lock(methodName))).collectList().block());
+
+        ProceedingJoinPoint failure = joinPoint(methodName, Flux.error(new IllegalArgumentException("business failed")));
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> flux(aspect.around(failure, lock(methodName))).blockLast());
+        Assertions.assertEquals("business failed", e.getMessage());
+    }
+
+    @Test
+    void testReturnTypePreserved() throws Throwable {
+        Assertions.assertInstanceOf(Mono.class, aspect.around(joinPoint("mono", Flux.just("ok")), lock("mono")));
+        Assertions.assertInstanceOf(Flux.class, aspect.around(joinPoint("flux", Flux.just("ok")), lock("flux")));
+    }
+
+    /**
+     * 释放恰好一次，且使用加锁时的持有者 ID
+     */
+    private void assertUnlockedOnceByOwner() {
+        ArgumentCaptor<Long> owner = ArgumentCaptor.forClass(Long.class);
+        verify(rLock).tryLock(eq(0L), eq(-1L), eq(TimeUnit.MILLISECONDS), owner.capture());
+        verify(rLock, times(1)).unlock(anyLong());
+        verify(rLock).unlock(owner.getValue().longValue());
+    }
+
+    private static DistributedLock lock(String methodName) throws NoSuchMethodException {
+        return Target.class.getDeclaredMethod(methodName).getAnnotation(DistributedLock.class);
+    }
+
+    private static ProceedingJoinPoint joinPoint(String methodName, Flux<String> body) throws Throwable {
+        Method method = Target.class.getDeclaredMethod(methodName);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(method);
+        when(signature.getReturnType()).thenReturn(method.getReturnType());
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getArgs()).thenReturn(new Object[0]);
+        when(joinPoint.proceed()).thenAnswer(invocation -> "mono".equals(methodName) ? Mono.from(body) : body);
+        return joinPoint;
+    }
+
+    /**
+     * 统一按 Flux 读取切面返回的 Mono / Flux
+     */
+    private static Flux<String> flux(Object result) {
+        return Flux.from((Publisher<?>) result).cast(String.class);
+    }
+
+    static class Target {
+
+        @DistributedLock(scene = "pay", key = "1", errorMessage = "支付处理中")
+        public Mono<String> mono() {
+            return Mono.just("ok");
+        }
+
+        @DistributedLock(scene = "pay", key = "1", errorMessage = "支付处理中")
+        public Flux<String> flux() {
+            return Flux.just("ok");
+        }
+    }
+}
@@ -3,6 +3,7 @@ package cn.refinex.gateway.auth;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,4 +20,95 @@ public class GatewayAuthProperties {
      * 登录校验白名单路径
      */
     private List<String> excludePaths = new ArrayList<>();
+
+    /**
+     * 路径角色/权限规则（按声明顺序校验）
+     */
+    private List<RouteRule> routeRules = new ArrayList<>();
+
+    /**
+     * 数据资源接口规则，与 scr_drs_interface 的 http_method / path_pattern / permission_key 一一对应
+     */
+    private List<InterfaceRule> interfaceRules = new ArrayList<>();
+
+    /**
+     * LoginUser 本地缓存配置
+     */
+    private LoginUserCache loginUserCache = new LoginUserCache();
+
+    /**
+     * 路径角色/权限规则
+     */
+    @Data
+    public static class RouteRule {
+
+        /**
+         * 匹配路径（Ant 风格）
+         */
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * 限定 HTTP 方法，为空表示不限
+         */
+        private String httpMethod;
+
+        /**
+         * 需要的角色编码
+         */
+        private List<String> roles = new ArrayList<>();
+
+        /**
+         * 需要的权限编码
+         */
+        private List<String> permissions = new ArrayList<>();
+
+        /**
+         * 多个角色/权限之间的关系：AND 全部满足，OR 任一满足
+         */
+        private String mode = "AND";
+    }
+
+    /**
+     * 数据资源接口规则
+     */
+    @Data
+    public static class InterfaceRule {
+
+        /**
+         * HTTP 方法，为空表示不限
+         */
+        private String httpMethod;
+
+        /**
+         * 接口路径（Ant 风格）
+         */
+        private String pathPattern;
+
+        /**
+         * 访问所需权限编码
+         */
+        private String permissionKey;
+    }
+
+    /**
+     * LoginUser 本地缓存配置
+     */
+    @Data
+    public static class LoginUserCache {
+
+        /**
+         * 是否启用本地缓存，关闭后每次鉴权直接读取 Redis Session
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条目数
+         */
+        private long maximumSize = 10_000;
+
+        /**
+         * 写入后过期时间，作为广播消息丢失时的兜底一致性窗口
+         */
+        private Duration expireAfterWrite = Duration.ofSeconds(30);
+    }
 }
@@ -0,0 +1,54 @@
+package cn.refinex.gateway.auth;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LoginUser 本地缓存 Actuator 端点
+ * <p>
+ * GET /actuator/loginusercache 查看命中、未命中、淘汰计数；POST 清空缓存。
+ *
+ * @author refinex
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "loginusercache")
+public class LoginUserCacheEndpoint {
+
+    private final LoginUserNearCache loginUserNearCache;
+
+    /**
+     * 查看缓存统计
+     *
+     * @return 统计信息
+     */
+    @ReadOperation
+    public Map<String, Object> stats() {
+        CacheStats stats = loginUserNearCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", loginUserNearCache.isEnabled());
+        result.put("size", loginUserNearCache.size());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("loadFailureCount", stats.loadFailureCount());
+        result.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return result;
+    }
+
+    /**
+     * 清空缓存
+     */
+    @WriteOperation
+    public void clear() {
+        loginUserNearCache.invalidateAll();
+    }
+}
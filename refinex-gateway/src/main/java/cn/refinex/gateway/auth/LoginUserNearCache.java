@@ -0,0 +1,171 @@
+package cn.refinex.gateway.auth;
+
+import cn.refinex.api.user.model.context.LoginUser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.BaseStatusListener;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * 网关 LoginUser 本地近端缓存
+ * <p>
+ * 以 loginId 为键缓存 Sa-Session 中的 LoginUser，避免每次鉴权（getRoleList / getPermissionList）都读取 Redis Session。
+ * 认证服务改写 Session 后通过 {@link LoginUser#SESSION_CHANGED_CHANNEL} 广播 loginId，本地缓存据此失效；
+ * 写入后过期时间作为广播丢失时的兜底。订阅重连时清空全部缓存，避免断线期间遗漏的失效消息。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+public class LoginUserNearCache implements InitializingBean, DisposableBean {
+
+    /**
+     * 指标名称
+     */
+    private static final String CACHE_NAME = "gateway.login-user";
+
+    private final GatewayAuthProperties.LoginUserCache properties;
+    private final RedissonClient redissonClient;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final Cache<String, LoginUser> cache;
+
+    private RTopic topic;
+    private Integer messageListenerId;
+    private Integer statusListenerId;
+
+    /**
+     * 构造函数
+     *
+     * @param gatewayAuthProperties 网关鉴权配置
+     * @param redissonClient        Redisson 客户端
+     * @param meterRegistryProvider 指标注册表
+     */
+    public LoginUserNearCache(GatewayAuthProperties gatewayAuthProperties,
+                              RedissonClient redissonClient,
+                              ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.properties = gatewayAuthProperties.getLoginUserCache();
+        this.redissonClient = redissonClient;
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 订阅 Session 变更频道并注册缓存指标
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        topic = redissonClient.getTopic(LoginUser.SESSION_CHANGED_CHANNEL, StringCodec.INSTANCE);
+        messageListenerId = topic.addListener(String.class, (channel, loginId) -> invalidate(loginId));
+        statusListenerId = topic.addListener(new BaseStatusListener() {
+            @Override
+            public void onSubscribe(String channel) {
+                // 首次订阅或断线重连：期间可能漏掉失效消息，全部丢弃
+                invalidateAll();
+            }
+        });
+
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        }
+    }
+
+    /**
+     * 取消订阅
+     */
+    @Override
+    public void destroy() {
+        if (topic == null) {
+            return;
+        }
+        if (messageListenerId != null) {
+            topic.removeListener(messageListenerId);
+        }
+        if (statusListenerId != null) {
+            topic.removeListener(statusListenerId);
+        }
+    }
+
+    /**
+     * 获取 LoginUser，未命中时通过 loader 从 Session 加载
+     * <p>
+     * 同一 loginId 的并发未命中只会触发一次加载；loader 返回 null 时不缓存。
+     *
+     * @param loginId 登录id
+     * @param loader  Session 加载函数
+     * @return LoginUser
+     */
+    public LoginUser get(Object loginId, Function<Object, LoginUser> loader) {
+        if (!properties.isEnabled() || loginId == null) {
+            return loader.apply(loginId);
+        }
+        return cache.get(String.valueOf(loginId), key -> loader.apply(loginId));
+    }
+
+    /**
+     * 失效指定登录用户
+     *
+     * @param loginId 登录id
+     */
+    public void invalidate(String loginId) {
+        if (loginId == null || loginId.isBlank()) {
+            return;
+        }
+        cache.invalidate(loginId.trim());
+        log.debug("LoginUser near cache invalidated, loginId: {}", loginId);
+    }
+
+    /**
+     * 清空全部缓存
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 当前缓存条目数（近似值）
+     *
+     * @return 条目数
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 缓存命中/未命中/淘汰统计
+     *
+     * @return 统计快照
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 是否启用
+     *
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+}
@@ -0,0 +1,60 @@
+package cn.refinex.gateway.auth;
+
+import cn.dev33.satoken.stp.StpUtil;
+
+import java.util.List;
+
+/**
+ * 单条路径鉴权规则（编译后）
+ *
+ * @param paths       匹配路径（Ant 风格）
+ * @param httpMethod  限定的 HTTP 方法（大写），为 null 表示不限
+ * @param roles       需要的角色编码
+ * @param permissions 需要的权限编码
+ * @param any         true 表示任一满足（OR），false 表示全部满足（AND）
+ * @author refinex
+ */
+public record RouteCheck(List<String> paths, String httpMethod, List<String> roles, List<String> permissions, boolean any) {
+
+    /**
+     * 构造函数，统一规范化方法与编码列表
+     */
+    public RouteCheck {
+        paths = paths == null ? List.of() : List.copyOf(paths);
+        httpMethod = httpMethod == null || httpMethod.isBlank() ? null : httpMethod.trim().toUpperCase();
+        roles = roles == null ? List.of() : List.copyOf(roles);
+        permissions = permissions == null ? List.of() : List.copyOf(permissions);
+    }
+
+    /**
+     * 是否适用于指定 HTTP 方法
+     *
+     * @param method HTTP 方法
+     * @return 是否适用
+     */
+    public boolean appliesTo(String method) {
+        return httpMethod == null || httpMethod.equalsIgnoreCase(method);
+    }
+
+    /**
+     * 执行 Sa-Token 角色/权限校验，不满足时抛出 NotRoleException / NotPermissionException
+     */
+    public void check() {
+        if (!roles.isEmpty()) {
+            String[] codes = roles.toArray(String[]::new);
+            if (any) {
+                StpUtil.checkRoleOr(codes);
+            } else {
+                StpUtil.checkRoleAnd(codes);
+            }
+        }
+        if (!permissions.isEmpty()) {
+            String[] codes = permissions.toArray(String[]::new);
+            if (any) {
+                StpUtil.checkPermissionOr(codes);
+            } else {
+                StpUtil.checkPermissionAnd(codes);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package cn.refinex.gateway.auth;
+
+import cn.refinex.api.user.enums.UserPermission;
+import cn.refinex.api.user.enums.UserRole;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.endpoint.event.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 路径鉴权索引注册表
+ * <p>
+ * 启动时编译一次 {@link RoutePermissionMatcher}，Nacos 配置刷新（RefreshScope 刷新完成、配置已重新绑定）后整体重建并原子替换，
+ * 请求线程始终读取一份完整的不可变索引。
+ *
+ * @author refinex
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoutePermissionRegistry implements InitializingBean {
+
+    private final GatewayAuthProperties gatewayAuthProperties;
+
+    private volatile RoutePermissionMatcher matcher;
+
+    /**
+     * 启动时编译
+     */
+    @Override
+    public void afterPropertiesSet() {
+        rebuild();
+    }
+
+    /**
+     * 配置刷新后重建
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        rebuild();
+    }
+
+    /**
+     * 当前索引
+     *
+     * @return 路径鉴权索引
+     */
+    public RoutePermissionMatcher current() {
+        return matcher;
+    }
+
+    /**
+     * 重新编译索引，编译失败时保留旧索引
+     */
+    public synchronized void rebuild() {
+        try {
+            List<RouteCheck> checks = buildRouteChecks(gatewayAuthProperties);
+            matcher = RoutePermissionMatcher.compile(gatewayAuthProperties.getExcludePaths(), checks);
+            log.info("Gateway route permission index compiled, excludePaths: {}, rules: {}",
+                    gatewayAuthProperties.getExcludePaths().size(), checks.size());
+        } catch (RuntimeException e) {
+            if (matcher == null) {
+                throw e;
+            }
+            log.error("Failed to rebuild gateway route permission index, keep previous one", e);
+        }
+    }
+
+    /**
+     * 汇总内置规则、配置规则与数据资源接口规则
+     *
+     * @param properties 网关鉴权配置
+     * @return 鉴权规则，按校验顺序
+     */
+    static List<RouteCheck> buildRouteChecks(GatewayAuthProperties properties) {
+        List<RouteCheck> checks = new ArrayList<>(defaultRouteChecks());
+
+        for (GatewayAuthProperties.RouteRule rule : properties.getRouteRules()) {
+            checks.add(new RouteCheck(rule.getPaths(), rule.getHttpMethod(), rule.getRoles(), rule.getPermissions(),
+                    "OR".equalsIgnoreCase(rule.getMode())));
+        }
+
+        for (GatewayAuthProperties.InterfaceRule rule : properties.getInterfaceRules()) {
+            if (rule.getPathPattern() == null || rule.getPathPattern().isBlank()
+                    || rule.getPermissionKey() == null || rule.getPermissionKey().isBlank()) {
+                continue;
+            }
+            checks.add(new RouteCheck(List.of(rule.getPathPattern()), rule.getHttpMethod(), List.of(),
+                    List.of(rule.getPermissionKey()), false));
+        }
+        return checks;
+    }
+
+    /**
+     * 内置规则
+     *
+     * @return 内置规则
+     */
+    private static List<RouteCheck> defaultRouteChecks() {
+        return List.of(
+                // 管理员模块需要管理员角色才能访问
+                new RouteCheck(List.of("/admin/**"), null, List.of(UserRole.ADMIN.name()), List.of(), false),
+                // 交易模块需要需实名认证权限才能访问
+                new RouteCheck(List.of("/trade/**"), null, List.of(), List.of(UserPermission.AUTH.name()), false),
+                // 用户中心/订单中心 (基础权限 or 冻结状态限制)
+                new RouteCheck(List.of("/user/**", "/order/**"), null, List.of(),
+                        List.of(UserPermission.BASIC.name(), UserPermission.FROZEN.name()), true)
+        );
+    }
+}
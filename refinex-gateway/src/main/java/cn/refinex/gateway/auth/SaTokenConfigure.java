@@ -1,21 +1,20 @@
 package cn.refinex.gateway.auth;
 
+import cn.dev33.satoken.context.SaHolder;
+import cn.dev33.satoken.context.model.SaRequest;
 import cn.dev33.satoken.exception.NotLoginException;
 import cn.dev33.satoken.exception.NotPermissionException;
 import cn.dev33.satoken.exception.NotRoleException;
 import cn.dev33.satoken.reactor.filter.SaReactorFilter;
 import cn.dev33.satoken.router.SaHttpMethod;
-import cn.dev33.satoken.router.SaRouter;
 import cn.dev33.satoken.stp.StpUtil;
 import cn.dev33.satoken.util.SaResult;
 import cn.refinex.api.user.enums.UserPermission;
-import cn.refinex.api.user.enums.UserRole;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.util.CollectionUtils;
 
 /**
  * Sa-Token 全局过滤器配置 (WebFlux 版)
@@ -28,17 +27,15 @@ import org.springframework.util.CollectionUtils;
 @EnableConfigurationProperties(GatewayAuthProperties.class)
 public class SaTokenConfigure {
 
-    private final GatewayAuthProperties gatewayAuthProperties;
+    private final RoutePermissionRegistry routePermissionRegistry;
 
     /**
      * 配置 Sa-Token 全局过滤器
+     * <p>
+     * 白名单与角色/权限规则由 {@link RoutePermissionRegistry} 预编译为路径索引，每个请求只做一次查找。
      */
     @Bean
     public SaReactorFilter getSaReactorFilter() {
-        String[] authExcludePaths = CollectionUtils.isEmpty(gatewayAuthProperties.getExcludePaths())
-                ? new String[0]
-                : gatewayAuthProperties.getExcludePaths().toArray(String[]::new);
-
         return new SaReactorFilter()
                 // 1. 拦截所有请求
                 .addInclude("/**")
@@ -46,29 +43,20 @@ public class SaTokenConfigure {
                 .addExclude("/favicon.ico", "/actuator/**")
                 // 3. 鉴权逻辑
                 .setAuth(obj -> {
-                    // A. 登录校验
-                    SaRouter
-                            // 拦截所有
-                            .match("/**")
-                            // CORS 预检请求直接放行
-                            .notMatch(SaHttpMethod.OPTIONS)
-                            // 排除白名单（由 refinex-gateway.yml 配置）
-                            .notMatch(authExcludePaths)
-                            // 其他请求都需要登录校验
-                            .check(r -> StpUtil.checkLogin());
-
-                    // B. 角色/权限校验
-                    // 管理员模块需要管理员角色才能访问
-                    SaRouter.match("/admin/**", r -> StpUtil.checkRole(UserRole.ADMIN.name()));
+                    SaRequest request = SaHolder.getRequest();
+                    String method = request.getMethod();
+                    RoutePermissionMatcher.RouteDecision decision = routePermissionRegistry.current()
+                            .match(method, request.getRequestPath());
 
-                    // 交易模块需要需实名认证权限才能访问
-                    SaRouter.match("/trade/**", r -> StpUtil.checkPermission(UserPermission.AUTH.name()));
+                    // A. 登录校验: CORS 预检请求与白名单（由 refinex-gateway.yml 配置）直接放行
+                    if (!SaHttpMethod.OPTIONS.name().equalsIgnoreCase(method) && !decision.excluded()) {
+                        StpUtil.checkLogin();
+                    }
 
-                    // 用户中心/订单中心 (基础权限 or 冻结状态限制)
-                    // 注意：这里的业务逻辑可能需要根据实际需求调整，冻结用户是否允许查看订单？
-                    SaRouter.match("/user/**", "/order/**", r ->
-                            StpUtil.checkPermissionOr(UserPermission.BASIC.name(), UserPermission.FROZEN.name())
-                    );
+                    // B. 角色/权限校验（内置规则、route-rules、interface-rules，按声明顺序）
+                    for (RouteCheck check : decision.checks()) {
+                        check.check();
+                    }
                 })
                 // 4. 异常处理 (返回 JSON 给前端)
                 .setError(this::processError);
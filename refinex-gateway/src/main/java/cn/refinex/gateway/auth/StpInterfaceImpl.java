@@ -5,6 +5,7 @@ import cn.dev33.satoken.stp.StpInterface;
 import cn.dev33.satoken.stp.StpUtil;
 import cn.refinex.api.user.enums.UserStatus;
 import cn.refinex.api.user.model.context.LoginUser;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -15,13 +16,17 @@ import java.util.List;
  * Sa-Token 权限加载接口实现
  * <p>
  * 从 Session (Redis) 中加载用户信息，计算用户的 角色 和 权限列表。
+ * 加载结果经 {@link LoginUserNearCache} 本地缓存，Session 变更时由认证服务广播失效。
  *
  * @author refinex
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class StpInterfaceImpl implements StpInterface {
 
+    private final LoginUserNearCache loginUserNearCache;
+
     /**
      * 返回指定登录的用户 获得的 权限码列表
      *
@@ -68,12 +73,22 @@ public class StpInterfaceImpl implements StpInterface {
     }
 
     /**
-     * 从 Sa-Session 获取 LoginUser
+     * 获取 LoginUser，优先读取本地缓存
      *
      * @param loginId 登录id
      * @return LoginUser
      */
     private LoginUser getLoginUser(Object loginId) {
+        return loginUserNearCache.get(loginId, this::loadLoginUser);
+    }
+
+    /**
+     * 从 Sa-Session 获取 LoginUser
+     *
+     * @param loginId 登录id
+     * @return LoginUser
+     */
+    private LoginUser loadLoginUser(Object loginId) {
         try {
             SaSession session = StpUtil.getSessionByLoginId(loginId);
             LoginUser loginUser = (LoginUser) session.get(LoginUser.SESSION_KEY);
@@ -0,0 +1,123 @@
+package cn.refinex.gateway.auth;
+
+import cn.dev33.satoken.router.SaRouter;
+import cn.dev33.satoken.strategy.SaStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路径鉴权匹配基准：逐条 SaRouter 匹配 vs 预编译前缀树索引
+ * <p>
+ * 运行方式：在 IDE 中执行 main 方法。规则由白名单、模块级角色规则与 scr_drs_interface 风格的接口级权限规则组成，
+ * 基线使用与 Sa-Token Spring 集成相同的 AntPathMatcher 路由匹配。
+ *
+ * @author refinex
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutePermissionMatcherBenchmark {
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE"};
+
+    @Param({"500", "2000"})
+    private int ruleCount;
+
+    private List<String> excludePaths;
+    private List<RouteCheck> checks;
+    private RoutePermissionMatcher matcher;
+    private String[] requestPaths;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        AntPathMatcher antPathMatcher = new AntPathMatcher();
+        SaStrategy.instance.routeMatcher = antPathMatcher::match;
+
+        excludePaths = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            excludePaths.add("/refinex-auth/public/" + i + "/**");
+        }
+
+        checks = new ArrayList<>(ruleCount);
+        int modules = Math.max(1, ruleCount / 50);
+        for (int i = 0; i < modules; i++) {
+            checks.add(new RouteCheck(List.of("/module" + i + "/**"), null, List.of("ROLE_" + i), List.of(), false));
+        }
+        for (int i = checks.size(); i < ruleCount; i++) {
+            int module = i % modules;
+            String path = switch (i % 3) {
+                case 0 -> "/module" + module + "/resource" + i + "/{id}";
+                case 1 -> "/module" + module + "/resource" + i + "/list";
+                default -> "/module" + module + "/resource" + i + "/**";
+            };
+            checks.add(new RouteCheck(List.of(path), METHODS[i % METHODS.length], List.of(),
+                    List.of("drs" + module + ":interface" + i), false));
+        }
+        matcher = RoutePermissionMatcher.compile(excludePaths, checks);
+
+        requestPaths = new String[1024];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < requestPaths.length; i++) {
+            int rule = random.nextInt(ruleCount);
+            requestPaths[i] = "/module" + (rule % modules) + "/resource" + rule + "/" + random.nextInt(1000);
+        }
+    }
+
+    private String nextPath() {
+        cursor = (cursor + 1) & (requestPaths.length - 1);
+        return requestPaths[cursor];
+    }
+
+    /**
+     * 基线：与原 SaRouter 链等价，逐条规则做 Ant 匹配
+     */
+    @Benchmark
+    public void saRouterChain(Blackhole blackhole) {
+        String path = nextPath();
+        boolean excluded = SaRouter.isMatch(excludePaths, path);
+        blackhole.consume(excluded);
+        for (RouteCheck check : checks) {
+            if (check.appliesTo("GET") && SaRouter.isMatch(check.paths(), path)) {
+                blackhole.consume(check);
+            }
+        }
+    }
+
+    /**
+     * 预编译前缀树：一次查找得到白名单与全部命中规则
+     */
+    @Benchmark
+    public void compiledMatcher(Blackhole blackhole) {
+        blackhole.consume(matcher.match("GET", nextPath()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RoutePermissionMatcherBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
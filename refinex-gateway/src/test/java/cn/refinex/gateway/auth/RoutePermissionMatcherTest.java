@@ -0,0 +1,84 @@
+package cn.refinex.gateway.auth;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+
+/**
+ * Route Permission Matcher Test
+ *
+ * @author refinex
+ */
+class RoutePermissionMatcherTest {
+
+    private static final List<String> PATTERNS = List.of(
+            "/refinex-auth/auth/login",
+            "/refinex-auth/auth/**",
+            "/admin/**",
+            "/user/*/profile",
+            "/user/{userId}/orders/{orderId}",
+            "/files/*.png",
+            "/files/report-??.pdf",
+            "/api/v{version:\\d+}/items",
+            "/**/public/**",
+            "/order/**/detail"
+    );
+
+    private static final List<String> PATHS = List.of(
+            "/refinex-auth/auth/login",
+            "/refinex-auth/auth/sms/send",
+            "/refinex-auth/token/info",
+            "/admin",
+            "/admin/users/1",
+            "/user/1/profile",
+            "/user/1/2/profile",
+            "/user/1/orders/9",
+            "/files/a.png",
+            "/files/a.jpg",
+            "/files/report-01.pdf",
+            "/files/report-1.pdf",
+            "/api/v2/items",
+            "/api/vx/items",
+            "/x/public",
+            "/x/y/public/z",
+            "/order/detail",
+            "/order/1/2/detail",
+            "/order/1/2/summary"
+    );
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Test
+    void testExcludeMatchesAntPathMatcher() {
+        for (String pattern : PATTERNS) {
+            RoutePermissionMatcher matcher = RoutePermissionMatcher.compile(List.of(pattern), List.of());
+            for (String path : PATHS) {
+                Assertions.assertEquals(antPathMatcher.match(pattern, path), matcher.match("GET", path).excluded(),
+                        () -> "pattern=" + pattern + ", path=" + path);
+            }
+        }
+    }
+
+    @Test
+    void testRulesResolvedInDeclarationOrder() {
+        RouteCheck admin = new RouteCheck(List.of("/admin/**"), null, List.of("ADMIN"), List.of(), false);
+        RouteCheck all = new RouteCheck(List.of("/**"), null, List.of(), List.of("BASIC"), false);
+        RouteCheck postOnly = new RouteCheck(List.of("/admin/users"), "post", List.of(), List.of("user:create"), false);
+        RoutePermissionMatcher matcher = RoutePermissionMatcher.compile(List.of("/admin/login"), List.of(admin, all, postOnly));
+
+        RoutePermissionMatcher.RouteDecision post = matcher.match("POST", "/admin/users");
+        Assertions.assertFalse(post.excluded());
+        Assertions.assertEquals(List.of(admin, all, postOnly), post.checks());
+
+        RoutePermissionMatcher.RouteDecision get = matcher.match("GET", "/admin/users");
+        Assertions.assertEquals(List.of(admin, all), get.checks());
+
+        RoutePermissionMatcher.RouteDecision login = matcher.match("POST", "/admin/login");
+        Assertions.assertTrue(login.excluded());
+        Assertions.assertEquals(List.of(admin, all), login.checks());
+
+        Assertions.assertEquals(List.of(all), matcher.match("GET", "/trade/1").checks());
+    }
+}